@@ -106,6 +106,13 @@ public final class BlockTreeTermsReader extends FieldsProducer {
   /** Current terms format. */
   public static final int VERSION_CURRENT = VERSION_AUTO_PREFIX_TERMS;
 
+  /** {@link FieldInfo} attribute that is set to <code>true</code> on fields
+   *  whose terms index should be read from the terms index file rather than
+   *  loaded onto the heap. This keeps the terms index of high-cardinality
+   *  fields in the OS cache instead of the heap, at the cost of slower
+   *  lookups when the file is not cached. */
+  public static final String OFF_HEAP_TERMS_INDEX_KEY = BlockTreeTermsReader.class.getSimpleName() + ".offHeapTermsIndex";
+
   /** Extension of terms index file */
   static final String TERMS_INDEX_EXTENSION = "tip";
   final static String TERMS_INDEX_CODEC_NAME = "BlockTreeTermsIndex";
@@ -113,6 +120,10 @@ public final class BlockTreeTermsReader extends FieldsProducer {
   // Open input to the main terms dict file (_X.tib)
   final IndexInput termsIn;
 
+  // Open input to the terms index file (_X.tip), only kept open if
+  // some fields read their terms index off-heap
+  private final IndexInput indexIn;
+
   //private static final boolean DEBUG = BlockTreeTermsWriter.DEBUG;
 
   // Reads the terms dict entries, to gather state to
@@ -135,6 +146,7 @@ public final class BlockTreeTermsReader extends FieldsProducer {
   public BlockTreeTermsReader(PostingsReaderBase postingsReader, SegmentReadState state) throws IOException {
     boolean success = false;
     IndexInput indexIn = null;
+    boolean offHeapTermsIndex = false;
     
     this.postingsReader = postingsReader;
     this.segment = state.segmentInfo.name;
@@ -203,15 +215,22 @@ public final class BlockTreeTermsReader extends FieldsProducer {
           throw new CorruptIndexException("invalid sumTotalTermFreq: " + sumTotalTermFreq + " sumDocFreq: " + sumDocFreq, termsIn);
         }
         final long indexStartFP = indexIn.readVLong();
+        final boolean offHeap = "true".equals(fieldInfo.getAttribute(OFF_HEAP_TERMS_INDEX_KEY));
+        offHeapTermsIndex |= offHeap;
         FieldReader previous = fields.put(fieldInfo.name,       
                                           new FieldReader(this, fieldInfo, numTerms, rootCode, sumTotalTermFreq, sumDocFreq, docCount,
-                                                          indexStartFP, longsSize, indexIn, minTerm, maxTerm));
+                                                          indexStartFP, longsSize, indexIn, offHeap, minTerm, maxTerm));
         if (previous != null) {
           throw new CorruptIndexException("duplicate field: " + fieldInfo.name, termsIn);
         }
       }
       
-      indexIn.close();
+      if (offHeapTermsIndex) {
+        this.indexIn = indexIn;
+      } else {
+        indexIn.close();
+        this.indexIn = null;
+      }
       success = true;
     } finally {
       if (!success) {
@@ -245,7 +264,7 @@ public final class BlockTreeTermsReader extends FieldsProducer {
   @Override
   public void close() throws IOException {
     try {
-      IOUtils.close(termsIn, postingsReader);
+      IOUtils.close(indexIn, termsIn, postingsReader);
     } finally { 
       // Clear so refs to terms index is GCable even if
       // app hangs onto us:
@@ -306,6 +325,11 @@ public final class BlockTreeTermsReader extends FieldsProducer {
   public void checkIntegrity() throws IOException { 
     // term dictionary
     CodecUtil.checksumEntireFile(termsIn);
+
+    // terms index, if some fields read it off-heap
+    if (indexIn != null) {
+      CodecUtil.checksumEntireFile(indexIn);
+    }
       
     // postings
     postingsReader.checkIntegrity();
@@ -224,6 +224,7 @@ public final class BlockTreeTermsWriter extends FieldsConsumer {
   final int maxItemsInBlock;
   final int minItemsInAutoPrefix;
   final int maxItemsInAutoPrefix;
+  final boolean offHeapTermsIndex;
 
   final PostingsWriterBase postingsWriter;
   final FieldInfos fieldInfos;
@@ -279,6 +280,16 @@ public final class BlockTreeTermsWriter extends FieldsConsumer {
     this(state, postingsWriter, minItemsInBlock, maxItemsInBlock, 0, 0);
   }
 
+  /** Create a new writer, see {@link #BlockTreeTermsWriter(SegmentWriteState,PostingsWriterBase,int,int,int,int,boolean)}. */
+  public BlockTreeTermsWriter(SegmentWriteState state,
+                              PostingsWriterBase postingsWriter,
+                              int minItemsInBlock,
+                              int maxItemsInBlock,
+                              int minItemsInAutoPrefix,
+                              int maxItemsInAutoPrefix) throws IOException {
+    this(state, postingsWriter, minItemsInBlock, maxItemsInBlock, minItemsInAutoPrefix, maxItemsInAutoPrefix, false);
+  }
+
   /** Create a new writer.  The number of items (terms or
    *  sub-blocks) per block will aim to be between
    *  minItemsPerBlock and maxItemsPerBlock, though in some
@@ -289,13 +300,18 @@ public final class BlockTreeTermsWriter extends FieldsConsumer {
    *  {@code minItemsInAutoPrefix} other terms or prefixes,
    *  and at most {@code maxItemsInAutoPrefix} other terms
    *  or prefixes.  Set {@code minItemsInAutoPrefix} to 0
-   *  to disable auto-prefix terms. */
+   *  to disable auto-prefix terms.
+   *  If {@code offHeapTermsIndex} is true, the terms index
+   *  of the written fields is marked to be read from the
+   *  index file rather than loaded onto the heap, see
+   *  {@link BlockTreeTermsReader#OFF_HEAP_TERMS_INDEX_KEY}. */
   public BlockTreeTermsWriter(SegmentWriteState state,
                               PostingsWriterBase postingsWriter,
                               int minItemsInBlock,
                               int maxItemsInBlock,
                               int minItemsInAutoPrefix,
-                              int maxItemsInAutoPrefix)
+                              int maxItemsInAutoPrefix,
+                              boolean offHeapTermsIndex)
     throws IOException
   {
     validateSettings(minItemsInBlock,
@@ -318,6 +334,7 @@ public final class BlockTreeTermsWriter extends FieldsConsumer {
 
     this.minItemsInAutoPrefix = minItemsInAutoPrefix;
     this.maxItemsInAutoPrefix = maxItemsInAutoPrefix;
+    this.offHeapTermsIndex = offHeapTermsIndex;
 
     this.maxDoc = state.segmentInfo.maxDoc();
     this.fieldInfos = state.fieldInfos;
@@ -406,6 +423,8 @@ public final class BlockTreeTermsWriter extends FieldsConsumer {
         continue;
       }
       FieldInfo fieldInfo = fieldInfos.fieldInfo(field);
+      // always written, so that a merge does not keep the value of its source segments
+      fieldInfo.putAttribute(BlockTreeTermsReader.OFF_HEAP_TERMS_INDEX_KEY, Boolean.toString(offHeapTermsIndex));
 
       // First pass to find all prefix terms we should compile into the index:
       List<PrefixTerm> prefixTerms;
@@ -64,7 +64,7 @@ public final class FieldReader extends Terms implements Accountable {
   //private boolean DEBUG;
 
   FieldReader(BlockTreeTermsReader parent, FieldInfo fieldInfo, long numTerms, BytesRef rootCode, long sumTotalTermFreq, long sumDocFreq, int docCount,
-              long indexStartFP, int longsSize, IndexInput indexIn, BytesRef minTerm, BytesRef maxTerm) throws IOException {
+              long indexStartFP, int longsSize, IndexInput indexIn, boolean offHeapIndex, BytesRef minTerm, BytesRef maxTerm) throws IOException {
     assert numTerms > 0;
     this.fieldInfo = fieldInfo;
     //DEBUG = BlockTreeTermsReader.DEBUG && fieldInfo.name.equals("id");
@@ -88,7 +88,7 @@ public final class FieldReader extends Terms implements Accountable {
       final IndexInput clone = indexIn.clone();
       //System.out.println("start=" + indexStartFP + " field=" + fieldInfo.name);
       clone.seek(indexStartFP);
-      index = new FST<>(clone, ByteSequenceOutputs.getSingleton());
+      index = new FST<>(clone, ByteSequenceOutputs.getSingleton(), offHeapIndex);
         
       /*
         if (false) {
@@ -195,7 +195,13 @@ public final class FieldReader extends Terms implements Accountable {
     if (index == null) {
       return Collections.emptyList();
     } else {
-      return Collections.singleton(Accountables.namedAccountable("term index", index));
+      final long offHeapBytes = index.offHeapBytes();
+      if (offHeapBytes > 0) {
+        // only the heap part is accounted
+        return Collections.singleton(Accountables.namedAccountable("term index [" + offHeapBytes + " off-heap bytes]", index));
+      } else {
+        return Collections.singleton(Accountables.namedAccountable("term index", index));
+      }
     }
   }
 
@@ -50,6 +50,7 @@ public class CompressingStoredFieldsFormat extends StoredFieldsFormat {
   private final int chunkSize;
   private final int maxDocsPerChunk;
   private final int blockSize;
+  private final StoredFieldsChunkCache chunkCache;
 
   /**
    * Create a new {@link CompressingStoredFieldsFormat} with an empty segment 
@@ -98,6 +99,21 @@ public class CompressingStoredFieldsFormat extends StoredFieldsFormat {
    */
   public CompressingStoredFieldsFormat(String formatName, String segmentSuffix, 
                                        CompressionMode compressionMode, int chunkSize, int maxDocsPerChunk, int blockSize) {
+    this(formatName, segmentSuffix, compressionMode, chunkSize, maxDocsPerChunk, blockSize, null);
+  }
+
+  /**
+   * Create a new {@link CompressingStoredFieldsFormat} whose readers cache
+   * decompressed chunks in <code>chunkCache</code>. Segments that are loaded
+   * from a commit only use the cache if their readers are given a codec that
+   * returns this format, see {@link StoredFieldsChunkCache}.
+   *
+   * @param chunkCache the cache of decompressed chunks, or <code>null</code> to not cache chunks
+   * @see CompressingStoredFieldsFormat#CompressingStoredFieldsFormat(String, String, CompressionMode, int, int, int)
+   */
+  public CompressingStoredFieldsFormat(String formatName, String segmentSuffix, 
+                                       CompressionMode compressionMode, int chunkSize, int maxDocsPerChunk, int blockSize,
+                                       StoredFieldsChunkCache chunkCache) {
     this.formatName = formatName;
     this.segmentSuffix = segmentSuffix;
     this.compressionMode = compressionMode;
@@ -113,13 +129,14 @@ public class CompressingStoredFieldsFormat extends StoredFieldsFormat {
       throw new IllegalArgumentException("blockSize must be >= 1");
     }
     this.blockSize = blockSize;
+    this.chunkCache = chunkCache;
   }
 
   @Override
   public StoredFieldsReader fieldsReader(Directory directory, SegmentInfo si,
       FieldInfos fn, IOContext context) throws IOException {
     return new CompressingStoredFieldsReader(directory, si, segmentSuffix, fn, 
-        context, formatName, compressionMode);
+        context, formatName, compressionMode, chunkCache);
   }
 
   @Override
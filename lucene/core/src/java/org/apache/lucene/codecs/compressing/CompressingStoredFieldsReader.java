@@ -42,9 +42,11 @@ import static org.apache.lucene.codecs.compressing.CompressingStoredFieldsWriter
 import java.io.EOFException;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.codecs.StoredFieldsReader;
@@ -69,6 +71,7 @@ import org.apache.lucene.util.BitUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.packed.PackedInts;
 
 /**
@@ -91,6 +94,9 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
   private final BlockState state;
   private final long numChunks; // number of compressed blocks written
   private final long numDirtyChunks; // number of incomplete compressed blocks written
+  private final StoredFieldsChunkCache.SegmentCache chunkCache; // null if chunks are not cached
+  private final long dictionaryBytesUsed; // memory held by the preset dictionary of the decompressor
+  private final boolean original; // false for clones
   private boolean closed;
 
   // used by clone
@@ -104,17 +110,28 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
     this.packedIntsVersion = reader.packedIntsVersion;
     this.compressionMode = reader.compressionMode;
     this.decompressor = reader.decompressor.clone();
+    this.dictionaryBytesUsed = reader.dictionaryBytesUsed;
     this.numDocs = reader.numDocs;
     this.numChunks = reader.numChunks;
     this.numDirtyChunks = reader.numDirtyChunks;
     this.merging = merging;
+    // merges read every chunk once, don't let them pollute the cache
+    this.chunkCache = merging ? null : reader.chunkCache;
+    this.original = false;
     this.state = new BlockState();
     this.closed = false;
   }
 
-  /** Sole constructor. */
+  /** Create a reader that does not cache decompressed chunks. */
   public CompressingStoredFieldsReader(Directory d, SegmentInfo si, String segmentSuffix, FieldInfos fn,
       IOContext context, String formatName, CompressionMode compressionMode) throws IOException {
+    this(d, si, segmentSuffix, fn, context, formatName, compressionMode, null);
+  }
+
+  /** Create a reader that caches decompressed chunks in <code>chunkCache</code>,
+   *  or does not cache them if it is null. */
+  public CompressingStoredFieldsReader(Directory d, SegmentInfo si, String segmentSuffix, FieldInfos fn,
+      IOContext context, String formatName, CompressionMode compressionMode, StoredFieldsChunkCache chunkCache) throws IOException {
     this.compressionMode = compressionMode;
     final String segment = si.name;
     boolean success = false;
@@ -160,7 +177,24 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
       chunkSize = fieldsStream.readVInt();
       packedIntsVersion = fieldsStream.readVInt();
       decompressor = compressionMode.newDecompressor();
+      long dictionaryBytesUsed = 0;
+      if (compressionMode.getDictionaryLength() > 0) {
+        final int dictionaryLength = fieldsStream.readVInt();
+        if (dictionaryLength > compressionMode.getDictionaryLength()) {
+          throw new CorruptIndexException("Invalid dictionary length: " + dictionaryLength + " > " + compressionMode.getDictionaryLength(), fieldsStream);
+        }
+        if (dictionaryLength > 0) {
+          final BytesRef dictionary = new BytesRef();
+          decompressor.decompress(fieldsStream, dictionaryLength, 0, dictionaryLength, dictionary);
+          decompressor.setDictionary(dictionary.bytes, dictionary.offset, dictionary.length);
+          // decompressors keep a copy of the dictionary
+          dictionaryBytesUsed = RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + dictionaryLength);
+        }
+      }
+      this.dictionaryBytesUsed = dictionaryBytesUsed;
       this.merging = false;
+      this.chunkCache = chunkCache == null ? null : chunkCache.newSegmentCache();
+      this.original = true;
       this.state = new BlockState();
       
       if (version >= VERSION_CHUNK_STATS) {
@@ -203,6 +237,9 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
   @Override
   public void close() throws IOException {
     if (!closed) {
+      if (original && chunkCache != null) {
+        chunkCache.close();
+      }
       IOUtils.close(fieldsStream);
       closed = true;
     }
@@ -371,6 +408,10 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
 
     // whether the block has been sliced, this happens for large documents
     private boolean sliced;
+    // whether bytes holds the whole decompressed block
+    private boolean decompressed;
+    // whether offsets, numStoredFields and bytes belong to a cached chunk
+    private boolean cached;
 
     private int[] offsets = IntsRef.EMPTY_INTS;
     private int[] numStoredFields = IntsRef.EMPTY_INTS;
@@ -406,7 +447,38 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
       }
     }
 
+    /**
+     * Reset this block so that it stores state for the given cached chunk,
+     * which must contain the given doc id.
+     */
+    void reset(StoredFieldsChunkCache.Chunk chunk, int docID) throws CorruptIndexException {
+      docBase = chunk.docBase;
+      chunkDocs = chunk.chunkDocs;
+      if (contains(docID) == false) {
+        chunkDocs = 0;
+        throw new CorruptIndexException("Corrupted: docID=" + docID
+            + ", docBase=" + docBase + ", cached chunkDocs=" + chunk.chunkDocs, fieldsStream);
+      }
+      sliced = false;
+      offsets = chunk.offsets;
+      numStoredFields = chunk.numStoredFields;
+      bytes.bytes = chunk.bytes;
+      bytes.offset = 0;
+      bytes.length = chunk.bytes.length;
+      decompressed = true;
+      cached = true;
+    }
+
     private void doReset(int docID) throws IOException {
+      if (cached) {
+        // never write to arrays of the cache
+        offsets = IntsRef.EMPTY_INTS;
+        numStoredFields = IntsRef.EMPTY_INTS;
+        bytes.bytes = BytesRef.EMPTY_BYTES;
+        cached = false;
+      }
+      decompressed = false;
+      final long chunkStartPointer = fieldsStream.getFilePointer();
       docBase = fieldsStream.readVInt();
       final int token = fieldsStream.readVInt();
       chunkDocs = token >>> 1;
@@ -472,7 +544,8 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
 
       startPointer = fieldsStream.getFilePointer();
 
-      if (merging) {
+      // sliced blocks of large documents are not cached
+      if (merging || (chunkCache != null && sliced == false)) {
         final int totalLength = offsets[chunkDocs];
         // decompress eagerly
         if (sliced) {
@@ -491,6 +564,12 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
         if (bytes.length != totalLength) {
           throw new CorruptIndexException("Corrupted: expected chunk size = " + totalLength + ", got " + bytes.length, fieldsStream);
         }
+        decompressed = true;
+        if (chunkCache != null) {
+          chunkCache.put(chunkStartPointer, new StoredFieldsChunkCache.Chunk(docBase, chunkDocs,
+              Arrays.copyOf(offsets, chunkDocs + 1), Arrays.copyOf(numStoredFields, chunkDocs),
+              Arrays.copyOfRange(bytes.bytes, bytes.offset, bytes.offset + totalLength)));
+        }
       }
     }
 
@@ -513,7 +592,7 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
       if (length == 0) {
         // empty
         documentInput = new ByteArrayDataInput();
-      } else if (merging) {
+      } else if (decompressed) {
         // already decompressed
         documentInput = new ByteArrayDataInput(bytes.bytes, bytes.offset + offset, length);
       } else if (sliced) {
@@ -570,8 +649,14 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
 
   SerializedDocument document(int docID) throws IOException {
     if (state.contains(docID) == false) {
-      fieldsStream.seek(indexReader.getStartPointer(docID));
-      state.reset(docID);
+      final long startPointer = indexReader.getStartPointer(docID);
+      final StoredFieldsChunkCache.Chunk chunk = chunkCache == null ? null : chunkCache.get(startPointer);
+      if (chunk != null) {
+        state.reset(chunk, docID);
+      } else {
+        fieldsStream.seek(startPointer);
+        state.reset(docID);
+      }
     }
     assert state.contains(docID);
     return state.document(docID);
@@ -654,12 +739,28 @@ public final class CompressingStoredFieldsReader extends StoredFieldsReader {
 
   @Override
   public long ramBytesUsed() {
-    return indexReader.ramBytesUsed();
+    long ramBytesUsed = indexReader.ramBytesUsed() + dictionaryBytesUsed;
+    if (chunkCache != null) {
+      ramBytesUsed += chunkCache.ramBytesUsed();
+    }
+    return ramBytesUsed;
   }
   
   @Override
   public Collection<Accountable> getChildResources() {
-    return Collections.singleton(Accountables.namedAccountable("stored field index", indexReader));
+    final Accountable index = Accountables.namedAccountable("stored field index", indexReader);
+    if (chunkCache == null && dictionaryBytesUsed == 0) {
+      return Collections.singleton(index);
+    }
+    final List<Accountable> resources = new ArrayList<>();
+    resources.add(index);
+    if (dictionaryBytesUsed > 0) {
+      resources.add(Accountables.namedAccountable("preset dictionary", dictionaryBytesUsed));
+    }
+    if (chunkCache != null) {
+      resources.add(Accountables.namedAccountable(chunkCache.toString(), chunkCache));
+    }
+    return Collections.unmodifiableList(resources);
   }
 
   @Override
@@ -81,6 +81,8 @@ public final class CompressingStoredFieldsWriter extends StoredFieldsWriter {
   private final CompressionMode compressionMode;
   private final int chunkSize;
   private final int maxDocsPerChunk;
+  private final int dictionaryLength; // 0 if the compression mode doesn't use a dictionary
+  private boolean dictionaryWritten;
 
   private final GrowableByteArrayDataOutput bufferedDocs;
   private int[] numStoredFields; // number of stored fields
@@ -100,6 +102,8 @@ public final class CompressingStoredFieldsWriter extends StoredFieldsWriter {
     this.compressor = compressionMode.newCompressor();
     this.chunkSize = chunkSize;
     this.maxDocsPerChunk = maxDocsPerChunk;
+    this.dictionaryLength = compressionMode.getDictionaryLength();
+    this.dictionaryWritten = dictionaryLength == 0;
     this.docBase = 0;
     this.bufferedDocs = new GrowableByteArrayDataOutput(chunkSize);
     this.numStoredFields = new int[16];
@@ -161,11 +165,75 @@ public final class CompressingStoredFieldsWriter extends StoredFieldsWriter {
     numStoredFieldsInDoc = 0;
     endOffsets[numBufferedDocs] = bufferedDocs.length;
     ++numBufferedDocs;
-    if (triggerFlush()) {
+    if (dictionaryWritten == false) {
+      if (bufferedDocs.length >= dictionarySampleLength() ||
+          numBufferedDocs >= DICTIONARY_SAMPLE_RATIO * maxDocsPerChunk) {
+        writeDictionary();
+      }
+    } else if (triggerFlush()) {
       flush();
     }
   }
 
+  /** Number of bytes of documents to buffer before sampling a dictionary. */
+  private int dictionarySampleLength() {
+    return Math.max(chunkSize, DICTIONARY_SAMPLE_RATIO * dictionaryLength);
+  }
+
+  /** The dictionary is at most 1/DICTIONARY_SAMPLE_RATIO of the sampled bytes. */
+  static final int DICTIONARY_SAMPLE_RATIO = 8;
+  /** Number of slices of the sample that the dictionary is made of. */
+  static final int DICTIONARY_NUM_SLICES = 16;
+
+  /**
+   * Builds a preset dictionary out of evenly spaced slices of the sample, so
+   * that it contains strings that are common across documents.
+   */
+  static byte[] sampleDictionary(byte[] sample, int sampleLength, int maxDictionaryLength) {
+    final int dictionaryLength = Math.min(maxDictionaryLength, sampleLength / DICTIONARY_SAMPLE_RATIO);
+    final int sliceLength = dictionaryLength / DICTIONARY_NUM_SLICES;
+    if (sliceLength == 0) {
+      return BytesRef.EMPTY_BYTES;
+    }
+    final int stride = sampleLength / DICTIONARY_NUM_SLICES;
+    assert sliceLength <= stride;
+    final byte[] dictionary = new byte[sliceLength * DICTIONARY_NUM_SLICES];
+    for (int i = 0; i < DICTIONARY_NUM_SLICES; ++i) {
+      System.arraycopy(sample, i * stride, dictionary, i * sliceLength, sliceLength);
+    }
+    return dictionary;
+  }
+
+  /**
+   * Samples a dictionary from the buffered documents and writes it, then
+   * buffers the documents again so that they get compressed against the
+   * dictionary in chunks of <code>chunkSize</code> bytes.
+   */
+  private void writeDictionary() throws IOException {
+    assert dictionaryWritten == false;
+    assert docBase == 0;
+    final byte[] dictionary = sampleDictionary(bufferedDocs.bytes, bufferedDocs.length, dictionaryLength);
+    // the dictionary itself is compressed without a dictionary
+    fieldsStream.writeVInt(dictionary.length);
+    if (dictionary.length > 0) {
+      compressor.compress(dictionary, 0, dictionary.length, fieldsStream);
+      compressor.setDictionary(dictionary, 0, dictionary.length);
+    }
+    dictionaryWritten = true;
+
+    final int numDocs = numBufferedDocs;
+    final byte[] docs = Arrays.copyOf(bufferedDocs.bytes, bufferedDocs.length);
+    final int[] numStoredFields = Arrays.copyOf(this.numStoredFields, numDocs);
+    final int[] endOffsets = Arrays.copyOf(this.endOffsets, numDocs);
+    numBufferedDocs = 0;
+    bufferedDocs.length = 0;
+    for (int i = 0, start = 0; i < numDocs; start = endOffsets[i++]) {
+      bufferedDocs.writeBytes(docs, start, endOffsets[i] - start);
+      numStoredFieldsInDoc = numStoredFields[i];
+      finishDocument();
+    }
+  }
+
   private static void saveInts(int[] values, int length, DataOutput out) throws IOException {
     assert length > 0;
     if (length == 1) {
@@ -466,6 +534,10 @@ public final class CompressingStoredFieldsWriter extends StoredFieldsWriter {
 
   @Override
   public void finish(FieldInfos fis, int numDocs) throws IOException {
+    if (dictionaryWritten == false) {
+      // small segment: sample the dictionary from what we have
+      writeDictionary();
+    }
     if (numBufferedDocs > 0) {
       flush();
       numDirtyChunks++; // incomplete: we had to force this flush
@@ -533,6 +605,7 @@ public final class CompressingStoredFieldsWriter extends StoredFieldsWriter {
           ++docCount;
         }
       } else if (matchingFieldsReader.getCompressionMode() == compressionMode && 
+                 dictionaryLength == 0 && // chunks were compressed against the dictionary of their segment
                  matchingFieldsReader.getChunkSize() == chunkSize && 
                  matchingFieldsReader.getPackedIntsVersion() == PackedInts.VERSION_CURRENT &&
                  liveDocs == null &&
@@ -18,6 +18,7 @@ package org.apache.lucene.codecs.compressing;
  */
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.zip.DataFormatException;
 import java.util.zip.Deflater;
 import java.util.zip.Inflater;
@@ -113,6 +114,39 @@ public abstract class CompressionMode {
 
   };
 
+  /**
+   * This compression mode is similar to {@link #HIGH_COMPRESSION} but it is
+   * designed to be used with smaller chunks: writers that support it sample a
+   * preset dictionary of up to {@link #getDictionaryLength() 8KB} from the
+   * first documents of every file, store it once, and compress all chunks of
+   * the file against it. This recovers most of the compression ratio that
+   * small chunks lose, while documents can be loaded from disk faster since
+   * less data needs to be decompressed for each of them.
+   */
+  public static final CompressionMode HIGH_COMPRESSION_DICTIONARY = new CompressionMode() {
+
+    @Override
+    public Compressor newCompressor() {
+      return new DeflateCompressor(6);
+    }
+
+    @Override
+    public Decompressor newDecompressor() {
+      return new DeflateDecompressor();
+    }
+
+    @Override
+    public int getDictionaryLength() {
+      return 8 * 1024;
+    }
+
+    @Override
+    public String toString() {
+      return "HIGH_COMPRESSION_DICTIONARY";
+    }
+
+  };
+
   /** Sole constructor. */
   protected CompressionMode() {}
 
@@ -126,6 +160,16 @@ public abstract class CompressionMode {
    */
   public abstract Decompressor newDecompressor();
 
+  /**
+   * Return the maximum length of the preset dictionary that writers should
+   * pass to {@link Compressor#setDictionary}, or <code>0</code> if this
+   * compression mode should not be used with a preset dictionary, which is
+   * the default.
+   */
+  public int getDictionaryLength() {
+    return 0;
+  }
+
   private static final Decompressor LZ4_DECOMPRESSOR = new Decompressor() {
 
     @Override
@@ -186,12 +230,18 @@ public abstract class CompressionMode {
 
     final Inflater decompressor;
     byte[] compressed;
+    byte[] dictionary;
 
     DeflateDecompressor() {
       decompressor = new Inflater(true);
       compressed = new byte[0];
     }
 
+    @Override
+    public void setDictionary(byte[] bytes, int off, int len) {
+      dictionary = Arrays.copyOfRange(bytes, off, off + len);
+    }
+
     @Override
     public void decompress(DataInput in, int originalLength, int offset, int length, BytesRef bytes) throws IOException {
       assert offset + length <= originalLength;
@@ -208,6 +258,9 @@ public abstract class CompressionMode {
       compressed[compressedLength] = 0; // explicitly set dummy byte to 0
 
       decompressor.reset();
+      if (dictionary != null) {
+        decompressor.setDictionary(dictionary);
+      }
       // extra "dummy byte"
       decompressor.setInput(compressed, 0, paddedLength);
 
@@ -231,7 +284,9 @@ public abstract class CompressionMode {
 
     @Override
     public Decompressor clone() {
-      return new DeflateDecompressor();
+      final DeflateDecompressor clone = new DeflateDecompressor();
+      clone.dictionary = dictionary;
+      return clone;
     }
 
   }
@@ -240,15 +295,24 @@ public abstract class CompressionMode {
 
     final Deflater compressor;
     byte[] compressed;
+    byte[] dictionary;
 
     DeflateCompressor(int level) {
       compressor = new Deflater(level, true);
       compressed = new byte[64];
     }
 
+    @Override
+    public void setDictionary(byte[] bytes, int off, int len) {
+      dictionary = Arrays.copyOfRange(bytes, off, off + len);
+    }
+
     @Override
     public void compress(byte[] bytes, int off, int len, DataOutput out) throws IOException {
       compressor.reset();
+      if (dictionary != null) {
+        compressor.setDictionary(dictionary);
+      }
       compressor.setInput(bytes, off, len);
       compressor.finish();
 
@@ -36,4 +36,16 @@ public abstract class Compressor {
    */
   public abstract void compress(byte[] bytes, int off, int len, DataOutput out) throws IOException;
 
+  /**
+   * Use the given bytes as a preset dictionary for all subsequent calls to
+   * {@link #compress}. Data that has been compressed against a dictionary can
+   * only be decompressed by a {@link Decompressor} that has been given the same
+   * dictionary through {@link Decompressor#setDictionary}. The default
+   * implementation throws an {@link UnsupportedOperationException}.
+   * @see CompressionMode#getDictionaryLength()
+   */
+  public void setDictionary(byte[] bytes, int off, int len) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support preset dictionaries");
+  }
+
 }
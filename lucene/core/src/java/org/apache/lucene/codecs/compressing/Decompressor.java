@@ -46,6 +46,16 @@ public abstract class Decompressor implements Cloneable {
    */
   public abstract void decompress(DataInput in, int originalLength, int offset, int length, BytesRef bytes) throws IOException;
 
+  /**
+   * Use the given bytes as a preset dictionary for all subsequent calls to
+   * {@link #decompress}, see {@link Compressor#setDictionary}. Clones share
+   * the dictionary of the instance they have been cloned from. The default
+   * implementation throws an {@link UnsupportedOperationException}.
+   */
+  public void setDictionary(byte[] bytes, int off, int len) {
+    throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support preset dictionaries");
+  }
+
   @Override
   public abstract Decompressor clone();
 
@@ -0,0 +1,339 @@
+package org.apache.lucene.codecs.compressing;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.RamUsageEstimator;
+
+/**
+ * A cache of decompressed chunks of documents for
+ * {@link CompressingStoredFieldsReader}. Fetching the stored fields of a
+ * document requires seeking to and decompressing the chunk that contains it,
+ * which gets costly when the same documents, such as the top hits of popular
+ * queries, are fetched over and over again. This cache keeps decompressed
+ * chunks keyed by segment core and chunk, so that cached chunks remain valid
+ * across near-real-time reopens, and evicts the least recently used chunks
+ * when it uses more than the configured amount of memory.
+ * <p>
+ * The cache is passed to the stored fields format of a codec, for instance:
+ * <pre class="prettyprint">
+ *   // cache up to 32MB of decompressed chunks
+ *   StoredFieldsChunkCache cache = new StoredFieldsChunkCache(32 * 1024 * 1024);
+ *   IndexWriterConfig iwc = new IndexWriterConfig(analyzer);
+ *   iwc.setCodec(new Lucene50Codec(Mode.BEST_SPEED, cache));
+ * </pre>
+ * Segments that are loaded from a commit record the codec instance that is
+ * registered under their codec name, which does not use the cache. Readers
+ * still read their stored fields with the configured instance if it has the
+ * same name: near-real-time readers use the codec of the
+ * {@link org.apache.lucene.index.IndexWriterConfig#setCodec writer config}
+ * and other readers the codec that is passed to
+ * {@link org.apache.lucene.index.DirectoryReader#open(org.apache.lucene.store.Directory, org.apache.lucene.codecs.Codec)}:
+ * <pre class="prettyprint">
+ *   DirectoryReader reader = DirectoryReader.open(dir, new Lucene50Codec(Mode.BEST_SPEED, cache));
+ * </pre>
+ * <p>
+ * Chunks of large documents, which are compressed in several slices, and
+ * chunks that are read for merging are not cached. Hit and miss counts of
+ * every segment are reported through the
+ * {@link Accountable#getChildResources() child resources} of its stored
+ * fields reader.
+ * <p>
+ * This class is thread-safe.
+ * @lucene.experimental
+ */
+public final class StoredFieldsChunkCache implements Accountable {
+
+  // approximate memory usage of an entry of the LinkedHashMap and of its key
+  static final long ENTRY_BASE_RAM_BYTES_USED = 2 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER
+      + 8 * RamUsageEstimator.NUM_BYTES_OBJECT_REF + RamUsageEstimator.NUM_BYTES_LONG + RamUsageEstimator.NUM_BYTES_INT;
+
+  private final long maxRamBytesUsed;
+  private final LinkedHashMap<ChunkKey, Chunk> cache;
+  private long ramBytesUsed;
+  private long cacheCount;
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+
+  /**
+   * Create a new instance that will cache at most <code>maxRamBytesUsed</code>
+   * bytes of decompressed chunks.
+   */
+  public StoredFieldsChunkCache(long maxRamBytesUsed) {
+    if (maxRamBytesUsed <= 0) {
+      throw new IllegalArgumentException("maxRamBytesUsed must be > 0, got " + maxRamBytesUsed);
+    }
+    this.maxRamBytesUsed = maxRamBytesUsed;
+    // access order
+    cache = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /** Return a handle to cache the chunks of a new segment core. */
+  SegmentCache newSegmentCache() {
+    return new SegmentCache(this);
+  }
+
+  synchronized Chunk get(SegmentCache segment, long startPointer) {
+    final Chunk chunk = cache.get(new ChunkKey(segment, startPointer));
+    if (chunk == null) {
+      missCount.incrementAndGet();
+      segment.missCount.incrementAndGet();
+    } else {
+      hitCount.incrementAndGet();
+      segment.hitCount.incrementAndGet();
+    }
+    return chunk;
+  }
+
+  synchronized void put(SegmentCache segment, long startPointer, Chunk chunk) {
+    final long chunkBytes = ENTRY_BASE_RAM_BYTES_USED + chunk.ramBytesUsed();
+    if (segment.closed || chunkBytes > maxRamBytesUsed) {
+      return;
+    }
+    final Chunk previous = cache.put(new ChunkKey(segment, startPointer), chunk);
+    if (previous != null) {
+      onEviction(segment, previous);
+    }
+    ramBytesUsed += chunkBytes;
+    segment.ramBytesUsed += chunkBytes;
+    cacheCount++;
+    evictIfNecessary();
+  }
+
+  private void onEviction(SegmentCache segment, Chunk chunk) {
+    final long chunkBytes = ENTRY_BASE_RAM_BYTES_USED + chunk.ramBytesUsed();
+    ramBytesUsed -= chunkBytes;
+    segment.ramBytesUsed -= chunkBytes;
+  }
+
+  private void evictIfNecessary() {
+    final Iterator<Map.Entry<ChunkKey, Chunk>> iterator = cache.entrySet().iterator();
+    while (ramBytesUsed > maxRamBytesUsed && iterator.hasNext()) {
+      final Map.Entry<ChunkKey, Chunk> eldest = iterator.next();
+      iterator.remove();
+      onEviction(eldest.getKey().segment, eldest.getValue());
+    }
+  }
+
+  /** Remove all chunks of the given segment from the cache. */
+  synchronized void clearSegment(SegmentCache segment) {
+    segment.closed = true;
+    if (segment.ramBytesUsed == 0) {
+      return;
+    }
+    final Iterator<Map.Entry<ChunkKey, Chunk>> iterator = cache.entrySet().iterator();
+    while (iterator.hasNext()) {
+      final Map.Entry<ChunkKey, Chunk> entry = iterator.next();
+      if (entry.getKey().segment == segment) {
+        iterator.remove();
+        onEviction(segment, entry.getValue());
+      }
+    }
+    assert segment.ramBytesUsed == 0 : segment.ramBytesUsed;
+  }
+
+  /** Clear the content of this cache. */
+  public synchronized void clear() {
+    for (ChunkKey key : cache.keySet()) {
+      key.segment.ramBytesUsed = 0;
+    }
+    cache.clear();
+    ramBytesUsed = 0;
+  }
+
+  @Override
+  public synchronized long ramBytesUsed() {
+    return ramBytesUsed;
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Return the total number of times that a chunk has been looked up in this
+   * cache. This is the sum of {@link #getHitCount()} and
+   * {@link #getMissCount()}.
+   */
+  public long getTotalCount() {
+    return getHitCount() + getMissCount();
+  }
+
+  /**
+   * Return the number of times that a chunk has been found in the cache and
+   * did not need to be decompressed.
+   */
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * Return the number of times that a chunk has not been found in the cache
+   * and had to be read from disk and decompressed.
+   */
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  /** Return the number of chunks which are currently stored in the cache. */
+  public synchronized long getCacheSize() {
+    return cache.size();
+  }
+
+  /**
+   * Return the total number of chunks that have been put in the cache.
+   * @see #getEvictionCount()
+   */
+  public synchronized long getCacheCount() {
+    return cacheCount;
+  }
+
+  /**
+   * Return the number of chunks that have been removed from the cache, either
+   * in order to stay under the maximum configured ram usage, or because their
+   * segment has been closed.
+   */
+  public synchronized long getEvictionCount() {
+    return cacheCount - cache.size();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "(maxRamBytesUsed=" + maxRamBytesUsed + ",ramBytesUsed=" + ramBytesUsed()
+        + ",hitCount=" + getHitCount() + ",missCount=" + getMissCount() + ")";
+  }
+
+  /**
+   * The chunks of a single segment core, shared by all clones of its
+   * {@link CompressingStoredFieldsReader}.
+   */
+  static final class SegmentCache implements Accountable {
+
+    private final StoredFieldsChunkCache cache;
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    // guarded by cache
+    private long ramBytesUsed;
+    private boolean closed;
+
+    private SegmentCache(StoredFieldsChunkCache cache) {
+      this.cache = cache;
+    }
+
+    Chunk get(long startPointer) {
+      return cache.get(this, startPointer);
+    }
+
+    void put(long startPointer, Chunk chunk) {
+      cache.put(this, startPointer, chunk);
+    }
+
+    /** Evict all chunks of this segment and stop caching new ones. */
+    void close() {
+      cache.clearSegment(this);
+    }
+
+    long getHitCount() {
+      return hitCount.get();
+    }
+
+    long getMissCount() {
+      return missCount.get();
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      synchronized (cache) {
+        return ramBytesUsed;
+      }
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+      return Collections.emptyList();
+    }
+
+    @Override
+    public String toString() {
+      return String.format(Locale.ROOT, "stored fields chunk cache [hits=%d, misses=%d]", getHitCount(), getMissCount());
+    }
+  }
+
+  private static final class ChunkKey {
+
+    final SegmentCache segment;
+    final long startPointer;
+
+    ChunkKey(SegmentCache segment, long startPointer) {
+      this.segment = segment;
+      this.startPointer = startPointer;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (obj instanceof ChunkKey == false) {
+        return false;
+      }
+      final ChunkKey that = (ChunkKey) obj;
+      return segment == that.segment && startPointer == that.startPointer;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(segment) + Long.hashCode(startPointer);
+    }
+  }
+
+  /** A decompressed chunk of documents. */
+  static final class Chunk implements Accountable {
+
+    final int docBase;
+    final int chunkDocs;
+    final int[] offsets; // chunkDocs + 1 offsets of documents in bytes
+    final int[] numStoredFields;
+    final byte[] bytes;
+
+    Chunk(int docBase, int chunkDocs, int[] offsets, int[] numStoredFields, byte[] bytes) {
+      this.docBase = docBase;
+      this.chunkDocs = chunkDocs;
+      this.offsets = offsets;
+      this.numStoredFields = numStoredFields;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 2 * RamUsageEstimator.NUM_BYTES_INT + 3 * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+          + RamUsageEstimator.sizeOf(offsets) + RamUsageEstimator.sizeOf(numStoredFields) + RamUsageEstimator.sizeOf(bytes);
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+      return Collections.emptyList();
+    }
+  }
+}
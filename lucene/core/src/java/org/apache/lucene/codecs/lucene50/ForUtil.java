@@ -46,9 +46,15 @@ final class ForUtil {
    */
   static final int MAX_ENCODED_SIZE = BLOCK_SIZE * 4;
 
+  /**
+   * Upper limit of the number of longs that might be required to stored
+   * <code>BLOCK_SIZE</code> encoded values.
+   */
+  static final int MAX_ENCODED_LONGS = MAX_ENCODED_SIZE / 8;
+
   /**
    * Upper limit of the number of values that might be decoded in a single call to
-   * {@link #readBlock(IndexInput, byte[], int[])}. Although values after
+   * {@link #readBlock(IndexInput, long[], int[])}. Although values after
    * <code>BLOCK_SIZE</code> are garbage, it is necessary to allocate value buffers
    * whose size is {@code >= MAX_DATA_SIZE} to avoid {@link ArrayIndexOutOfBoundsException}s.
    */
@@ -64,6 +70,8 @@ final class ForUtil {
           final PackedInts.Decoder decoder = PackedInts.getDecoder(format, version, bpv);
           final int iterations = computeIterations(decoder);
           maxDataSize = Math.max(maxDataSize, iterations * decoder.byteValueCount());
+          final int longIterations = computeLongIterations(decoder);
+          maxDataSize = Math.max(maxDataSize, longIterations * decoder.longValueCount());
         }
       }
     }
@@ -78,6 +86,14 @@ final class ForUtil {
     return (int) Math.ceil((float) BLOCK_SIZE / decoder.byteValueCount());
   }
 
+  /**
+   * Compute the number of iterations required to decode <code>BLOCK_SIZE</code>
+   * values with the provided {@link Decoder} when reading from longs.
+   */
+  private static int computeLongIterations(PackedInts.Decoder decoder) {
+    return (int) Math.ceil((float) BLOCK_SIZE / decoder.longValueCount());
+  }
+
   /**
    * Compute the number of bytes required to encode a block of values that require
    * <code>bitsPerValue</code> bits per value with format <code>format</code>.
@@ -85,6 +101,9 @@ final class ForUtil {
   private static int encodedSize(PackedInts.Format format, int packedIntsVersion, int bitsPerValue) {
     final long byteCount = format.byteCount(packedIntsVersion, BLOCK_SIZE, bitsPerValue);
     assert byteCount >= 0 && byteCount <= Integer.MAX_VALUE : byteCount;
+    // all supported formats encode blocks of BLOCK_SIZE values on a whole
+    // number of longs, which allows to read them with DataInput.readLongs
+    assert byteCount % 8 == 0 : byteCount;
     return (int) byteCount;
   }
 
@@ -92,6 +111,7 @@ final class ForUtil {
   private final PackedInts.Encoder[] encoders;
   private final PackedInts.Decoder[] decoders;
   private final int[] iterations;
+  private final int[] longIterations;
 
   /**
    * Create a new {@link ForUtil} instance and save state into <code>out</code>.
@@ -102,6 +122,7 @@ final class ForUtil {
     encoders = new PackedInts.Encoder[33];
     decoders = new PackedInts.Decoder[33];
     iterations = new int[33];
+    longIterations = new int[33];
 
     for (int bpv = 1; bpv <= 32; ++bpv) {
       final FormatAndBits formatAndBits = PackedInts.fastestFormatAndBits(
@@ -114,6 +135,7 @@ final class ForUtil {
       decoders[bpv] = PackedInts.getDecoder(
           formatAndBits.format, PackedInts.VERSION_CURRENT, formatAndBits.bitsPerValue);
       iterations[bpv] = computeIterations(decoders[bpv]);
+      longIterations[bpv] = computeLongIterations(decoders[bpv]);
 
       out.writeVInt(formatAndBits.format.getId() << 5 | (formatAndBits.bitsPerValue - 1));
     }
@@ -129,6 +151,7 @@ final class ForUtil {
     encoders = new PackedInts.Encoder[33];
     decoders = new PackedInts.Decoder[33];
     iterations = new int[33];
+    longIterations = new int[33];
 
     for (int bpv = 1; bpv <= 32; ++bpv) {
       final int code = in.readVInt();
@@ -143,6 +166,7 @@ final class ForUtil {
       decoders[bpv] = PackedInts.getDecoder(
           format, packedIntsVersion, bitsPerValue);
       iterations[bpv] = computeIterations(decoders[bpv]);
+      longIterations[bpv] = computeLongIterations(decoders[bpv]);
     }
   }
 
@@ -183,7 +207,7 @@ final class ForUtil {
    * @param decoded   where to write decoded data
    * @throws IOException If there is a low-level I/O error
    */
-  void readBlock(IndexInput in, byte[] encoded, int[] decoded) throws IOException {
+  void readBlock(IndexInput in, long[] encoded, int[] decoded) throws IOException {
     final int numBits = in.readByte();
     assert numBits <= 32 : numBits;
 
@@ -193,16 +217,66 @@ final class ForUtil {
       return;
     }
 
-    final int encodedSize = encodedSizes[numBits];
-    in.readBytes(encoded, 0, encodedSize);
+    decode(in, numBits, encoded, decoded);
+  }
+
+  /**
+   * Read the next block of deltas (<code>For</code> format) and write their
+   * prefix sums, starting from <code>base</code>, to <code>decoded</code>.
+   * This is typically used to decode a block of doc IDs given the last doc ID
+   * of the previous block.
+   *
+   * @param in        the input to use to read data
+   * @param encoded   a buffer that can be used to store encoded data
+   * @param decoded   where to write decoded data
+   * @param base      the value to add to the first delta
+   * @throws IOException If there is a low-level I/O error
+   */
+  void readDeltaBlock(IndexInput in, long[] encoded, int[] decoded, int base) throws IOException {
+    final int numBits = in.readByte();
+    assert numBits <= 32 : numBits;
+
+    if (numBits == ALL_VALUES_EQUAL) {
+      final int value = in.readVInt();
+      for (int i = 0; i < BLOCK_SIZE; ++i) {
+        base += value;
+        decoded[i] = base;
+      }
+      return;
+    }
+
+    // the prefix sum is a second pass over the decoded block rather than being
+    // fused into decoding, which would need another set of bulk decoders, but
+    // the block is small enough to still be in the L1 cache
+    decode(in, numBits, encoded, decoded);
+    prefixSum(decoded, BLOCK_SIZE, base);
+  }
+
+  private void decode(IndexInput in, int numBits, long[] encoded, int[] decoded) throws IOException {
+    // read the encoded block as longs: this saves a copy to an intermediate
+    // byte[] and the long-based decoders work on 64 bits at a time
+    final int encodedLongs = encodedSizes[numBits] >>> 3;
+    in.readLongs(encoded, 0, encodedLongs);
 
     final PackedInts.Decoder decoder = decoders[numBits];
-    final int iters = iterations[numBits];
-    assert iters * decoder.byteValueCount() >= BLOCK_SIZE;
+    final int iters = longIterations[numBits];
+    assert iters * decoder.longValueCount() >= BLOCK_SIZE;
+    assert iters * decoder.longBlockCount() <= encodedLongs;
 
     decoder.decode(encoded, 0, decoded, 0, iters);
   }
 
+  /**
+   * Replace the first <code>count</code> deltas of <code>buffer</code> with
+   * their prefix sums, starting from <code>base</code>.
+   */
+  static void prefixSum(int[] buffer, int count, int base) {
+    for (int i = 0; i < count; ++i) {
+      base += buffer[i];
+      buffer[i] = base;
+    }
+  }
+
   /**
    * Skip the next block of data.
    *
@@ -30,6 +30,7 @@ import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.codecs.SegmentInfoFormat;
 import org.apache.lucene.codecs.StoredFieldsFormat;
 import org.apache.lucene.codecs.TermVectorsFormat;
+import org.apache.lucene.codecs.compressing.StoredFieldsChunkCache;
 import org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat.Mode;
 import org.apache.lucene.codecs.perfield.PerFieldDocValuesFormat;
 import org.apache.lucene.codecs.perfield.PerFieldPostingsFormat;
@@ -81,8 +82,20 @@ public class Lucene50Codec extends Codec {
    *             flushed/merged segments.
    */
   public Lucene50Codec(Mode mode) {
+    this(mode, null);
+  }
+
+  /** 
+   * Instantiates a new codec, specifying the stored fields compression
+   * mode to use and a cache for decompressed stored fields chunks.
+   * @param mode stored fields compression mode to use for newly 
+   *             flushed/merged segments.
+   * @param chunkCache cache of decompressed chunks for the stored fields
+   *             readers that this codec opens, or null to not cache them.
+   */
+  public Lucene50Codec(Mode mode, StoredFieldsChunkCache chunkCache) {
     super("Lucene50");
-    this.storedFieldsFormat = new Lucene50StoredFieldsFormat(Objects.requireNonNull(mode));
+    this.storedFieldsFormat = new Lucene50StoredFieldsFormat(Objects.requireNonNull(mode), chunkCache);
   }
   
   @Override
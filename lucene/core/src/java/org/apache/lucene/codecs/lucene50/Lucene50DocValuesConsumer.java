@@ -23,6 +23,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.codecs.DocValuesConsumer;
@@ -72,7 +74,23 @@ class Lucene50DocValuesConsumer extends DocValuesConsumer implements Closeable {
   public static final int MONOTONIC_COMPRESSED = 3;
   /** Compressed with constant value (uses only missing bitset) */
   public static final int CONST_COMPRESSED = 4;
-  
+  /** Compressed as the set of documents that have a value, and the values of these documents only */
+  public static final int SPARSE_COMPRESSED = 5;
+
+  // sparse doc sets are written in blocks of 65536 documents
+  static final int SPARSE_BLOCK_SHIFT = 16;
+  static final int SPARSE_BLOCK_SIZE = 1 << SPARSE_BLOCK_SHIFT;
+  static final int SPARSE_BLOCK_MASK = SPARSE_BLOCK_SIZE - 1;
+
+  // blocks that have more documents are written as bitmaps, others as arrays of shorts
+  static final int SPARSE_MAX_ARRAY_LENGTH = 4096;
+
+  // number of longs of a bitmap block that share an entry of its rank table
+  static final int SPARSE_RANK_INTERVAL = 8;
+
+  // only consider the sparse encoding if at most 1 document out of 16 has a value
+  static final int SPARSE_DENSITY_THRESHOLD = 16;
+
   /** Uncompressed binary, written directly (fixed length). */
   public static final int BINARY_FIXED_UNCOMPRESSED = 0;
   /** Uncompressed binary, written directly (variable length). */
@@ -94,9 +112,11 @@ class Lucene50DocValuesConsumer extends DocValuesConsumer implements Closeable {
 
   IndexOutput data, meta;
   final int maxDoc;
+  final int skipBlockShift;
   
   /** expert: Creates a new writer */
-  public Lucene50DocValuesConsumer(SegmentWriteState state, String dataCodec, String dataExtension, String metaCodec, String metaExtension) throws IOException {
+  public Lucene50DocValuesConsumer(SegmentWriteState state, String dataCodec, String dataExtension, String metaCodec, String metaExtension, int skipBlockShift) throws IOException {
+    this.skipBlockShift = skipBlockShift;
     boolean success = false;
     try {
       String dataName = IndexFileNames.segmentFileName(state.segmentInfo.name, state.segmentSuffix, dataExtension);
@@ -117,15 +137,24 @@ class Lucene50DocValuesConsumer extends DocValuesConsumer implements Closeable {
   @Override
   public void addNumericField(FieldInfo field, Iterable<Number> values) throws IOException {
     addNumericField(field, values, true);
+    addSkipIndex(values);
   }
 
   void addNumericField(FieldInfo field, Iterable<Number> values, boolean optimizeStorage) throws IOException {
+    meta.writeVInt(field.number);
+    meta.writeByte(Lucene50DocValuesFormat.NUMERIC);
+    addNumericEntry(values, optimizeStorage);
+  }
+
+  // when optimizeStorage is false, values are ordinals and missing values are -1 instead of null
+  private void addNumericEntry(Iterable<Number> values, boolean optimizeStorage) throws IOException {
     long count = 0;
     long minValue = Long.MAX_VALUE;
     long maxValue = Long.MIN_VALUE;
     long gcd = 0;
     long missingCount = 0;
     long zeroCount = 0;
+    long missingOrdCount = 0;
     // TODO: more efficient?
     HashSet<Long> uniqueValues = null;
     if (optimizeStorage) {
@@ -171,6 +200,9 @@ class Lucene50DocValuesConsumer extends DocValuesConsumer implements Closeable {
     } else {
       for (Number nv : values) {
         long v = nv.longValue();
+        if (v == -1) {
+          missingOrdCount++;
+        }
         minValue = Math.min(minValue, v);
         maxValue = Math.max(maxValue, v);
         ++count;
@@ -184,23 +216,40 @@ class Lucene50DocValuesConsumer extends DocValuesConsumer implements Closeable {
         : DirectWriter.bitsRequired(uniqueValues.size() - 1);
 
     final int format;
+    final int bitsPerValue;
     if (uniqueValues != null 
         && count <= Integer.MAX_VALUE
         && (uniqueValues.size() == 1
            || (uniqueValues.size() == 2 && missingCount > 0 && zeroCount == missingCount))) {
       // either one unique value C or two unique values: "missing" and C
       format = CONST_COMPRESSED;
+      bitsPerValue = 0;
     } else if (uniqueValues != null && tableBitsRequired < deltaBitsRequired) {
       format = TABLE_COMPRESSED;
+      bitsPerValue = tableBitsRequired;
     } else if (gcd != 0 && gcd != 1) {
       final long gcdDelta = (maxValue - minValue) / gcd;
-      final long gcdBitsRequired = DirectWriter.unsignedBitsRequired(gcdDelta);
+      final int gcdBitsRequired = DirectWriter.unsignedBitsRequired(gcdDelta);
       format = gcdBitsRequired < deltaBitsRequired ? GCD_COMPRESSED : DELTA_COMPRESSED;
+      bitsPerValue = Math.min(gcdBitsRequired, deltaBitsRequired);
     } else {
       format = DELTA_COMPRESSED;
+      bitsPerValue = deltaBitsRequired;
     }
-    meta.writeVInt(field.number);
-    meta.writeByte(Lucene50DocValuesFormat.NUMERIC);
+
+    final long numDocsWithValue = count - missingCount - missingOrdCount;
+    if (numDocsWithValue > 0 && count <= Integer.MAX_VALUE
+        && numDocsWithValue <= count / SPARSE_DENSITY_THRESHOLD) {
+      final int[] blockCardinalities = getSparseBlockCardinalities(values, optimizeStorage, (int) count);
+      // the missing bitset goes away, and only values of documents that have one are stored
+      final long denseBits = count * bitsPerValue + (missingCount > 0 ? count : 0);
+      final long sparseBits = 8 * sparseDocsBytes(blockCardinalities) + numDocsWithValue * bitsPerValue;
+      if (sparseBits < denseBits) {
+        addSparseNumericEntry(values, optimizeStorage, count, blockCardinalities);
+        return;
+      }
+    }
+
     meta.writeVInt(format);
     if (missingCount == 0) {
       meta.writeLong(ALL_LIVE);
@@ -264,6 +313,43 @@ class Lucene50DocValuesConsumer extends DocValuesConsumer implements Closeable {
     meta.writeLong(data.getFilePointer());
   }
   
+  // writes the min and max values and the number of documents that have a value of every block of documents
+  private void addSkipIndex(Iterable<Number> values) throws IOException {
+    meta.writeVInt(skipBlockShift);
+    if (skipBlockShift == 0) {
+      return;
+    }
+    meta.writeLong(data.getFilePointer());
+    final int blockMask = (1 << skipBlockShift) - 1;
+    long minValue = Long.MAX_VALUE;
+    long maxValue = Long.MIN_VALUE;
+    int docCount = 0;
+    int doc = 0;
+    for (Number nv : values) {
+      if (nv != null) {
+        final long v = nv.longValue();
+        minValue = Math.min(minValue, v);
+        maxValue = Math.max(maxValue, v);
+        docCount++;
+      }
+      if ((++doc & blockMask) == 0) {
+        writeSkipBlock(minValue, maxValue, docCount);
+        minValue = Long.MAX_VALUE;
+        maxValue = Long.MIN_VALUE;
+        docCount = 0;
+      }
+    }
+    if ((doc & blockMask) != 0) {
+      writeSkipBlock(minValue, maxValue, docCount);
+    }
+  }
+
+  private void writeSkipBlock(long minValue, long maxValue, int docCount) throws IOException {
+    data.writeLong(minValue);
+    data.writeLong(maxValue);
+    data.writeInt(docCount);
+  }
+
   // TODO: in some cases representing missing with minValue-1 wouldn't take up additional space and so on,
   // but this is very simple, and algorithms only check this for values of 0 anyway (doesnt slow down normal decode)
   void writeMissingBitset(Iterable<?> values) throws IOException {
@@ -285,6 +371,138 @@ class Lucene50DocValuesConsumer extends DocValuesConsumer implements Closeable {
     }
   }
 
+  private static boolean hasValue(Number nv, boolean optimizeStorage) {
+    return nv != null && (optimizeStorage || nv.longValue() != -1);
+  }
+
+  // number of documents that have a value in each block of SPARSE_BLOCK_SIZE documents
+  private static int[] getSparseBlockCardinalities(Iterable<Number> values, boolean optimizeStorage, int count) {
+    final int[] blockCardinalities = new int[(int) ((count + (long) SPARSE_BLOCK_MASK) >>> SPARSE_BLOCK_SHIFT)];
+    int doc = 0;
+    for (Number nv : values) {
+      if (hasValue(nv, optimizeStorage)) {
+        blockCardinalities[doc >>> SPARSE_BLOCK_SHIFT]++;
+      }
+      doc++;
+    }
+    return blockCardinalities;
+  }
+
+  private static long sparseDocsBytes(int[] blockCardinalities) {
+    long bytes = 0;
+    for (int cardinality : blockCardinalities) {
+      bytes += sparseBlockBytes(cardinality);
+    }
+    return bytes;
+  }
+
+  // size of a block of a sparse doc set, see writeSparseBlock
+  static int sparseBlockBytes(int cardinality) {
+    if (cardinality <= SPARSE_MAX_ARRAY_LENGTH) {
+      return cardinality << 1;
+    } else {
+      return (SPARSE_BLOCK_SIZE >>> 3) + (SPARSE_BLOCK_SIZE >>> 6) / SPARSE_RANK_INTERVAL * 2;
+    }
+  }
+
+  // writes the set of documents that have a value, followed by a regular numeric entry for their values
+  private void addSparseNumericEntry(final Iterable<Number> values, final boolean optimizeStorage, long count, int[] blockCardinalities) throws IOException {
+    meta.writeVInt(SPARSE_COMPRESSED);
+    // documents that have a value are recorded in the doc set, there is no missing bitset
+    meta.writeLong(ALL_LIVE);
+    meta.writeLong(data.getFilePointer());
+    meta.writeVLong(count);
+    // value returned for documents that do not have a value
+    meta.writeLong(optimizeStorage ? 0 : -1);
+    meta.writeVInt(blockCardinalities.length);
+    for (int cardinality : blockCardinalities) {
+      meta.writeVInt(cardinality);
+    }
+    writeSparseDocs(values, optimizeStorage, blockCardinalities);
+    addNumericEntry(new Iterable<Number>() {
+      @Override
+      public Iterator<Number> iterator() {
+        final Iterator<Number> it = values.iterator();
+        return new Iterator<Number>() {
+          Number next;
+
+          @Override
+          public boolean hasNext() {
+            while (next == null && it.hasNext()) {
+              final Number nv = it.next();
+              if (hasValue(nv, optimizeStorage)) {
+                next = nv;
+              }
+            }
+            return next != null;
+          }
+
+          @Override
+          public Number next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            final Number nv = next;
+            next = null;
+            return nv;
+          }
+
+          @Override
+          public void remove() {
+            throw new UnsupportedOperationException();
+          }
+        };
+      }
+    }, optimizeStorage);
+    meta.writeLong(data.getFilePointer());
+  }
+
+  private void writeSparseDocs(Iterable<Number> values, boolean optimizeStorage, int[] blockCardinalities) throws IOException {
+    final long[] bits = new long[SPARSE_BLOCK_SIZE >>> 6];
+    int doc = 0;
+    for (Number nv : values) {
+      if (doc > 0 && (doc & SPARSE_BLOCK_MASK) == 0) {
+        writeSparseBlock(bits, blockCardinalities[(doc - 1) >>> SPARSE_BLOCK_SHIFT]);
+        Arrays.fill(bits, 0L);
+      }
+      if (hasValue(nv, optimizeStorage)) {
+        final int i = doc & SPARSE_BLOCK_MASK;
+        bits[i >>> 6] |= 1L << i;
+      }
+      doc++;
+    }
+    if (doc > 0) {
+      writeSparseBlock(bits, blockCardinalities[(doc - 1) >>> SPARSE_BLOCK_SHIFT]);
+    }
+  }
+
+  // blocks are either written as a sorted array of the low 16 bits of doc IDs, or as a bitmap
+  // followed by the number of bits that are set before every SPARSE_RANK_INTERVAL longs
+  private void writeSparseBlock(long[] bits, int cardinality) throws IOException {
+    if (cardinality == 0) {
+      return;
+    } else if (cardinality <= SPARSE_MAX_ARRAY_LENGTH) {
+      for (int i = 0; i < bits.length; ++i) {
+        long word = bits[i];
+        while (word != 0) {
+          data.writeShort((short) ((i << 6) | Long.numberOfTrailingZeros(word)));
+          word &= word - 1;
+        }
+      }
+    } else {
+      for (long word : bits) {
+        data.writeLong(word);
+      }
+      int rank = 0;
+      for (int i = 0; i < bits.length; ++i) {
+        if (i % SPARSE_RANK_INTERVAL == 0) {
+          data.writeShort((short) rank);
+        }
+        rank += Long.bitCount(bits[i]);
+      }
+    }
+  }
+
   @Override
   public void addBinaryField(FieldInfo field, Iterable<BytesRef> values) throws IOException {
     // write the byte[] data
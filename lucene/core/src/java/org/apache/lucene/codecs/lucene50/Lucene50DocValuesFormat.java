@@ -23,6 +23,7 @@ import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.codecs.DocValuesConsumer;
 import org.apache.lucene.codecs.DocValuesFormat;
 import org.apache.lucene.codecs.DocValuesProducer;
+import org.apache.lucene.index.BlockMinMaxNumericDocValues;
 import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.SegmentReadState;
 import org.apache.lucene.index.SegmentWriteState;
@@ -51,8 +52,15 @@ import org.apache.lucene.util.packed.MonotonicBlockPackedWriter;
  *        as blocks of bitpacked integers, encoding the deviation from the expected delta.
  *    <li>Const-compressed: when there is only one possible non-missing value, only the missing
  *        bitset is encoded.
+ *    <li>Sparse-compressed: when few documents have a value, the set of documents that have a value
+ *        is encoded in blocks of 65536 documents (as arrays of doc IDs or as bitmaps depending on
+ *        their density), and only the values of these documents are written with one of the strategies above.
  * </ul>
  * <p>
+ * Optionally, the minimum and maximum values of every block of documents of {@link DocValuesType#NUMERIC NUMERIC}
+ * and single-valued {@link DocValuesType#SORTED_NUMERIC SORTED_NUMERIC} fields are recorded in a skip index, which
+ * range queries use to skip blocks that cannot match. See {@link #Lucene50DocValuesFormat(int)}.
+ * <p>
  * {@link DocValuesType#BINARY BINARY}:
  * <ul>
  *    <li>Fixed-width Binary: one large concatenated byte[] is written, along with the fixed length.
@@ -95,12 +103,14 @@ import org.apache.lucene.util.packed.MonotonicBlockPackedWriter;
  *      DocValues data (.dvd)</p>
  *   <p>DocValues metadata (.dvm) --&gt; Header,&lt;Entry&gt;<sup>NumFields</sup>,Footer</p>
  *   <ul>
- *     <li>Entry --&gt; NumericEntry | BinaryEntry | SortedEntry | SortedSetEntry | SortedNumericEntry</li>
- *     <li>NumericEntry --&gt; GCDNumericEntry | TableNumericEntry | DeltaNumericEntry</li>
+ *     <li>Entry --&gt; NumericEntry,SkipIndexEntry | BinaryEntry | SortedEntry | SortedSetEntry | SortedNumericEntry</li>
+ *     <li>NumericEntry --&gt; GCDNumericEntry | TableNumericEntry | DeltaNumericEntry | SparseNumericEntry</li>
  *     <li>GCDNumericEntry --&gt; NumericHeader,MinValue,GCD,BitsPerValue</li>
  *     <li>TableNumericEntry --&gt; NumericHeader,TableSize,{@link DataOutput#writeLong Int64}<sup>TableSize</sup>,BitsPerValue</li>
  *     <li>DeltaNumericEntry --&gt; NumericHeader,MinValue,BitsPerValue</li>
  *     <li>MonotonicNumericEntry --&gt; NumericHeader,PackedVersion,BlockSize</li>
+ *     <li>SparseNumericEntry --&gt; NumericHeader,MissingValue,NumBlocks,BlockCardinality<sup>NumBlocks</sup>,ValuesEntry</li>
+ *     <li>ValuesEntry --&gt; the NumericEntry of the values of documents that have one, without FieldNumber and EntryType</li>
  *     <li>NumericHeader --&gt; FieldNumber,EntryType,NumericType,MissingOffset,DataOffset,Count,EndOffset</li>
  *     <li>BinaryEntry --&gt; FixedBinaryEntry | VariableBinaryEntry | PrefixBinaryEntry</li>
  *     <li>FixedBinaryEntry --&gt; BinaryHeader</li>
@@ -109,11 +119,12 @@ import org.apache.lucene.util.packed.MonotonicBlockPackedWriter;
  *     <li>BinaryHeader --&gt; FieldNumber,EntryType,BinaryType,MissingOffset,MinLength,MaxLength,DataOffset</li>
  *     <li>SortedEntry --&gt; FieldNumber,EntryType,BinaryEntry,NumericEntry</li>
  *     <li>SortedSetEntry --&gt; EntryType,BinaryEntry,NumericEntry,NumericEntry</li>
- *     <li>SortedNumericEntry --&gt; EntryType,NumericEntry,NumericEntry</li>
- *     <li>FieldNumber,PackedVersion,MinLength,MaxLength,BlockSize,ValueCount --&gt; {@link DataOutput#writeVInt VInt}</li>
+ *     <li>SortedNumericEntry --&gt; EntryType,NumericEntry,NumericEntry | EntryType,NumericEntry,SkipIndexEntry</li>
+ *     <li>SkipIndexEntry --&gt; SkipBlockShift,SkipOffset?</li>
+ *     <li>FieldNumber,PackedVersion,MinLength,MaxLength,BlockSize,ValueCount,NumBlocks,BlockCardinality,SkipBlockShift --&gt; {@link DataOutput#writeVInt VInt}</li>
  *     <li>EntryType,CompressionType --&gt; {@link DataOutput#writeByte Byte}</li>
  *     <li>Header --&gt; {@link CodecUtil#writeIndexHeader IndexHeader}</li>
- *     <li>MinValue,GCD,MissingOffset,AddressOffset,DataOffset,EndOffset --&gt; {@link DataOutput#writeLong Int64}</li>
+ *     <li>MinValue,GCD,MissingOffset,AddressOffset,DataOffset,EndOffset,MissingValue,SkipOffset --&gt; {@link DataOutput#writeLong Int64}</li>
  *     <li>TableSize,BitsPerValue --&gt; {@link DataOutput#writeVInt vInt}</li>
  *     <li>Footer --&gt; {@link CodecUtil#writeFooter CodecFooter}</li>
  *   </ul>
@@ -137,6 +148,9 @@ import org.apache.lucene.util.packed.MonotonicBlockPackedWriter;
  *             a lookup table of unique values is written, followed by the ordinal for each document.
  *         <li>3 --&gt; monotonic-compressed. Used to implement addressing for BINARY, SORTED_SET, SORTED_NUMERIC.
  *         <li>4 --&gt; const-compressed. Used when all non-missing values are the same.
+ *         <li>5 --&gt; sparse-compressed. Used when few documents have a value: the set of documents
+ *             that have a value is written, followed by a nested entry with their values only.
+ *             Documents that do not have a value get MissingValue, 0 for numerics and -1 for ordinals.
  *      </ul>
  *   <p>BinaryType indicates how Binary values will be stored:
  *      <ul>
@@ -150,12 +164,21 @@ import org.apache.lucene.util.packed.MonotonicBlockPackedWriter;
  *      is written for the addresses.
  *   <p>MissingOffset points to a byte[] containing a bitset of all documents that had a value for the field.
  *      If it's -1, then there are no missing values. If it's -2, all values are missing.
+ *   <p>SkipBlockShift is the base 2 logarithm of the number of documents per block of the skip index,
+ *      or 0 if the field has no skip index. Otherwise SkipOffset points to the skip index in the data file.
  *   <li><a name="dvd"></a>
  *   <p>The DocValues data or .dvd file.</p>
  *   <p>For DocValues field, this stores the actual per-document data (the heavy-lifting)</p>
- *   <p>DocValues data (.dvd) --&gt; Header,&lt;NumericData | BinaryData | SortedData&gt;<sup>NumFields</sup>,Footer</p>
+ *   <p>DocValues data (.dvd) --&gt; Header,&lt;NumericData,SkipIndex? | BinaryData | SortedData&gt;<sup>NumFields</sup>,Footer</p>
  *   <ul>
- *     <li>NumericData --&gt; DeltaCompressedNumerics | TableCompressedNumerics | GCDCompressedNumerics</li>
+ *     <li>NumericData --&gt; DeltaCompressedNumerics | TableCompressedNumerics | GCDCompressedNumerics | SparseCompressedNumerics</li>
+ *     <li>SparseCompressedNumerics --&gt; SparseBlock<sup>NumBlocks</sup>,NumericData</li>
+ *     <li>SparseBlock --&gt; {@link DataOutput#writeShort Int16}<sup>BlockCardinality</sup> if BlockCardinality is at most 4096,
+ *         or a bitmap of {@link DataOutput#writeLong Int64}<sup>1024</sup> followed by the number of documents that
+ *         have a value before every 8 longs as {@link DataOutput#writeShort Int16}<sup>128</sup> otherwise</li>
+ *     <li>SkipIndex --&gt; &lt;BlockMinValue,BlockMaxValue,BlockDocCount&gt;<sup>NumSkipBlocks</sup></li>
+ *     <li>BlockMinValue,BlockMaxValue --&gt; {@link DataOutput#writeLong Int64}</li>
+ *     <li>BlockDocCount --&gt; {@link DataOutput#writeInt Int32}</li>
  *     <li>BinaryData --&gt;  {@link DataOutput#writeByte Byte}<sup>DataLength</sup>,Addresses</li>
  *     <li>SortedData --&gt; {@link FST FST&lt;Int64&gt;}</li>
  *     <li>DeltaCompressedNumerics,TableCompressedNumerics,GCDCompressedNumerics --&gt; {@link DirectWriter PackedInts}</li>
@@ -167,14 +190,31 @@ import org.apache.lucene.util.packed.MonotonicBlockPackedWriter;
  */
 public final class Lucene50DocValuesFormat extends DocValuesFormat {
 
-  /** Sole Constructor */
+  private final int skipBlockShift;
+
+  /** Creates a new format that does not record a skip index. */
   public Lucene50DocValuesFormat() {
     super("Lucene50");
+    skipBlockShift = 0;
+  }
+
+  /**
+   * Creates a new format that records the minimum and maximum values of every
+   * block of <code>skipBlockSize</code> documents of numeric fields, see
+   * {@link BlockMinMaxNumericDocValues}.
+   * @param skipBlockSize number of documents per block of the skip index, must be a power of two greater than or equal to {@value #MIN_SKIP_BLOCK_SIZE}
+   */
+  public Lucene50DocValuesFormat(int skipBlockSize) {
+    super("Lucene50");
+    if (skipBlockSize < MIN_SKIP_BLOCK_SIZE || Integer.bitCount(skipBlockSize) != 1) {
+      throw new IllegalArgumentException("skipBlockSize must be a power of two greater than or equal to " + MIN_SKIP_BLOCK_SIZE + ", got " + skipBlockSize);
+    }
+    skipBlockShift = Integer.numberOfTrailingZeros(skipBlockSize);
   }
 
   @Override
   public DocValuesConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
-    return new Lucene50DocValuesConsumer(state, DATA_CODEC, DATA_EXTENSION, META_CODEC, META_EXTENSION);
+    return new Lucene50DocValuesConsumer(state, DATA_CODEC, DATA_EXTENSION, META_CODEC, META_EXTENSION, skipBlockShift);
   }
 
   @Override
@@ -187,10 +227,15 @@ public final class Lucene50DocValuesFormat extends DocValuesFormat {
   static final String META_CODEC = "Lucene50DocValuesMetadata";
   static final String META_EXTENSION = "dvm";
   static final int VERSION_START = 0;
-  static final int VERSION_CURRENT = VERSION_START;
+  static final int VERSION_SPARSE_COMPRESSED = 1;
+  static final int VERSION_SKIP_INDEX = 2;
+  static final int VERSION_CURRENT = VERSION_SKIP_INDEX;
   static final byte NUMERIC = 0;
   static final byte BINARY = 1;
   static final byte SORTED = 2;
   static final byte SORTED_SET = 3;
   static final byte SORTED_NUMERIC = 4;
+
+  /** Minimum number of documents per block of the skip index. */
+  public static final int MIN_SKIP_BLOCK_SIZE = 16;
 }
@@ -30,6 +30,7 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.codecs.DocValuesProducer;
 import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.BlockMinMaxNumericDocValues;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.PostingsEnum;
@@ -75,10 +76,19 @@ import static org.apache.lucene.codecs.lucene50.Lucene50DocValuesConsumer.REVERS
 import static org.apache.lucene.codecs.lucene50.Lucene50DocValuesConsumer.REVERSE_INTERVAL_SHIFT;
 import static org.apache.lucene.codecs.lucene50.Lucene50DocValuesConsumer.SORTED_SINGLE_VALUED;
 import static org.apache.lucene.codecs.lucene50.Lucene50DocValuesConsumer.SORTED_WITH_ADDRESSES;
+import static org.apache.lucene.codecs.lucene50.Lucene50DocValuesConsumer.SPARSE_BLOCK_MASK;
+import static org.apache.lucene.codecs.lucene50.Lucene50DocValuesConsumer.SPARSE_BLOCK_SHIFT;
+import static org.apache.lucene.codecs.lucene50.Lucene50DocValuesConsumer.SPARSE_BLOCK_SIZE;
+import static org.apache.lucene.codecs.lucene50.Lucene50DocValuesConsumer.SPARSE_COMPRESSED;
+import static org.apache.lucene.codecs.lucene50.Lucene50DocValuesConsumer.SPARSE_MAX_ARRAY_LENGTH;
+import static org.apache.lucene.codecs.lucene50.Lucene50DocValuesConsumer.SPARSE_RANK_INTERVAL;
 import static org.apache.lucene.codecs.lucene50.Lucene50DocValuesConsumer.TABLE_COMPRESSED;
 
 /** reader for {@link Lucene50DocValuesFormat} */
 class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
+  // min value, max value and doc count
+  private static final int SKIP_BLOCK_BYTES = 8 + 8 + 4;
+
   private final Map<String,NumericEntry> numerics = new HashMap<>();
   private final Map<String,BinaryEntry> binaries = new HashMap<>();
   private final Map<String,SortedSetEntry> sortedSets = new HashMap<>();
@@ -135,7 +145,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
                                         Lucene50DocValuesFormat.VERSION_CURRENT,
                                         state.segmentInfo.getId(),
                                         state.segmentSuffix);
-        numFields = readFields(in, state.fieldInfos);
+        numFields = readFields(in, state.fieldInfos, version);
       } catch (Throwable exception) {
         priorE = exception;
       } finally {
@@ -224,7 +234,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     ordIndexes.put(info.name, n2);
   }
 
-  private int readFields(IndexInput meta, FieldInfos infos) throws IOException {
+  private int readFields(IndexInput meta, FieldInfos infos, int version) throws IOException {
     int numFields = 0;
     int fieldNumber = meta.readVInt();
     while (fieldNumber != -1) {
@@ -236,7 +246,11 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
       }
       byte type = meta.readByte();
       if (type == Lucene50DocValuesFormat.NUMERIC) {
-        numerics.put(info.name, readNumericEntry(meta));
+        NumericEntry n = readNumericEntry(meta);
+        if (version >= Lucene50DocValuesFormat.VERSION_SKIP_INDEX) {
+          readSkipIndex(meta, n);
+        }
+        numerics.put(info.name, n);
       } else if (type == Lucene50DocValuesFormat.BINARY) {
         BinaryEntry b = readBinaryEntry(meta);
         binaries.put(info.name, b);
@@ -267,7 +281,11 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
         if (meta.readByte() != Lucene50DocValuesFormat.NUMERIC) {
           throw new CorruptIndexException("sortednumeric entry for field: " + info.name + " is corrupt", meta);
         }
-        numerics.put(info.name, readNumericEntry(meta));
+        NumericEntry n = readNumericEntry(meta);
+        if (ss.format == SORTED_SINGLE_VALUED && version >= Lucene50DocValuesFormat.VERSION_SKIP_INDEX) {
+          readSkipIndex(meta, n);
+        }
+        numerics.put(info.name, n);
         if (ss.format == SORTED_WITH_ADDRESSES) {
           if (meta.readVInt() != fieldNumber) {
             throw new CorruptIndexException("sortednumeric entry for field: " + info.name + " is corrupt", meta);
@@ -288,6 +306,16 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     return numFields;
   }
   
+  private void readSkipIndex(IndexInput meta, NumericEntry entry) throws IOException {
+    entry.skipBlockShift = meta.readVInt();
+    if (entry.skipBlockShift != 0) {
+      if (entry.skipBlockShift > 30 || entry.count > Integer.MAX_VALUE) {
+        throw new CorruptIndexException("illegal skip index: blockShift=" + entry.skipBlockShift + ", count=" + entry.count, meta);
+      }
+      entry.skipOffset = meta.readLong();
+    }
+  }
+
   private NumericEntry readNumericEntry(IndexInput meta) throws IOException {
     NumericEntry entry = new NumericEntry();
     entry.format = meta.readVInt();
@@ -326,6 +354,36 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
         entry.packedIntsVersion = meta.readVInt();
         entry.blockSize = meta.readVInt();
         break;
+      case SPARSE_COMPRESSED:
+        if (entry.count > Integer.MAX_VALUE) {
+          throw new CorruptIndexException("illegal SPARSE_COMPRESSED count: " + entry.count, meta);
+        }
+        entry.missingValue = meta.readLong();
+        final int numBlocks = meta.readVInt();
+        if (numBlocks != (int) ((entry.count + SPARSE_BLOCK_MASK) >>> SPARSE_BLOCK_SHIFT)) {
+          throw new CorruptIndexException("SPARSE_COMPRESSED has " + numBlocks + " blocks for " + entry.count + " documents", meta);
+        }
+        entry.blockCardinalities = new int[numBlocks];
+        entry.blockOffsets = new long[numBlocks];
+        entry.blockIndexes = new int[numBlocks];
+        long blockOffset = entry.offset;
+        int numDocsWithValue = 0;
+        for (int i = 0; i < numBlocks; ++i) {
+          final int cardinality = meta.readVInt();
+          if (cardinality > SPARSE_BLOCK_SIZE) {
+            throw new CorruptIndexException("SPARSE_COMPRESSED block cannot have more than " + SPARSE_BLOCK_SIZE + " documents, got=" + cardinality, meta);
+          }
+          entry.blockCardinalities[i] = cardinality;
+          entry.blockOffsets[i] = blockOffset;
+          entry.blockIndexes[i] = numDocsWithValue;
+          blockOffset += Lucene50DocValuesConsumer.sparseBlockBytes(cardinality);
+          numDocsWithValue += cardinality;
+        }
+        entry.values = readNumericEntry(meta);
+        if (entry.values.count != numDocsWithValue || entry.values.offset != blockOffset) {
+          throw new CorruptIndexException("SPARSE_COMPRESSED values do not match the documents that have a value", meta);
+        }
+        break;
       default:
         throw new CorruptIndexException("Unknown format: " + entry.format + ", input=", meta);
     }
@@ -373,7 +431,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
   @Override
   public NumericDocValues getNumeric(FieldInfo field) throws IOException {
     NumericEntry entry = numerics.get(field.name);
-    return getNumeric(entry);
+    return getNumericWithSkipIndex(entry);
   }
   
   @Override
@@ -446,11 +504,81 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
           }
         };
       }
+      case SPARSE_COMPRESSED: {
+        final SparseDocs docs = getSparseDocs(entry);
+        final long missingValue = entry.missingValue;
+        final LongValues values = getNumeric(entry.values);
+        return new LongValues() {
+          @Override
+          public long get(long id) {
+            final int index;
+            try {
+              index = docs.index((int) id);
+            } catch (IOException e) {
+              throw new RuntimeException(e);
+            }
+            return index == -1 ? missingValue : values.get(index);
+          }
+        };
+      }
       default:
         throw new AssertionError();
     }
   }
 
+  private NumericDocValues getNumericWithSkipIndex(NumericEntry entry) throws IOException {
+    final LongValues values = getNumeric(entry);
+    if (entry.skipBlockShift == 0) {
+      return values;
+    }
+    final int blockShift = entry.skipBlockShift;
+    final long numBlocks = (entry.count + (1L << blockShift) - 1) >>> blockShift;
+    final RandomAccessInput slice = data.randomAccessSlice(entry.skipOffset, numBlocks * SKIP_BLOCK_BYTES);
+    return new BlockMinMaxNumericDocValues() {
+      @Override
+      public long get(int docID) {
+        return values.get(docID);
+      }
+
+      @Override
+      public int getBlockShift() {
+        return blockShift;
+      }
+
+      @Override
+      public long getMinValue(int block) {
+        try {
+          return slice.readLong((long) block * SKIP_BLOCK_BYTES);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+
+      @Override
+      public long getMaxValue(int block) {
+        try {
+          return slice.readLong((long) block * SKIP_BLOCK_BYTES + 8);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+
+      @Override
+      public int getDocCount(int block) {
+        try {
+          return slice.readInt((long) block * SKIP_BLOCK_BYTES + 16);
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+  }
+
+  private SparseDocs getSparseDocs(NumericEntry entry) throws IOException {
+    final RandomAccessInput slice = data.randomAccessSlice(entry.offset, entry.values.offset - entry.offset);
+    return new SparseDocs(slice, entry);
+  }
+
   @Override
   public BinaryDocValues getBinary(FieldInfo field) throws IOException {
     BinaryEntry bytes = binaries.get(field.name);
@@ -630,11 +758,11 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
   public SortedNumericDocValues getSortedNumeric(FieldInfo field) throws IOException {
     SortedSetEntry ss = sortedNumerics.get(field.name);
     NumericEntry numericEntry = numerics.get(field.name);
-    final LongValues values = getNumeric(numericEntry);
     if (ss.format == SORTED_SINGLE_VALUED) {
-      final Bits docsWithField = getLiveBits(numericEntry.missingOffset, maxDoc);
-      return DocValues.singleton(values, docsWithField);
+      final Bits docsWithField = getDocsWithField(numericEntry, maxDoc);
+      return DocValues.singleton(getNumericWithSkipIndex(numericEntry), docsWithField);
     } else if (ss.format == SORTED_WITH_ADDRESSES) {
+      final LongValues values = getNumeric(numericEntry);
       final MonotonicBlockPackedReader ordIndex = getOrdIndexInstance(field, ordIndexes.get(field.name));
       
       return new SortedNumericDocValues() {
@@ -767,6 +895,29 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     }
   }
 
+  private Bits getDocsWithField(NumericEntry entry, final int count) throws IOException {
+    if (entry.format == SPARSE_COMPRESSED) {
+      final SparseDocs docs = getSparseDocs(entry);
+      return new Bits() {
+        @Override
+        public boolean get(int index) {
+          try {
+            return docs.index(index) != -1;
+          } catch (IOException e) {
+            throw new RuntimeException(e);
+          }
+        }
+
+        @Override
+        public int length() {
+          return count;
+        }
+      };
+    } else {
+      return getLiveBits(entry.missingOffset, count);
+    }
+  }
+
   @Override
   public Bits getDocsWithField(FieldInfo field) throws IOException {
     switch(field.getDocValuesType()) {
@@ -781,7 +932,7 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
         return getLiveBits(be.missingOffset, maxDoc);
       case NUMERIC:
         NumericEntry ne = numerics.get(field.name);
-        return getLiveBits(ne.missingOffset, maxDoc);
+        return getDocsWithField(ne, maxDoc);
       default:
         throw new AssertionError();
     }
@@ -820,6 +971,113 @@ class Lucene50DocValuesProducer extends DocValuesProducer implements Closeable {
     long minValue;
     long gcd;
     long table[];
+
+    /** for sparse numerics: value of documents that do not have a value */
+    long missingValue;
+    /** for sparse numerics: number of documents that have a value per block */
+    int[] blockCardinalities;
+    /** for sparse numerics: start offset of each block */
+    long[] blockOffsets;
+    /** for sparse numerics: number of documents that have a value before each block */
+    int[] blockIndexes;
+    /** for sparse numerics: the values of the documents that have one */
+    NumericEntry values;
+
+    /** log2 of the number of documents per block of the skip index, or 0 if there is no skip index */
+    int skipBlockShift;
+    /** offset to the skip index */
+    long skipOffset;
+  }
+
+  /**
+   * Random access to the set of documents that have a value of a sparse numeric.
+   * Maps a document to the index of its value, and remembers where the last lookup
+   * ended so that documents that are looked up in order are found quickly.
+   */
+  static final class SparseDocs {
+    private final RandomAccessInput slice;
+    private final long startOffset;
+    private final int[] blockCardinalities;
+    private final long[] blockOffsets;
+    private final int[] blockIndexes;
+
+    // the last lookup was in lastBlock for lastTarget, and lastPosition is the position of
+    // the first doc that is greater than or equal to lastTarget, whose value is nextTarget
+    private int lastBlock = -1;
+    private int lastTarget;
+    private int lastPosition;
+    private int nextTarget;
+
+    SparseDocs(RandomAccessInput slice, NumericEntry entry) {
+      this.slice = slice;
+      this.startOffset = entry.offset;
+      this.blockCardinalities = entry.blockCardinalities;
+      this.blockOffsets = entry.blockOffsets;
+      this.blockIndexes = entry.blockIndexes;
+    }
+
+    /** Returns the index of the value of <code>doc</code>, or -1 if it does not have a value. */
+    int index(int doc) throws IOException {
+      final int block = doc >>> SPARSE_BLOCK_SHIFT;
+      final int cardinality = blockCardinalities[block];
+      if (cardinality == 0) {
+        return -1;
+      }
+      final int target = doc & SPARSE_BLOCK_MASK;
+      final long offset = blockOffsets[block] - startOffset;
+      if (cardinality <= SPARSE_MAX_ARRAY_LENGTH) {
+        int lo = 0;
+        int hi = cardinality - 1;
+        if (block == lastBlock && target >= lastTarget) {
+          if (target <= nextTarget) {
+            // fast path for lookups in order
+            lastTarget = target;
+            return target == nextTarget ? blockIndexes[block] + lastPosition : -1;
+          }
+          // all docs up to the last position are less than the target: gallop forward from there
+          lo = lastPosition;
+          for (int step = 1; lo + step <= hi; step <<= 1) {
+            if (docAt(offset, lo + step) < target) {
+              lo += step;
+            } else {
+              hi = lo + step;
+              break;
+            }
+          }
+        }
+        while (lo <= hi) {
+          final int mid = (lo + hi) >>> 1;
+          if (docAt(offset, mid) < target) {
+            lo = mid + 1;
+          } else {
+            hi = mid - 1;
+          }
+        }
+        lastBlock = block;
+        lastTarget = target;
+        lastPosition = lo;
+        nextTarget = lo < cardinality ? docAt(offset, lo) : SPARSE_BLOCK_SIZE;
+        return nextTarget == target ? blockIndexes[block] + lo : -1;
+      } else {
+        final int wordIndex = target >>> 6;
+        final long word = slice.readLong(offset + (wordIndex << 3));
+        final long mask = 1L << target;
+        if ((word & mask) == 0) {
+          return -1;
+        }
+        final int rankIndex = wordIndex / SPARSE_RANK_INTERVAL;
+        int rank = slice.readShort(offset + (SPARSE_BLOCK_SIZE >>> 3) + (rankIndex << 1)) & 0xFFFF;
+        for (int i = rankIndex * SPARSE_RANK_INTERVAL; i < wordIndex; ++i) {
+          rank += Long.bitCount(slice.readLong(offset + (i << 3)));
+        }
+        rank += Long.bitCount(word & (mask - 1));
+        return blockIndexes[block] + rank;
+      }
+    }
+
+    private int docAt(long offset, int position) throws IOException {
+      return slice.readShort(offset + (position << 1)) & 0xFFFF;
+    }
   }
   
   /** metadata entry for a binary docvalues field */
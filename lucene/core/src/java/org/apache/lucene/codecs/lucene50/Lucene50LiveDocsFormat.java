@@ -33,6 +33,7 @@ import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.MutableBits;
+import org.apache.lucene.util.PagedFixedBitSet;
 
 /** 
  * Lucene 5.0 live docs format 
@@ -40,6 +41,9 @@ import org.apache.lucene.util.MutableBits;
  * deletions.
  * <p>Although per-segment, this file is maintained exterior to compound segment
  * files.
+ * <p>Live docs are held in memory as a {@link PagedFixedBitSet}, so that
+ * near-real-time readers can share the pages that have not been modified since
+ * they were opened.
  * <p>Deletions (.liv) --&gt; IndexHeader,Generation,Bits
  * <ul>
  *   <li>SegmentHeader --&gt; {@link CodecUtil#writeIndexHeader IndexHeader}</li>
@@ -64,15 +68,18 @@ public final class Lucene50LiveDocsFormat extends LiveDocsFormat {
 
   @Override
   public MutableBits newLiveDocs(int size) throws IOException {
-    FixedBitSet bits = new FixedBitSet(size);
+    PagedFixedBitSet bits = new PagedFixedBitSet(size);
     bits.set(0, size);
     return bits;
   }
 
   @Override
   public MutableBits newLiveDocs(Bits existing) throws IOException {
-    FixedBitSet fbs = (FixedBitSet) existing;
-    return fbs.clone();
+    if (existing instanceof PagedFixedBitSet) {
+      // copy-on-write: only pages that are modified later are copied
+      return ((PagedFixedBitSet) existing).clone();
+    }
+    return new PagedFixedBitSet((FixedBitSet) existing);
   }
 
   @Override
@@ -94,7 +101,7 @@ public final class Lucene50LiveDocsFormat extends LiveDocsFormat {
           throw new CorruptIndexException("bits.deleted=" + (fbs.length() - fbs.cardinality()) + 
                                           " info.delcount=" + info.getDelCount(), input);
         }
-        return fbs;
+        return new PagedFixedBitSet(fbs);
       } catch (Throwable exception) {
         priorE = exception;
       } finally {
@@ -108,16 +115,16 @@ public final class Lucene50LiveDocsFormat extends LiveDocsFormat {
   public void writeLiveDocs(MutableBits bits, Directory dir, SegmentCommitInfo info, int newDelCount, IOContext context) throws IOException {
     long gen = info.getNextDelGen();
     String name = IndexFileNames.fileNameFromGeneration(info.info.name, EXTENSION, gen);
-    FixedBitSet fbs = (FixedBitSet) bits;
-    if (fbs.length() - fbs.cardinality() != info.getDelCount() + newDelCount) {
-      throw new CorruptIndexException("bits.deleted=" + (fbs.length() - fbs.cardinality()) + 
+    PagedFixedBitSet pbs = (PagedFixedBitSet) bits;
+    if (pbs.length() - pbs.cardinality() != info.getDelCount() + newDelCount) {
+      throw new CorruptIndexException("bits.deleted=" + (pbs.length() - pbs.cardinality()) + 
                                       " info.delcount=" + info.getDelCount() + " newdelcount=" + newDelCount, name);
     }
-    long data[] = fbs.getBits();
     try (IndexOutput output = dir.createOutput(name, context)) {
       CodecUtil.writeIndexHeader(output, CODEC_NAME, VERSION_CURRENT, info.info.getId(), Long.toString(gen, Character.MAX_RADIX));
-      for (int i = 0; i < data.length; i++) {
-        output.writeLong(data[i]);
+      final int numWords = pbs.numWords();
+      for (int i = 0; i < numWords; i++) {
+        output.writeLong(pbs.getWord(i));
       }
       CodecUtil.writeFooter(output);
     }
@@ -389,6 +389,7 @@ public final class Lucene50PostingsFormat extends PostingsFormat {
 
   private final int minTermBlockSize;
   private final int maxTermBlockSize;
+  private final boolean offHeapTermsIndex;
 
   /**
    * Fixed packed block size, number of integers encoded in 
@@ -408,10 +409,23 @@ public final class Lucene50PostingsFormat extends PostingsFormat {
    *  maxBlockSize} passed to block terms dictionary.
    *  @see BlockTreeTermsWriter#BlockTreeTermsWriter(SegmentWriteState,PostingsWriterBase,int,int) */
   public Lucene50PostingsFormat(int minTermBlockSize, int maxTermBlockSize) {
+    this(minTermBlockSize, maxTermBlockSize, false);
+  }
+
+  /** Creates {@code Lucene50PostingsFormat} with custom
+   *  values for {@code minBlockSize} and {@code
+   *  maxBlockSize}, and whether the terms index of the
+   *  fields it writes should be read off-heap. Use it through a
+   *  {@link org.apache.lucene.codecs.perfield.PerFieldPostingsFormat}
+   *  to keep the terms index of high-cardinality fields, such as
+   *  primary keys, off-heap.
+   *  @see BlockTreeTermsWriter#BlockTreeTermsWriter(SegmentWriteState,PostingsWriterBase,int,int,int,int,boolean) */
+  public Lucene50PostingsFormat(int minTermBlockSize, int maxTermBlockSize, boolean offHeapTermsIndex) {
     super("Lucene50");
     BlockTreeTermsWriter.validateSettings(minTermBlockSize, maxTermBlockSize);
     this.minTermBlockSize = minTermBlockSize;
     this.maxTermBlockSize = maxTermBlockSize;
+    this.offHeapTermsIndex = offHeapTermsIndex;
   }
 
   @Override
@@ -428,7 +442,10 @@ public final class Lucene50PostingsFormat extends PostingsFormat {
       FieldsConsumer ret = new BlockTreeTermsWriter(state, 
                                                     postingsWriter,
                                                     minTermBlockSize, 
-                                                    maxTermBlockSize);
+                                                    maxTermBlockSize,
+                                                    0,
+                                                    0,
+                                                    offHeapTermsIndex);
       success = true;
       return ret;
     } finally {
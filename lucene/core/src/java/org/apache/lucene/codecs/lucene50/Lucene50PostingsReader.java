@@ -38,7 +38,7 @@ import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.RamUsageEstimator;
 
 import static org.apache.lucene.codecs.lucene50.ForUtil.MAX_DATA_SIZE;
-import static org.apache.lucene.codecs.lucene50.ForUtil.MAX_ENCODED_SIZE;
+import static org.apache.lucene.codecs.lucene50.ForUtil.MAX_ENCODED_LONGS;
 import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.BLOCK_SIZE;
 import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.DOC_CODEC;
 import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.MAX_SKIP_LEVELS;
@@ -236,9 +236,9 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
   }
 
   final class BlockDocsEnum extends PostingsEnum {
-    private final byte[] encoded;
+    private final long[] encoded;
     
-    private final int[] docDeltaBuffer = new int[MAX_DATA_SIZE];
+    private final int[] docBuffer = new int[MAX_DATA_SIZE];
     private final int[] freqBuffer = new int[MAX_DATA_SIZE];
 
     private int docBufferUpto;
@@ -258,7 +258,7 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
     private long totalTermFreq;                       // sum of freqs in this posting list (or docFreq when omitted)
     private int docUpto;                              // how many docs we've read
     private int doc;                                  // doc we last read
-    private int accum;                                // accumulator for doc deltas
+    private int accum;                                // last doc ID decoded, base for the next block
     private int freq;                                 // freq we last read
 
     // Where this term's postings start in the .doc file:
@@ -285,7 +285,7 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       indexHasPos = fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS) >= 0;
       indexHasOffsets = fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS) >= 0;
       indexHasPayloads = fieldInfo.hasPayloads();
-      encoded = new byte[MAX_ENCODED_SIZE];    
+      encoded = new long[MAX_ENCODED_LONGS];    
     }
 
     public boolean canReuse(IndexInput docIn, FieldInfo fieldInfo) {
@@ -359,7 +359,7 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       assert left > 0;
 
       if (left >= BLOCK_SIZE) {
-        forUtil.readBlock(docIn, encoded, docDeltaBuffer);
+        forUtil.readDeltaBlock(docIn, encoded, docBuffer, accum);
 
         if (indexHasFreq) {
           if (needsFreq) {
@@ -369,11 +369,12 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
           }
         }
       } else if (docFreq == 1) {
-        docDeltaBuffer[0] = singletonDocID;
+        docBuffer[0] = singletonDocID;
         freqBuffer[0] = (int) totalTermFreq;
       } else {
         // Read vInts:
-        readVIntBlock(docIn, docDeltaBuffer, freqBuffer, left, indexHasFreq);
+        readVIntBlock(docIn, docBuffer, freqBuffer, left, indexHasFreq);
+        ForUtil.prefixSum(docBuffer, left, accum);
       }
       docBufferUpto = 0;
     }
@@ -389,7 +390,7 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
           refillDocs();
         }
 
-        accum += docDeltaBuffer[docBufferUpto];
+        accum = docBuffer[docBufferUpto];
         docUpto++;
 
         if (liveDocs == null || liveDocs.get(accum)) {
@@ -456,7 +457,7 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       // Now scan... this is an inlined/pared down version
       // of nextDoc():
       while (true) {
-        accum += docDeltaBuffer[docBufferUpto];
+        accum = docBuffer[docBufferUpto];
         docUpto++;
 
         if (accum >= target) {
@@ -487,9 +488,9 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
 
   final class BlockPostingsEnum extends PostingsEnum {
     
-    private final byte[] encoded;
+    private final long[] encoded;
 
-    private final int[] docDeltaBuffer = new int[MAX_DATA_SIZE];
+    private final int[] docBuffer = new int[MAX_DATA_SIZE];
     private final int[] freqBuffer = new int[MAX_DATA_SIZE];
     private final int[] posDeltaBuffer = new int[MAX_DATA_SIZE];
 
@@ -511,7 +512,7 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
     private long totalTermFreq;                       // number of positions in this posting list
     private int docUpto;                              // how many docs we've read
     private int doc;                                  // doc we last read
-    private int accum;                                // accumulator for doc deltas
+    private int accum;                                // last doc ID decoded, base for the next block
     private int freq;                                 // freq we last read
     private int position;                             // current position
 
@@ -552,7 +553,7 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       this.startDocIn = Lucene50PostingsReader.this.docIn;
       this.docIn = null;
       this.posIn = Lucene50PostingsReader.this.posIn.clone();
-      encoded = new byte[MAX_ENCODED_SIZE];
+      encoded = new long[MAX_ENCODED_LONGS];
       indexHasOffsets = fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS) >= 0;
       indexHasPayloads = fieldInfo.hasPayloads();
     }
@@ -618,14 +619,15 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       assert left > 0;
 
       if (left >= BLOCK_SIZE) {
-        forUtil.readBlock(docIn, encoded, docDeltaBuffer);
+        forUtil.readDeltaBlock(docIn, encoded, docBuffer, accum);
         forUtil.readBlock(docIn, encoded, freqBuffer);
       } else if (docFreq == 1) {
-        docDeltaBuffer[0] = singletonDocID;
+        docBuffer[0] = singletonDocID;
         freqBuffer[0] = (int) totalTermFreq;
       } else {
         // Read vInts:
-        readVIntBlock(docIn, docDeltaBuffer, freqBuffer, left, true);
+        readVIntBlock(docIn, docBuffer, freqBuffer, left, true);
+        ForUtil.prefixSum(docBuffer, left, accum);
       }
       docBufferUpto = 0;
     }
@@ -669,7 +671,7 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
           refillDocs();
         }
 
-        accum += docDeltaBuffer[docBufferUpto];
+        accum = docBuffer[docBufferUpto];
         freq = freqBuffer[docBufferUpto];
         posPendingCount += freq;
         docBufferUpto++;
@@ -733,7 +735,7 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       // Now scan... this is an inlined/pared down version
       // of nextDoc():
       while (true) {
-        accum += docDeltaBuffer[docBufferUpto];
+        accum = docBuffer[docBufferUpto];
         freq = freqBuffer[docBufferUpto];
         posPendingCount += freq;
         docBufferUpto++;
@@ -831,9 +833,9 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
   // Also handles payloads + offsets
   final class EverythingEnum extends PostingsEnum {
     
-    private final byte[] encoded;
+    private final long[] encoded;
 
-    private final int[] docDeltaBuffer = new int[MAX_DATA_SIZE];
+    private final int[] docBuffer = new int[MAX_DATA_SIZE];
     private final int[] freqBuffer = new int[MAX_DATA_SIZE];
     private final int[] posDeltaBuffer = new int[MAX_DATA_SIZE];
 
@@ -869,7 +871,7 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
     private long totalTermFreq;                       // number of positions in this posting list
     private int docUpto;                              // how many docs we've read
     private int doc;                                  // doc we last read
-    private int accum;                                // accumulator for doc deltas
+    private int accum;                                // last doc ID decoded, base for the next block
     private int freq;                                 // freq we last read
     private int position;                             // current position
 
@@ -918,7 +920,7 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       this.docIn = null;
       this.posIn = Lucene50PostingsReader.this.posIn.clone();
       this.payIn = Lucene50PostingsReader.this.payIn.clone();
-      encoded = new byte[MAX_ENCODED_SIZE];
+      encoded = new long[MAX_ENCODED_LONGS];
       indexHasOffsets = fieldInfo.getIndexOptions().compareTo(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS) >= 0;
       if (indexHasOffsets) {
         offsetStartDeltaBuffer = new int[MAX_DATA_SIZE];
@@ -1007,13 +1009,14 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
       assert left > 0;
 
       if (left >= BLOCK_SIZE) {
-        forUtil.readBlock(docIn, encoded, docDeltaBuffer);
+        forUtil.readDeltaBlock(docIn, encoded, docBuffer, accum);
         forUtil.readBlock(docIn, encoded, freqBuffer);
       } else if (docFreq == 1) {
-        docDeltaBuffer[0] = singletonDocID;
+        docBuffer[0] = singletonDocID;
         freqBuffer[0] = (int) totalTermFreq;
       } else {
-        readVIntBlock(docIn, docDeltaBuffer, freqBuffer, left, true);
+        readVIntBlock(docIn, docBuffer, freqBuffer, left, true);
+        ForUtil.prefixSum(docBuffer, left, accum);
       }
       docBufferUpto = 0;
     }
@@ -1097,7 +1100,7 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
           refillDocs();
         }
 
-        accum += docDeltaBuffer[docBufferUpto];
+        accum = docBuffer[docBufferUpto];
         freq = freqBuffer[docBufferUpto];
         posPendingCount += freq;
         docBufferUpto++;
@@ -1163,7 +1166,7 @@ public final class Lucene50PostingsReader extends PostingsReaderBase {
 
       // Now scan:
       while (true) {
-        accum += docDeltaBuffer[docBufferUpto];
+        accum = docBuffer[docBufferUpto];
         freq = freqBuffer[docBufferUpto];
         posPendingCount += freq;
         docBufferUpto++;
@@ -29,8 +29,11 @@ import org.apache.lucene.index.IndexFileNames;
 import org.apache.lucene.index.IndexWriter; // javadocs
 import org.apache.lucene.index.SegmentInfo; // javadocs
 import org.apache.lucene.index.SegmentInfos; // javadocs
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.store.ChecksumIndexInput;
 import org.apache.lucene.store.DataOutput; // javadocs
+import org.apache.lucene.store.DataInput;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexOutput;
@@ -41,7 +44,7 @@ import org.apache.lucene.util.Version;
  * <p>
  * Files:
  * <ul>
- *   <li><tt>.si</tt>: Header, SegVersion, SegSize, IsCompoundFile, Diagnostics, Files, Attributes, Footer
+ *   <li><tt>.si</tt>: Header, SegVersion, SegSize, IsCompoundFile, Diagnostics, Files, Attributes, IndexSort, Footer
  * </ul>
  * Data types:
  * <ul>
@@ -51,6 +54,11 @@ import org.apache.lucene.util.Version;
  *   <li>Files --&gt; {@link DataOutput#writeSetOfStrings Set&lt;String&gt;}</li>
  *   <li>Diagnostics,Attributes --&gt; {@link DataOutput#writeMapOfStrings Map&lt;String,String&gt;}</li>
  *   <li>IsCompoundFile --&gt; {@link DataOutput#writeByte Int8}</li>
+ *   <li>IndexSort --&gt; NumSortFields, SortField<sup>NumSortFields</sup></li>
+ *   <li>SortField --&gt; FieldName, SortTypeID, Reverse, HasMissingValue, MissingValue?</li>
+ *   <li>NumSortFields,SortTypeID --&gt; {@link DataOutput#writeVInt VInt32}</li>
+ *   <li>FieldName --&gt; {@link DataOutput#writeString String}</li>
+ *   <li>Reverse,HasMissingValue --&gt; {@link DataOutput#writeByte Int8}</li>
  *   <li>Footer --&gt; {@link CodecUtil#writeFooter CodecFooter}</li>
  * </ul>
  * Field Descriptions:
@@ -65,6 +73,9 @@ import org.apache.lucene.util.Version;
  *       version, OS, Java version, why the segment was created (merge, flush,
  *       addIndexes), etc.</li>
  *   <li>Files is a list of files referred to by this segment.</li>
+ *   <li>IndexSort is the sort order of documents in this segment, it has 0
+ *       sort fields if documents are not sorted. MissingValue is only written
+ *       if HasMissingValue is 1, and its encoding depends on the sort type.</li>
  * </ul>
  * 
  * @see SegmentInfos
@@ -109,7 +120,14 @@ public class Lucene50SegmentInfoFormat extends SegmentInfoFormat {
           attributes = Collections.unmodifiableMap(input.readStringStringMap());
         }
         
-        si = new SegmentInfo(dir, version, segment, docCount, isCompoundFile, null, diagnostics, segmentID, attributes);
+        final Sort indexSort;
+        if (format >= VERSION_INDEX_SORT) {
+          indexSort = readIndexSort(input);
+        } else {
+          indexSort = null;
+        }
+        
+        si = new SegmentInfo(dir, version, segment, docCount, isCompoundFile, null, diagnostics, segmentID, attributes, indexSort);
         si.setFiles(files);
       } catch (Throwable exception) {
         priorE = exception;
@@ -152,14 +170,148 @@ public class Lucene50SegmentInfoFormat extends SegmentInfoFormat {
       }
       output.writeSetOfStrings(files);
       output.writeMapOfStrings(si.getAttributes());
+      writeIndexSort(output, si.getIndexSort());
       CodecUtil.writeFooter(output);
     }
   }
 
+  private static Sort readIndexSort(DataInput input) throws IOException {
+    final int numSortFields = input.readVInt();
+    if (numSortFields == 0) {
+      return null;
+    }
+    final SortField[] sortFields = new SortField[numSortFields];
+    for (int i = 0; i < numSortFields; ++i) {
+      final String fieldName = input.readString();
+      final int sortTypeID = input.readVInt();
+      final SortField.Type sortType;
+      switch (sortTypeID) {
+        case 0:
+          sortType = SortField.Type.STRING;
+          break;
+        case 1:
+          sortType = SortField.Type.LONG;
+          break;
+        case 2:
+          sortType = SortField.Type.INT;
+          break;
+        case 3:
+          sortType = SortField.Type.DOUBLE;
+          break;
+        case 4:
+          sortType = SortField.Type.FLOAT;
+          break;
+        default:
+          throw new CorruptIndexException("invalid index sort field type ID: " + sortTypeID, input);
+      }
+      final byte reverse = input.readByte();
+      if (reverse != 0 && reverse != 1) {
+        throw new CorruptIndexException("invalid index sort reverse: " + reverse, input);
+      }
+      sortFields[i] = new SortField(fieldName, sortType, reverse == 1);
+
+      final byte hasMissingValue = input.readByte();
+      if (hasMissingValue == 1) {
+        final Object missingValue;
+        switch (sortType) {
+          case STRING:
+            final byte first = input.readByte();
+            if (first == 1) {
+              missingValue = SortField.STRING_FIRST;
+            } else if (first == 0) {
+              missingValue = SortField.STRING_LAST;
+            } else {
+              throw new CorruptIndexException("invalid missing value flag: " + first, input);
+            }
+            break;
+          case LONG:
+            missingValue = input.readLong();
+            break;
+          case INT:
+            missingValue = input.readInt();
+            break;
+          case DOUBLE:
+            missingValue = Double.longBitsToDouble(input.readLong());
+            break;
+          case FLOAT:
+            missingValue = Float.intBitsToFloat(input.readInt());
+            break;
+          default:
+            throw new AssertionError("unhandled sortType=" + sortType);
+        }
+        sortFields[i].setMissingValue(missingValue);
+      } else if (hasMissingValue != 0) {
+        throw new CorruptIndexException("invalid missing value flag: " + hasMissingValue, input);
+      }
+    }
+    return new Sort(sortFields);
+  }
+
+  private static void writeIndexSort(IndexOutput output, Sort indexSort) throws IOException {
+    if (indexSort == null) {
+      output.writeVInt(0);
+      return;
+    }
+    final SortField[] sortFields = indexSort.getSort();
+    output.writeVInt(sortFields.length);
+    for (SortField sortField : sortFields) {
+      output.writeString(sortField.getField());
+      final int sortTypeID;
+      switch (sortField.getType()) {
+        case STRING:
+          sortTypeID = 0;
+          break;
+        case LONG:
+          sortTypeID = 1;
+          break;
+        case INT:
+          sortTypeID = 2;
+          break;
+        case DOUBLE:
+          sortTypeID = 3;
+          break;
+        case FLOAT:
+          sortTypeID = 4;
+          break;
+        default:
+          throw new IllegalStateException("Unexpected sort type: " + sortField.getType());
+      }
+      output.writeVInt(sortTypeID);
+      output.writeByte((byte) (sortField.getReverse() ? 1 : 0));
+
+      final Object missingValue = sortField.missingValue;
+      if (missingValue == null) {
+        output.writeByte((byte) 0);
+      } else {
+        output.writeByte((byte) 1);
+        switch (sortField.getType()) {
+          case STRING:
+            output.writeByte((byte) (missingValue == SortField.STRING_FIRST ? 1 : 0));
+            break;
+          case LONG:
+            output.writeLong(((Long) missingValue).longValue());
+            break;
+          case INT:
+            output.writeInt(((Integer) missingValue).intValue());
+            break;
+          case DOUBLE:
+            output.writeLong(Double.doubleToLongBits(((Double) missingValue).doubleValue()));
+            break;
+          case FLOAT:
+            output.writeInt(Float.floatToIntBits(((Float) missingValue).floatValue()));
+            break;
+          default:
+            throw new IllegalStateException("Unexpected sort type: " + sortField.getType());
+        }
+      }
+    }
+  }
+
   /** File extension used to store {@link SegmentInfo}. */
   public final static String SI_EXTENSION = "si";
   static final String CODEC_NAME = "Lucene50SegmentInfo";
   static final int VERSION_START = 0;
   static final int VERSION_SAFE_MAPS = 1;
-  static final int VERSION_CURRENT = VERSION_SAFE_MAPS;
+  static final int VERSION_INDEX_SORT = 2;
+  static final int VERSION_CURRENT = VERSION_INDEX_SORT;
 }
@@ -0,0 +1,369 @@
+package org.apache.lucene.index;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Locale;
+
+import org.apache.lucene.index.MergePolicy.OneMerge;
+
+/** A {@link ConcurrentMergeScheduler} that adapts to the load of the
+ *  application:
+ *
+ *  <ul>
+ *    <li>Merges whose estimated size is below {@link #getFastLaneMergeMB()}
+ *        run in a separate fast lane: they are picked before larger pending
+ *        merges, are never paused, and do not count against
+ *        {@link #getMaxMergeCount()}, so that they never queue behind a
+ *        large merge and do not cause indexing threads to stall.</li>
+ *    <li>The number of merge threads is periodically recomputed from the
+ *        measured merge throughput of a single thread and from the rate at
+ *        which the merge policy requests merges, which is driven by the
+ *        indexing rate. The result is bounded by
+ *        {@link #getMinThreadCount()} and {@link #getMaxAdaptiveThreadCount()}
+ *        and replaces any value set with {@link #setMaxMergesAndThreads}.</li>
+ *    <li>When the configured {@link PressureSignal} reports pressure, for
+ *        instance because search latency is at risk, large merges are
+ *        throttled down to {@link #getPressureMBPerSec()} so that they use
+ *        less IO and CPU. Small merges are not throttled as they keep the
+ *        number of segments, hence the cost of searching, low.</li>
+ *  </ul>
+ *
+ *  @lucene.experimental
+ */
+public class AdaptiveMergeScheduler extends ConcurrentMergeScheduler {
+
+  /** A signal that tells whether merges should currently yield resources
+   *  to other activities such as searching. */
+  public interface PressureSignal {
+
+    /** Return true if merges should currently slow down. This method is
+     *  called often and should be cheap. */
+    boolean isUnderPressure();
+
+  }
+
+  /** How much past measurements weigh compared to new ones. */
+  private static final double DECAY = 0.8;
+
+  /** Minimum interval between two computations of the merge demand. */
+  private static final long MIN_DEMAND_WINDOW_NS = 1000000000L;
+
+  /** Provision threads so that merging is this much faster than the demand,
+   *  which leaves room for bursts. */
+  private static final double HEADROOM = 1.5;
+
+  /** Number of merges that may be pending on top of running ones before
+   *  incoming threads get stalled, same as the defaults of
+   *  {@link ConcurrentMergeScheduler}. */
+  private static final int EXTRA_MERGE_COUNT = 5;
+
+  private double fastLaneMergeMB = 50.0;
+  private int maxFastLaneMergeCount = 2;
+  private int minThreadCount = 1;
+  private int maxAdaptiveThreadCount = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+  private PressureSignal pressureSignal;
+  private double pressureMBPerSec = 5.0;
+
+  // decayed sums of bytes written by finished merges and of the time they
+  // were actually running (not paused nor stopped)
+  private double mergedBytes;
+  private double mergeNS;
+
+  // bytes of merges that have been started since demandWindowStartNS
+  private long demandBytes;
+  private long demandWindowStartNS = -1;
+  private double demandMBPerSec = -1;
+
+  /** Sole constructor, with all settings set to default values. */
+  public AdaptiveMergeScheduler() {
+  }
+
+  /** Configure the fast lane: merges whose estimated size is less than or
+   *  equal to <code>maxMergeMB</code> get scheduled before other merges and
+   *  up to <code>maxMergeCount</code> of them may run on top of the merges
+   *  allowed by {@link #getMaxMergeCount()}. Defaults are 50 MB and 2. */
+  public synchronized void setFastLane(double maxMergeMB, int maxMergeCount) {
+    if (maxMergeMB < 0 || Double.isNaN(maxMergeMB)) {
+      throw new IllegalArgumentException("maxMergeMB must be >= 0, got " + maxMergeMB);
+    }
+    if (maxMergeCount < 0) {
+      throw new IllegalArgumentException("maxMergeCount must be >= 0, got " + maxMergeCount);
+    }
+    this.fastLaneMergeMB = maxMergeMB;
+    this.maxFastLaneMergeCount = maxMergeCount;
+    updateMergeThreads();
+  }
+
+  /** Return the maximum size of merges that run in the fast lane.
+   *  @see #setFastLane */
+  public synchronized double getFastLaneMergeMB() {
+    return fastLaneMergeMB;
+  }
+
+  /** Return the maximum number of merges that may run in the fast lane.
+   *  @see #setFastLane */
+  public synchronized int getMaxFastLaneMergeCount() {
+    return maxFastLaneMergeCount;
+  }
+
+  /** Set the bounds of the number of threads that may run large merges
+   *  concurrently. The default maximum is half the number of available
+   *  processors. */
+  public synchronized void setThreadCountBounds(int minThreadCount, int maxThreadCount) {
+    if (minThreadCount < 1) {
+      throw new IllegalArgumentException("minThreadCount must be at least 1, got " + minThreadCount);
+    }
+    if (maxThreadCount < minThreadCount) {
+      throw new IllegalArgumentException("maxThreadCount must be >= minThreadCount (= " + minThreadCount + "), got " + maxThreadCount);
+    }
+    this.minThreadCount = minThreadCount;
+    this.maxAdaptiveThreadCount = maxThreadCount;
+  }
+
+  /** Return the minimum number of merge threads.
+   *  @see #setThreadCountBounds */
+  public synchronized int getMinThreadCount() {
+    return minThreadCount;
+  }
+
+  /** Return the maximum number of merge threads.
+   *  @see #setThreadCountBounds */
+  public synchronized int getMaxAdaptiveThreadCount() {
+    return maxAdaptiveThreadCount;
+  }
+
+  /** Set the signal that tells when merges should yield to other activities
+   *  and the IO rate that large merges get throttled to in that case, which
+   *  may be 0 to stop them entirely. The signal is checked whenever a merge
+   *  starts or finishes and when {@link #pressureChanged()} is called. Pass
+   *  <code>null</code> to disable (the default). */
+  public synchronized void setPressureSignal(PressureSignal signal, double mbPerSec) {
+    if (mbPerSec < 0 || Double.isNaN(mbPerSec)) {
+      throw new IllegalArgumentException("mbPerSec must be >= 0, got " + mbPerSec);
+    }
+    this.pressureSignal = signal;
+    this.pressureMBPerSec = mbPerSec;
+    updateMergeThreads();
+  }
+
+  /** Return the configured pressure signal, or null if none is configured.
+   *  @see #setPressureSignal */
+  public synchronized PressureSignal getPressureSignal() {
+    return pressureSignal;
+  }
+
+  /** Return the IO rate of large merges under pressure.
+   *  @see #setPressureSignal */
+  public synchronized double getPressureMBPerSec() {
+    return pressureMBPerSec;
+  }
+
+  /** Notify this scheduler that the value of the {@link PressureSignal} may
+   *  have changed, so that running merges get throttled or resumed without
+   *  waiting for the next merge to start or finish. */
+  public synchronized void pressureChanged() {
+    updateMergeThreads();
+  }
+
+  /** Return the measured throughput of a single merge thread in MB/sec, or
+   *  -1 if no merge completed yet. */
+  public synchronized double getMergeThreadMBPerSec() {
+    if (mergeNS == 0) {
+      return -1;
+    }
+    return mergedBytes / 1024 / 1024 / (mergeNS / 1000000000.0);
+  }
+
+  /** Return the measured rate at which merges are requested in MB/sec, or
+   *  -1 if it has not been measured yet. */
+  public synchronized double getMergeDemandMBPerSec() {
+    return demandMBPerSec;
+  }
+
+  private long fastLaneMergeBytes() {
+    return (long) (fastLaneMergeMB * 1024 * 1024);
+  }
+
+  private boolean isFastLane(OneMerge merge) {
+    return merge.estimatedMergeBytes <= fastLaneMergeBytes();
+  }
+
+  /** Count live merge threads, ignoring the current thread. */
+  private int mergeThreadCount(boolean fastLane) {
+    final Thread currentThread = Thread.currentThread();
+    int count = 0;
+    for (MergeThread mergeThread : mergeThreads) {
+      if (currentThread != mergeThread && mergeThread.isAlive()
+          && mergeThread.merge.rateLimiter.getAbort() == false
+          && isFastLane(mergeThread.merge) == fastLane) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private boolean fastLaneHasRoom() {
+    return mergeThreadCount(true) < maxFastLaneMergeCount;
+  }
+
+  @Override
+  synchronized OneMerge getNextMerge(IndexWriter writer) {
+    if (fastLaneHasRoom()) {
+      final OneMerge merge = writer.getNextMerge(fastLaneMergeBytes());
+      if (merge != null) {
+        return merge;
+      }
+    }
+    return writer.getNextMerge();
+  }
+
+  @Override
+  protected synchronized boolean maybeStall(IndexWriter writer) {
+    long startStallTime = 0;
+    while (writer.hasPendingMerges()) {
+
+      if (fastLaneHasRoom() && writer.hasPendingMerges(fastLaneMergeBytes())) {
+        // the next merge will run in the fast lane
+        break;
+      }
+
+      final int maxMergeCount = getMaxMergeCount();
+      final int largeMergeCount = mergeThreadCount(false);
+      if (largeMergeCount < maxMergeCount
+          && largeMergeCount + mergeThreadCount(true) < maxMergeCount + maxFastLaneMergeCount) {
+        break;
+      }
+
+      // Merging has fallen behind, see ConcurrentMergeScheduler#maybeStall
+      if (mergeThreads.contains(Thread.currentThread())) {
+        return false;
+      }
+
+      if (verbose() && startStallTime == 0) {
+        message("    too many merges; stalling...");
+      }
+      startStallTime = System.currentTimeMillis();
+      doStall();
+    }
+
+    if (verbose() && startStallTime != 0) {
+      message("  stalled for " + (System.currentTimeMillis()-startStallTime) + " msec");
+    }
+
+    return true;
+  }
+
+  @Override
+  protected synchronized MergeThread getMergeThread(IndexWriter writer, OneMerge merge) throws IOException {
+    final long now = System.nanoTime();
+    if (demandWindowStartNS == -1) {
+      demandWindowStartNS = now;
+    }
+    demandBytes += merge.estimatedMergeBytes;
+    final MergeThread thread = super.getMergeThread(writer, merge);
+    if (isFastLane(merge)) {
+      thread.setName(thread.getName() + " (fast lane)");
+    }
+    return thread;
+  }
+
+  @Override
+  protected void doMerge(IndexWriter writer, OneMerge merge) throws IOException {
+    super.doMerge(writer, merge);
+    final long endNS = System.nanoTime();
+    synchronized (this) {
+      final long startNS = merge.mergeStartNS;
+      if (startNS != -1) {
+        final long runNS = endNS - startNS - merge.rateLimiter.getTotalStoppedNS() - merge.rateLimiter.getTotalPausedNS();
+        if (runNS > 0) {
+          mergedBytes = mergedBytes * DECAY + merge.rateLimiter.getTotalBytesWritten();
+          mergeNS = mergeNS * DECAY + runNS;
+        }
+      }
+      updateThreadCount(endNS);
+    }
+  }
+
+  /** Recompute the merge demand and the number of merge threads. */
+  private synchronized void updateThreadCount(long now) {
+    if (demandWindowStartNS == -1 || now - demandWindowStartNS < MIN_DEMAND_WINDOW_NS) {
+      return;
+    }
+    final double sample = demandBytes / 1024. / 1024. / ((now - demandWindowStartNS) / 1000000000.0);
+    demandMBPerSec = demandMBPerSec == -1 ? sample : demandMBPerSec * DECAY + sample * (1 - DECAY);
+    demandBytes = 0;
+    demandWindowStartNS = now;
+
+    final double threadMBPerSec = getMergeThreadMBPerSec();
+    if (threadMBPerSec <= 0 || getMaxThreadCount() == AUTO_DETECT_MERGES_AND_THREADS) {
+      return;
+    }
+    final int threadCount = computeThreadCount(demandMBPerSec, threadMBPerSec, minThreadCount, maxAdaptiveThreadCount);
+    if (threadCount != getMaxThreadCount()) {
+      if (verbose()) {
+        message(String.format(Locale.ROOT, "adaptive: demand=%.1f MB/sec threadRate=%.1f MB/sec; change maxThreadCount from %d to %d",
+                              demandMBPerSec, threadMBPerSec, getMaxThreadCount(), threadCount));
+      }
+      setMaxMergesAndThreads(threadCount + EXTRA_MERGE_COUNT, threadCount);
+      // maybe unstall incoming threads
+      notifyAll();
+    }
+  }
+
+  /** Return the number of threads that are needed to sustain the given
+   *  merge demand. */
+  static int computeThreadCount(double demandMBPerSec, double threadMBPerSec, int minThreadCount, int maxThreadCount) {
+    final double threadCount = Math.ceil(demandMBPerSec * HEADROOM / threadMBPerSec);
+    return (int) Math.max(minThreadCount, Math.min(maxThreadCount, threadCount));
+  }
+
+  @Override
+  protected synchronized void updateMergeThreads() {
+    super.updateMergeThreads();
+    final PressureSignal signal = pressureSignal;
+    final boolean underPressure = signal != null && signal.isUnderPressure();
+    for (MergeThread mergeThread : mergeThreads) {
+      final OneMerge merge = mergeThread.merge;
+      if (mergeThread.isAlive() == false) {
+        continue;
+      }
+      if (isFastLane(merge)) {
+        if (merge.rateLimiter.getMBPerSec() == 0.0) {
+          // never stop merges of the fast lane
+          merge.rateLimiter.setMBPerSec(getIORateLimitMBPerSec());
+        }
+      } else if (underPressure && merge.rateLimiter.getMBPerSec() > pressureMBPerSec) {
+        if (verbose()) {
+          message(String.format(Locale.ROOT, "merge thread %s under pressure: throttle to %.1f MB/sec", mergeThread.getName(), pressureMBPerSec));
+        }
+        merge.rateLimiter.setMBPerSec(pressureMBPerSec);
+      }
+    }
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder(super.toString());
+    sb.append(", fastLaneMergeMB=").append(fastLaneMergeMB);
+    sb.append(", maxFastLaneMergeCount=").append(maxFastLaneMergeCount);
+    sb.append(", minThreadCount=").append(minThreadCount);
+    sb.append(", maxAdaptiveThreadCount=").append(maxAdaptiveThreadCount);
+    return sb.toString();
+  }
+}
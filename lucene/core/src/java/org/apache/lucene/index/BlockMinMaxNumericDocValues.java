@@ -0,0 +1,59 @@
+package org.apache.lucene.index;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Extension of {@link NumericDocValues} that exposes the minimum and maximum
+ * values of fixed-size blocks of documents.
+ * <p>
+ * Block {@code b} contains documents {@code b << getBlockShift()} (inclusive)
+ * to {@code (b + 1) << getBlockShift()} (exclusive), and the last block may be
+ * incomplete. Consumers such as range queries can use these statistics to skip
+ * over blocks that cannot contain matching values.
+ * <p>
+ * Codecs can optionally extend this API if they record such statistics.
+ * @lucene.experimental
+ */
+public abstract class BlockMinMaxNumericDocValues extends NumericDocValues {
+
+  /** Sole constructor. (For invocation by subclass
+   * constructors, typically implicit.) */
+  protected BlockMinMaxNumericDocValues() {}
+
+  /**
+   * Returns the base 2 logarithm of the number of documents per block.
+   */
+  public abstract int getBlockShift();
+
+  /**
+   * Returns the minimum value of the documents of the given block that have
+   * a value. The result is undefined if {@link #getDocCount(int)} is 0.
+   */
+  public abstract long getMinValue(int block);
+
+  /**
+   * Returns the maximum value of the documents of the given block that have
+   * a value. The result is undefined if {@link #getDocCount(int)} is 0.
+   */
+  public abstract long getMaxValue(int block);
+
+  /**
+   * Returns the number of documents of the given block that have a value.
+   */
+  public abstract int getDocCount(int block);
+}
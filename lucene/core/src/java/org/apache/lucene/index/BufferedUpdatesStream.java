@@ -24,6 +24,11 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -34,10 +39,13 @@ import org.apache.lucene.search.QueryWrapperFilter;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InfoStream;
-import org.apache.lucene.util.PriorityQueue;
 
 /* Tracks the stream of {@link BufferedDeletes}.
  * When DocumentsWriterPerThread flushes, its buffered
@@ -64,15 +72,14 @@ class BufferedUpdatesStream implements Accountable {
   // will be correct:
   private long nextGen = 1;
 
-  // used only by assert
-  private BytesRef lastDeleteTerm;
-
   private final InfoStream infoStream;
+  private final ExecutorService executor;
   private final AtomicLong bytesUsed = new AtomicLong();
   private final AtomicInteger numTerms = new AtomicInteger();
 
-  public BufferedUpdatesStream(InfoStream infoStream) {
+  public BufferedUpdatesStream(InfoStream infoStream, ExecutorService executor) {
     this.infoStream = infoStream;
+    this.executor = executor;
   }
 
   // Appends a new packet of buffered deletes to the stream,
@@ -148,7 +155,10 @@ class BufferedUpdatesStream implements Accountable {
   
   /** Resolves the buffered deleted Term/Query/docIDs, into
    *  actual deleted docIDs in the liveDocs MutableBits for
-   *  each SegmentReader. */
+   *  each SegmentReader. Resolving updates against segments
+   *  runs concurrently if an executor has been configured, but
+   *  new deletes and doc values updates are always published
+   *  by the calling thread. */
   public synchronized ApplyDeletesResult applyDeletesAndUpdates(IndexWriter.ReaderPool pool, List<SegmentCommitInfo> infos) throws IOException {
     final long t0 = System.currentTimeMillis();
 
@@ -192,7 +202,8 @@ class BufferedUpdatesStream implements Accountable {
       int infosIDX = infos.size()-1;
       int delIDX = updates.size()-1;
 
-      // Backwards merge sort the segment delGens with the packet delGens in the buffered stream:
+      // Backwards merge sort the segment delGens with the packet delGens in the buffered stream.
+      // This only records which updates apply to which segment, they are resolved below:
       while (infosIDX >= 0) {
         final FrozenBufferedUpdates packet = delIDX >= 0 ? updates.get(delIDX) : null;
         final SegmentCommitInfo info = infos.get(infosIDX);
@@ -225,21 +236,10 @@ class BufferedUpdatesStream implements Accountable {
 
           // Lock order: IW -> BD -> RP
           assert pool.infoIsLive(info);
-          int delCount = 0;
-          final DocValuesFieldUpdates.Container dvUpdates = new DocValuesFieldUpdates.Container();
           if (coalescedUpdates != null) {
-            delCount += applyQueryDeletes(coalescedUpdates.queriesIterable(), segState);
-            applyDocValuesUpdates(coalescedUpdates.numericDVUpdates, segState, dvUpdates);
-            applyDocValuesUpdates(coalescedUpdates.binaryDVUpdates, segState, dvUpdates);
+            segState.setCoalescedUpdates(coalescedUpdates);
           }
-          delCount += applyQueryDeletes(packet.queriesIterable(), segState);
-          applyDocValuesUpdates(Arrays.asList(packet.numericDVUpdates), segState, dvUpdates);
-          applyDocValuesUpdates(Arrays.asList(packet.binaryDVUpdates), segState, dvUpdates);
-          if (dvUpdates.any()) {
-            segState.rld.writeFieldUpdates(info.info.dir, dvUpdates);
-          }
-
-          totDelCount += delCount;
+          segState.privateUpdates = packet;
 
           /*
            * Since we are on a segment private del packet we must not
@@ -257,28 +257,24 @@ class BufferedUpdatesStream implements Accountable {
             SegmentState segState = segStates[infosIDX];
             // Lock order: IW -> BD -> RP
             assert pool.infoIsLive(info);
-            int delCount = 0;
-            delCount += applyQueryDeletes(coalescedUpdates.queriesIterable(), segState);
-            DocValuesFieldUpdates.Container dvUpdates = new DocValuesFieldUpdates.Container();
-            applyDocValuesUpdates(coalescedUpdates.numericDVUpdates, segState, dvUpdates);
-            applyDocValuesUpdates(coalescedUpdates.binaryDVUpdates, segState, dvUpdates);
-            if (dvUpdates.any()) {
-              segState.rld.writeFieldUpdates(info.info.dir, dvUpdates);
-            }
-
-            totDelCount += delCount;
+            segState.setCoalescedUpdates(coalescedUpdates);
           }
 
           infosIDX--;
         }
       }
 
-      // Now apply all term deletes:
-      if (coalescedUpdates != null && coalescedUpdates.totalTermCount != 0) {
-        if (segStates == null) {
-          segStates = openSegmentStates(pool, infos);
+      // Term deletes apply to all segments:
+      final boolean applyTermDeletes = coalescedUpdates != null && coalescedUpdates.totalTermCount != 0;
+      if (applyTermDeletes && segStates == null) {
+        segStates = openSegmentStates(pool, infos);
+      }
+
+      if (segStates != null) {
+        totTermVisitedCount = resolveUpdates(segStates, coalescedUpdates, applyTermDeletes);
+        for (SegmentState segState : segStates) {
+          totDelCount += segState.publish();
         }
-        totTermVisitedCount += applyTermDeletes(coalescedUpdates, segStates);
       }
 
       assert checkDeleteStats();
@@ -298,13 +294,66 @@ class BufferedUpdatesStream implements Accountable {
     if (infoStream.isEnabled("BD")) {
       infoStream.message("BD",
                          String.format(Locale.ROOT,
-                                       "applyDeletes took %d msec for %d segments, %d newly deleted docs (query deletes), %d visited terms, allDeleted=%s",
+                                       "applyDeletes took %d msec for %d segments, %d newly deleted docs, %d visited terms, allDeleted=%s",
                                        System.currentTimeMillis()-t0, infos.size(), totDelCount, totTermVisitedCount, result.allDeleted));
     }
 
     return result;
   }
 
+  /** Resolves the updates recorded on the given segment states into doc IDs,
+   *  concurrently if an executor is configured. Returns the number of visited
+   *  delete terms. */
+  private long resolveUpdates(SegmentState[] segStates, final CoalescedUpdates coalescedUpdates, final boolean applyTermDeletes) throws IOException {
+    final long startNS = System.nanoTime();
+    final List<SegmentState> work = new ArrayList<>();
+    for (SegmentState segState : segStates) {
+      if (applyTermDeletes || segState.hasUpdates()) {
+        work.add(segState);
+      }
+    }
+
+    long delTermVisitedCount = 0;
+    if (executor == null || work.size() <= 1) {
+      for (SegmentState segState : work) {
+        delTermVisitedCount += segState.resolve(coalescedUpdates, applyTermDeletes);
+      }
+    } else {
+      final List<Future<Long>> futures = new ArrayList<>(work.size());
+      for (final SegmentState segState : work) {
+        final FutureTask<Long> task = new FutureTask<>(new Callable<Long>() {
+          @Override
+          public Long call() throws IOException {
+            return segState.resolve(coalescedUpdates, applyTermDeletes);
+          }
+        });
+        try {
+          executor.execute(task);
+        } catch (RejectedExecutionException e) {
+          // eg. the executor is shut down: resolve in the current thread
+          task.run();
+        }
+        futures.add(task);
+      }
+      // wait for all tasks, even on exception, since segment readers get
+      // released when we return
+      for (long count : IOUtils.waitForAll(futures)) {
+        delTermVisitedCount += count;
+      }
+    }
+
+    if (infoStream.isEnabled("BD")) {
+      infoStream.message("BD",
+                         String.format(Locale.ROOT, "resolveUpdates took %.1f msec for %d segments (%s); %d del terms visited",
+                                       (System.nanoTime()-startNS)/1000000.,
+                                       work.size(),
+                                       executor == null ? "sequential" : "concurrent",
+                                       delTermVisitedCount));
+    }
+
+    return delTermVisitedCount;
+  }
+
   private List<SegmentCommitInfo> sortByDelGen(List<SegmentCommitInfo> infos) {
     infos = new ArrayList<>(infos);
     // Smaller delGens come first:
@@ -367,15 +416,30 @@ class BufferedUpdatesStream implements Accountable {
     }
   }
 
+  /** Per-segment state of an {@link #applyDeletesAndUpdates} call. Updates
+   *  are first resolved into doc IDs by {@link #resolve}, which may run
+   *  concurrently for different segments and does not modify the segment,
+   *  and then {@link #publish}ed by the thread that holds the IndexWriter
+   *  lock. */
   static class SegmentState {
     final long delGen;
     final ReadersAndUpdates rld;
     final SegmentReader reader;
     final int startDelCount;
+    // live docs as of when the state was opened, resolution only reads them
+    final Bits liveDocs;
+
+    // number of coalesced queries and doc values updates that apply to this segment
+    int numCoalescedQueries;
+    int numCoalescedNumericUpdates;
+    int numCoalescedBinaryUpdates;
+    FrozenBufferedUpdates privateUpdates;
+
+    // resolved updates, null until there is any
+    FixedBitSet pendingDeletes;
+    DocValuesFieldUpdates.Container dvUpdates;
 
-    TermsEnum termsEnum;
     PostingsEnum postingsEnum;
-    BytesRef term;
     boolean any;
 
     public SegmentState(IndexWriter.ReaderPool pool, SegmentCommitInfo info) throws IOException {
@@ -383,6 +447,77 @@ class BufferedUpdatesStream implements Accountable {
       startDelCount = rld.getPendingDeleteCount();
       reader = rld.getReader(IOContext.READ);
       delGen = info.getBufferedDeletesGen();
+      liveDocs = rld.getLiveDocs();
+    }
+
+    /** Record that the coalesced updates, in their current state, apply to this segment. */
+    void setCoalescedUpdates(CoalescedUpdates coalescedUpdates) {
+      // coalesced updates are append-only, so the first entries are
+      // the ones that apply to this segment
+      numCoalescedQueries = coalescedUpdates.queries.size();
+      numCoalescedNumericUpdates = coalescedUpdates.numericDVUpdates.size();
+      numCoalescedBinaryUpdates = coalescedUpdates.binaryDVUpdates.size();
+    }
+
+    boolean hasUpdates() {
+      return numCoalescedQueries + numCoalescedNumericUpdates + numCoalescedBinaryUpdates != 0 || privateUpdates != null;
+    }
+
+    /** Resolve the updates that apply to this segment into doc IDs and doc
+     *  values updates, without modifying the segment. Returns the number of
+     *  visited delete terms. */
+    long resolve(CoalescedUpdates coalescedUpdates, boolean applyTermDeletes) throws IOException {
+      if (numCoalescedQueries != 0) {
+        final List<QueryAndLimit> queries = new ArrayList<>(numCoalescedQueries);
+        for (QueryAndLimit query : coalescedUpdates.queriesIterable()) {
+          if (queries.size() == numCoalescedQueries) {
+            break;
+          }
+          queries.add(query);
+        }
+        resolveQueryDeletes(queries, this);
+      }
+      resolveDocValuesUpdates(coalescedUpdates == null ? null : coalescedUpdates.numericDVUpdates.subList(0, numCoalescedNumericUpdates), this);
+      resolveDocValuesUpdates(coalescedUpdates == null ? null : coalescedUpdates.binaryDVUpdates.subList(0, numCoalescedBinaryUpdates), this);
+      if (privateUpdates != null) {
+        resolveQueryDeletes(privateUpdates.queriesIterable(), this);
+        resolveDocValuesUpdates(Arrays.asList(privateUpdates.numericDVUpdates), this);
+        resolveDocValuesUpdates(Arrays.asList(privateUpdates.binaryDVUpdates), this);
+      }
+      if (applyTermDeletes) {
+        return resolveTermDeletes(coalescedUpdates, this);
+      }
+      return 0;
+    }
+
+    void delete(int doc) {
+      if (pendingDeletes == null) {
+        pendingDeletes = new FixedBitSet(reader.maxDoc());
+      }
+      pendingDeletes.set(doc);
+    }
+
+    /** Apply resolved deletes and doc values updates to the segment, returns
+     *  the number of newly deleted documents. */
+    long publish() throws IOException {
+      // Lock order: IW -> BD -> RP
+      long delCount = 0;
+      if (pendingDeletes != null) {
+        final DocIdSetIterator it = new BitSetIterator(pendingDeletes, 0L);
+        for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+          if (!any) {
+            rld.initWritableLiveDocs();
+            any = true;
+          }
+          if (rld.delete(doc)) {
+            delCount++;
+          }
+        }
+      }
+      if (dvUpdates != null && dvUpdates.any()) {
+        rld.writeFieldUpdates(rld.info.info.dir, dvUpdates);
+      }
+      return delCount;
     }
 
     public void finish(IndexWriter.ReaderPool pool) throws IOException {
@@ -394,18 +529,6 @@ class BufferedUpdatesStream implements Accountable {
     }
   }
 
-  /** Does a merge sort by current term across all segments. */
-  static class SegmentQueue extends PriorityQueue<SegmentState> {
-    public SegmentQueue(int size) {
-      super(size);
-    }
-
-    @Override
-    protected boolean lessThan(SegmentState a, SegmentState b) {
-      return a.term.compareTo(b.term) < 0;
-    }
-  }
-
   /** Opens SegmentReader and inits SegmentState for each segment. */
   private SegmentState[] openSegmentStates(IndexWriter.ReaderPool pool, List<SegmentCommitInfo> infos) throws IOException {
     int numReaders = infos.size();
@@ -474,141 +597,101 @@ class BufferedUpdatesStream implements Accountable {
     return new ApplyDeletesResult(totDelCount > 0, gen, allDeleted);      
   }
 
-  /** Merge sorts the deleted terms and all segments to resolve terms to docIDs for deletion. */
-  private synchronized long applyTermDeletes(CoalescedUpdates updates, SegmentState[] segStates) throws IOException {
-
-    long startNS = System.nanoTime();
-
-    int numReaders = segStates.length;
+  /** Resolves the deleted terms of the given updates to doc IDs of the given segment. */
+  private static long resolveTermDeletes(CoalescedUpdates updates, SegmentState state) throws IOException {
 
     long delTermVisitedCount = 0;
-    long segTermVisitedCount = 0;
 
     FieldTermIterator iter = updates.termIterator();
+    // used only by assert
+    BytesRefBuilder lastDeleteTerm = new BytesRefBuilder();
 
-    String field = null;
-    SegmentQueue queue = null;
+    TermsEnum termsEnum = null;
+    // current term of the segment, or null if there are no more terms in the current field
+    BytesRef segTerm = null;
 
     while (true) {
 
-      boolean newField;
-
-      newField = iter.next();
+      boolean newField = iter.next();
 
       if (newField) {
-        field = iter.field();
+        String field = iter.field();
         if (field == null) {
           // No more terms:
           break;
         }
 
-        queue = new SegmentQueue(numReaders);
-
-        long segTermCount = 0;
-        for(int i=0;i<numReaders;i++) {
-          SegmentState state = segStates[i];
-          Terms terms = state.reader.fields().terms(field);
-          if (terms != null) {
-            segTermCount += terms.size();
-            state.termsEnum = terms.iterator();
-            state.term = state.termsEnum.next();
-            if (state.term != null) {
-              queue.add(state);
-            }
-          }
+        Terms terms = state.reader.fields().terms(field);
+        if (terms != null) {
+          termsEnum = terms.iterator();
+          segTerm = termsEnum.next();
+        } else {
+          termsEnum = null;
+          segTerm = null;
         }
 
-        assert checkDeleteTerm(null);
+        assert checkDeleteTerm(lastDeleteTerm, null);
       }
 
       // Get next term to delete
       BytesRef term = iter.term();
-      assert checkDeleteTerm(term);
+      assert checkDeleteTerm(lastDeleteTerm, term);
       delTermVisitedCount++;
 
-      long delGen = iter.delGen();
-
-      while (queue.size() != 0) {
-
-        // Get next term merged across all segments
-        SegmentState state = queue.top();
-        segTermVisitedCount++;
-
-        int cmp = term.compareTo(state.term);
+      if (segTerm == null) {
+        // No more terms in this segment for the current field
+        continue;
+      }
 
-        if (cmp < 0) {
-          break;
-        } else if (cmp == 0) {
-          // fall through
-        } else {
-          TermsEnum.SeekStatus status = state.termsEnum.seekCeil(term);
-          if (status == TermsEnum.SeekStatus.FOUND) {
-            // fallthrough
-          } else {
-            if (status == TermsEnum.SeekStatus.NOT_FOUND) {
-              state.term = state.termsEnum.term();
-              queue.updateTop();
-            } else {
-              // No more terms in this segment
-              queue.pop();
-            }
+      long delGen = iter.delGen();
+      assert state.delGen != delGen;
+      if (state.delGen > delGen) {
+        // this segment is newer than the deleted term
+        continue;
+      }
 
-            continue;
-          }
+      int cmp = term.compareTo(segTerm);
+      if (cmp < 0) {
+        continue;
+      } else if (cmp > 0) {
+        TermsEnum.SeekStatus status = termsEnum.seekCeil(term);
+        if (status == TermsEnum.SeekStatus.END) {
+          segTerm = null;
+          continue;
         }
+        segTerm = termsEnum.term();
+        if (status == TermsEnum.SeekStatus.NOT_FOUND) {
+          continue;
+        }
+      }
 
-        assert state.delGen != delGen;
-
-        if (state.delGen < delGen) {
-
-          // we don't need term frequencies for this
-          state.postingsEnum = state.termsEnum.postings(state.rld.getLiveDocs(), state.postingsEnum, PostingsEnum.NONE);
-
-          assert state.postingsEnum != null;
-
-          while (true) {
-            final int docID = state.postingsEnum.nextDoc();
-            if (docID == DocIdSetIterator.NO_MORE_DOCS) {
-              break;
-            }
-            if (!state.any) {
-              state.rld.initWritableLiveDocs();
-              state.any = true;
-            }
+      // we don't need term frequencies for this
+      state.postingsEnum = termsEnum.postings(state.liveDocs, state.postingsEnum, PostingsEnum.NONE);
 
-            // NOTE: there is no limit check on the docID
-            // when deleting by Term (unlike by Query)
-            // because on flush we apply all Term deletes to
-            // each segment.  So all Term deleting here is
-            // against prior segments:
-            state.rld.delete(docID);
-          }
-        }
+      assert state.postingsEnum != null;
 
-        state.term = state.termsEnum.next();
-        if (state.term == null) {
-          queue.pop();
-        } else {
-          queue.updateTop();
+      while (true) {
+        final int docID = state.postingsEnum.nextDoc();
+        if (docID == DocIdSetIterator.NO_MORE_DOCS) {
+          break;
         }
+        // NOTE: there is no limit check on the docID
+        // when deleting by Term (unlike by Query)
+        // because on flush we apply all Term deletes to
+        // each segment.  So all Term deleting here is
+        // against prior segments:
+        state.delete(docID);
       }
     }
 
-    if (infoStream.isEnabled("BD")) {
-      infoStream.message("BD",
-                         String.format(Locale.ROOT, "applyTermDeletes took %.1f msec for %d segments and %d packets; %d del terms visited; %d seg terms visited",
-                                       (System.nanoTime()-startNS)/1000000.,
-                                       numReaders,
-                                       updates.terms.size(),
-                                       delTermVisitedCount, segTermVisitedCount));
-    }
-
     return delTermVisitedCount;
   }
 
   // DocValues updates
-  private synchronized void applyDocValuesUpdates(Iterable<? extends DocValuesUpdate> updates, 
-      SegmentState segState, DocValuesFieldUpdates.Container dvUpdatesContainer) throws IOException {
+  private static void resolveDocValuesUpdates(Iterable<? extends DocValuesUpdate> updates, SegmentState segState) throws IOException {
+    if (updates == null) {
+      return;
+    }
     Fields fields = segState.reader.fields();
 
     // TODO: we can process the updates per DV field, from last to first so that
@@ -658,11 +741,14 @@ class BufferedUpdatesStream implements Accountable {
 
       if (termsEnum.seekExact(term.bytes())) {
         // we don't need term frequencies for this
-        postingsEnum = termsEnum.postings(segState.rld.getLiveDocs(), postingsEnum, PostingsEnum.NONE);
+        postingsEnum = termsEnum.postings(segState.liveDocs, postingsEnum, PostingsEnum.NONE);
 
-        DocValuesFieldUpdates dvUpdates = dvUpdatesContainer.getUpdates(update.field, update.type);
+        if (segState.dvUpdates == null) {
+          segState.dvUpdates = new DocValuesFieldUpdates.Container();
+        }
+        DocValuesFieldUpdates dvUpdates = segState.dvUpdates.getUpdates(update.field, update.type);
         if (dvUpdates == null) {
-          dvUpdates = dvUpdatesContainer.newUpdates(update.field, update.type, segState.reader.maxDoc());
+          dvUpdates = segState.dvUpdates.newUpdates(update.field, update.type, segState.reader.maxDoc());
         }
         int doc;
         while ((doc = postingsEnum.nextDoc()) != DocIdSetIterator.NO_MORE_DOCS) {
@@ -685,8 +771,7 @@ class BufferedUpdatesStream implements Accountable {
   }
 
   // Delete by query
-  private static long applyQueryDeletes(Iterable<QueryAndLimit> queriesIter, SegmentState segState) throws IOException {
-    long delCount = 0;
+  private static void resolveQueryDeletes(Iterable<QueryAndLimit> queriesIter, SegmentState segState) throws IOException {
     final LeafReaderContext readerContext = segState.reader.getContext();
     for (QueryAndLimit ent : queriesIter) {
       Query query = ent.query;
@@ -701,28 +786,21 @@ class BufferedUpdatesStream implements Accountable {
               break;
             }
 
-            if (!segState.any) {
-              segState.rld.initWritableLiveDocs();
-              segState.any = true;
-            }
-            if (segState.rld.delete(doc)) {
-              delCount++;
-            }
+            segState.delete(doc);
           }
         }
       }
     }
-
-    return delCount;
   }
 
   // used only by assert
-  private boolean checkDeleteTerm(BytesRef term) {
+  private static boolean checkDeleteTerm(BytesRefBuilder lastDeleteTerm, BytesRef term) {
     if (term != null) {
-      assert lastDeleteTerm == null || term.compareTo(lastDeleteTerm) >= 0: "lastTerm=" + lastDeleteTerm + " vs term=" + term;
+      assert lastDeleteTerm.length() == 0 || term.compareTo(lastDeleteTerm.get()) >= 0: "lastTerm=" + lastDeleteTerm.get() + " vs term=" + term;
+      lastDeleteTerm.copyBytes(term);
+    } else {
+      lastDeleteTerm.clear();
     }
-    // TODO: we re-use term now in our merged iterable, but we shouldn't clone, instead copy for this assert
-    lastDeleteTerm = term == null ? null : BytesRef.deepCopyOf(term);
     return true;
   }
 
@@ -17,9 +17,11 @@ package org.apache.lucene.index;
  * limitations under the License.
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.NumberFormat;
@@ -31,6 +33,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.DocValuesProducer;
@@ -56,7 +63,9 @@ import org.apache.lucene.util.CommandLineUtil;
 import org.apache.lucene.util.FixedBitSet;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.LongBitSet;
+import org.apache.lucene.util.NamedThreadFactory;
 import org.apache.lucene.util.StringHelper;
+import org.apache.lucene.util.ThreadInterruptedException;
 import org.apache.lucene.util.Version;
 import org.apache.lucene.util.automaton.Automata;
 import org.apache.lucene.util.automaton.CompiledAutomaton;
@@ -430,6 +439,25 @@ public class CheckIndex implements Closeable {
   
   private boolean checksumsOnly;
 
+  private int threadCount = 1;
+
+  /** Set the number of threads that check segments concurrently. Within
+   *  each segment, postings, stored fields, doc values etc. are checked
+   *  concurrently too. Messages are buffered and printed in the same order
+   *  as with a single thread. Default is 1: everything is checked in the
+   *  calling thread. */
+  public void setThreadCount(int threadCount) {
+    if (threadCount <= 0) {
+      throw new IllegalArgumentException("threadCount must be at least 1, got: " + threadCount);
+    }
+    this.threadCount = threadCount;
+  }
+
+  /** See {@link #setThreadCount}. */
+  public int getThreadCount() {
+    return threadCount;
+  }
+
   /** Set infoStream where messages should go.  If null, no
    *  messages are printed.  If verbose is true then more
    *  details are printed. */
@@ -472,7 +500,6 @@ public class CheckIndex implements Closeable {
   public Status checkIndex(List<String> onlySegments) throws IOException {
     ensureOpen();
     long startNS = System.nanoTime();
-    NumberFormat nf = NumberFormat.getInstance(Locale.ROOT);
     SegmentInfos sis = null;
     Status result = new Status();
     result.dir = dir;
@@ -598,18 +625,180 @@ public class CheckIndex implements Closeable {
     result.newSegments.clear();
     result.maxSegmentName = -1;
 
-    for(int i=0;i<numSegments;i++) {
-      final SegmentCommitInfo info = sis.info(i);
-      int segmentName = Integer.parseInt(info.info.name.substring(1), Character.MAX_RADIX);
-      if (segmentName > result.maxSegmentName) {
-        result.maxSegmentName = segmentName;
+    final ExecutorService executor;
+    if (threadCount > 1) {
+      executor = Executors.newFixedThreadPool(threadCount, new NamedThreadFactory("CheckIndex"));
+    } else {
+      executor = null;
+    }
+    try {
+      final List<SegmentCheck> segmentChecks = new ArrayList<>();
+      for(int i=0;i<numSegments;i++) {
+        final SegmentCommitInfo info = sis.info(i);
+        int segmentName = Integer.parseInt(info.info.name.substring(1), Character.MAX_RADIX);
+        if (segmentName > result.maxSegmentName) {
+          result.maxSegmentName = segmentName;
+        }
+        if (onlySegments != null && !onlySegments.contains(info.info.name)) {
+          continue;
+        }
+        final SegmentCheck segmentCheck = new SegmentCheck(info, i, numSegments, executor);
+        segmentChecks.add(segmentCheck);
+        if (executor != null) {
+          executor.execute(segmentCheck.task);
+        }
+      }
+
+      // collect results in segment order so that the report does not depend on the thread count
+      for (SegmentCheck segmentCheck : segmentChecks) {
+        final boolean passed = segmentCheck.get(infoStream);
+        result.segmentInfos.add(segmentCheck.segInfoStat);
+        if (passed) {
+          // Keeper
+          result.newSegments.add(segmentCheck.info.clone());
+        } else {
+          result.totLoseDocCount += segmentCheck.toLoseDocCount;
+          result.numBadSegments++;
+        }
       }
-      if (onlySegments != null && !onlySegments.contains(info.info.name)) {
-        continue;
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+
+    if (0 == result.numBadSegments) {
+      result.clean = true;
+    } else
+      msg(infoStream, "WARNING: " + result.numBadSegments + " broken segments (containing " + result.totLoseDocCount + " documents) detected");
+
+    if ( ! (result.validCounter = (result.maxSegmentName < sis.counter))) {
+      result.clean = false;
+      result.newSegments.counter = result.maxSegmentName + 1; 
+      msg(infoStream, "ERROR: Next segment name counter " + sis.counter + " is not greater than max segment name " + result.maxSegmentName);
+    }
+    
+    if (result.clean) {
+      msg(infoStream, "No problems were detected with this index.\n");
+    }
+
+    msg(infoStream, String.format(Locale.ROOT, "Took %.3f sec total.", nsToSec(System.nanoTime()-startNS)));
+
+    return result;
+  }
+  
+  /**
+   * A check whose messages are buffered when it runs concurrently with other
+   * checks, so that they can be printed in a deterministic order.
+   */
+  private static abstract class BufferedCheck<T> implements Callable<T> {
+
+    final FutureTask<T> task = new FutureTask<>(this);
+    private final ByteArrayOutputStream buffer;
+    private final PrintStream out;
+    private volatile boolean cancelled;
+
+    BufferedCheck(PrintStream infoStream, boolean concurrent) {
+      if (infoStream != null && concurrent) {
+        buffer = new ByteArrayOutputStream();
+        try {
+          out = new PrintStream(buffer, false, IOUtils.UTF_8);
+        } catch (UnsupportedEncodingException e) {
+          throw new RuntimeException(e);
+        }
+      } else {
+        buffer = null;
+        out = infoStream;
+      }
+    }
+
+    /** Runs the check, printing messages to <code>out</code>, which may be null. */
+    abstract T check(PrintStream out) throws Exception;
+
+    @Override
+    public final T call() throws Exception {
+      if (cancelled) {
+        return null;
+      }
+      return check(out);
+    }
+
+    /** Makes the check return null without doing anything if it did not start yet. */
+    final void cancel() {
+      cancelled = true;
+    }
+
+    /** Runs the check in the current thread unless another thread already
+     *  started it, then waits for it and copies its messages to <code>infoStream</code>. */
+    final T get(PrintStream infoStream) throws IOException {
+      task.run();
+      try {
+        return task.get();
+      } catch (InterruptedException e) {
+        throw new ThreadInterruptedException(e);
+      } catch (ExecutionException e) {
+        IOUtils.reThrow(e.getCause());
+        throw new AssertionError(); // unreachable
+      } finally {
+        if (buffer != null) {
+          out.flush();
+          infoStream.print(buffer.toString(IOUtils.UTF_8));
+        }
+      }
+    }
+  }
+
+  /** Checks a single segment. Returns true if the segment is not broken. */
+  private final class SegmentCheck extends BufferedCheck<Boolean> {
+
+    final SegmentCommitInfo info;
+    final Status.SegmentInfoStatus segInfoStat = new Status.SegmentInfoStatus();
+    int toLoseDocCount;
+    private final int segmentIndex, numSegments;
+    // NumberFormat is not thread-safe
+    private final NumberFormat nf = NumberFormat.getInstance(Locale.ROOT);
+    private final ExecutorService executor;
+    private final List<BufferedCheck<?>> partChecks = new ArrayList<>();
+
+    SegmentCheck(SegmentCommitInfo info, int segmentIndex, int numSegments, ExecutorService executor) {
+      super(infoStream, executor != null);
+      this.info = info;
+      this.segmentIndex = segmentIndex;
+      this.numSegments = numSegments;
+      this.executor = executor;
+    }
+
+    /** Starts a check of one part of the segment, concurrently with the other parts if there is an executor. */
+    private <T> BufferedCheck<T> start(BufferedCheck<T> partCheck) {
+      partChecks.add(partCheck);
+      if (executor != null) {
+        executor.execute(partCheck.task);
       }
-      Status.SegmentInfoStatus segInfoStat = new Status.SegmentInfoStatus();
-      result.segmentInfos.add(segInfoStat);
-      msg(infoStream, "  " + (1+i) + " of " + numSegments + ": name=" + info.info.name + " maxDoc=" + info.info.maxDoc());
+      return partCheck;
+    }
+
+    /** Cancels the part checks that did not start yet and waits for the
+     *  others, which may still be running if a part failed fast. */
+    private void awaitPartChecks() {
+      final List<FutureTask<?>> tasks = new ArrayList<>(partChecks.size());
+      for (BufferedCheck<?> partCheck : partChecks) {
+        partCheck.cancel();
+        // returns immediately, but no other thread can start the check anymore
+        partCheck.task.run();
+        tasks.add(partCheck.task);
+      }
+      try {
+        IOUtils.waitForAll(tasks);
+      } catch (Throwable t) {
+        // ignore: failures of part checks were already reported through
+        // their status or by failing fast
+      }
+    }
+
+    @Override
+    Boolean check(PrintStream out) throws Exception {
+      final int i = segmentIndex;
+      msg(out, "  " + (1+i) + " of " + numSegments + ": name=" + info.info.name + " maxDoc=" + info.info.maxDoc());
       segInfoStat.name = info.info.name;
       segInfoStat.maxDoc = info.info.maxDoc();
       
@@ -618,50 +807,50 @@ public class CheckIndex implements Closeable {
         throw new RuntimeException("illegal number of documents: maxDoc=" + info.info.maxDoc());
       }
 
-      int toLoseDocCount = info.info.maxDoc();
+      toLoseDocCount = info.info.maxDoc();
 
       SegmentReader reader = null;
 
       try {
-        msg(infoStream, "    version=" + (version == null ? "3.0" : version));
-        msg(infoStream, "    id=" + StringHelper.idToString(info.info.getId()));
+        msg(out, "    version=" + (version == null ? "3.0" : version));
+        msg(out, "    id=" + StringHelper.idToString(info.info.getId()));
         final Codec codec = info.info.getCodec();
-        msg(infoStream, "    codec=" + codec);
+        msg(out, "    codec=" + codec);
         segInfoStat.codec = codec;
-        msg(infoStream, "    compound=" + info.info.getUseCompoundFile());
+        msg(out, "    compound=" + info.info.getUseCompoundFile());
         segInfoStat.compound = info.info.getUseCompoundFile();
-        msg(infoStream, "    numFiles=" + info.files().size());
+        msg(out, "    numFiles=" + info.files().size());
         segInfoStat.numFiles = info.files().size();
         segInfoStat.sizeMB = info.sizeInBytes()/(1024.*1024.);
-        msg(infoStream, "    size (MB)=" + nf.format(segInfoStat.sizeMB));
+        msg(out, "    size (MB)=" + nf.format(segInfoStat.sizeMB));
         Map<String,String> diagnostics = info.info.getDiagnostics();
         segInfoStat.diagnostics = diagnostics;
         if (diagnostics.size() > 0) {
-          msg(infoStream, "    diagnostics = " + diagnostics);
+          msg(out, "    diagnostics = " + diagnostics);
         }
 
         if (!info.hasDeletions()) {
-          msg(infoStream, "    no deletions");
+          msg(out, "    no deletions");
           segInfoStat.hasDeletions = false;
         } else {
-          msg(infoStream, "    has deletions [delGen=" + info.getDelGen() + "]");
+          msg(out, "    has deletions [delGen=" + info.getDelGen() + "]");
           segInfoStat.hasDeletions = true;
           segInfoStat.deletionsGen = info.getDelGen();
         }
         
         long startOpenReaderNS = System.nanoTime();
-        if (infoStream != null)
-          infoStream.print("    test: open reader.........");
+        if (out != null)
+          out.print("    test: open reader.........");
         reader = new SegmentReader(info, IOContext.DEFAULT);
-        msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startOpenReaderNS)));
+        msg(out, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startOpenReaderNS)));
 
         segInfoStat.openReaderPassed = true;
         
         long startIntegrityNS = System.nanoTime();
-        if (infoStream != null)
-          infoStream.print("    test: check integrity.....");
+        if (out != null)
+          out.print("    test: check integrity.....");
         reader.checkIntegrity();
-        msg(infoStream, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startIntegrityNS)));
+        msg(out, String.format(Locale.ROOT, "OK [took %.3f sec]", nsToSec(System.nanoTime()-startIntegrityNS)));
 
         if (reader.maxDoc() != info.info.maxDoc()) {
           throw new RuntimeException("SegmentReader.maxDoc() " + reader.maxDoc() + " != SegmentInfo.maxDoc " + info.info.maxDoc());
@@ -687,26 +876,71 @@ public class CheckIndex implements Closeable {
         }
         
         if (checksumsOnly == false) {
+          final CodecReader r = reader;
+          final boolean concurrent = executor != null;
+          final BufferedCheck<Status.LiveDocStatus> liveDocs = start(new BufferedCheck<Status.LiveDocStatus>(out, concurrent) {
+            @Override
+            Status.LiveDocStatus check(PrintStream out) throws IOException {
+              return testLiveDocs(r, out, failFast);
+            }
+          });
+          final BufferedCheck<Status.FieldInfoStatus> fieldInfos = start(new BufferedCheck<Status.FieldInfoStatus>(out, concurrent) {
+            @Override
+            Status.FieldInfoStatus check(PrintStream out) throws IOException {
+              return testFieldInfos(r, out, failFast);
+            }
+          });
+          final BufferedCheck<Status.FieldNormStatus> fieldNorms = start(new BufferedCheck<Status.FieldNormStatus>(out, concurrent) {
+            @Override
+            Status.FieldNormStatus check(PrintStream out) throws IOException {
+              return testFieldNorms(r, out, failFast);
+            }
+          });
+          final BufferedCheck<Status.TermIndexStatus> postings = start(new BufferedCheck<Status.TermIndexStatus>(out, concurrent) {
+            @Override
+            Status.TermIndexStatus check(PrintStream out) throws IOException {
+              return testPostings(r, out, verbose, failFast);
+            }
+          });
+          final BufferedCheck<Status.StoredFieldStatus> storedFields = start(new BufferedCheck<Status.StoredFieldStatus>(out, concurrent) {
+            @Override
+            Status.StoredFieldStatus check(PrintStream out) throws IOException {
+              return testStoredFields(r, out, failFast);
+            }
+          });
+          final BufferedCheck<Status.TermVectorStatus> termVectors = start(new BufferedCheck<Status.TermVectorStatus>(out, concurrent) {
+            @Override
+            Status.TermVectorStatus check(PrintStream out) throws IOException {
+              return testTermVectors(r, out, verbose, crossCheckTermVectors, failFast);
+            }
+          });
+          final BufferedCheck<Status.DocValuesStatus> docValues = start(new BufferedCheck<Status.DocValuesStatus>(out, concurrent) {
+            @Override
+            Status.DocValuesStatus check(PrintStream out) throws IOException {
+              return testDocValues(r, out, failFast);
+            }
+          });
+
           // Test Livedocs
-          segInfoStat.liveDocStatus = testLiveDocs(reader, infoStream, failFast);
+          segInfoStat.liveDocStatus = liveDocs.get(out);
 
           // Test Fieldinfos
-          segInfoStat.fieldInfoStatus = testFieldInfos(reader, infoStream, failFast);
+          segInfoStat.fieldInfoStatus = fieldInfos.get(out);
         
           // Test Field Norms
-          segInfoStat.fieldNormStatus = testFieldNorms(reader, infoStream, failFast);
+          segInfoStat.fieldNormStatus = fieldNorms.get(out);
 
           // Test the Term Index
-          segInfoStat.termIndexStatus = testPostings(reader, infoStream, verbose, failFast);
+          segInfoStat.termIndexStatus = postings.get(out);
 
           // Test Stored Fields
-          segInfoStat.storedFieldStatus = testStoredFields(reader, infoStream, failFast);
+          segInfoStat.storedFieldStatus = storedFields.get(out);
 
           // Test Term Vectors
-          segInfoStat.termVectorStatus = testTermVectors(reader, infoStream, verbose, crossCheckTermVectors, failFast);
+          segInfoStat.termVectorStatus = termVectors.get(out);
 
           // Test Docvalues
-          segInfoStat.docValuesStatus = testDocValues(reader, infoStream, failFast);
+          segInfoStat.docValuesStatus = docValues.get(out);
 
           // Rethrow the first exception we encountered
           //  This will cause stats for failed segments to be incremented properly
@@ -727,56 +961,36 @@ public class CheckIndex implements Closeable {
           }
         }
 
-        msg(infoStream, "");
+        msg(out, "");
         
         if (verbose) {
-          msg(infoStream, "detailed segment RAM usage: ");
-          msg(infoStream, Accountables.toString(reader));
+          msg(out, "detailed segment RAM usage: ");
+          msg(out, Accountables.toString(reader));
         }
 
       } catch (Throwable t) {
         if (failFast) {
           IOUtils.reThrow(t);
         }
-        msg(infoStream, "FAILED");
+        msg(out, "FAILED");
         String comment;
         comment = "exorciseIndex() would remove reference to this segment";
-        msg(infoStream, "    WARNING: " + comment + "; full exception:");
-        if (infoStream != null)
-          t.printStackTrace(infoStream);
-        msg(infoStream, "");
-        result.totLoseDocCount += toLoseDocCount;
-        result.numBadSegments++;
-        continue;
+        msg(out, "    WARNING: " + comment + "; full exception:");
+        if (out != null)
+          t.printStackTrace(out);
+        msg(out, "");
+        return false;
       } finally {
+        // part checks use the reader
+        awaitPartChecks();
         if (reader != null)
           reader.close();
       }
 
-      // Keeper
-      result.newSegments.add(info.clone());
+      return true;
     }
-
-    if (0 == result.numBadSegments) {
-      result.clean = true;
-    } else
-      msg(infoStream, "WARNING: " + result.numBadSegments + " broken segments (containing " + result.totLoseDocCount + " documents) detected");
-
-    if ( ! (result.validCounter = (result.maxSegmentName < sis.counter))) {
-      result.clean = false;
-      result.newSegments.counter = result.maxSegmentName + 1; 
-      msg(infoStream, "ERROR: Next segment name counter " + sis.counter + " is not greater than max segment name " + result.maxSegmentName);
-    }
-    
-    if (result.clean) {
-      msg(infoStream, "No problems were detected with this index.\n");
-    }
-
-    msg(infoStream, String.format(Locale.ROOT, "Took %.3f sec total.", nsToSec(System.nanoTime()-startNS)));
-
-    return result;
   }
-  
+
   /**
    * Test live docs.
    * @lucene.experimental
@@ -2247,7 +2461,7 @@ public class CheckIndex implements Closeable {
     <p>
     Run it like this:
     <pre>
-    java -ea:org.apache.lucene... org.apache.lucene.index.CheckIndex pathToIndex [-exorcise] [-verbose] [-segment X] [-segment Y]
+    java -ea:org.apache.lucene... org.apache.lucene.index.CheckIndex pathToIndex [-exorcise] [-verbose] [-segment X] [-segment Y] [-threadCount N]
     </pre>
     <ul>
     <li><code>-exorcise</code>: actually write a new segments_N file, removing any problematic segments. *LOSES DATA*
@@ -2257,6 +2471,9 @@ public class CheckIndex implements Closeable {
     to check more than one segment, eg <code>-segment _2
     -segment _a</code>.  You can't use this with the -exorcise
     option.
+
+    <li><code>-threadCount N</code>: check up to N segments, and the
+    parts of each segment, concurrently.
     </ul>
 
     <p><b>WARNING</b>: <code>-exorcise</code> should only be used on an emergency basis as it will cause
@@ -2289,6 +2506,7 @@ public class CheckIndex implements Closeable {
     List<String> onlySegments = new ArrayList<>();
     String indexPath = null;
     String dirImpl = null;
+    int threadCount = 1;
     int i = 0;
     while(i < args.length) {
       String arg = args[i];
@@ -2314,6 +2532,21 @@ public class CheckIndex implements Closeable {
         }
         i++;
         dirImpl = args[i];
+      } else if ("-threadCount".equals(arg)) {
+        if (i == args.length - 1) {
+          System.out.println("ERROR: missing value for -threadCount option");
+          return 1;
+        }
+        i++;
+        try {
+          threadCount = Integer.parseInt(args[i]);
+        } catch (NumberFormatException e) {
+          threadCount = 0;
+        }
+        if (threadCount <= 0) {
+          System.out.println("ERROR: -threadCount must be a positive number, got: " + args[i]);
+          return 1;
+        }
       } else {
         if (indexPath != null) {
           System.out.println("ERROR: unexpected extra argument '" + args[i] + "'");
@@ -2326,7 +2559,7 @@ public class CheckIndex implements Closeable {
 
     if (indexPath == null) {
       System.out.println("\nERROR: index path not specified");
-      System.out.println("\nUsage: java org.apache.lucene.index.CheckIndex pathToIndex [-exorcise] [-crossCheckTermVectors] [-segment X] [-segment Y] [-dir-impl X]\n" +
+      System.out.println("\nUsage: java org.apache.lucene.index.CheckIndex pathToIndex [-exorcise] [-crossCheckTermVectors] [-segment X] [-segment Y] [-dir-impl X] [-threadCount N]\n" +
                          "\n" +
                          "  -exorcise: actually write a new segments_N file, removing any problematic segments\n" +
                          "  -fast: just verify file checksums, omitting logical integrity checks\n" + 
@@ -2338,6 +2571,8 @@ public class CheckIndex implements Closeable {
                          "              You can't use this with the -exorcise option\n" +
                          "  -dir-impl X: use a specific " + FSDirectory.class.getSimpleName() + " implementation. " +
                          "If no package is specified the " + FSDirectory.class.getPackage().getName() + " package will be used.\n" +
+                         "  -threadCount N: check up to N segments, and the parts of each segment, concurrently.\n" +
+                         "                  The report is printed in the same order as with a single thread\n" +
                          "\n" +
                          "**WARNING**: -exorcise *LOSES DATA*. This should only be used on an emergency basis as it will cause\n" +
                          "documents (perhaps many) to be permanently removed from the index.  Always make\n" +
@@ -2390,6 +2625,7 @@ public class CheckIndex implements Closeable {
       checker.setCrossCheckTermVectors(doCrossCheckTermVectors);
       checker.setChecksumsOnly(doChecksumsOnly);
       checker.setInfoStream(System.out, verbose);
+      checker.setThreadCount(threadCount);
       
       Status result = checker.checkIndex(onlySegments);
       if (result.missingSegments) {
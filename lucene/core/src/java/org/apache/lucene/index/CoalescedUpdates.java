@@ -18,8 +18,8 @@ package org.apache.lucene.index;
  */
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -30,7 +30,8 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.util.BytesRef;
 
 class CoalescedUpdates {
-  final Map<Query,Integer> queries = new HashMap<>();
+  // insertion-ordered so that the first entries are the queries of the first packets
+  final Map<Query,Integer> queries = new LinkedHashMap<>();
   final List<PrefixCodedTerms> terms = new ArrayList<>();
   final List<NumericDocValuesUpdate> numericDVUpdates = new ArrayList<>();
   final List<BinaryDocValuesUpdate> binaryDVUpdates = new ArrayList<>();
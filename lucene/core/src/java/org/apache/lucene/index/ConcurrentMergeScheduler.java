@@ -450,7 +450,7 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
         break;
       }
 
-      OneMerge merge = writer.getNextMerge();
+      OneMerge merge = getNextMerge(writer);
       if (merge == null) {
         if (verbose()) {
           message("  no more merges pending; now return");
@@ -458,31 +458,43 @@ public class ConcurrentMergeScheduler extends MergeScheduler {
         return;
       }
 
-      updateIOThrottle(merge);
+      launchMerge(writer, merge);
+    }
+  }
 
-      boolean success = false;
-      try {
-        if (verbose()) {
-          message("  consider merge " + writer.segString(merge.segments));
-        }
+  /** Pulls the next merge to run from the writer, called by {@link #merge}
+   *  after {@link #maybeStall} returned true. */
+  OneMerge getNextMerge(IndexWriter writer) {
+    return writer.getNextMerge();
+  }
 
-        // OK to spawn a new merge thread to handle this
-        // merge:
-        final MergeThread merger = getMergeThread(writer, merge);
-        mergeThreads.add(merger);
+  /** Starts a new {@link MergeThread} for a merge that has just been
+   *  pulled from {@link IndexWriter#getNextMerge}. */
+  synchronized void launchMerge(IndexWriter writer, OneMerge merge) throws IOException {
+    updateIOThrottle(merge);
 
-        if (verbose()) {
-          message("    launch new thread [" + merger.getName() + "]");
-        }
+    boolean success = false;
+    try {
+      if (verbose()) {
+        message("  consider merge " + writer.segString(merge.segments));
+      }
 
-        merger.start();
-        updateMergeThreads();
+      // OK to spawn a new merge thread to handle this
+      // merge:
+      final MergeThread merger = getMergeThread(writer, merge);
+      mergeThreads.add(merger);
 
-        success = true;
-      } finally {
-        if (!success) {
-          writer.mergeFinish(merge);
-        }
+      if (verbose()) {
+        message("    launch new thread [" + merger.getName() + "]");
+      }
+
+      merger.start();
+      updateMergeThreads();
+
+      success = true;
+    } finally {
+      if (!success) {
+        writer.mergeFinish(merge);
       }
     }
   }
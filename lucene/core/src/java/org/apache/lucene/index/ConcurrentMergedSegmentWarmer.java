@@ -0,0 +1,419 @@
+package org.apache.lucene.index;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.IndexWriter.IndexReaderWarmer;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.InfoStream;
+import org.apache.lucene.util.ThreadInterruptedException;
+
+/**
+ * A merged segment warmer that runs a list of {@link Stage}s on an
+ * {@link ExecutorService}, so that the merge is committed and becomes visible
+ * to near-real-time readers while the new segment is being warmed. Warming
+ * stops once the time budget is exhausted, and stages that did not start by
+ * then are skipped.
+ * <p>
+ * The merged reader is kept open until warming finished, so the warmed data
+ * structures are shared with the next near-real-time reader. This requires
+ * reader pooling, see {@link IndexWriterConfig#setReaderPooling(boolean)}.
+ * Call {@link #close()} after closing the {@link IndexWriter} to wait for
+ * pending warming tasks.
+ *
+ * @lucene.experimental
+ */
+public class ConcurrentMergedSegmentWarmer extends IndexReaderWarmer implements Closeable {
+
+  private final ExecutorService executor;
+  private final long timeBudgetMS;
+  private final InfoStream infoStream;
+  private final List<Stage> stages;
+  // guarded by this
+  private int pendingWarms;
+  private boolean closed;
+
+  /**
+   * Creates a new ConcurrentMergedSegmentWarmer
+   * @param executor the executor to warm segments on
+   * @param timeBudgetMS maximum time to spend warming a merged segment, in milliseconds
+   * @param infoStream InfoStream to log statistics about warming.
+   * @param stages the stages to run, in order
+   */
+  public ConcurrentMergedSegmentWarmer(ExecutorService executor, long timeBudgetMS, InfoStream infoStream, Stage... stages) {
+    if (executor == null) {
+      throw new NullPointerException("executor must not be null");
+    }
+    if (timeBudgetMS < 0) {
+      throw new IllegalArgumentException("timeBudgetMS must be >= 0, got: " + timeBudgetMS);
+    }
+    this.executor = executor;
+    this.timeBudgetMS = timeBudgetMS;
+    this.infoStream = infoStream;
+    this.stages = Arrays.asList(stages.clone());
+  }
+
+  @Override
+  public void warm(final LeafReader reader) throws IOException {
+    final long deadlineNS = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudgetMS);
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      pendingWarms++;
+    }
+    // released by the warming task
+    reader.incRef();
+    boolean success = false;
+    try {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            warmStages(reader, deadlineNS);
+          } finally {
+            release(reader);
+          }
+        }
+      });
+      success = true;
+    } finally {
+      if (success == false) {
+        release(reader);
+      }
+    }
+  }
+
+  private void warmStages(LeafReader reader, long deadlineNS) {
+    final long startNS = System.nanoTime();
+    int completedStages = 0;
+    for (Stage stage : stages) {
+      if (Stage.isExpired(deadlineNS)) {
+        break;
+      }
+      try {
+        stage.warm(reader, deadlineNS);
+        completedStages++;
+      } catch (AlreadyClosedException e) {
+        // the segment is gone already
+        break;
+      } catch (Throwable t) {
+        // warming is best-effort, the segment is already committed
+        if (infoStream.isEnabled("CMSW")) {
+          infoStream.message("CMSW", "stage " + stage + " failed on segment " + reader + ": " + t);
+        }
+      }
+    }
+    if (infoStream.isEnabled("CMSW")) {
+      infoStream.message("CMSW",
+             "Finished warming segment: " + reader +
+             ", stages=" + completedStages + "/" + stages.size() +
+             ", time=" + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNS));
+    }
+  }
+
+  private void release(LeafReader reader) {
+    try {
+      reader.decRef();
+    } catch (IOException e) {
+      if (infoStream.isEnabled("CMSW")) {
+        infoStream.message("CMSW", "failed to release segment " + reader + ": " + e);
+      }
+    } finally {
+      synchronized (this) {
+        pendingWarms--;
+        notifyAll();
+      }
+    }
+  }
+
+  /** Returns the number of segments that are being warmed or waiting to be warmed. */
+  public synchronized int getPendingWarms() {
+    return pendingWarms;
+  }
+
+  /**
+   * Stops warming new segments and waits for pending warming tasks, which
+   * take at most the time budget once they started. This does not shut down
+   * the executor.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    while (pendingWarms > 0) {
+      try {
+        wait();
+      } catch (InterruptedException ie) {
+        throw new ThreadInterruptedException(ie);
+      }
+    }
+  }
+
+  /**
+   * A step of segment warming.
+   * @lucene.experimental
+   */
+  public static abstract class Stage {
+
+    /** Sole constructor. (For invocation by subclass
+     *  constructors, typically implicit.) */
+    protected Stage() {
+    }
+
+    /**
+     * Warms the given segment. Implementations should stop soon after
+     * {@link System#nanoTime()} reached <code>deadlineNS</code>.
+     */
+    public abstract void warm(LeafReader reader, long deadlineNS) throws IOException;
+
+    /** Returns true if the time budget is exhausted. */
+    protected static boolean isExpired(long deadlineNS) {
+      return System.nanoTime() - deadlineNS >= 0;
+    }
+  }
+
+  /**
+   * Replays a sample of recent queries against the new segment. The
+   * application records queries with {@link #record(Query)}, typically from
+   * its search path, and the most recent ones are kept.
+   * @lucene.experimental
+   */
+  public static class ReplayQueriesStage extends Stage {
+
+    private final int maxQueries;
+    private final int numHits;
+    // guarded by this
+    private final Deque<Query> queries;
+
+    /**
+     * Creates a new ReplayQueriesStage
+     * @param maxQueries maximum number of recorded queries to keep
+     * @param numHits number of top hits to collect for each query
+     */
+    public ReplayQueriesStage(int maxQueries, int numHits) {
+      if (maxQueries <= 0) {
+        throw new IllegalArgumentException("maxQueries must be > 0, got: " + maxQueries);
+      }
+      if (numHits <= 0) {
+        throw new IllegalArgumentException("numHits must be > 0, got: " + numHits);
+      }
+      this.maxQueries = maxQueries;
+      this.numHits = numHits;
+      this.queries = new ArrayDeque<>(maxQueries);
+    }
+
+    /** Records a query, evicting the oldest recorded query if the sample is full. */
+    public synchronized void record(Query query) {
+      if (queries.size() == maxQueries) {
+        queries.removeFirst();
+      }
+      queries.addLast(query);
+    }
+
+    /** Returns a copy of the recorded queries, oldest first. */
+    public synchronized List<Query> getRecordedQueries() {
+      return new ArrayList<>(queries);
+    }
+
+    @Override
+    public void warm(LeafReader reader, long deadlineNS) throws IOException {
+      final IndexSearcher searcher = new IndexSearcher(reader);
+      // the point is to load the segment, not to populate the cache
+      searcher.setQueryCache(null);
+      for (Query query : getRecordedQueries()) {
+        if (isExpired(deadlineNS)) {
+          break;
+        }
+        searcher.search(query, numHits);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "ReplayQueriesStage(maxQueries=" + maxQueries + ",numHits=" + numHits + ")";
+    }
+  }
+
+  /**
+   * Reads the doc values of the given fields for every document, so that
+   * their pages are loaded.
+   * @lucene.experimental
+   */
+  public static class PreloadDocValuesStage extends Stage {
+
+    private final Set<String> fields;
+
+    /** Creates a new PreloadDocValuesStage for the given fields. */
+    public PreloadDocValuesStage(Collection<String> fields) {
+      this.fields = new HashSet<>(fields);
+    }
+
+    @Override
+    public void warm(LeafReader reader, long deadlineNS) throws IOException {
+      for (FieldInfo info : reader.getFieldInfos()) {
+        if (fields.contains(info.name) == false) {
+          continue;
+        }
+        final int maxDoc = reader.maxDoc();
+        switch (info.getDocValuesType()) {
+          case NUMERIC: {
+            final NumericDocValues values = reader.getNumericDocValues(info.name);
+            for (int doc = 0; doc < maxDoc; doc++) {
+              values.get(doc);
+              if ((doc & 0xFFF) == 0 && isExpired(deadlineNS)) {
+                return;
+              }
+            }
+            break;
+          }
+          case BINARY: {
+            final BinaryDocValues values = reader.getBinaryDocValues(info.name);
+            for (int doc = 0; doc < maxDoc; doc++) {
+              values.get(doc);
+              if ((doc & 0xFFF) == 0 && isExpired(deadlineNS)) {
+                return;
+              }
+            }
+            break;
+          }
+          case SORTED: {
+            final SortedDocValues values = reader.getSortedDocValues(info.name);
+            for (int doc = 0; doc < maxDoc; doc++) {
+              values.getOrd(doc);
+              if ((doc & 0xFFF) == 0 && isExpired(deadlineNS)) {
+                return;
+              }
+            }
+            break;
+          }
+          case SORTED_NUMERIC: {
+            final SortedNumericDocValues values = reader.getSortedNumericDocValues(info.name);
+            for (int doc = 0; doc < maxDoc; doc++) {
+              values.setDocument(doc);
+              for (int i = 0; i < values.count(); i++) {
+                values.valueAt(i);
+              }
+              if ((doc & 0xFFF) == 0 && isExpired(deadlineNS)) {
+                return;
+              }
+            }
+            break;
+          }
+          case SORTED_SET: {
+            final SortedSetDocValues values = reader.getSortedSetDocValues(info.name);
+            for (int doc = 0; doc < maxDoc; doc++) {
+              values.setDocument(doc);
+              while (values.nextOrd() != SortedSetDocValues.NO_MORE_ORDS) {
+                // only load the ords
+              }
+              if ((doc & 0xFFF) == 0 && isExpired(deadlineNS)) {
+                return;
+              }
+            }
+            break;
+          }
+          case NONE:
+            break;
+          default:
+            assert false; // unknown dv type
+        }
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "PreloadDocValuesStage(fields=" + fields + ")";
+    }
+  }
+
+  /**
+   * Reads the segment files that have the given extensions, for instance
+   * <code>tip</code> for the terms index or <code>dvd</code> for doc values,
+   * so that the operating system loads them into its cache. Files inside
+   * compound files are read too. This stage only applies to
+   * {@link SegmentReader}s.
+   * @lucene.experimental
+   */
+  public static class PreloadFilesStage extends Stage {
+
+    private static final int BUFFER_SIZE = 1 << 14;
+
+    private final Set<String> extensions;
+
+    /** Creates a new PreloadFilesStage for the given file extensions. */
+    public PreloadFilesStage(Collection<String> extensions) {
+      this.extensions = new HashSet<>(extensions);
+    }
+
+    @Override
+    public void warm(LeafReader reader, long deadlineNS) throws IOException {
+      if (reader instanceof SegmentReader == false) {
+        return;
+      }
+      final SegmentInfo si = ((SegmentReader) reader).getSegmentInfo().info;
+      if (si.getUseCompoundFile()) {
+        try (Directory cfsDir = si.getCodec().compoundFormat().getCompoundReader(si.dir, si, IOContext.READ)) {
+          preload(cfsDir, cfsDir.listAll(), deadlineNS);
+        }
+      } else {
+        final Collection<String> files = si.files();
+        preload(si.dir, files.toArray(new String[files.size()]), deadlineNS);
+      }
+    }
+
+    private void preload(Directory dir, String[] files, long deadlineNS) throws IOException {
+      final byte[] buffer = new byte[BUFFER_SIZE];
+      for (String file : files) {
+        if (extensions.contains(IndexFileNames.getExtension(file)) == false) {
+          continue;
+        }
+        try (IndexInput in = dir.openInput(file, IOContext.READ)) {
+          final long length = in.length();
+          for (long pos = 0; pos < length; pos += BUFFER_SIZE) {
+            if (isExpired(deadlineNS)) {
+              return;
+            }
+            in.readBytes(buffer, 0, (int) Math.min(BUFFER_SIZE, length - pos));
+          }
+        }
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "PreloadFilesStage(extensions=" + extensions + ")";
+    }
+  }
+}
@@ -110,6 +110,8 @@ final class DefaultIndexingChain extends DocConsumer {
     }
 
     termsHash.flush(fieldsToFlush, state);
+    // postings are written, give the blocks back for reuse by other segments
+    termsHash.reset();
 
     // Important to save after asking consumer to flush so
     // consumer can alter the FieldInfo* if necessary.  EG,
@@ -24,6 +24,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
+import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.search.SearcherManager; // javadocs
 import org.apache.lucene.store.Directory;
 
@@ -60,7 +61,24 @@ public abstract class DirectoryReader extends BaseCompositeReader<LeafReader> {
    * @throws IOException if there is a low-level IO error
    */
   public static DirectoryReader open(final Directory directory) throws IOException {
-    return StandardDirectoryReader.open(directory, null);
+    return StandardDirectoryReader.open(directory, (IndexCommit) null);
+  }
+
+  /** Returns a IndexReader reading the index in the given
+   *  Directory, which reads stored fields with the given codec
+   *  instance. This applies to segments that have been written
+   *  by a codec that has the same name, including the segments
+   *  that the reader adds when it is reopened, and is useful
+   *  when the codec is configured differently from the instance
+   *  that is registered under this name, for instance with a
+   *  {@link org.apache.lucene.codecs.compressing.StoredFieldsChunkCache}.
+   * @param directory the index directory
+   * @param storedFieldsCodec the codec to read stored fields with
+   * @throws IOException if there is a low-level IO error
+   * @lucene.experimental
+   */
+  public static DirectoryReader open(final Directory directory, Codec storedFieldsCodec) throws IOException {
+    return StandardDirectoryReader.open(directory, null, storedFieldsCodec);
   }
   
   /**
@@ -86,6 +104,32 @@ public abstract class DirectoryReader extends BaseCompositeReader<LeafReader> {
     return writer.getReader(applyAllDeletes);
   }
 
+  /**
+   * Expert: open a near real time IndexReader from the {@link org.apache.lucene.index.IndexWriter},
+   * controlling whether past deletions should be applied and written to the
+   * index files.
+   *
+   * @param writer The IndexWriter to open from
+   * @param applyAllDeletes If true, all buffered deletes will
+   * be applied (made visible) in the returned reader.
+   * @param writeAllDeletes If true, new deletes will be written
+   * down to index files instead of carried over from writer to
+   * reader in heap, so that the segments of the returned reader
+   * can be opened from the index files only, e.g. on a replica.
+   * This requires <code>applyAllDeletes</code> to be true. The
+   * setting is preserved when the returned reader is reopened with
+   * {@link #openIfChanged(DirectoryReader)}.
+   * @return The new IndexReader
+   * @throws IOException if there is a low-level IO error
+   *
+   * @see #open(IndexWriter,boolean)
+   *
+   * @lucene.experimental
+   */
+  public static DirectoryReader open(final IndexWriter writer, boolean applyAllDeletes, boolean writeAllDeletes) throws IOException {
+    return writer.getReader(applyAllDeletes, writeAllDeletes);
+  }
+
   /** Expert: returns an IndexReader reading the index in the given
    *  {@link IndexCommit}.
    * @param commit the commit point to open
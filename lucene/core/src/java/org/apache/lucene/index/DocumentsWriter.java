@@ -119,6 +119,7 @@ final class DocumentsWriter implements Closeable, Accountable {
   final DocumentsWriterPerThreadPool perThreadPool;
   final FlushPolicy flushPolicy;
   final DocumentsWriterFlushControl flushControl;
+  final DocumentsWriterBlockRecycler blockRecycler;
   private final IndexWriter writer;
   private final Queue<Event> events;
 
@@ -132,6 +133,12 @@ final class DocumentsWriter implements Closeable, Accountable {
     this.writer = writer;
     this.events = new ConcurrentLinkedQueue<>();
     flushControl = new DocumentsWriterFlushControl(this, config, writer.bufferedUpdatesStream);
+    // keep up to one RAM buffer worth of released blocks for reuse
+    final double ramBufferSizeMB = config.getRAMBufferSizeMB();
+    final double maxRecycledMB = ramBufferSizeMB == IndexWriterConfig.DISABLE_AUTO_FLUSH
+        ? IndexWriterConfig.DEFAULT_RAM_BUFFER_SIZE_MB
+        : Math.min(ramBufferSizeMB, config.getRAMPerThreadHardLimitMB());
+    blockRecycler = new DocumentsWriterBlockRecycler((long) (maxRecycledMB * 1024 * 1024));
   }
   
   synchronized boolean deleteQueries(final Query... queries) throws IOException {
@@ -341,9 +348,10 @@ final class DocumentsWriter implements Closeable, Accountable {
   public void close() {
     closed = true;
     flushControl.setClosed();
+    blockRecycler.clear();
   }
 
-  private boolean preUpdate() throws IOException, AbortingException {
+  private boolean preUpdate(boolean mayStall) throws IOException, AbortingException {
     ensureOpen();
     boolean hasEvents = false;
     if (flushControl.anyStalledThreads() || flushControl.numQueuedFlushes() > 0) {
@@ -358,6 +366,11 @@ final class DocumentsWriter implements Closeable, Accountable {
           // Don't push the delete here since the update could fail!
           hasEvents |= doFlush(flushingDWPT);
         }
+
+        if (mayStall == false) {
+          // the caller checks the stall state on its own and must never be blocked
+          break;
+        }
   
         if (infoStream.isEnabled("DW")) {
           if (flushControl.anyStalledThreads()) {
@@ -393,15 +406,15 @@ final class DocumentsWriter implements Closeable, Accountable {
     if (state.isActive() && state.dwpt == null) {
       final FieldInfos.Builder infos = new FieldInfos.Builder(
           writer.globalFieldNumberMap);
-      state.dwpt = new DocumentsWriterPerThread(writer.newSegmentName(),
+      state.dwpt = new DocumentsWriterPerThread(writer, writer.newSegmentName(),
                                                 directory, config, infoStream, deleteQueue, infos,
-                                                writer.pendingNumDocs, writer.enableTestPoints);
+                                                writer.pendingNumDocs, blockRecycler, writer.enableTestPoints);
     }
   }
 
   boolean updateDocuments(final Iterable<? extends IndexDocument> docs, final Analyzer analyzer,
                           final Term delTerm) throws IOException, AbortingException {
-    boolean hasEvents = preUpdate();
+    boolean hasEvents = preUpdate(true);
 
     final ThreadState perThread = flushControl.obtainAndLock();
     final DocumentsWriterPerThread flushingDWPT;
@@ -437,9 +450,9 @@ final class DocumentsWriter implements Closeable, Accountable {
   }
 
   boolean updateDocument(final IndexDocument doc, final Analyzer analyzer,
-      final Term delTerm) throws IOException, AbortingException {
+      final Term delTerm, boolean mayStall) throws IOException, AbortingException {
 
-    boolean hasEvents = preUpdate();
+    boolean hasEvents = preUpdate(mayStall);
 
     final ThreadState perThread = flushControl.obtainAndLock();
 
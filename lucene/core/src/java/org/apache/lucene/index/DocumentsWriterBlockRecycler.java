@@ -0,0 +1,184 @@
+package org.apache.lucene.index;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.ByteBlockPool;
+import org.apache.lucene.util.Counter;
+import org.apache.lucene.util.IntBlockPool;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.RecyclingByteBlockAllocator;
+import org.apache.lucene.util.RecyclingIntBlockAllocator;
+
+/**
+ * Holds the byte and int blocks that {@link DocumentsWriterPerThread}s release
+ * when they flush or abort, so that the indexing chains of other and future
+ * DWPTs can reuse them instead of allocating new blocks for every segment.
+ * With large RAM buffers, this avoids moving all blocks of every flushed
+ * segment through the old generation of the heap.
+ * <p>
+ * Blocks that are in use are accounted for in the {@link Counter} of the DWPT
+ * that uses them, so that {@link DocumentsWriterFlushControl} keeps seeing
+ * the same bytes as with freshly allocated blocks. Blocks that are held by
+ * this recycler are only accounted for in {@link #ramBytesUsed()}, and the
+ * number of held blocks is bounded.
+ * <p>
+ * Since this recycler is shared by all DWPTs, it should only see blocks at
+ * the granularity of segments: pools that are cleared for every document,
+ * like the ones of term vectors, keep their first blocks instead. Recycled
+ * blocks are zero-filled outside of the lock.
+ * <p>
+ * This class is thread-safe.
+ */
+final class DocumentsWriterBlockRecycler implements Accountable {
+
+  private static final int INT_BLOCK_BYTES = IntBlockPool.INT_BLOCK_SIZE * RamUsageEstimator.NUM_BYTES_INT;
+
+  // not thread-safe, guarded by this
+  private final RecyclingByteBlockAllocator byteBlocks;
+  private final RecyclingIntBlockAllocator intBlocks;
+
+  /**
+   * Creates a new recycler that holds at most <code>maxBufferedBytes</code> of
+   * unused blocks.
+   */
+  DocumentsWriterBlockRecycler(long maxBufferedBytes) {
+    // most of the RAM of the indexing chain goes to byte blocks
+    final long maxByteBlocks = maxBufferedBytes * 3 / 4 / ByteBlockPool.BYTE_BLOCK_SIZE;
+    final long maxIntBlocks = maxBufferedBytes / 4 / INT_BLOCK_BYTES;
+    byteBlocks = new RecyclingByteBlockAllocator(ByteBlockPool.BYTE_BLOCK_SIZE, (int) maxByteBlocks);
+    intBlocks = new RecyclingIntBlockAllocator(IntBlockPool.INT_BLOCK_SIZE, (int) maxIntBlocks);
+  }
+
+  /** Returns an allocator for the byte blocks of a DWPT. */
+  ByteBlockPool.Allocator newByteBlockAllocator(Counter bytesUsed) {
+    return new TrackingByteBlockAllocator(this, bytesUsed);
+  }
+
+  /** Returns an allocator for the int blocks of a DWPT. */
+  IntBlockPool.Allocator newIntBlockAllocator(Counter bytesUsed) {
+    return new TrackingIntBlockAllocator(this, bytesUsed);
+  }
+
+  byte[] getByteBlock() {
+    final byte[] block;
+    final boolean recycled;
+    synchronized (this) {
+      recycled = byteBlocks.numBufferedBlocks() > 0;
+      block = byteBlocks.getByteBlock();
+    }
+    if (recycled) {
+      // slices rely on zero-filled blocks
+      Arrays.fill(block, (byte) 0);
+    }
+    return block;
+  }
+
+  synchronized void recycleByteBlocks(byte[][] blocks, int start, int end) {
+    byteBlocks.recycleByteBlocks(blocks, start, end);
+  }
+
+  int[] getIntBlock() {
+    final int[] block;
+    final boolean recycled;
+    synchronized (this) {
+      recycled = intBlocks.numBufferedBlocks() > 0;
+      block = intBlocks.getIntBlock();
+    }
+    if (recycled) {
+      Arrays.fill(block, 0);
+    }
+    return block;
+  }
+
+  synchronized void recycleIntBlocks(int[][] blocks, int start, int end) {
+    intBlocks.recycleIntBlocks(blocks, start, end);
+  }
+
+  /** Drops all blocks that are held by this recycler. */
+  synchronized void clear() {
+    byteBlocks.freeBlocks(byteBlocks.numBufferedBlocks());
+    intBlocks.freeBlocks(intBlocks.numBufferedBlocks());
+  }
+
+  /** Returns the number of byte and int blocks that are held by this recycler. */
+  synchronized int numBufferedBlocks() {
+    return byteBlocks.numBufferedBlocks() + intBlocks.numBufferedBlocks();
+  }
+
+  @Override
+  public synchronized long ramBytesUsed() {
+    return (long) byteBlocks.numBufferedBlocks() * ByteBlockPool.BYTE_BLOCK_SIZE
+        + (long) intBlocks.numBufferedBlocks() * INT_BLOCK_BYTES;
+  }
+
+  /** Hands out byte blocks from the recycler and tracks them in a DWPT's {@link Counter}. */
+  private static final class TrackingByteBlockAllocator extends ByteBlockPool.Allocator {
+    private final DocumentsWriterBlockRecycler recycler;
+    private final Counter bytesUsed;
+
+    TrackingByteBlockAllocator(DocumentsWriterBlockRecycler recycler, Counter bytesUsed) {
+      super(ByteBlockPool.BYTE_BLOCK_SIZE);
+      this.recycler = recycler;
+      this.bytesUsed = bytesUsed;
+    }
+
+    @Override
+    public byte[] getByteBlock() {
+      bytesUsed.addAndGet(blockSize);
+      return recycler.getByteBlock();
+    }
+
+    @Override
+    public void recycleByteBlocks(byte[][] blocks, int start, int end) {
+      bytesUsed.addAndGet(-((end-start) * blockSize));
+      recycler.recycleByteBlocks(blocks, start, end);
+    }
+  }
+
+  /** Hands out int blocks from the recycler and tracks them in a DWPT's {@link Counter}. */
+  private static final class TrackingIntBlockAllocator extends IntBlockPool.Allocator {
+    private final DocumentsWriterBlockRecycler recycler;
+    private final Counter bytesUsed;
+
+    TrackingIntBlockAllocator(DocumentsWriterBlockRecycler recycler, Counter bytesUsed) {
+      super(IntBlockPool.INT_BLOCK_SIZE);
+      this.recycler = recycler;
+      this.bytesUsed = bytesUsed;
+    }
+
+    @Override
+    public int[] getIntBlock() {
+      bytesUsed.addAndGet(INT_BLOCK_BYTES);
+      return recycler.getIntBlock();
+    }
+
+    @Override
+    public void recycleIntBlocks(int[][] blocks, int start, int end) {
+      bytesUsed.addAndGet(-((end-start) * INT_BLOCK_BYTES));
+      recycler.recycleIntBlocks(blocks, start, end);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "DocumentsWriterBlockRecycler(bufferedBlocks=" + numBufferedBlocks() + ",ramBytesUsed=" + ramBytesUsed() + ")";
+  }
+}
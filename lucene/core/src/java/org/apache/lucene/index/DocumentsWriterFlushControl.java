@@ -271,6 +271,7 @@ final class DocumentsWriterFlushControl implements Accountable {
     assert !perThread.flushPending;
     if (perThread.dwpt.getNumDocsInRAM() > 0) {
       perThread.flushPending = true; // write access synced
+      perThread.dwpt.flushPendingNS = System.nanoTime();
       final long bytes = perThread.bytesUsed;
       flushBytes += bytes;
       activeBytes -= bytes;
@@ -441,6 +442,45 @@ final class DocumentsWriterFlushControl implements Accountable {
   synchronized int numFlushingDWPT() {
     return flushingWriters.size();
   }
+
+  /**
+   * Returns the number of {@link DocumentsWriterPerThread}s that are flush
+   * pending, queued or blocked, but not flushing yet.
+   */
+  synchronized int numPendingFlushes() {
+    return numPending + flushQueue.size() + blockedFlushes.size();
+  }
+
+  /**
+   * Returns the time in nanoseconds since the oldest
+   * {@link DocumentsWriterPerThread} that is flush pending, queued, blocked or
+   * flushing has been marked as flush pending, or <code>0</code> if there is
+   * no such {@link DocumentsWriterPerThread}.
+   */
+  synchronized long oldestPendingFlushAgeNS() {
+    long oldestNS = Long.MAX_VALUE;
+    for (DocumentsWriterPerThread dwpt : flushingWriters.keySet()) {
+      oldestNS = Math.min(oldestNS, dwpt.flushPendingNS);
+    }
+    for (DocumentsWriterPerThread dwpt : flushQueue) {
+      oldestNS = Math.min(oldestNS, dwpt.flushPendingNS);
+    }
+    for (BlockedFlush blockedFlush : blockedFlushes) {
+      oldestNS = Math.min(oldestNS, blockedFlush.dwpt.flushPendingNS);
+    }
+    if (numPending > 0) {
+      final int limit = perThreadPool.getActiveThreadState();
+      for (int i = 0; i < limit; i++) {
+        final ThreadState next = perThreadPool.getThreadState(i);
+        // a pending ThreadState is only reset, and its DWPT replaced, while holding our lock
+        final DocumentsWriterPerThread dwpt = next.dwpt;
+        if (next.flushPending && dwpt != null) {
+          oldestNS = Math.min(oldestNS, dwpt.flushPendingNS);
+        }
+      }
+    }
+    return oldestNS == Long.MAX_VALUE ? 0 : Math.max(0, System.nanoTime() - oldestNS);
+  }
   
   public boolean getAndResetApplyAllDeletes() {
     return flushDeletes.getAndSet(false);
@@ -29,18 +29,19 @@ import java.util.concurrent.atomic.AtomicLong;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.index.DocumentsWriterDeleteQueue.DeleteSlice;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FlushInfo;
 import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.MergeInfo;
 import org.apache.lucene.store.TrackingDirectoryWrapper;
 import org.apache.lucene.util.ByteBlockPool.Allocator;
-import org.apache.lucene.util.ByteBlockPool.DirectTrackingAllocator;
 import org.apache.lucene.util.Counter;
+import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InfoStream;
 import org.apache.lucene.util.IntBlockPool;
 import org.apache.lucene.util.MutableBits;
-import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.StringHelper;
 import org.apache.lucene.util.Version;
 
@@ -157,9 +158,14 @@ class DocumentsWriterPerThread {
   private final AtomicLong pendingNumDocs;
   private final LiveIndexWriterConfig indexWriterConfig;
   private final boolean enableTestPoints;
+  private final IndexWriter writer;
+  // System.nanoTime() when this DWPT was marked as flush pending, guarded by DocumentsWriterFlushControl
+  long flushPendingNS;
   
-  public DocumentsWriterPerThread(String segmentName, Directory directory, LiveIndexWriterConfig indexWriterConfig, InfoStream infoStream, DocumentsWriterDeleteQueue deleteQueue,
-                                  FieldInfos.Builder fieldInfos, AtomicLong pendingNumDocs, boolean enableTestPoints) throws IOException {
+  public DocumentsWriterPerThread(IndexWriter writer, String segmentName, Directory directory, LiveIndexWriterConfig indexWriterConfig, InfoStream infoStream, DocumentsWriterDeleteQueue deleteQueue,
+                                  FieldInfos.Builder fieldInfos, AtomicLong pendingNumDocs, DocumentsWriterBlockRecycler blockRecycler,
+                                  boolean enableTestPoints) throws IOException {
+    this.writer = writer;
     this.directoryOrig = directory;
     this.directory = new TrackingDirectoryWrapper(directory);
     this.fieldInfos = fieldInfos;
@@ -170,9 +176,9 @@ class DocumentsWriterPerThread {
     this.docState.similarity = indexWriterConfig.getSimilarity();
     this.pendingNumDocs = pendingNumDocs;
     bytesUsed = Counter.newCounter();
-    byteBlockAllocator = new DirectTrackingAllocator(bytesUsed);
+    byteBlockAllocator = blockRecycler.newByteBlockAllocator(bytesUsed);
     pendingUpdates = new BufferedUpdates();
-    intBlockAllocator = new IntBlockAllocator(bytesUsed);
+    intBlockAllocator = blockRecycler.newIntBlockAllocator(bytesUsed);
     this.deleteQueue = deleteQueue;
     assert numDocsInRAM == 0 : "num docs " + numDocsInRAM;
     pendingUpdates.clear();
@@ -389,7 +395,7 @@ class DocumentsWriterPerThread {
     assert numDocsInRAM > 0;
     assert deleteSlice.isEmpty() : "all deletes must be applied in prepareFlush";
     segmentInfo.setMaxDoc(numDocsInRAM);
-    final SegmentWriteState flushState = new SegmentWriteState(infoStream, directory, segmentInfo, fieldInfos.finish(),
+    SegmentWriteState flushState = new SegmentWriteState(infoStream, directory, segmentInfo, fieldInfos.finish(),
         pendingUpdates, new IOContext(new FlushInfo(numDocsInRAM, bytesUsed())));
     final double startMBUsed = bytesUsed() / 1024. / 1024.;
 
@@ -422,7 +428,26 @@ class DocumentsWriterPerThread {
       pendingUpdates.terms.clear();
       segmentInfo.setFiles(new HashSet<>(directory.getCreatedFiles()));
 
-      final SegmentCommitInfo segmentInfoPerCommit = new SegmentCommitInfo(segmentInfo, 0, -1L, -1L, -1L);
+      final BufferedUpdates segmentDeletes;
+      if (pendingUpdates.queries.isEmpty() && pendingUpdates.numericUpdates.isEmpty() && pendingUpdates.binaryUpdates.isEmpty()) {
+        pendingUpdates.clear();
+        segmentDeletes = null;
+      } else {
+        segmentDeletes = pendingUpdates;
+      }
+
+      final Sort indexSort = indexWriterConfig.getIndexSort();
+      if (indexSort != null) {
+        if (segmentDeletes == null) {
+          flushState = sortFlushedSegment(flushState, indexSort);
+        } else if (infoStream.isEnabled("DWPT")) {
+          // segment-private deletes and updates are resolved against doc IDs
+          // in indexing order, the segment will be sorted on merge instead
+          infoStream.message("DWPT", "flush: not sorting segment " + segmentInfo.name + " because of pending query deletes or doc values updates");
+        }
+      }
+
+      final SegmentCommitInfo segmentInfoPerCommit = new SegmentCommitInfo(flushState.segmentInfo, 0, -1L, -1L, -1L);
       if (infoStream.isEnabled("DWPT")) {
         infoStream.message("DWPT", "new segment has " + (flushState.liveDocs == null ? 0 : flushState.delCountOnFlush) + " deleted docs");
         infoStream.message("DWPT", "new segment has " +
@@ -435,17 +460,9 @@ class DocumentsWriterPerThread {
         infoStream.message("DWPT", "flushed codec=" + codec);
       }
 
-      final BufferedUpdates segmentDeletes;
-      if (pendingUpdates.queries.isEmpty() && pendingUpdates.numericUpdates.isEmpty() && pendingUpdates.binaryUpdates.isEmpty()) {
-        pendingUpdates.clear();
-        segmentDeletes = null;
-      } else {
-        segmentDeletes = pendingUpdates;
-      }
-
       if (infoStream.isEnabled("DWPT")) {
         final double newSegmentSize = segmentInfoPerCommit.sizeInBytes()/1024./1024.;
-        infoStream.message("DWPT", "flushed: segment=" + segmentInfo.name + 
+        infoStream.message("DWPT", "flushed: segment=" + flushState.segmentInfo.name + 
                 " ramUsed=" + nf.format(startMBUsed) + " MB" +
                 " newFlushedSize=" + nf.format(newSegmentSize) + " MB" +
                 " docs/MB=" + nf.format(flushState.segmentInfo.maxDoc() / newSegmentSize));
@@ -464,6 +481,70 @@ class DocumentsWriterPerThread {
     }
   }
   
+  /** Rewrites the segment that has just been flushed so that its documents
+   *  are sorted according to {@code indexSort} and returns the state of the
+   *  sorted segment. Files of the unsorted segment are added to the files to
+   *  delete. */
+  private SegmentWriteState sortFlushedSegment(SegmentWriteState flushState, Sort indexSort) throws IOException {
+    final SegmentInfo unsortedInfo = flushState.segmentInfo;
+    final int maxDoc = unsortedInfo.maxDoc();
+    final SegmentReader reader = new SegmentReader(new SegmentCommitInfo(unsortedInfo, 0, -1L, -1L, -1L), IOContext.READ);
+    try {
+      final Sorter.DocMap docMap = new Sorter(indexSort).sort(reader);
+      if (docMap == null) {
+        // documents are already sorted: keep the flushed files and only record the sort
+        final SegmentInfo sortedInfo = new SegmentInfo(directoryOrig, unsortedInfo.getVersion(), unsortedInfo.name, maxDoc,
+                                                       unsortedInfo.getUseCompoundFile(), codec, unsortedInfo.getDiagnostics(),
+                                                       unsortedInfo.getId(), unsortedInfo.getAttributes(), indexSort);
+        sortedInfo.setFiles(unsortedInfo.files());
+        final SegmentWriteState sortedState = new SegmentWriteState(infoStream, directory, sortedInfo, flushState.fieldInfos,
+                                                                    flushState.segUpdates, flushState.context);
+        sortedState.liveDocs = flushState.liveDocs;
+        sortedState.delCountOnFlush = flushState.delCountOnFlush;
+        return sortedState;
+      }
+
+      final SegmentInfo sortedInfo = new SegmentInfo(directoryOrig, Version.LATEST, writer.newSegmentName(), -1, false, codec,
+                                                     Collections.emptyMap(), StringHelper.randomId(), new HashMap<>(), indexSort);
+      if (infoStream.isEnabled("DWPT")) {
+        infoStream.message("DWPT", "flush: sort segment " + unsortedInfo.name + " into " + sortedInfo.name + " by " + indexSort);
+      }
+      final TrackingDirectoryWrapper sortedDir = new TrackingDirectoryWrapper(directoryOrig);
+      final IOContext context = new IOContext(new MergeInfo(maxDoc, -1, false, -1));
+      boolean success = false;
+      try {
+        final CodecReader sortedReader = SlowCodecReaderWrapper.wrap(SortingLeafReader.wrap(new MergeReaderWrapper(reader), docMap));
+        final SegmentMerger merger = new SegmentMerger(Collections.singletonList(sortedReader), sortedInfo, infoStream, sortedDir,
+                                                       fieldInfos.globalFieldNumbers, context);
+        final MergeState mergeState = merger.merge();
+        sortedInfo.setFiles(new HashSet<>(sortedDir.getCreatedFiles()));
+
+        final SegmentWriteState sortedState = new SegmentWriteState(infoStream, directory, sortedInfo, mergeState.mergeFieldInfos,
+                                                                    flushState.segUpdates, flushState.context);
+        if (flushState.liveDocs != null) {
+          final MutableBits sortedLiveDocs = codec.liveDocsFormat().newLiveDocs(maxDoc);
+          for (int oldDoc = 0; oldDoc < maxDoc; ++oldDoc) {
+            if (flushState.liveDocs.get(oldDoc) == false) {
+              sortedLiveDocs.clear(docMap.oldToNew(oldDoc));
+            }
+          }
+          sortedState.liveDocs = sortedLiveDocs;
+          sortedState.delCountOnFlush = flushState.delCountOnFlush;
+        }
+        success = true;
+        return sortedState;
+      } finally {
+        if (success) {
+          filesToDelete.addAll(unsortedInfo.files());
+        } else {
+          IOUtils.deleteFilesIgnoringExceptions(directoryOrig, sortedDir.getCreatedFiles().toArray(new String[0]));
+        }
+      }
+    } finally {
+      reader.close();
+    }
+  }
+
   private final Set<String> filesToDelete = new HashSet<>();
   
   public Set<String> pendingFilesToDelete() {
@@ -557,30 +638,6 @@ class DocumentsWriterPerThread {
   final static int MAX_TERM_LENGTH_UTF8 = BYTE_BLOCK_SIZE-2;
 
 
-  private static class IntBlockAllocator extends IntBlockPool.Allocator {
-    private final Counter bytesUsed;
-    
-    public IntBlockAllocator(Counter bytesUsed) {
-      super(IntBlockPool.INT_BLOCK_SIZE);
-      this.bytesUsed = bytesUsed;
-    }
-    
-    /* Allocate another int[] from the shared pool */
-    @Override
-    public int[] getIntBlock() {
-      int[] b = new int[IntBlockPool.INT_BLOCK_SIZE];
-      bytesUsed.addAndGet(IntBlockPool.INT_BLOCK_SIZE
-          * RamUsageEstimator.NUM_BYTES_INT);
-      return b;
-    }
-    
-    @Override
-    public void recycleIntBlocks(int[][] blocks, int offset, int length) {
-      bytesUsed.addAndGet(-(length * (IntBlockPool.INT_BLOCK_SIZE * RamUsageEstimator.NUM_BYTES_INT)));
-    }
-    
-  }
-  
   @Override
   public String toString() {
     return "DocumentsWriterPerThread [pendingDeletes=" + pendingUpdates
@@ -16,8 +16,11 @@ package org.apache.lucene.index;
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
+import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.apache.lucene.index.DocumentsWriterPerThreadPool.ThreadState;
 import org.apache.lucene.util.InfoStream;
@@ -45,6 +48,10 @@ final class DocumentsWriterStallControl {
   private boolean wasStalled; // only with assert
   private final Map<Thread, Boolean> waiting = new IdentityHashMap<>(); // only with assert
   private final InfoStream infoStream;
+  private long numStalls;
+  private long totalStallNS;
+  // weak keys so that we don't hold on to threads that are done indexing
+  private final Map<Thread, Long> stallNSPerThread = new WeakHashMap<>();
 
   DocumentsWriterStallControl(LiveIndexWriterConfig iwc) {
     infoStream = iwc.getInfoStream();
@@ -76,11 +83,13 @@ final class DocumentsWriterStallControl {
         if (stalled) { // react on the first wakeup call!
           // don't loop here, higher level logic will re-stall!
           try {
+            final long startNS = System.nanoTime();
             incWaiters();
             // Defensive, in case we have a concurrency bug that fails to .notify/All our thread:
             // just wait for up to 1 second here, and let caller re-stall if it's still needed:
             wait(1000);
             decrWaiters();
+            recordStall(Thread.currentThread(), System.nanoTime() - startNS);
           } catch (InterruptedException e) {
             throw new ThreadInterruptedException(e);
           }
@@ -92,6 +101,44 @@ final class DocumentsWriterStallControl {
   boolean anyStalledThreads() {
     return stalled;
   }
+
+  private void recordStall(Thread thread, long stallNS) {
+    assert Thread.holdsLock(this);
+    numStalls++;
+    totalStallNS += stallNS;
+    final Long previous = stallNSPerThread.get(thread);
+    stallNSPerThread.put(thread, previous == null ? stallNS : previous + stallNS);
+  }
+
+  /**
+   * Returns the number of times that an indexing thread has been blocked in
+   * {@link #waitIfStalled()}.
+   */
+  synchronized long getNumStalls() {
+    return numStalls;
+  }
+
+  /**
+   * Returns the total time, in nanoseconds, that indexing threads have spent
+   * blocked in {@link #waitIfStalled()}.
+   */
+  synchronized long getTotalStallNS() {
+    return totalStallNS;
+  }
+
+  /**
+   * Returns a copy of the time, in nanoseconds, that each indexing thread that
+   * is still alive has spent blocked in {@link #waitIfStalled()}.
+   */
+  synchronized Map<Thread, Long> getStallNSPerThread() {
+    // the weak keys only go away on GC, so remove threads that terminated eagerly
+    for (Iterator<Thread> it = stallNSPerThread.keySet().iterator(); it.hasNext(); ) {
+      if (it.next().isAlive() == false) {
+        it.remove();
+      }
+    }
+    return new HashMap<>(stallNSPerThread);
+  }
   
   long stallStartNS;
 
@@ -24,6 +24,7 @@ import org.apache.lucene.codecs.FieldsProducer;
 import org.apache.lucene.codecs.NormsProducer;
 import org.apache.lucene.codecs.StoredFieldsReader;
 import org.apache.lucene.codecs.TermVectorsReader;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.util.Bits;
 
 /** 
@@ -75,6 +76,11 @@ public class FilterCodecReader extends CodecReader {
     return in.getLiveDocs();
   }
 
+  @Override
+  public Sort getIndexSort() {
+    return in.getIndexSort();
+  }
+
   @Override
   public FieldInfos getFieldInfos() {
     return in.getFieldInfos();
@@ -36,6 +36,12 @@ import java.util.Map.Entry;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -49,6 +55,7 @@ import org.apache.lucene.index.FieldInfos.FieldNumbers;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FilterDirectory;
@@ -299,6 +306,16 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
   final ReaderPool readerPool = new ReaderPool();
   final BufferedUpdatesStream bufferedUpdatesStream;
 
+  // Used to sync files concurrently, or null to sync files on commit only,
+  // in the committing thread
+  private final ExecutorService syncExecutor;
+  // Background syncs of files that are referenced by the current
+  // segmentInfos, a successful future means that the file is durable:
+  private final Map<String,Future<Void>> backgroundSyncs = new HashMap<>();
+  // Used to merge the parts of a segment concurrently, or null to merge
+  // them sequentially in the merging thread
+  private final ExecutorService intraMergeExecutor;
+
   // This is a "write once" variable (like the organic dye
   // on a DVD-R that may or may not be heated by a laser and
   // then cooled to permanently record the event): it's
@@ -390,7 +407,20 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
    * @throws IOException If there is a low-level I/O error
    */
   DirectoryReader getReader(boolean applyAllDeletes) throws IOException {
+    return getReader(applyAllDeletes, false);
+  }
+
+  /**
+   * Like {@link #getReader(boolean)}, but if <code>writeAllDeletes</code> is
+   * true, also writes all pending deletes to the directory so that the
+   * returned reader's segments can be opened from their files only, e.g. by
+   * another process that replicates the index.
+   */
+  DirectoryReader getReader(boolean applyAllDeletes, boolean writeAllDeletes) throws IOException {
     ensureOpen();
+    if (writeAllDeletes && applyAllDeletes == false) {
+      throw new IllegalArgumentException("applyAllDeletes must be true when writeAllDeletes=true");
+    }
 
     final long tStart = System.currentTimeMillis();
 
@@ -427,7 +457,11 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
           // just like we do when loading segments_N
           synchronized(this) {
             anyChanges |= maybeApplyDeletes(applyAllDeletes);
-            r = StandardDirectoryReader.open(this, segmentInfos, applyAllDeletes);
+            if (writeAllDeletes) {
+              // Must move the deletes to disk:
+              readerPool.commit(segmentInfos);
+            }
+            r = StandardDirectoryReader.open(this, segmentInfos, applyAllDeletes, writeAllDeletes);
             if (infoStream.isEnabled("IW")) {
               infoStream.message("IW", "return reader version=" + r.getVersion() + " reader=" + r);
             }
@@ -471,6 +505,87 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     return docWriter.ramBytesUsed();
   }
 
+  /**
+   * Point-in-time statistics about the flushing of in-memory segments and
+   * the indexing threads that have been blocked because flushing could not
+   * keep up with indexing.
+   *
+   * @see IndexWriter#getFlushStats()
+   * @lucene.experimental
+   */
+  public static final class FlushStats {
+
+    /** Number of bytes used by segments that are still being indexed into. */
+    public final long activeBytes;
+    /** Number of bytes used by segments that are pending or being flushed. */
+    public final long flushingBytes;
+    /** Number of segments that have been marked for flushing but whose flush did not start yet. */
+    public final int numPendingFlushes;
+    /** Number of segments that are being flushed. */
+    public final int numFlushing;
+    /** Time in nanoseconds since the oldest segment that is pending or being
+     *  flushed has been marked for flushing, or 0 if no segment is flushing. */
+    public final long oldestPendingFlushAgeNanos;
+    /** Whether indexing threads are currently blocked because of pending flushes. */
+    public final boolean stalled;
+    /** Number of times that an indexing thread has been blocked because of pending flushes. */
+    public final long numStalls;
+    /** Total time in nanoseconds that indexing threads have been blocked. */
+    public final long totalStallNanos;
+    /** Time in nanoseconds that each indexing thread has been blocked, keyed
+     *  by {@link Thread#getId() thread ID}, for threads that are still alive.
+     *  Threads that terminated are not reported, but their stall time is still
+     *  included in {@link #totalStallNanos}. */
+    public final Map<Long,Long> stallNanosPerThread;
+    /** Number of bytes of indexing buffers that have been released by flushed
+     *  segments and are kept for reuse by new segments. These bytes are not
+     *  included in {@link #activeBytes}, {@link #flushingBytes} or
+     *  {@link IndexWriter#ramBytesUsed()}. */
+    public final long recycledBytes;
+
+    FlushStats(DocumentsWriterFlushControl flushControl, DocumentsWriterBlockRecycler blockRecycler) {
+      // flush statistics are consistent with each other, stall statistics are read separately
+      synchronized (flushControl) {
+        activeBytes = flushControl.activeBytes();
+        flushingBytes = flushControl.flushBytes();
+        numPendingFlushes = flushControl.numPendingFlushes();
+        numFlushing = flushControl.numFlushingDWPT();
+        oldestPendingFlushAgeNanos = flushControl.oldestPendingFlushAgeNS();
+      }
+      final DocumentsWriterStallControl stallControl = flushControl.stallControl;
+      stalled = stallControl.anyStalledThreads();
+      numStalls = stallControl.getNumStalls();
+      totalStallNanos = stallControl.getTotalStallNS();
+      final Map<Long,Long> stallNanosPerThread = new HashMap<>();
+      for (Map.Entry<Thread,Long> e : stallControl.getStallNSPerThread().entrySet()) {
+        stallNanosPerThread.put(e.getKey().getId(), e.getValue());
+      }
+      this.stallNanosPerThread = Collections.unmodifiableMap(stallNanosPerThread);
+      recycledBytes = blockRecycler.ramBytesUsed();
+    }
+
+    @Override
+    public String toString() {
+      return "FlushStats(activeBytes=" + activeBytes + " flushingBytes=" + flushingBytes
+          + " numPendingFlushes=" + numPendingFlushes + " numFlushing=" + numFlushing
+          + " oldestPendingFlushAgeNanos=" + oldestPendingFlushAgeNanos + " stalled=" + stalled
+          + " numStalls=" + numStalls + " totalStallNanos=" + totalStallNanos + " recycledBytes=" + recycledBytes + ")";
+    }
+  }
+
+  /**
+   * Returns statistics about pending flushes and indexing threads that have
+   * been blocked because flushing could not keep up with indexing. This can
+   * be used to detect that indexing is about to stall, for instance in order
+   * to apply backpressure with {@link #tryAddDocument(IndexDocument)}.
+   *
+   * @lucene.experimental
+   */
+  public FlushStats getFlushStats() {
+    ensureOpen();
+    return new FlushStats(docWriter.flushControl, docWriter.blockRecycler);
+  }
+
   /** Holds shared SegmentReader instances. IndexWriter uses
    *  SegmentReaders for 1) applying deletes, 2) doing
    *  merges, 3) handing out a real-time reader.  This pool
@@ -764,7 +879,9 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     mergeScheduler.setInfoStream(infoStream);
     codec = config.getCodec();
 
-    bufferedUpdatesStream = new BufferedUpdatesStream(infoStream);
+    bufferedUpdatesStream = new BufferedUpdatesStream(infoStream, config.getApplyDeletesExecutor());
+    syncExecutor = config.getSyncExecutor();
+    intraMergeExecutor = config.getIntraMergeExecutor();
     poolReaders = config.getReaderPooling();
 
     writeLock = directory.makeLock(WRITE_LOCK_NAME);
@@ -839,6 +956,10 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
         }
       }
 
+      for (SegmentCommitInfo info : segmentInfos) {
+        validateIndexSort(info);
+      }
+
       rollbackSegments = segmentInfos.createBackupSegmentInfos();
       pendingNumDocs.set(segmentInfos.totalMaxDoc());
 
@@ -905,6 +1026,16 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     }
   }
 
+  /** Confirms that the given segment was not sorted with a different sort
+   *  than the one that is configured on this writer. */
+  private void validateIndexSort(SegmentCommitInfo info) {
+    final Sort indexSort = config.getIndexSort();
+    final Sort segmentIndexSort = info.info.getIndexSort();
+    if (indexSort != null && segmentIndexSort != null && indexSort.equals(segmentIndexSort) == false) {
+      throw new IllegalArgumentException("cannot change index sort from " + segmentIndexSort + " to " + indexSort + " (segment=" + info.info.name + ")");
+    }
+  }
+
   /**
    * Loads or returns the already loaded the global field number map for this {@link SegmentInfos}.
    * If this {@link SegmentInfos} has no global field number map the returned instance is empty
@@ -1349,10 +1480,42 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
    */
   public void updateDocument(Term term, IndexDocument doc) throws IOException {
     ensureOpen();
+    updateDocument(term, doc, true);
+  }
+
+  /**
+   * Adds a document to this index, like {@link #addDocument(IndexDocument)},
+   * unless indexing is currently stalled because flushing can't keep up with
+   * indexing. In that case the document is not added and this method returns
+   * <code>false</code> immediately instead of blocking the calling thread until
+   * enough segments have been flushed. This allows applications to apply their
+   * own backpressure, for instance by rejecting or queueing requests, see
+   * {@link #getFlushStats()}.
+   * <p>
+   * NOTE: the calling thread may still be used to help flushing pending
+   * segments, like with {@link #addDocument(IndexDocument)}.
+   *
+   * @return <code>true</code> if the document was added, <code>false</code> if
+   *         indexing is stalled
+   * @throws CorruptIndexException if the index is corrupt
+   * @throws IOException if there is a low-level IO error
+   *
+   * @lucene.experimental
+   */
+  public boolean tryAddDocument(IndexDocument doc) throws IOException {
+    ensureOpen();
+    if (docWriter.flushControl.anyStalledThreads()) {
+      return false;
+    }
+    updateDocument(null, doc, false);
+    return true;
+  }
+
+  private void updateDocument(Term term, IndexDocument doc, boolean mayStall) throws IOException {
     try {
       boolean success = false;
       try {
-        if (docWriter.updateDocument(doc, analyzer, term)) {
+        if (docWriter.updateDocument(doc, analyzer, term, mayStall)) {
           processEvents(true, false);
         }
         success = true;
@@ -1882,6 +2045,28 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     }
   }
 
+  /**
+   * Expert: like {@link #getNextMerge()}, but only considers pending merges
+   * whose estimated size is less than or equal to
+   * <code>maxEstimatedMergeBytes</code>. This allows {@link MergeScheduler}s
+   * to run small merges without waiting for larger merges that were
+   * registered before them. Returns null if there is no such merge.
+   *
+   * @lucene.experimental
+   */
+  public synchronized MergePolicy.OneMerge getNextMerge(long maxEstimatedMergeBytes) {
+    for (Iterator<MergePolicy.OneMerge> it = pendingMerges.iterator(); it.hasNext(); ) {
+      final MergePolicy.OneMerge merge = it.next();
+      if (merge.estimatedMergeBytes <= maxEstimatedMergeBytes) {
+        // Advance the merge from pending to running
+        it.remove();
+        runningMerges.add(merge);
+        return merge;
+      }
+    }
+    return null;
+  }
+
   /**
    * Expert: returns true if there are merges waiting to be scheduled.
    * 
@@ -1891,6 +2076,22 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     return pendingMerges.size() != 0;
   }
 
+  /**
+   * Expert: returns true if there are merges waiting to be scheduled whose
+   * estimated size is less than or equal to <code>maxEstimatedMergeBytes</code>.
+   *
+   * @see #getNextMerge(long)
+   * @lucene.experimental
+   */
+  public synchronized boolean hasPendingMerges(long maxEstimatedMergeBytes) {
+    for (final MergePolicy.OneMerge merge : pendingMerges) {
+      if (merge.estimatedMergeBytes <= maxEstimatedMergeBytes) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * Close the <code>IndexWriter</code> without committing
    * any changes that have occurred since the last commit
@@ -1935,6 +2136,9 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
         infoStream.message("IW", "rollback: done finish merges");
       }
 
+      // don't let background syncs run after the writer is closed
+      waitForBackgroundSyncs();
+
       // Must pre-close in case it increments changeCount so that we can then
       // set it to false before calling closeInternal
       mergeScheduler.close();
@@ -2195,6 +2399,7 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
   synchronized void checkpoint() throws IOException {
     changed();
     deleter.checkpoint(segmentInfos, false);
+    scheduleBackgroundSyncs();
   }
 
   /** Checkpoints with IndexFileDeleter, so it's aware of
@@ -2204,6 +2409,102 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
   synchronized void checkpointNoSIS() throws IOException {
     changeCount.incrementAndGet();
     deleter.checkpoint(segmentInfos, false);
+    scheduleBackgroundSyncs();
+  }
+
+  /** Returns a task that syncs the given file. */
+  private FutureTask<Void> newSyncTask(final String fileName) {
+    return new FutureTask<>(new Callable<Void>() {
+      @Override
+      public Void call() throws IOException {
+        directory.sync(Collections.singleton(fileName));
+        return null;
+      }
+    });
+  }
+
+  /** Start syncing the files of the current segmentInfos that are not synced
+   *  or being synced yet, so that commits only need to wait for them. Files
+   *  that are not referenced anymore stop being tracked. */
+  private synchronized void scheduleBackgroundSyncs() throws IOException {
+    if (syncExecutor == null) {
+      return;
+    }
+    final Collection<String> files = segmentInfos.files(false);
+    backgroundSyncs.keySet().retainAll(files);
+    for (String fileName : files) {
+      if (backgroundSyncs.containsKey(fileName) == false) {
+        final FutureTask<Void> task = newSyncTask(fileName);
+        try {
+          syncExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+          // the file will be synced on commit
+          continue;
+        }
+        backgroundSyncs.put(fileName, task);
+      }
+    }
+  }
+
+  /** Sync the given files. Files that are synced in the background are only
+   *  waited on, and other files are synced concurrently if a sync executor
+   *  is configured. */
+  private void syncFiles(Collection<String> fileNames) throws IOException {
+    final Map<String,Future<Void>> pending = new HashMap<>();
+    final List<String> toSync = new ArrayList<>();
+    synchronized (this) {
+      for (String fileName : fileNames) {
+        final Future<Void> future = backgroundSyncs.get(fileName);
+        if (future == null) {
+          toSync.add(fileName);
+        } else {
+          pending.put(fileName, future);
+        }
+      }
+    }
+
+    if (syncExecutor == null || toSync.size() <= 1) {
+      directory.sync(toSync);
+    } else {
+      for (String fileName : toSync) {
+        final FutureTask<Void> task = newSyncTask(fileName);
+        try {
+          syncExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+          task.run();
+        }
+        pending.put(fileName, task);
+      }
+      toSync.clear();
+    }
+
+    // wait for all syncs and fail the commit if one of them failed: syncing
+    // again is not an option since the OS may have dropped the dirty pages
+    // after the failure, so that a second fsync succeeds without the data
+    // being durable. For the same reason, failed background syncs are kept
+    // and make subsequent commits that reference the same files fail too.
+    try {
+      IOUtils.waitForAll(pending.values());
+    } catch (ThreadInterruptedException tie) {
+      throw tie;
+    } catch (RuntimeException e) {
+      throw new IOException("failed to sync files " + pending.keySet(), e);
+    }
+  }
+
+  /** Wait for background syncs to finish, ignoring failures. */
+  private void waitForBackgroundSyncs() {
+    final List<Future<Void>> futures;
+    synchronized (this) {
+      futures = new ArrayList<>(backgroundSyncs.values());
+      backgroundSyncs.clear();
+    }
+    try {
+      IOUtils.waitForAll(futures);
+    } catch (IOException | RuntimeException e) {
+      // ignore: the files will not be committed anymore, and the interrupt
+      // status, if any, is preserved
+    }
   }
 
   /** Called internally if any index state has changed. */
@@ -2362,6 +2663,9 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
           infoStream.message("IW", "addIndexes: process directory " + dir);
         }
         SegmentInfos sis = SegmentInfos.readLatestCommit(dir); // read infos from dir
+        for (SegmentCommitInfo info : sis) {
+          validateIndexSort(info);
+        }
         totalMaxDoc += sis.totalMaxDoc();
         commits.add(sis);
       }
@@ -2493,14 +2797,25 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
       // abortable so that IW.close(false) is able to stop it
       TrackingDirectoryWrapper trackingDir = new TrackingDirectoryWrapper(directory);
 
+      final Sort indexSort = config.getIndexSort();
       SegmentInfo info = new SegmentInfo(directory, Version.LATEST, mergedName, -1,
-                                         false, codec, Collections.emptyMap(), StringHelper.randomId(), new HashMap<>());
+                                         false, codec, Collections.emptyMap(), StringHelper.randomId(), new HashMap<>(), indexSort);
+
+      List<CodecReader> mergeReaders = Arrays.asList(readers);
+      if (indexSort != null && readers.length > 0) {
+        final LeafReader view = mergeView(mergeReaders);
+        final Sorter.DocMap sortDocMap = new Sorter(indexSort).sort(view);
+        if (sortDocMap != null) {
+          mergeReaders = Collections.singletonList(SlowCodecReaderWrapper.wrap(SortingLeafReader.wrap(view, sortDocMap)));
+        }
+      }
 
-      SegmentMerger merger = new SegmentMerger(Arrays.asList(readers), info, infoStream, trackingDir,
+      final MergeRateLimiter rateLimiter = new MergeRateLimiter(null);
+      SegmentMerger merger = new SegmentMerger(mergeReaders, info, infoStream, trackingDir,
                                                globalFieldNumberMap, 
-                                               context);
+                                               context, newIntraMergeExecutor(rateLimiter));
       
-      rateLimiters.set(new MergeRateLimiter(null));
+      rateLimiters.set(rateLimiter);
 
       if (!merger.shouldMerge()) {
         return;
@@ -2592,6 +2907,26 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     maybeMerge();
   }
 
+  /** Returns a single {@link LeafReader} over the given readers, whose doc IDs
+   *  are the ones that a merge of these readers would assign if they were not
+   *  sorted, deleted documents included. */
+  private static LeafReader mergeView(List<CodecReader> readers) throws IOException {
+    final LeafReader[] wrapped = new LeafReader[readers.size()];
+    for (int i = 0; i < wrapped.length; ++i) {
+      LeafReader leaf = readers.get(i);
+      if (leaf instanceof SegmentReader) {
+        // wrap readers, to be optimal for merge
+        leaf = new MergeReaderWrapper((SegmentReader) leaf);
+      }
+      wrapped[i] = leaf;
+    }
+    if (wrapped.length == 1) {
+      return wrapped[0];
+    } else {
+      return new SlowCompositeReaderWrapper(new MultiReader(wrapped), true);
+    }
+  }
+
   /** Copies the segment files as-is into the IndexWriter's directory. */
   private SegmentCommitInfo copySegmentAsIs(SegmentCommitInfo info, String segName, IOContext context) throws IOException {
     
@@ -2599,7 +2934,8 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     // Same SI as before but we change directory and name
     SegmentInfo newInfo = new SegmentInfo(directory, info.info.getVersion(), segName, info.info.maxDoc(),
                                           info.info.getUseCompoundFile(), info.info.getCodec(), 
-                                          info.info.getDiagnostics(), info.info.getId(), info.info.getAttributes());
+                                          info.info.getDiagnostics(), info.info.getId(), info.info.getAttributes(),
+                                          info.info.getIndexSort());
     SegmentCommitInfo newInfoPerCommit = new SegmentCommitInfo(newInfo, info.getDelCount(), info.getDelGen(), 
                                                                info.getFieldInfosGen(), info.getDocValuesGen());
     
@@ -3056,6 +3392,11 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     return docWriter;
   }
 
+  // for testing only
+  DocumentsWriterStallControl getStallControl() {
+    return docWriter.flushControl.stallControl;
+  }
+
   /** Expert:  Return the number of documents currently
    *  buffered in RAM. */
   public final synchronized int numRamDocs() {
@@ -3093,7 +3434,7 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     final void init(ReaderPool readerPool, MergePolicy.OneMerge merge, MergeState mergeState, boolean initWritableLiveDocs) throws IOException {
       if (mergedDeletesAndUpdates == null) {
         mergedDeletesAndUpdates = readerPool.get(merge.info, true);
-        docMap = merge.getDocMap(mergeState);
+        docMap = merge.getMergedDocMap(mergeState);
         assert docMap.isConsistent(merge.info.info.maxDoc());
       }
       if (initWritableLiveDocs && !initializedWritableLiveDocs) {
@@ -3723,7 +4064,7 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     // ConcurrentMergePolicy we keep deterministic segment
     // names.
     final String mergeSegmentName = newSegmentName();
-    SegmentInfo si = new SegmentInfo(directory, Version.LATEST, mergeSegmentName, -1, false, codec, Collections.emptyMap(), StringHelper.randomId(), new HashMap<>());
+    SegmentInfo si = new SegmentInfo(directory, Version.LATEST, mergeSegmentName, -1, false, codec, Collections.emptyMap(), StringHelper.randomId(), new HashMap<>(), config.getIndexSort());
     Map<String,String> details = new HashMap<>();
     details.put("mergeMaxNumSegments", "" + merge.maxNumSegments);
     details.put("mergeFactor", Integer.toString(merge.segments.size()));
@@ -3923,10 +4264,23 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
       
       // we pass merge.getMergeReaders() instead of merge.readers to allow the
       // OneMerge to return a view over the actual segments to merge
-      final SegmentMerger merger = new SegmentMerger(merge.getMergeReaders(),
+      List<CodecReader> mergeReaders = merge.getMergeReaders();
+      final Sort indexSort = config.getIndexSort();
+      if (indexSort != null && mergeReaders.isEmpty() == false) {
+        final LeafReader view = mergeView(mergeReaders);
+        final Sorter.DocMap sortDocMap = new Sorter(indexSort).sort(view);
+        if (sortDocMap != null) {
+          if (infoStream.isEnabled("IW")) {
+            infoStream.message("IW", "merge: sorting readers by " + indexSort);
+          }
+          merge.setIndexSortDocMap(mergeReaders, sortDocMap);
+          mergeReaders = Collections.singletonList(SlowCodecReaderWrapper.wrap(SortingLeafReader.wrap(view, sortDocMap)));
+        }
+      }
+      final SegmentMerger merger = new SegmentMerger(mergeReaders,
                                                      merge.info.info, infoStream, dirWrapper,
                                                      globalFieldNumberMap, 
-                                                     context);
+                                                     context, newIntraMergeExecutor(merge.rateLimiter));
 
       merge.rateLimiter.checkAbort();
 
@@ -4306,7 +4660,7 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
         final Collection<String> filesToSync;
         try {
           filesToSync = toSync.files(false);
-          directory.sync(filesToSync);
+          syncFiles(filesToSync);
           success = true;
         } finally {
           if (!success) {
@@ -4671,6 +5025,32 @@ public class IndexWriter implements Closeable, TwoPhaseCommit, Accountable {
     throw new IllegalArgumentException("number of documents in the index cannot exceed " + actualMaxDocs + " (current document count is " + pendingNumDocs.get() + "; added numDocs is " + addedNumDocs + ")");
   }
 
+  /** Returns an {@link Executor} that runs tasks of {@link SegmentMerger}
+   *  on the intra-merge executor, so that the files they write are rate
+   *  limited by the given {@link MergeRateLimiter}, or null if no intra-merge
+   *  executor is configured. */
+  private Executor newIntraMergeExecutor(final MergeRateLimiter rateLimiter) {
+    if (intraMergeExecutor == null) {
+      return null;
+    }
+    return new Executor() {
+      @Override
+      public void execute(final Runnable command) {
+        intraMergeExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            rateLimiters.set(rateLimiter);
+            try {
+              command.run();
+            } finally {
+              rateLimiters.set(null);
+            }
+          }
+        });
+      }
+    };
+  }
+
   /** Wraps the incoming {@link Directory} so that we assign a per-thread
    *  {@link MergeRateLimiter} to all created {@link IndexOutput}s. */
   private Directory addMergeRateLimiters(Directory in) {
@@ -18,11 +18,15 @@ package org.apache.lucene.index;
  */
 
 import java.io.PrintStream;
+import java.util.EnumSet;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.index.DocumentsWriterPerThread.IndexingChain;
 import org.apache.lucene.index.IndexWriter.IndexReaderWarmer;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.util.InfoStream;
 import org.apache.lucene.util.PrintStreamInfoStream;
@@ -282,6 +286,13 @@ public final class IndexWriterConfig extends LiveIndexWriterConfig {
    * Set the {@link Codec}.
    * 
    * <p>
+   * Besides writing new segments, the codec is used to read the stored
+   * fields of existing segments that have been written by a codec that has
+   * the same name, so that its configuration, such as a
+   * {@link org.apache.lucene.codecs.compressing.StoredFieldsChunkCache},
+   * also applies to the segments of the commit that the writer opens.
+   * 
+   * <p>
    * Only takes effect when IndexWriter is first created.
    */
   public IndexWriterConfig setCodec(Codec codec) {
@@ -518,6 +529,130 @@ public final class IndexWriterConfig extends LiveIndexWriterConfig {
     return this;
   }
 
+  /** The sort types that can be used as an index sort. */
+  private static final EnumSet<SortField.Type> ALLOWED_INDEX_SORT_TYPES = EnumSet.of(SortField.Type.STRING,
+                                                                                     SortField.Type.LONG,
+                                                                                     SortField.Type.INT,
+                                                                                     SortField.Type.DOUBLE,
+                                                                                     SortField.Type.FLOAT);
+
+  /**
+   * Set the {@link Sort} order to use when writing segments, or {@code null}
+   * to write documents in the order in which they are added. Documents of
+   * both flushed and merged segments are then sorted according to this order,
+   * which is recorded in the {@link SegmentInfo#getIndexSort() segment info}
+   * so that searches that sort by a prefix of this order can stop collecting
+   * sorted segments early. Only sorts on doc values of type
+   * {@link SortField.Type#STRING STRING}, {@link SortField.Type#LONG LONG},
+   * {@link SortField.Type#INT INT}, {@link SortField.Type#DOUBLE DOUBLE} and
+   * {@link SortField.Type#FLOAT FLOAT} are supported.
+   *
+   * <p><b>NOTE</b>: Sorting makes flushing and merging slower, and doc IDs are
+   * not assigned in the order in which documents are added anymore.
+   * {@link MergePolicy}s that reorder documents, such as a
+   * {@code SortingMergePolicy}, should not be used together with an index
+   * sort.
+   *
+   * <p>
+   * Only takes effect when IndexWriter is first created. An
+   * {@link IndexWriter} fails to open an index that contains segments that
+   * have been sorted differently.
+   *
+   * @lucene.experimental
+   */
+  public IndexWriterConfig setIndexSort(Sort sort) {
+    if (sort != null) {
+      for (SortField sortField : sort.getSort()) {
+        if (ALLOWED_INDEX_SORT_TYPES.contains(sortField.getType()) == false) {
+          throw new IllegalArgumentException("invalid SortField type: must be one of " + ALLOWED_INDEX_SORT_TYPES + " but got: " + sortField);
+        }
+      }
+    }
+    this.indexSort = sort;
+    return this;
+  }
+
+  @Override
+  public Sort getIndexSort() {
+    return indexSort;
+  }
+
+  /**
+   * Expert: resolve buffered delete terms, delete queries and doc values
+   * updates on this executor, with one task per segment they apply to.
+   * Resolving only reads segments; the thread that applies deletes still
+   * publishes the resulting deletes and updates itself. The default,
+   * {@code null}, resolves everything in the applying thread.
+   *
+   * <p>NOTE: the applying thread waits for these tasks while it holds the
+   * {@link IndexWriter} lock, so the executor must not also run tasks that
+   * need this lock. The caller owns the executor, and should shut it down
+   * after closing the writer.
+   *
+   * <p>Only takes effect when IndexWriter is first created.
+   *
+   * @lucene.experimental
+   */
+  public IndexWriterConfig setApplyDeletesExecutor(ExecutorService executor) {
+    this.applyDeletesExecutor = executor;
+    return this;
+  }
+
+  @Override
+  public ExecutorService getApplyDeletesExecutor() {
+    return applyDeletesExecutor;
+  }
+
+  /**
+   * Expert: fsync index files on this executor. Files of flushed and merged
+   * segments then start syncing in the background as soon as they are added
+   * to the index, so that a commit mostly waits for syncs that already
+   * completed, and syncs the files that are left in parallel. The pool size
+   * caps the number of fsyncs in flight. The default, {@code null}, syncs
+   * every file from the committing thread.
+   *
+   * <p>NOTE: close or roll back the writer before shutting the executor
+   * down; {@link IndexWriter} never shuts it down itself.
+   *
+   * <p>Only takes effect when IndexWriter is first created.
+   *
+   * @lucene.experimental
+   */
+  public IndexWriterConfig setSyncExecutor(ExecutorService executor) {
+    this.syncExecutor = executor;
+    return this;
+  }
+
+  @Override
+  public ExecutorService getSyncExecutor() {
+    return syncExecutor;
+  }
+
+  /**
+   * Expert: merge the stored fields, postings, doc values, norms and term
+   * vectors of a segment as separate tasks on this executor, both for merges
+   * and for {@link IndexWriter#addIndexes(CodecReader...)}. This shortens
+   * large merges on machines with idle cores. The default, {@code null},
+   * merges these parts one after the other in the merging thread.
+   *
+   * <p>NOTE: the merging thread blocks until its tasks are done, so do not
+   * pass the executor that runs the merges themselves. The executor is left
+   * running when the writer is closed.
+   *
+   * <p>Only takes effect when IndexWriter is first created.
+   *
+   * @lucene.experimental
+   */
+  public IndexWriterConfig setIntraMergeExecutor(ExecutorService executor) {
+    this.intraMergeExecutor = executor;
+    return this;
+  }
+
+  @Override
+  public ExecutorService getIntraMergeExecutor() {
+    return intraMergeExecutor;
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder(super.toString());
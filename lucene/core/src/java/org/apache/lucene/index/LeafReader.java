@@ -18,6 +18,7 @@ package org.apache.lucene.index;
  */
 
 import org.apache.lucene.index.IndexReader.ReaderClosedListener;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.util.Bits;
 
 import java.io.IOException;
@@ -296,6 +297,14 @@ public abstract class LeafReader extends IndexReader {
    */
   public abstract Bits getLiveDocs();
 
+  /** Returns the {@link Sort} that documents of this reader are sorted by,
+   *  or {@code null} if documents are not sorted in any known order.
+   *  @see IndexWriterConfig#setIndexSort(Sort)
+   *  @lucene.experimental */
+  public Sort getIndexSort() {
+    return null;
+  }
+
   /**
    * Checks consistency of this reader.
    * <p>
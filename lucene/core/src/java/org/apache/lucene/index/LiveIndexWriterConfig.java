@@ -17,12 +17,15 @@ package org.apache.lucene.index;
  * limitations under the License.
  */
 
+import java.util.concurrent.ExecutorService;
+
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.index.DocumentsWriterPerThread.IndexingChain;
 import org.apache.lucene.index.IndexWriter.IndexReaderWarmer;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.similarities.Similarity;
 import org.apache.lucene.util.InfoStream;
 
@@ -97,6 +100,22 @@ public class LiveIndexWriterConfig {
   /** True if calls to {@link IndexWriter#close()} should first do a commit. */
   protected boolean commitOnClose = IndexWriterConfig.DEFAULT_COMMIT_ON_CLOSE;
 
+  /** The sort order to use to write documents into segments, or null if
+   *  documents should be written in the order in which they are added. */
+  protected Sort indexSort = null;
+
+  /** The executor to use to resolve buffered deletes and updates against
+   *  segments, or null to resolve them in the calling thread. */
+  protected ExecutorService applyDeletesExecutor = null;
+
+  /** The executor to use to sync files concurrently and in the background,
+   *  or null to sync files on commit in the committing thread. */
+  protected ExecutorService syncExecutor = null;
+
+  /** The executor to use to merge the different parts of a segment
+   *  concurrently, or null to merge them in the merging thread. */
+  protected ExecutorService intraMergeExecutor = null;
+
   // used by IndexWriterConfig
   LiveIndexWriterConfig(Analyzer analyzer) {
     this.analyzer = analyzer;
@@ -467,6 +486,41 @@ public class LiveIndexWriterConfig {
     return commitOnClose;
   }
 
+  /**
+   * Returns the sort order of documents in segments written by the
+   * {@link IndexWriter}, or {@code null} if documents are not sorted.
+   */
+  public Sort getIndexSort() {
+    return indexSort;
+  }
+
+  /**
+   * Returns the {@link ExecutorService} that is used to resolve buffered
+   * deletes and updates against segments concurrently, or {@code null} if
+   * they are resolved by the thread that applies deletes.
+   */
+  public ExecutorService getApplyDeletesExecutor() {
+    return applyDeletesExecutor;
+  }
+
+  /**
+   * Returns the {@link ExecutorService} that is used to sync index files
+   * concurrently and in the background, or {@code null} if files are synced
+   * on commit by the committing thread.
+   */
+  public ExecutorService getSyncExecutor() {
+    return syncExecutor;
+  }
+
+  /**
+   * Returns the {@link ExecutorService} that is used to merge stored fields,
+   * postings, doc values, norms and term vectors concurrently, or
+   * {@code null} if they are merged sequentially by the merging thread.
+   */
+  public ExecutorService getIntraMergeExecutor() {
+    return intraMergeExecutor;
+  }
+
   @Override
   public String toString() {
     StringBuilder sb = new StringBuilder();
@@ -491,6 +545,10 @@ public class LiveIndexWriterConfig {
     sb.append("perThreadHardLimitMB=").append(getRAMPerThreadHardLimitMB()).append("\n");
     sb.append("useCompoundFile=").append(getUseCompoundFile()).append("\n");
     sb.append("commitOnClose=").append(getCommitOnClose()).append("\n");
+    sb.append("indexSort=").append(getIndexSort()).append("\n");
+    sb.append("applyDeletesExecutor=").append(getApplyDeletesExecutor()).append("\n");
+    sb.append("syncExecutor=").append(getSyncExecutor()).append("\n");
+    sb.append("intraMergeExecutor=").append(getIntraMergeExecutor()).append("\n");
     return sb.toString();
   }
 }
@@ -26,7 +26,10 @@ import java.util.Map;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MergeInfo;
 import org.apache.lucene.store.RateLimiter;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PackedLongValues;
 
 /**
  * <p>Expert: a MergePolicy determines the sequence of
@@ -106,6 +109,10 @@ public abstract class MergePolicy {
 
     List<SegmentReader> readers;        // used by IndexWriter
 
+    // set by IndexWriter if the merge readers had to be sorted according to the index sort
+    private Sorter.DocMap indexSortDocMap;
+    private PackedLongValues indexSortDeletes;
+
     /** Segments to be merged. */
     public final List<SegmentCommitInfo> segments;
 
@@ -145,7 +152,10 @@ public abstract class MergePolicy {
      *  to feed SegmentMerger to initialize a merge. When a {@link OneMerge}
      *  reorders doc IDs, it must override {@link #getDocMap} too so that
      *  deletes that happened during the merge can be applied to the newly
-     *  merged segment. */
+     *  merged segment. If an {@link IndexWriterConfig#setIndexSort index sort}
+     *  is configured, {@link IndexWriter} sorts the returned readers unless
+     *  they are already sorted, in which case deletes are mapped using the
+     *  order in which documents appear in the returned readers. */
     public List<CodecReader> getMergeReaders() throws IOException {
       if (readers == null) {
         throw new IllegalStateException("IndexWriter has not initialized readers from the segment infos yet");
@@ -181,6 +191,48 @@ public abstract class MergePolicy {
       };
     }
 
+    /** Record that {@link IndexWriter} sorted the given merge readers
+     *  according to the index sort using {@code sortDocMap}. */
+    void setIndexSortDocMap(List<CodecReader> mergeReaders, Sorter.DocMap sortDocMap) {
+      final PackedLongValues.Builder deletes = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+      int deleteCount = 0;
+      for (CodecReader reader : mergeReaders) {
+        final int maxDoc = reader.maxDoc();
+        final Bits liveDocs = reader.getLiveDocs();
+        for (int i = 0; i < maxDoc; ++i) {
+          if (liveDocs != null && liveDocs.get(i) == false) {
+            ++deleteCount;
+          } else {
+            deletes.add(deleteCount);
+          }
+        }
+      }
+      this.indexSortDeletes = deletes.build();
+      this.indexSortDocMap = sortDocMap;
+    }
+
+    /** Return the mapping that {@link IndexWriter} uses to apply deletions
+     *  that happened during the merge: the one from {@link #getDocMap} if the
+     *  merge readers did not need to be sorted according to the index sort,
+     *  and a mapping from the natural doc ID of the merge readers to the doc
+     *  ID in the sorted segment otherwise. */
+    DocMap getMergedDocMap(final MergeState mergeState) {
+      if (indexSortDocMap == null) {
+        return getDocMap(mergeState);
+      }
+      assert mergeState.docMaps.length == 1; // we merged a singleton reader
+      final Sorter.DocMap sortDocMap = indexSortDocMap;
+      final PackedLongValues deletes = indexSortDeletes;
+      return new DocMap() {
+        @Override
+        public int map(int old) {
+          final int oldWithDeletes = old + (int) deletes.get(old);
+          final int newWithDeletes = sortDocMap.oldToNew(oldWithDeletes);
+          return mergeState.docMaps[0].get(newWithDeletes);
+        }
+      };
+    }
+
     /** Record that an exception occurred while executing
      *  this merge */
     synchronized void setException(Throwable error) {
@@ -78,8 +78,9 @@ public class MergeRateLimiter extends RateLimiter {
     return totalBytesWritten;
   }
 
+  // synchronized since several threads may write files of the same merge
   @Override
-  public long pause(long bytes) throws MergePolicy.MergeAbortedException {
+  public synchronized long pause(long bytes) throws MergePolicy.MergeAbortedException {
 
     totalBytesWritten += bytes;
 
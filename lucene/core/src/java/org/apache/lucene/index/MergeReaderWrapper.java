@@ -24,6 +24,7 @@ import org.apache.lucene.codecs.FieldsProducer;
 import org.apache.lucene.codecs.NormsProducer;
 import org.apache.lucene.codecs.StoredFieldsReader;
 import org.apache.lucene.codecs.TermVectorsReader;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.util.Bits;
 
 /** this is a hack to make SortingMP fast! */
@@ -195,6 +196,11 @@ class MergeReaderWrapper extends LeafReader {
     return in.getLiveDocs();
   }
 
+  @Override
+  public Sort getIndexSort() {
+    return in.getIndexSort();
+  }
+
   @Override
   public void checkIntegrity() throws IOException {
     in.checkIntegrity();
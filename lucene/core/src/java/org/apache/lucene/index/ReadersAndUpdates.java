@@ -129,7 +129,7 @@ class ReadersAndUpdates {
   public SegmentReader getReader(IOContext context) throws IOException {
     if (reader == null) {
       // We steal returned ref:
-      reader = new SegmentReader(info, context);
+      reader = new SegmentReader(info, context, writer.codec);
       if (liveDocs == null) {
         liveDocs = reader.getLiveDocs();
       }
@@ -204,7 +204,8 @@ class ReadersAndUpdates {
       // Copy on write: this means we've cloned a
       // SegmentReader sharing the current liveDocs
       // instance; must now make a private clone so we can
-      // change it:
+      // change it. The default format only copies the
+      // pages that are modified afterwards:
       LiveDocsFormat liveDocsFormat = info.info.getCodec().liveDocsFormat();
       if (liveDocs == null) {
         //System.out.println("create BV seg=" + info);
@@ -81,7 +81,7 @@ final class SegmentCoreReaders {
   private final Set<CoreClosedListener> coreClosedListeners = 
       Collections.synchronizedSet(new LinkedHashSet<CoreClosedListener>());
   
-  SegmentCoreReaders(SegmentReader owner, Directory dir, SegmentCommitInfo si, IOContext context) throws IOException {
+  SegmentCoreReaders(SegmentReader owner, Directory dir, SegmentCommitInfo si, IOContext context, Codec storedFieldsCodec) throws IOException {
 
     final Codec codec = si.info.getCodec();
     final Directory cfsDir; // confusing name: if (cfs) it's the cfsdir, otherwise it's the segment's directory.
@@ -114,7 +114,16 @@ final class SegmentCoreReaders {
         normsProducer = null;
       }
   
-      fieldsReaderOrig = si.info.getCodec().storedFieldsFormat().fieldsReader(cfsDir, si.info, coreFieldInfos, context);
+      // codecs that have the same name read the same files, so the stored
+      // fields of the segment may be read with the provided instance, which
+      // might for instance cache decompressed documents
+      final Codec fieldsCodec;
+      if (storedFieldsCodec != null && storedFieldsCodec.getName().equals(codec.getName())) {
+        fieldsCodec = storedFieldsCodec;
+      } else {
+        fieldsCodec = codec;
+      }
+      fieldsReaderOrig = fieldsCodec.storedFieldsFormat().fieldsReader(cfsDir, si.info, coreFieldInfos, context);
 
       if (coreFieldInfos.hasVectors()) { // open term vector files only as needed
         termVectorsReaderOrig = si.info.getCodec().termVectorsFormat().vectorsReader(cfsDir, si.info, coreFieldInfos, context);
@@ -27,6 +27,7 @@ import java.util.Set;
 import java.util.regex.Matcher;
 
 import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.TrackingDirectoryWrapper;
 import org.apache.lucene.util.StringHelper;
@@ -75,6 +76,9 @@ public final class SegmentInfo {
   // see o.a.l.util.Version.
   private Version version;
 
+  // How documents of this segment are sorted, or null if unsorted.
+  private final Sort indexSort;
+
   void setDiagnostics(Map<String, String> diagnostics) {
     this.diagnostics = Objects.requireNonNull(diagnostics);
   }
@@ -93,6 +97,17 @@ public final class SegmentInfo {
   public SegmentInfo(Directory dir, Version version, String name, int maxDoc,
                      boolean isCompoundFile, Codec codec, Map<String,String> diagnostics,
                      byte[] id, Map<String,String> attributes) {
+    this(dir, version, name, maxDoc, isCompoundFile, codec, diagnostics, id, attributes, null);
+  }
+
+  /**
+   * Same as {@link #SegmentInfo(Directory, Version, String, int, boolean, Codec, Map, byte[], Map)}
+   * for a segment whose documents are sorted according to {@code indexSort},
+   * or {@code null} if documents are not sorted.
+   */
+  public SegmentInfo(Directory dir, Version version, String name, int maxDoc,
+                     boolean isCompoundFile, Codec codec, Map<String,String> diagnostics,
+                     byte[] id, Map<String,String> attributes, Sort indexSort) {
     assert !(dir instanceof TrackingDirectoryWrapper);
     this.dir = Objects.requireNonNull(dir);
     this.version = Objects.requireNonNull(version);
@@ -106,6 +121,7 @@ public final class SegmentInfo {
       throw new IllegalArgumentException("invalid id: " + Arrays.toString(id));
     }
     this.attributes = Objects.requireNonNull(attributes);
+    this.indexSort = indexSort;
   }
 
   /**
@@ -192,6 +208,12 @@ public final class SegmentInfo {
       s.append('/').append(delCount);
     }
 
+    if (indexSort != null) {
+      s.append(":[indexSort=");
+      s.append(indexSort);
+      s.append(']');
+    }
+
     // TODO: we could append toString of attributes() here?
 
     return s.toString();
@@ -221,6 +243,12 @@ public final class SegmentInfo {
     return version;
   }
 
+  /** Return the sort order of documents in this segment, or {@code null} if
+   *  documents are not sorted. */
+  public Sort getIndexSort() {
+    return indexSort;
+  }
+
   /** Return the id that uniquely identifies this segment. */
   public byte[] getId() {
     return id.clone();
@@ -271,7 +299,7 @@ public final class SegmentInfo {
   /**
    * Get a codec attribute value, or null if it does not exist
    */
-  public String getAttribute(String key) {
+  public synchronized String getAttribute(String key) {
     return attributes.get(key);
   }
   
@@ -285,7 +313,7 @@ public final class SegmentInfo {
    * If a value already exists for the field, it will be replaced with the new
    * value.
    */
-  public String putAttribute(String key, String value) {
+  public synchronized String putAttribute(String key, String value) {
     return attributes.put(key, value);
   }
   
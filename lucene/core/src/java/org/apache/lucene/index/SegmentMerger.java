@@ -18,7 +18,12 @@ package org.apache.lucene.index;
  */
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.codecs.DocValuesConsumer;
@@ -28,6 +33,7 @@ import org.apache.lucene.codecs.StoredFieldsWriter;
 import org.apache.lucene.codecs.TermVectorsWriter;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
+import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.InfoStream;
 
 /**
@@ -47,9 +53,16 @@ final class SegmentMerger {
   final MergeState mergeState;
   private final FieldInfos.Builder fieldInfosBuilder;
 
-  // note, just like in codec apis Directory 'dir' is NOT the same as segmentInfo.dir!!
+  private final Executor executor;
+
   SegmentMerger(List<CodecReader> readers, SegmentInfo segmentInfo, InfoStream infoStream, Directory dir,
                 FieldInfos.FieldNumbers fieldNumbers, IOContext context) throws IOException {
+    this(readers, segmentInfo, infoStream, dir, fieldNumbers, context, null);
+  }
+
+  // note, just like in codec apis Directory 'dir' is NOT the same as segmentInfo.dir!!
+  SegmentMerger(List<CodecReader> readers, SegmentInfo segmentInfo, InfoStream infoStream, Directory dir,
+                FieldInfos.FieldNumbers fieldNumbers, IOContext context, Executor executor) throws IOException {
     if (context.context != IOContext.Context.MERGE) {
       throw new IllegalArgumentException("IOContext.context should be MERGE; got: " + context.context);
     }
@@ -58,6 +71,7 @@ final class SegmentMerger {
     this.codec = segmentInfo.getCodec();
     this.context = context;
     this.fieldInfosBuilder = new FieldInfos.Builder(fieldNumbers);
+    this.executor = executor;
   }
   
   /** True if any merging should happen */
@@ -66,7 +80,10 @@ final class SegmentMerger {
   }
 
   /**
-   * Merges the readers into the directory passed to the constructor
+   * Merges the readers into the directory passed to the constructor. If an
+   * executor was provided, stored fields, postings, doc values, norms and
+   * term vectors are merged concurrently since they are independent from
+   * each other.
    * @return The number of documents that were merged
    * @throws CorruptIndexException if the index is corrupt
    * @throws IOException if there is a low-level IO error
@@ -76,73 +93,123 @@ final class SegmentMerger {
       throw new IllegalStateException("Merge would result in 0 document segment");
     }
     mergeFieldInfos();
-    long t0 = 0;
-    if (mergeState.infoStream.isEnabled("SM")) {
-      t0 = System.nanoTime();
-    }
-    int numMerged = mergeFields();
-    if (mergeState.infoStream.isEnabled("SM")) {
-      long t1 = System.nanoTime();
-      mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to merge stored fields [" + numMerged + " docs]");
-    }
-    assert numMerged == mergeState.segmentInfo.maxDoc(): "numMerged=" + numMerged + " vs mergeState.segmentInfo.maxDoc()=" + mergeState.segmentInfo.maxDoc();
 
     final SegmentWriteState segmentWriteState = new SegmentWriteState(mergeState.infoStream, directory, mergeState.segmentInfo,
                                                                       mergeState.mergeFieldInfos, null, context);
-    if (mergeState.infoStream.isEnabled("SM")) {
-      t0 = System.nanoTime();
+    final List<MergeTask> tasks = new ArrayList<>();
+    tasks.add(new MergeTask("stored fields") {
+      @Override
+      int doMerge() throws IOException {
+        return mergeFields();
+      }
+    });
+    tasks.add(new MergeTask("postings") {
+      @Override
+      int doMerge() throws IOException {
+        mergeTerms(segmentWriteState);
+        return mergeState.segmentInfo.maxDoc();
+      }
+    });
+    if (mergeState.mergeFieldInfos.hasDocValues()) {
+      tasks.add(new MergeTask("doc values") {
+        @Override
+        int doMerge() throws IOException {
+          mergeDocValues(segmentWriteState);
+          return mergeState.segmentInfo.maxDoc();
+        }
+      });
     }
-    mergeTerms(segmentWriteState);
-    if (mergeState.infoStream.isEnabled("SM")) {
-      long t1 = System.nanoTime();
-      mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to merge postings [" + numMerged + " docs]");
+    if (mergeState.mergeFieldInfos.hasNorms()) {
+      tasks.add(new MergeTask("norms") {
+        @Override
+        int doMerge() throws IOException {
+          mergeNorms(segmentWriteState);
+          return mergeState.segmentInfo.maxDoc();
+        }
+      });
+    }
+    if (mergeState.mergeFieldInfos.hasVectors()) {
+      tasks.add(new MergeTask("vectors") {
+        @Override
+        int doMerge() throws IOException {
+          return mergeVectors();
+        }
+      });
+    }
+
+    runTasks(tasks);
+    for (MergeTask task : tasks) {
+      assert task.numMerged == mergeState.segmentInfo.maxDoc(): "numMerged=" + task.numMerged + " vs mergeState.segmentInfo.maxDoc()=" + mergeState.segmentInfo.maxDoc() + " for " + task.name;
     }
 
+    // write the merged infos
+    long t0 = 0;
     if (mergeState.infoStream.isEnabled("SM")) {
       t0 = System.nanoTime();
     }
-    if (mergeState.mergeFieldInfos.hasDocValues()) {
-      mergeDocValues(segmentWriteState);
-    }
+    codec.fieldInfosFormat().write(directory, mergeState.segmentInfo, "", mergeState.mergeFieldInfos, context);
     if (mergeState.infoStream.isEnabled("SM")) {
       long t1 = System.nanoTime();
-      mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to merge doc values [" + numMerged + " docs]");
+      mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to write field infos [" + mergeState.segmentInfo.maxDoc() + " docs]");
     }
-    
-    if (mergeState.mergeFieldInfos.hasNorms()) {
+
+    return mergeState;
+  }
+
+  /** Merges one of the parts of the segment. */
+  private abstract class MergeTask implements Callable<Void> {
+
+    final String name;
+    int numMerged;
+
+    MergeTask(String name) {
+      this.name = name;
+    }
+
+    /** Merge and return the number of merged documents. */
+    abstract int doMerge() throws IOException;
+
+    @Override
+    public Void call() throws IOException {
+      long t0 = 0;
       if (mergeState.infoStream.isEnabled("SM")) {
         t0 = System.nanoTime();
       }
-      mergeNorms(segmentWriteState);
+      numMerged = doMerge();
       if (mergeState.infoStream.isEnabled("SM")) {
         long t1 = System.nanoTime();
-        mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to merge norms [" + numMerged + " docs]");
+        mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to merge " + name + " [" + numMerged + " docs]");
       }
+      return null;
     }
+  }
 
-    if (mergeState.mergeFieldInfos.hasVectors()) {
-      if (mergeState.infoStream.isEnabled("SM")) {
-        t0 = System.nanoTime();
+  /** Run the given tasks, concurrently if an executor is configured. The
+   *  first task is always run in the current thread. */
+  private void runTasks(List<MergeTask> tasks) throws IOException {
+    if (executor == null || tasks.size() <= 1) {
+      for (MergeTask task : tasks) {
+        task.call();
       }
-      numMerged = mergeVectors();
-      if (mergeState.infoStream.isEnabled("SM")) {
-        long t1 = System.nanoTime();
-        mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to merge vectors [" + numMerged + " docs]");
-      }
-      assert numMerged == mergeState.segmentInfo.maxDoc();
+      return;
     }
-    
-    // write the merged infos
-    if (mergeState.infoStream.isEnabled("SM")) {
-      t0 = System.nanoTime();
+
+    final List<FutureTask<Void>> futures = new ArrayList<>(tasks.size());
+    for (MergeTask task : tasks) {
+      futures.add(new FutureTask<>(task));
     }
-    codec.fieldInfosFormat().write(directory, mergeState.segmentInfo, "", mergeState.mergeFieldInfos, context);
-    if (mergeState.infoStream.isEnabled("SM")) {
-      long t1 = System.nanoTime();
-      mergeState.infoStream.message("SM", ((t1-t0)/1000000) + " msec to write field infos [" + numMerged + " docs]");
+    for (FutureTask<Void> future : futures.subList(1, futures.size())) {
+      try {
+        executor.execute(future);
+      } catch (RejectedExecutionException e) {
+        // eg. the executor is shut down: merge in the current thread
+        future.run();
+      }
     }
+    futures.get(0).run();
 
-    return mergeState;
+    // wait for all tasks, even on exception, since files may still be open
+    IOUtils.waitForAll(futures);
   }
 
   private void mergeDocValues(SegmentWriteState segmentWriteState) throws IOException {
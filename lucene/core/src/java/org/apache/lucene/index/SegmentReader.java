@@ -27,6 +27,7 @@ import org.apache.lucene.codecs.FieldsProducer;
 import org.apache.lucene.codecs.NormsProducer;
 import org.apache.lucene.codecs.StoredFieldsReader;
 import org.apache.lucene.codecs.TermVectorsReader;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.util.Bits;
@@ -61,8 +62,17 @@ public final class SegmentReader extends CodecReader {
    */
   // TODO: why is this public?
   public SegmentReader(SegmentCommitInfo si, IOContext context) throws IOException {
+    this(si, context, null);
+  }
+
+  /**
+   * Constructs a new SegmentReader with a new core, whose stored fields are
+   * read with <code>storedFieldsCodec</code> if the segment was written by a
+   * codec that has the same name.
+   */
+  SegmentReader(SegmentCommitInfo si, IOContext context, Codec storedFieldsCodec) throws IOException {
     this.si = si;
-    core = new SegmentCoreReaders(this, si.info.dir, si, context);
+    core = new SegmentCoreReaders(this, si.info.dir, si, context, storedFieldsCodec);
     segDocValues = new SegmentDocValues();
     
     boolean success = false;
@@ -162,6 +172,11 @@ public final class SegmentReader extends CodecReader {
     return liveDocs;
   }
 
+  @Override
+  public Sort getIndexSort() {
+    return si.info.getIndexSort();
+  }
+
   @Override
   protected void doClose() throws IOException {
     //System.out.println("SR.close seg=" + si);
@@ -25,6 +25,7 @@ import org.apache.lucene.codecs.FieldsProducer;
 import org.apache.lucene.codecs.NormsProducer;
 import org.apache.lucene.codecs.StoredFieldsReader;
 import org.apache.lucene.codecs.TermVectorsReader;
+import org.apache.lucene.search.Sort;
 import org.apache.lucene.util.Bits;
 
 /**
@@ -95,6 +96,11 @@ public final class SlowCodecReaderWrapper {
           return reader.getLiveDocs();
         }
 
+        @Override
+        public Sort getIndexSort() {
+          return reader.getIndexSort();
+        }
+
         @Override
         public int numDocs() {
           return reader.numDocs();
@@ -856,6 +856,12 @@ public class SortingLeafReader extends FilterLeafReader {
     }
   }
 
+  @Override
+  public Sort getIndexSort() {
+    // documents are not in the order of the wrapped reader anymore
+    return null;
+  }
+
   @Override
   public Fields getTermVectors(final int docID) throws IOException {
     return in.getTermVectors(docMap.newToOld(docID));
@@ -115,7 +115,11 @@ final class TermVectorsConsumer extends TermsHash {
 
     lastDocID++;
 
-    super.reset();
+    // keep the first blocks for the next document and only clear the bytes
+    // that were used: going through the block recycler, which is shared by
+    // all DWPTs and zero-fills whole blocks, would be too costly per document
+    intPool.reset(true, true);
+    bytePool.reset(true, true);
     resetFields();
   }
 
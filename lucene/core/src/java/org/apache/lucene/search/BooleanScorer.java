@@ -21,12 +21,18 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
 
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.BooleanWeight;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.PriorityQueue;
 
 /**
  * BulkSorer that is used for pure disjunctions: no MUST clauses and
- * minShouldMatch == 1. This scorer scores documents by batches of 2048 docs.
+ * minShouldMatch == 1. This scorer scores documents by batches of 2048 docs,
+ * which are passed at once to {@link BulkLeafCollector}s.
+ * If the collector {@link Scorer#setMinCompetitiveScore(float) sets a minimum
+ * competitive score}, the remaining documents are scored with a
+ * {@link MaxScoreScorer} instead, which can skip non-competitive documents.
  */
 final class BooleanScorer extends BulkScorer {
 
@@ -121,9 +127,20 @@ final class BooleanScorer extends BulkScorer {
   final HeadPriorityQueue head;
   final TailPriorityQueue tail;
   final FakeScorer fakeScorer = new FakeScorer();
+  // buffers for bulk collection, allocated on first use
+  int[] docBuffer;
+  float[] scoreBuffer;
   final int minShouldMatch;
   final long cost;
 
+  // used to create a MaxScoreScorer lazily
+  final BooleanWeight weight;
+  final LeafReaderContext context;
+  final Bits acceptDocs;
+  // null until the collector sets a minimum competitive score
+  Scorer maxScoreScorer;
+  boolean maxScoreUnsupported;
+
   final class OrCollector implements LeafCollector {
     Scorer scorer;
 
@@ -146,6 +163,14 @@ final class BooleanScorer extends BulkScorer {
   final OrCollector orCollector = new OrCollector();
 
   BooleanScorer(BooleanWeight weight, boolean disableCoord, int maxCoord, Collection<BulkScorer> scorers, int minShouldMatch) {
+    this(weight, disableCoord, maxCoord, scorers, minShouldMatch, null, null);
+  }
+
+  BooleanScorer(BooleanWeight weight, boolean disableCoord, int maxCoord, Collection<BulkScorer> scorers, int minShouldMatch,
+      LeafReaderContext context, Bits acceptDocs) {
+    this.weight = weight;
+    this.context = context;
+    this.acceptDocs = acceptDocs;
     if (minShouldMatch < 1 || minShouldMatch > scorers.size()) {
       throw new IllegalArgumentException("minShouldMatch should be within 1..num_scorers. Got " + minShouldMatch);
     }
@@ -190,6 +215,10 @@ final class BooleanScorer extends BulkScorer {
   }
 
   private void scoreMatches(LeafCollector collector, int base) throws IOException {
+    if (collector instanceof BulkLeafCollector) {
+      scoreMatches((BulkLeafCollector) collector, base);
+      return;
+    }
     long matching[] = this.matching;
     for (int idx = 0; idx < matching.length; idx++) {
       long bits = matching[idx];
@@ -202,6 +231,36 @@ final class BooleanScorer extends BulkScorer {
     }
   }
 
+  private void scoreMatches(BulkLeafCollector collector, int base) throws IOException {
+    if (docBuffer == null) {
+      docBuffer = new int[SIZE];
+      scoreBuffer = new float[SIZE];
+    }
+    final int[] docBuffer = this.docBuffer;
+    final float[] scoreBuffer = this.scoreBuffer;
+    final long matching[] = this.matching;
+    int count = 0;
+    for (int idx = 0; idx < matching.length; idx++) {
+      long bits = matching[idx];
+      while (bits != 0L) {
+        int ntz = Long.numberOfTrailingZeros(bits);
+        int i = idx << 6 | ntz;
+        final Bucket bucket = buckets[i];
+        if (bucket.freq >= minShouldMatch) {
+          docBuffer[count] = base | i;
+          scoreBuffer[count] = (float) bucket.score * coordFactors[bucket.freq];
+          count++;
+        }
+        bucket.freq = 0;
+        bucket.score = 0;
+        bits ^= 1L << ntz;
+      }
+    }
+    if (count > 0) {
+      collector.collect(docBuffer, scoreBuffer, count);
+    }
+  }
+
   private void scoreWindow(LeafCollector collector, int base, int min, int max,
       BulkScorerAndDoc[] scorers, int numScorers) throws IOException {
     for (int i = 0; i < numScorers; ++i) {
@@ -273,13 +332,51 @@ final class BooleanScorer extends BulkScorer {
     }
   }
 
+  /** Switch to a {@link MaxScoreScorer} if the collector set a minimum
+   *  competitive score, returns true if the switch happened. */
+  private boolean maybeSwitchToMaxScore() throws IOException {
+    if (fakeScorer.minCompetitiveScore == Float.NEGATIVE_INFINITY || maxScoreUnsupported) {
+      return false;
+    }
+    final Scorer maxScoreScorer = context == null ? null : weight.maxScoreScorer(context, acceptDocs);
+    if (maxScoreScorer == null) {
+      // make sure we do not try again
+      maxScoreUnsupported = true;
+      return false;
+    }
+    maxScoreScorer.setMinCompetitiveScore(fakeScorer.minCompetitiveScore);
+    this.maxScoreScorer = maxScoreScorer;
+    return true;
+  }
+
+  private int scoreMaxScore(LeafCollector collector, int min, int max) throws IOException {
+    final Scorer scorer = this.maxScoreScorer;
+    collector.setScorer(scorer);
+    int doc = scorer.docID();
+    if (doc < min) {
+      doc = scorer.advance(min);
+    }
+    while (doc < max) {
+      collector.collect(doc);
+      doc = scorer.nextDoc();
+    }
+    return doc;
+  }
+
   @Override
   public int score(LeafCollector collector, int min, int max) throws IOException {
+    if (maxScoreScorer != null) {
+      return scoreMaxScore(collector, min, max);
+    }
+
     fakeScorer.doc = -1;
     collector.setScorer(fakeScorer);
 
     BulkScorerAndDoc top = advance(min);
     while (top.next < max) {
+      if (maybeSwitchToMaxScore()) {
+        return scoreMaxScore(collector, top.next, max);
+      }
 
       final int windowBase = top.next & ~MASK; // find the window that the next match belongs to
       final int windowMin = Math.max(min, windowBase);
@@ -237,7 +237,42 @@ public class BooleanWeight extends Weight {
       return null;
     }
 
-    return new BooleanScorer(this, disableCoord, maxCoord, optional, Math.max(1, query.minNrShouldMatch));
+    return new BooleanScorer(this, disableCoord, maxCoord, optional, Math.max(1, query.minNrShouldMatch), context, acceptDocs);
+  }
+
+  /** Try to build a scorer for this weight that can skip over documents that
+   *  are not competitive, see {@link MaxScoreScorer}. Returns null if this
+   *  query is not a pure disjunction or if some clauses do not know about the
+   *  {@link Scorer#maxScore() maximum score} that they may produce. */
+  // pkg-private for use by BooleanScorer
+  Scorer maxScoreScorer(LeafReaderContext context, Bits acceptDocs) throws IOException {
+    if (needsScores == false || query.minNrShouldMatch > 1) {
+      return null;
+    }
+    List<Scorer> optional = new ArrayList<>();
+    Iterator<BooleanClause> cIter = query.clauses().iterator();
+    for (Weight w  : weights) {
+      BooleanClause c =  cIter.next();
+      if (c.getOccur() != Occur.SHOULD) {
+        return null;
+      }
+      Scorer subScorer = w.scorer(context, acceptDocs);
+      if (subScorer != null) {
+        final float maxScore = subScorer.maxScore();
+        if (maxScore < 0 || Float.isNaN(maxScore) || Float.isInfinite(maxScore)) {
+          return null;
+        }
+        optional.add(subScorer);
+      }
+    }
+    if (optional.isEmpty()) {
+      return null;
+    }
+    final float[] coordFactors = new float[optional.size() + 1];
+    for (int i = 0; i < coordFactors.length; i++) {
+      coordFactors[i] = disableCoord ? 1.0f : coord(i, maxCoord);
+    }
+    return new MaxScoreScorer(this, optional, coordFactors);
   }
 
   @Override
@@ -0,0 +1,52 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+/**
+ * A {@link LeafCollector} that can also collect blocks of matching documents
+ * at once.
+ * <p>{@link BulkScorer}s that find matches by batches, such as the one that
+ * is used for pure disjunctions, call {@link #collect(int[], float[], int)}
+ * once per batch instead of {@link #collect(int)} once per document when the
+ * leaf collector implements this interface. This saves a virtual call per
+ * matching document and allows collectors to consume hits in tight loops.
+ * Other bulk scorers keep calling {@link #collect(int)}, so implementations
+ * need to support both ways of collecting documents.
+ *
+ * @lucene.experimental
+ */
+public interface BulkLeafCollector extends LeafCollector {
+
+  /**
+   * Collect a block of matching documents. The first {@code count} entries of
+   * {@code docs} are unbased document numbers, in increasing order, and the
+   * first {@code count} entries of {@code scores} are their scores.
+   * <p>The {@link Scorer} that has been passed to {@link #setScorer(Scorer)}
+   * is not positioned on these documents so scores must be read from
+   * {@code scores}. Calls to {@link Scorer#setMinCompetitiveScore(float)} are
+   * still supported. Both arrays may be reused by the caller once this method
+   * returns.
+   * <p>Like {@link #collect(int)}, this method may throw a
+   * {@link CollectionTerminatedException} in order to skip the remaining
+   * documents of the current leaf.
+   */
+  void collect(int[] docs, float[] scores, int count) throws IOException;
+
+}
@@ -159,6 +159,11 @@ public class CachingWrapperQuery extends Query implements Accountable {
               return acceptDocs.get(doc);
             }
 
+            @Override
+            public float matchCost() {
+              return BITS_GET_COST;
+            }
+
           };
           disi = TwoPhaseIterator.asDocIdSetIterator(twoPhaseView);
         }
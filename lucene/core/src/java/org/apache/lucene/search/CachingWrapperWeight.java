@@ -0,0 +1,141 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.util.Bits;
+
+/**
+ * A {@link Weight} that looks up per-segment matches in a query cache and
+ * populates it according to a {@link QueryCachingPolicy}. Shared by the
+ * {@link QueryCache} implementations of this package.
+ */
+abstract class CachingWrapperWeight extends ConstantScoreWeight {
+
+  final Weight in;
+  private final QueryCachingPolicy policy;
+
+  CachingWrapperWeight(Weight in, QueryCachingPolicy policy) {
+    super(in.getQuery());
+    this.in = in;
+    this.policy = policy;
+  }
+
+  /** Return the cached {@link DocIdSet} for the given query and segment, or
+   *  {@code null} if there is none. */
+  abstract DocIdSet get(Query query, LeafReaderContext context);
+
+  /** Add a {@link DocIdSet} to the cache, unless one already exists. */
+  abstract void putIfAbsent(Query query, LeafReaderContext context, DocIdSet set);
+
+  /** Build a cacheable {@link DocIdSet} out of the given iterator. */
+  abstract DocIdSet cacheImpl(DocIdSetIterator iterator, LeafReader reader) throws IOException;
+
+  @Override
+  Scorer scorer(LeafReaderContext context, Bits acceptDocs, float score) throws IOException {
+    if (context.ord == 0) {
+      policy.onUse(getQuery());
+    }
+    DocIdSet docIdSet = get(in.getQuery(), context);
+    if (docIdSet == null) {
+      if (policy.shouldCache(in.getQuery(), context)) {
+        final Scorer scorer = in.scorer(context, null);
+        if (scorer == null) {
+          docIdSet = DocIdSet.EMPTY;
+        } else {
+          docIdSet = cacheImpl(scorer, context.reader());
+        }
+        putIfAbsent(in.getQuery(), context, docIdSet);
+      } else {
+        return in.scorer(context, acceptDocs);
+      }
+    }
+
+    assert docIdSet != null;
+    if (docIdSet == DocIdSet.EMPTY) {
+      return null;
+    }
+    final DocIdSetIterator approximation = docIdSet.iterator();
+    if (approximation == null) {
+      return null;
+    }
+
+    final DocIdSetIterator disi;
+    final TwoPhaseIterator twoPhaseView;
+    if (acceptDocs == null) {
+      twoPhaseView = null;
+      disi = approximation;
+    } else {
+      twoPhaseView = new TwoPhaseIterator(approximation) {
+        @Override
+        public boolean matches() throws IOException {
+          final int doc = approximation.docID();
+          return acceptDocs.get(doc);
+        }
+
+        @Override
+        public float matchCost() {
+          return BITS_GET_COST;
+        }
+      };
+      disi = TwoPhaseIterator.asDocIdSetIterator(twoPhaseView);
+    }
+    return new Scorer(this) {
+
+      @Override
+      public TwoPhaseIterator asTwoPhaseIterator() {
+        return twoPhaseView;
+      }
+
+      @Override
+      public float score() throws IOException {
+        return 0f;
+      }
+
+      @Override
+      public int freq() throws IOException {
+        return 1;
+      }
+
+      @Override
+      public int docID() {
+        return disi.docID();
+      }
+
+      @Override
+      public int nextDoc() throws IOException {
+        return disi.nextDoc();
+      }
+
+      @Override
+      public int advance(int target) throws IOException {
+        return disi.advance(target);
+      }
+
+      @Override
+      public long cost() {
+        return disi.cost();
+      }
+
+    };
+  }
+
+}
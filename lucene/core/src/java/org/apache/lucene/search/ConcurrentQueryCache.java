@@ -0,0 +1,564 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReader.CoreClosedListener;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Accountables;
+import org.apache.lucene.util.RoaringDocIdSet;
+
+import static org.apache.lucene.search.LRUQueryCache.HASHTABLE_RAM_BYTES_PER_ENTRY;
+import static org.apache.lucene.search.LRUQueryCache.LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY;
+import static org.apache.lucene.search.LRUQueryCache.QUERY_DEFAULT_RAM_BYTES_USED;
+
+/**
+ * A {@link QueryCache} that has the same eviction policy as
+ * {@link LRUQueryCache} but does not take a lock on cache hits, which makes
+ * it a better fit for search nodes that run many concurrent searches.
+ * <p>
+ * Cached {@link DocIdSet}s are stored in concurrent hash tables that are
+ * partitioned by segment core key and then by query, so that lookups never
+ * block. Cache hits are recorded in striped, lossy read buffers and replayed
+ * against the least-recently-used ordering in batches, by whichever thread
+ * first manages to acquire the eviction lock. As a consequence, the LRU
+ * ordering is only approximate: hits that happen while read buffers are full
+ * are not recorded. Additions to the cache and evictions still happen under a
+ * lock, which is fine given that they are much less frequent than hits and
+ * that adding an entry requires to compute a whole {@link DocIdSet} anyway.
+ * <p>
+ * Memory accounting is the same as {@link LRUQueryCache}.
+ *
+ * @see LRUQueryCache
+ * @lucene.experimental
+ */
+public class ConcurrentQueryCache implements QueryCache, Accountable {
+
+  // number of slots of each read buffer, must be a power of two
+  static final int READ_BUFFER_SIZE = 16;
+
+  private final int maxSize;
+  private final long maxRamBytesUsed;
+
+  // lock-free structures, used for lookups
+  private final Map<Query, Query> uniqueQueries;
+  private final Map<Object, LeafCache> cache;
+
+  // the LRU ordering of queries, only accessed under the lock
+  private final Map<Query, Query> mostRecentlyUsedQueries;
+  private final ReentrantLock lock;
+  private final ReadBuffer[] readBuffers;
+
+  // these variables are volatile so that we do not need to sync reads
+  // but updates need to be performed under the lock
+  private volatile long ramBytesUsed;
+  private volatile long cacheCount;
+  private volatile long cacheSize;
+  // updated without lock
+  private final LongAdder hitCount;
+  private final LongAdder missCount;
+
+  /**
+   * Create a new instance that will cache at most <code>maxSize</code> queries
+   * with at most <code>maxRamBytesUsed</code> bytes of memory.
+   */
+  public ConcurrentQueryCache(int maxSize, long maxRamBytesUsed) {
+    this(maxSize, maxRamBytesUsed, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * Expert: same as {@link #ConcurrentQueryCache(int, long)} but allows to
+   * configure the number of read buffers, which is rounded up to the next
+   * power of two. It should be about the number of threads that use this
+   * cache concurrently.
+   */
+  public ConcurrentQueryCache(int maxSize, long maxRamBytesUsed, int numReadBuffers) {
+    if (numReadBuffers < 1) {
+      throw new IllegalArgumentException("numReadBuffers must be >= 1, got " + numReadBuffers);
+    }
+    this.maxSize = maxSize;
+    this.maxRamBytesUsed = maxRamBytesUsed;
+    uniqueQueries = new ConcurrentHashMap<>();
+    cache = new ConcurrentHashMap<>();
+    mostRecentlyUsedQueries = new LinkedHashMap<>(16, 0.75f, true);
+    lock = new ReentrantLock();
+    final int numBuffers = Integer.highestOneBit(Math.min(numReadBuffers, 1 << 16) * 2 - 1);
+    readBuffers = new ReadBuffer[numBuffers];
+    for (int i = 0; i < readBuffers.length; ++i) {
+      readBuffers[i] = new ReadBuffer();
+    }
+    hitCount = new LongAdder();
+    missCount = new LongAdder();
+  }
+
+  /** Whether evictions are required. */
+  private boolean requiresEviction() {
+    assert lock.isHeldByCurrentThread();
+    final int size = mostRecentlyUsedQueries.size();
+    if (size == 0) {
+      return false;
+    } else {
+      return size > maxSize || ramBytesUsed() > maxRamBytesUsed;
+    }
+  }
+
+  DocIdSet get(Query key, LeafReaderContext context) {
+    key = QueryCache.cacheKey(key);
+    final Object readerKey = context.reader().getCoreCacheKey();
+    final LeafCache leafCache = cache.get(readerKey);
+    if (leafCache == null) {
+      missCount.increment();
+      return null;
+    }
+    final Query singleton = uniqueQueries.get(key);
+    if (singleton == null) {
+      missCount.increment();
+      return null;
+    }
+    final DocIdSet cached = leafCache.cache.get(singleton);
+    if (cached == null) {
+      missCount.increment();
+    } else {
+      hitCount.increment();
+      recordHit(singleton);
+    }
+    return cached;
+  }
+
+  /** Record an access to the given query, draining read buffers if necessary. */
+  private void recordHit(Query singleton) {
+    final ReadBuffer buffer = readBuffers[mix(Thread.currentThread().getId()) & (readBuffers.length - 1)];
+    if (buffer.offer(singleton) && lock.tryLock()) {
+      try {
+        drainReadBuffers();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  private static int mix(long threadId) {
+    final long h = threadId * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+
+  /** Replay recorded hits against the LRU ordering. */
+  private void drainReadBuffers() {
+    assert lock.isHeldByCurrentThread();
+    for (ReadBuffer buffer : readBuffers) {
+      buffer.drainTo(mostRecentlyUsedQueries);
+    }
+  }
+
+  void putIfAbsent(Query query, LeafReaderContext context, DocIdSet set) {
+    // we don't want to have user-provided queries as keys in our cache since queries are mutable
+    query = query.clone();
+    query.setBoost(1f);
+    assert query == QueryCache.cacheKey(query);
+    lock.lock();
+    try {
+      drainReadBuffers();
+      Query singleton = mostRecentlyUsedQueries.get(query);
+      if (singleton == null) {
+        mostRecentlyUsedQueries.put(query, query);
+        // publish the query only once it is tracked for evictions
+        uniqueQueries.put(query, query);
+        ramBytesUsed += LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY + HASHTABLE_RAM_BYTES_PER_ENTRY + ramBytesUsed(query);
+      } else {
+        query = singleton;
+      }
+      final Object key = context.reader().getCoreCacheKey();
+      LeafCache leafCache = cache.get(key);
+      if (leafCache == null) {
+        leafCache = new LeafCache(key);
+        final LeafCache previous = cache.put(key, leafCache);
+        ramBytesUsed += HASHTABLE_RAM_BYTES_PER_ENTRY;
+        assert previous == null;
+        // we just created a new leaf cache, need to register a close listener
+        context.reader().addCoreClosedListener(new CoreClosedListener() {
+          @Override
+          public void onClose(Object ownerCoreCacheKey) {
+            clearCoreCacheKey(ownerCoreCacheKey);
+          }
+        });
+      }
+      leafCache.putIfAbsent(query, set);
+      evictIfNecessary();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void evictIfNecessary() {
+    assert lock.isHeldByCurrentThread();
+    if (requiresEviction()) {
+      Iterator<Query> iterator = mostRecentlyUsedQueries.keySet().iterator();
+      do {
+        final Query query = iterator.next();
+        final int size = mostRecentlyUsedQueries.size();
+        iterator.remove();
+        if (size == mostRecentlyUsedQueries.size()) {
+          // size did not decrease, because the hash of the query changed since it has been
+          // put into the cache
+          throw new ConcurrentModificationException("Removal from the cache failed! This " +
+              "is probably due to a query which has been modified after having been put into " +
+              " the cache or a badly implemented clone(). Query class: [" + query.getClass() +
+              "], query: [" + query + "]");
+        }
+        onEviction(query);
+      } while (iterator.hasNext() && requiresEviction());
+    }
+  }
+
+  private void onEviction(Query singleton) {
+    assert lock.isHeldByCurrentThread();
+    uniqueQueries.remove(singleton);
+    ramBytesUsed -= LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY + HASHTABLE_RAM_BYTES_PER_ENTRY + ramBytesUsed(singleton);
+    for (LeafCache leafCache : cache.values()) {
+      leafCache.remove(singleton);
+    }
+  }
+
+  /**
+   * Remove all cache entries for the given core cache key.
+   */
+  public void clearCoreCacheKey(Object coreKey) {
+    lock.lock();
+    try {
+      final LeafCache leafCache = cache.remove(coreKey);
+      if (leafCache != null) {
+        ramBytesUsed -= HASHTABLE_RAM_BYTES_PER_ENTRY + leafCache.ramBytesUsed;
+        cacheSize -= leafCache.cache.size();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Remove all cache entries for the given query.
+   */
+  public void clearQuery(Query query) {
+    lock.lock();
+    try {
+      final Query singleton = mostRecentlyUsedQueries.remove(QueryCache.cacheKey(query));
+      if (singleton != null) {
+        onEviction(singleton);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Clear the content of this cache.
+   */
+  public void clear() {
+    lock.lock();
+    try {
+      drainReadBuffers();
+      cache.clear();
+      uniqueQueries.clear();
+      mostRecentlyUsedQueries.clear();
+      ramBytesUsed = 0;
+      cacheSize = 0;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // pkg-private for testing
+  void assertConsistent() {
+    lock.lock();
+    try {
+      if (requiresEviction()) {
+        throw new AssertionError("requires evictions: size=" + mostRecentlyUsedQueries.size()
+            + ", maxSize=" + maxSize + ", ramBytesUsed=" + ramBytesUsed() + ", maxRamBytesUsed=" + maxRamBytesUsed);
+      }
+      if (uniqueQueries.keySet().equals(mostRecentlyUsedQueries.keySet()) == false) {
+        throw new AssertionError("LRU ordering and lookup table are out of sync: "
+            + mostRecentlyUsedQueries.keySet() + " != " + uniqueQueries.keySet());
+      }
+      for (LeafCache leafCache : cache.values()) {
+        for (Query query : leafCache.cache.keySet()) {
+          if (uniqueQueries.get(query) != query) {
+            throw new AssertionError("One leaf cache contains a key that the top-level cache does not have: " + query);
+          }
+        }
+      }
+      long recomputedRamBytesUsed =
+            HASHTABLE_RAM_BYTES_PER_ENTRY * cache.size()
+          + (LINKED_HASHTABLE_RAM_BYTES_PER_ENTRY + HASHTABLE_RAM_BYTES_PER_ENTRY) * uniqueQueries.size();
+      for (Query query : mostRecentlyUsedQueries.keySet()) {
+        recomputedRamBytesUsed += ramBytesUsed(query);
+      }
+      long recomputedCacheSize = 0;
+      for (LeafCache leafCache : cache.values()) {
+        recomputedRamBytesUsed += HASHTABLE_RAM_BYTES_PER_ENTRY * leafCache.cache.size();
+        for (DocIdSet set : leafCache.cache.values()) {
+          recomputedRamBytesUsed += set.ramBytesUsed();
+        }
+        recomputedCacheSize += leafCache.cache.size();
+      }
+      if (recomputedRamBytesUsed != ramBytesUsed) {
+        throw new AssertionError("ramBytesUsed mismatch : " + ramBytesUsed + " != " + recomputedRamBytesUsed);
+      }
+      if (recomputedCacheSize != getCacheSize()) {
+        throw new AssertionError("cacheSize mismatch : " + getCacheSize() + " != " + recomputedCacheSize);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  // pkg-private for testing
+  // return the list of cached queries in LRU order
+  List<Query> cachedQueries() {
+    lock.lock();
+    try {
+      drainReadBuffers();
+      return new ArrayList<>(mostRecentlyUsedQueries.keySet());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public Weight doCache(Weight weight, QueryCachingPolicy policy) {
+    while (weight instanceof CachingWrapperWeight) {
+      weight = ((CachingWrapperWeight) weight).in;
+    }
+
+    return new CachingWrapperWeight(weight, policy) {
+
+      @Override
+      DocIdSet get(Query query, LeafReaderContext context) {
+        return ConcurrentQueryCache.this.get(query, context);
+      }
+
+      @Override
+      void putIfAbsent(Query query, LeafReaderContext context, DocIdSet set) {
+        ConcurrentQueryCache.this.putIfAbsent(query, context, set);
+      }
+
+      @Override
+      DocIdSet cacheImpl(DocIdSetIterator iterator, LeafReader reader) throws IOException {
+        return ConcurrentQueryCache.this.cacheImpl(iterator, reader);
+      }
+
+    };
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return ramBytesUsed;
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    lock.lock();
+    try {
+      return Accountables.namedAccountables("segment", cache);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Return the number of bytes used by the given query. The default
+   * implementation returns {@link Accountable#ramBytesUsed()} if the query
+   * implements {@link Accountable} and <code>1024</code> otherwise.
+   */
+  protected long ramBytesUsed(Query query) {
+    if (query instanceof Accountable) {
+      return ((Accountable) query).ramBytesUsed();
+    }
+    return QUERY_DEFAULT_RAM_BYTES_USED;
+  }
+
+  /**
+   * Default cache implementation: uses {@link RoaringDocIdSet}.
+   */
+  protected DocIdSet cacheImpl(DocIdSetIterator iterator, LeafReader reader) throws IOException {
+    return new RoaringDocIdSet.Builder(reader.maxDoc()).add(iterator).build();
+  }
+
+  /**
+   * Return the total number of times that a {@link Query} has been looked up
+   * in this {@link QueryCache}.
+   * @see LRUQueryCache#getTotalCount()
+   */
+  public final long getTotalCount() {
+    return getHitCount() + getMissCount();
+  }
+
+  /**
+   * Over the {@link #getTotalCount() total} number of times that a query has
+   * been looked up, return how many times a cached {@link DocIdSet} has been
+   * found and returned.
+   */
+  public final long getHitCount() {
+    return hitCount.sum();
+  }
+
+  /**
+   * Over the {@link #getTotalCount() total} number of times that a query has
+   * been looked up, return how many times this query was not contained in the
+   * cache.
+   */
+  public final long getMissCount() {
+    return missCount.sum();
+  }
+
+  /**
+   * Return the total number of {@link DocIdSet}s which are currently stored
+   * in the cache.
+   */
+  public final long getCacheSize() {
+    return cacheSize;
+  }
+
+  /**
+   * Return the total number of cache entries that have been generated and put
+   * in the cache.
+   */
+  public final long getCacheCount() {
+    return cacheCount;
+  }
+
+  /**
+   * Return the number of cache entries that have been removed from the cache
+   * either in order to stay under the maximum configured size/ram usage, or
+   * because a segment has been closed.
+   */
+  public final long getEvictionCount() {
+    return getCacheCount() - getCacheSize();
+  }
+
+  /**
+   * A lossy, bounded, multiple-producers single-consumer ring buffer of
+   * queries that have been hit. Producers never block: if the buffer is full
+   * then the hit is simply not recorded.
+   */
+  private static final class ReadBuffer {
+
+    private final AtomicReferenceArray<Query> buffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    private final AtomicLong writeCounter = new AtomicLong();
+    // only modified by the thread that holds the lock
+    private volatile long readCounter;
+
+    /** Record a hit, returns true if the buffer should be drained. */
+    boolean offer(Query query) {
+      final long head = readCounter;
+      final long tail = writeCounter.get();
+      final long size = tail - head;
+      if (size >= READ_BUFFER_SIZE) {
+        return true;
+      }
+      if (writeCounter.compareAndSet(tail, tail + 1)) {
+        buffer.lazySet((int) (tail & (READ_BUFFER_SIZE - 1)), query);
+        return size + 1 >= READ_BUFFER_SIZE;
+      }
+      // contention on this buffer, drop the hit
+      return false;
+    }
+
+    /** Move recorded queries to the most-recently-used position. */
+    void drainTo(Map<Query, Query> mostRecentlyUsedQueries) {
+      long head = readCounter;
+      final long tail = writeCounter.get();
+      for (; head < tail; ++head) {
+        final int index = (int) (head & (READ_BUFFER_SIZE - 1));
+        final Query query = buffer.get(index);
+        if (query == null) {
+          // the producer has not published its entry yet
+          break;
+        }
+        buffer.lazySet(index, null);
+        // this get call moves the query to the most-recently-used position,
+        // it is a no-op if the query has been evicted in the meantime
+        mostRecentlyUsedQueries.get(query);
+      }
+      readCounter = head;
+    }
+
+  }
+
+  // reads are lock-free, everything else needs to be called under the lock
+  private class LeafCache implements Accountable {
+
+    private final Object key;
+    private final Map<Query, DocIdSet> cache;
+    private volatile long ramBytesUsed;
+
+    LeafCache(Object key) {
+      this.key = key;
+      cache = new ConcurrentHashMap<>();
+      ramBytesUsed = 0;
+    }
+
+    void putIfAbsent(Query query, DocIdSet set) {
+      assert query == QueryCache.cacheKey(query);
+      if (cache.putIfAbsent(query, set) == null) {
+        // the set was actually put
+        final long setRamBytesUsed = HASHTABLE_RAM_BYTES_PER_ENTRY + set.ramBytesUsed();
+        this.ramBytesUsed += setRamBytesUsed;
+        ConcurrentQueryCache.this.ramBytesUsed += setRamBytesUsed;
+        cacheSize += 1;
+        cacheCount += 1;
+      }
+    }
+
+    void remove(Query query) {
+      assert query == QueryCache.cacheKey(query);
+      final DocIdSet removed = cache.remove(query);
+      if (removed != null) {
+        final long setRamBytesUsed = HASHTABLE_RAM_BYTES_PER_ENTRY + removed.ramBytesUsed();
+        this.ramBytesUsed -= setRamBytesUsed;
+        ConcurrentQueryCache.this.ramBytesUsed -= setRamBytesUsed;
+        cacheSize -= 1;
+      }
+    }
+
+    @Override
+    public long ramBytesUsed() {
+      return ramBytesUsed;
+    }
+
+    @Override
+    public String toString() {
+      return "LeafCache(" + key + ")";
+    }
+
+  }
+}
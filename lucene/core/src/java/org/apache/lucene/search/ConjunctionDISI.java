@@ -59,8 +59,18 @@ public class ConjunctionDISI extends DocIdSetIterator {
     }
   }
 
+  /** Number of candidates between two checks of the order of the non-leading
+   *  iterators and of two-phase verifications. */
+  static final int REORDER_INTERVAL = 128;
+
   final DocIdSetIterator lead;
   final DocIdSetIterator[] others;
+  // per non-leading iterator, how many times it was advanced and how many
+  // times it rejected the candidate: the iterators that reject the most
+  // candidates are checked first
+  private final long[] attempts;
+  private final long[] rejections;
+  private int candidatesUntilReorder = REORDER_INTERVAL;
 
   ConjunctionDISI(List<? extends DocIdSetIterator> iterators) {
     // Sort the array the first time to allow the least frequent DocsEnum to
@@ -73,6 +83,8 @@ public class ConjunctionDISI extends DocIdSetIterator {
     });
     lead = iterators.get(0);
     others = iterators.subList(1, iterators.size()).toArray(new DocIdSetIterator[0]);
+    attempts = new long[others.length];
+    rejections = new long[others.length];
   }
 
   protected boolean matches() throws IOException {
@@ -83,6 +95,37 @@ public class ConjunctionDISI extends DocIdSetIterator {
     return null;
   }
 
+  /** Smoothed ratio of candidates that the i-th non-leading iterator rejected. */
+  private double rejectionRate(int i) {
+    return (rejections[i] + 1d) / (attempts[i] + 2d);
+  }
+
+  /** Move the non-leading iterators that reject the most candidates first.
+   *  This is always safe since all non-leading iterators are either on or
+   *  before the current candidate. */
+  private void reorderOthers() {
+    for (int i = 1; i < others.length; ++i) {
+      final DocIdSetIterator other = others[i];
+      final long att = attempts[i], rej = rejections[i];
+      final double rate = rejectionRate(i);
+      int j = i - 1;
+      for (; j >= 0 && rejectionRate(j) < rate; --j) {
+        others[j + 1] = others[j];
+        attempts[j + 1] = attempts[j];
+        rejections[j + 1] = rejections[j];
+      }
+      others[j + 1] = other;
+      attempts[j + 1] = att;
+      rejections[j + 1] = rej;
+    }
+    // decay statistics so that the order can follow changes in the
+    // distribution of matches across the doc id space
+    for (int i = 0; i < others.length; ++i) {
+      attempts[i] >>>= 1;
+      rejections[i] >>>= 1;
+    }
+  }
+
   private int doNext(int doc) throws IOException {
     for(;;) {
 
@@ -91,16 +134,24 @@ public class ConjunctionDISI extends DocIdSetIterator {
         return NO_MORE_DOCS;
       }
 
+      if (--candidatesUntilReorder == 0) {
+        reorderOthers();
+        candidatesUntilReorder = REORDER_INTERVAL;
+      }
+
       advanceHead: for(;;) {
-        for (DocIdSetIterator other : others) {
+        for (int i = 0; i < others.length; ++i) {
+          final DocIdSetIterator other = others[i];
           // invariant: docsAndFreqs[i].doc <= doc at this point.
 
           // docsAndFreqs[i].doc may already be equal to doc if we "broke advanceHead"
           // on the previous iteration and the advance on the lead scorer exactly matched.
           if (other.docID() < doc) {
+            attempts[i]++;
             final int next = other.advance(doc);
 
             if (next > doc) {
+              rejections[i]++;
               // DocsEnum beyond the current doc - break and advance lead to the new highest doc.
               doc = lead.advance(next);
               break advanceHead;
@@ -141,27 +192,94 @@ public class ConjunctionDISI extends DocIdSetIterator {
 
   /**
    * {@link TwoPhaseIterator} view of a {@link TwoPhase} conjunction.
+   * Verifications start with the iterators that have the lowest
+   * {@link TwoPhaseIterator#matchCost() match cost}, and the order is then
+   * periodically refined in order to minimize the expected cost of rejecting
+   * a candidate, ie. the cost of a verification divided by the rate of
+   * candidates that it rejects.
    */
   private static class TwoPhaseConjunctionDISI extends TwoPhaseIterator {
 
     private final TwoPhaseIterator[] twoPhaseIterators;
+    private final float[] matchCosts;
+    private final long[] checks;
+    private final long[] rejections;
+    private final float matchCost;
+    private int checksUntilReorder = REORDER_INTERVAL;
 
     private TwoPhaseConjunctionDISI(List<? extends DocIdSetIterator> iterators, List<TwoPhaseIterator> twoPhaseIterators) {
       super(new ConjunctionDISI(iterators));
       assert twoPhaseIterators.size() > 0;
-      this.twoPhaseIterators = twoPhaseIterators.toArray(new TwoPhaseIterator[twoPhaseIterators.size()]);
+      final List<TwoPhaseIterator> sorted = new ArrayList<>(twoPhaseIterators);
+      CollectionUtil.timSort(sorted, new Comparator<TwoPhaseIterator>() {
+        @Override
+        public int compare(TwoPhaseIterator o1, TwoPhaseIterator o2) {
+          return Float.compare(o1.matchCost(), o2.matchCost());
+        }
+      });
+      this.twoPhaseIterators = sorted.toArray(new TwoPhaseIterator[sorted.size()]);
+      matchCosts = new float[this.twoPhaseIterators.length];
+      float totalMatchCost = 0;
+      for (int i = 0; i < matchCosts.length; ++i) {
+        matchCosts[i] = this.twoPhaseIterators[i].matchCost();
+        totalMatchCost += matchCosts[i];
+      }
+      matchCost = totalMatchCost;
+      checks = new long[matchCosts.length];
+      rejections = new long[matchCosts.length];
+    }
+
+    /** Expected cost of finding out that the i-th iterator rejects a candidate. */
+    private double rejectionCost(int i) {
+      final double rejectionRate = (rejections[i] + 1d) / (checks[i] + 2d);
+      return matchCosts[i] / rejectionRate;
+    }
+
+    private void reorder() {
+      for (int i = 1; i < twoPhaseIterators.length; ++i) {
+        final TwoPhaseIterator it = twoPhaseIterators[i];
+        final float cost = matchCosts[i];
+        final long chk = checks[i], rej = rejections[i];
+        final double rejectionCost = rejectionCost(i);
+        int j = i - 1;
+        for (; j >= 0 && rejectionCost(j) > rejectionCost; --j) {
+          twoPhaseIterators[j + 1] = twoPhaseIterators[j];
+          matchCosts[j + 1] = matchCosts[j];
+          checks[j + 1] = checks[j];
+          rejections[j + 1] = rejections[j];
+        }
+        twoPhaseIterators[j + 1] = it;
+        matchCosts[j + 1] = cost;
+        checks[j + 1] = chk;
+        rejections[j + 1] = rej;
+      }
+      for (int i = 0; i < checks.length; ++i) {
+        checks[i] >>>= 1;
+        rejections[i] >>>= 1;
+      }
     }
 
     @Override
     public boolean matches() throws IOException {
-      for (TwoPhaseIterator twoPhaseIterator : twoPhaseIterators) {
-        if (twoPhaseIterator.matches() == false) {
+      if (--checksUntilReorder == 0) {
+        reorder();
+        checksUntilReorder = REORDER_INTERVAL;
+      }
+      for (int i = 0; i < twoPhaseIterators.length; ++i) {
+        checks[i]++;
+        if (twoPhaseIterators[i].matches() == false) {
+          rejections[i]++;
           return false;
         }
       }
       return true;
     }
 
+    @Override
+    public float matchCost() {
+      return matchCost;
+    }
+
   }
 
   /**
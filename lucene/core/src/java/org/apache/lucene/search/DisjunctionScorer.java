@@ -119,11 +119,29 @@ abstract class DisjunctionScorer extends Scorer {
       return null;
     }
 
+    // the expected cost to verify a match is the average match cost of the
+    // sub scorers, weighted by their cost
+    float sumMatchCost = 0;
+    long sumApproxCost = 0;
+    for (ScorerWrapper w : subScorers) {
+      if (w.twoPhaseView != null) {
+        final long costWeight = Math.max(1, w.cost);
+        sumMatchCost += w.twoPhaseView.matchCost() * costWeight;
+        sumApproxCost += costWeight;
+      }
+    }
+    final float matchCost = sumMatchCost / sumApproxCost;
+
     // note it is important to share the same pq as this scorer so that
     // rebalancing the pq through the approximation will also rebalance
     // the pq in this scorer.
     return new TwoPhaseIterator(new DisjunctionDISIApproximation(subScorers)) {
 
+      @Override
+      public float matchCost() {
+        return matchCost;
+      }
+
       @Override
       public boolean matches() throws IOException {
         ScorerWrapper topScorers = subScorers.topList();
@@ -21,6 +21,7 @@ import java.io.IOException;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BitDocIdSet;
 import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.PagedFixedBitSet;
 
 /**
  * Base class for DocIdSet to be used with DocValues. The implementation
@@ -122,6 +123,42 @@ public abstract class DocValuesDocIdSet extends DocIdSet {
           return DocValuesDocIdSet.this.matchDoc(doc);
         }
       };
+    } else if (acceptDocs instanceof PagedFixedBitSet) {
+      // special case for live docs of segments that have deletions: skip
+      // deleted documents using the bit set rather than one by one
+      final PagedFixedBitSet liveDocs = (PagedFixedBitSet) acceptDocs;
+      return new DocIdSetIterator() {
+        private int doc = -1;
+
+        @Override
+        public int docID() {
+          return doc;
+        }
+
+        @Override
+        public int nextDoc() {
+          return advance(doc + 1);
+        }
+
+        @Override
+        public int advance(int target) {
+          for (doc = target; doc < maxDoc; doc++) {
+            doc = liveDocs.nextSetBit(doc);
+            if (doc >= maxDoc) {
+              break;
+            }
+            if (matchDoc(doc)) {
+              return doc;
+            }
+          }
+          return doc = NO_MORE_DOCS;
+        }
+
+        @Override
+        public long cost() {
+          return maxDoc;
+        }
+      };
     } else {
       // Stupid consultation of acceptDocs and matchDoc()
       return new DocIdSetIterator() {
@@ -20,10 +20,12 @@ package org.apache.lucene.search;
 import java.io.IOException;
 import java.util.Objects;
 
+import org.apache.lucene.index.BlockMinMaxNumericDocValues;
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.util.Bits;
@@ -36,6 +38,10 @@ import org.apache.lucene.util.ToStringUtils;
  * usually slow since they do not use an inverted index. However, in the
  * dense case where most documents match this query, it <b>might</b> be as
  * fast or faster than a regular {@link NumericRangeQuery}.
+ * <p>
+ * Numeric doc values that expose {@link BlockMinMaxNumericDocValues} let this
+ * query skip blocks of documents whose values are all out of the range, and
+ * match blocks whose values are all in the range without reading them.
  * @lucene.experimental
  */
 public final class DocValuesRangeQuery extends Query {
@@ -161,7 +167,14 @@ public final class DocValuesRangeQuery extends Query {
             return null;
           }
 
-          twoPhaseRange = new TwoPhaseNumericRange(values, min, max, approximation, acceptDocs);
+          final NumericDocValues singleton = DocValues.unwrapSingleton(values);
+          if (singleton instanceof BlockMinMaxNumericDocValues) {
+            // skip blocks of documents that cannot match
+            final BlockSkippingIterator blocks = new BlockSkippingIterator((BlockMinMaxNumericDocValues) singleton, min, max, context.reader().maxDoc());
+            twoPhaseRange = new TwoPhaseNumericRange(values, min, max, blocks, acceptDocs);
+          } else {
+            twoPhaseRange = new TwoPhaseNumericRange(values, min, max, approximation, acceptDocs);
+          }
 
         } else if (lowerVal instanceof BytesRef || upperVal instanceof BytesRef) {
 
@@ -199,7 +212,9 @@ public final class DocValuesRangeQuery extends Query {
             return null;
           }
 
-          twoPhaseRange = new TwoPhaseOrdRange(values, minOrd, maxOrd, approximation, acceptDocs);
+          // 2 comparisons per ordinal
+          final float matchCost = DocValuesTermsQuery.ordsMatchCost(context.reader(), field, values, acceptDocs, 2);
+          twoPhaseRange = new TwoPhaseOrdRange(values, minOrd, maxOrd, approximation, acceptDocs, matchCost);
 
         } else {
           throw new AssertionError();
@@ -216,6 +231,8 @@ public final class DocValuesRangeQuery extends Query {
     private final SortedNumericDocValues values;
     private final long min, max;
     private final Bits acceptDocs;
+    private final BlockSkippingIterator blocks;
+    private final float matchCost;
 
     TwoPhaseNumericRange(SortedNumericDocValues values, long min, long max, DocIdSetIterator approximation, Bits acceptDocs) {
       super(approximation);
@@ -223,12 +240,24 @@ public final class DocValuesRangeQuery extends Query {
       this.min = min;
       this.max = max;
       this.acceptDocs = acceptDocs;
+      this.blocks = approximation instanceof BlockSkippingIterator ? (BlockSkippingIterator) approximation : null;
+      // multi-valued documents have at least two values
+      final int valuesPerDoc = DocValues.unwrapSingleton(values) != null ? 1 : 2;
+      // setDocument, then one doc values lookup and 2 comparisons per value
+      float matchCost = DOC_VALUES_LOOKUP_COST + valuesPerDoc * (DOC_VALUES_LOOKUP_COST + 2);
+      if (acceptDocs != null) {
+        matchCost += BITS_GET_COST;
+      }
+      this.matchCost = matchCost;
     }
 
     @Override
     public boolean matches() throws IOException {
       final int doc = approximation.docID();
       if (acceptDocs == null || acceptDocs.get(doc)) {
+        if (blocks != null && blocks.allMatch()) {
+          return true;
+        }
         values.setDocument(doc);
         final int count = values.count();
         for (int i = 0; i < count; ++i) {
@@ -241,6 +270,102 @@ public final class DocValuesRangeQuery extends Query {
       return false;
     }
 
+    @Override
+    public float matchCost() {
+      return matchCost;
+    }
+
+  }
+
+  /**
+   * Approximation that iterates over all documents of the blocks whose
+   * values may intersect the range, using the block statistics of
+   * {@link BlockMinMaxNumericDocValues}.
+   */
+  private static class BlockSkippingIterator extends DocIdSetIterator {
+
+    private final BlockMinMaxNumericDocValues values;
+    private final long min, max;
+    private final int maxDoc;
+    private final int blockShift;
+    private final int numBlocks;
+    private int doc = -1;
+    private int block = -1;
+    private boolean allMatch;
+    private long cost = -1;
+
+    BlockSkippingIterator(BlockMinMaxNumericDocValues values, long min, long max, int maxDoc) {
+      this.values = values;
+      this.min = min;
+      this.max = max;
+      this.maxDoc = maxDoc;
+      this.blockShift = values.getBlockShift();
+      this.numBlocks = maxDoc == 0 ? 0 : ((maxDoc - 1) >>> blockShift) + 1;
+    }
+
+    private int blockLength(int block) {
+      return Math.min(1 << blockShift, maxDoc - (block << blockShift));
+    }
+
+    private boolean intersects(int block) {
+      return values.getDocCount(block) > 0
+          && values.getMinValue(block) <= max
+          && values.getMaxValue(block) >= min;
+    }
+
+    /** Whether all documents of the current block have a value in the range. */
+    boolean allMatch() {
+      return allMatch;
+    }
+
+    @Override
+    public int docID() {
+      return doc;
+    }
+
+    @Override
+    public int nextDoc() throws IOException {
+      return advance(doc + 1);
+    }
+
+    @Override
+    public int advance(int target) throws IOException {
+      if (target >= maxDoc) {
+        return doc = NO_MORE_DOCS;
+      }
+      int targetBlock = target >>> blockShift;
+      if (targetBlock != block) {
+        while (targetBlock < numBlocks && intersects(targetBlock) == false) {
+          ++targetBlock;
+        }
+        if (targetBlock == numBlocks) {
+          return doc = NO_MORE_DOCS;
+        }
+        if (targetBlock != target >>> blockShift) {
+          target = targetBlock << blockShift;
+        }
+        block = targetBlock;
+        allMatch = values.getMinValue(block) >= min
+            && values.getMaxValue(block) <= max
+            && values.getDocCount(block) == blockLength(block);
+      }
+      return doc = target;
+    }
+
+    @Override
+    public long cost() {
+      if (cost == -1) {
+        long numDocs = 0;
+        for (int i = 0; i < numBlocks; ++i) {
+          if (intersects(i)) {
+            numDocs += blockLength(i);
+          }
+        }
+        cost = numDocs;
+      }
+      return cost;
+    }
+
   }
 
   private static class TwoPhaseOrdRange extends TwoPhaseIterator {
@@ -248,13 +373,15 @@ public final class DocValuesRangeQuery extends Query {
     private final SortedSetDocValues values;
     private final long minOrd, maxOrd;
     private final Bits acceptDocs;
+    private final float matchCost;
 
-    TwoPhaseOrdRange(SortedSetDocValues values, long minOrd, long maxOrd, DocIdSetIterator approximation, Bits acceptDocs) {
+    TwoPhaseOrdRange(SortedSetDocValues values, long minOrd, long maxOrd, DocIdSetIterator approximation, Bits acceptDocs, float matchCost) {
       super(approximation);
       this.values = values;
       this.minOrd = minOrd;
       this.maxOrd = maxOrd;
       this.acceptDocs = acceptDocs;
+      this.matchCost = matchCost;
     }
 
     @Override
@@ -271,6 +398,11 @@ public final class DocValuesRangeQuery extends Query {
       return false;
     }
 
+    @Override
+    public float matchCost() {
+      return matchCost;
+    }
+
   }
 
   private static class RangeScorer extends Scorer {
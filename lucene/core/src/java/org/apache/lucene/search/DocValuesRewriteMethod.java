@@ -149,6 +149,7 @@ public final class DocValuesRewriteMethod extends MultiTermQuery.RewriteMethod {
             }
           } while (termsEnum.next() != null);
           
+          final float matchCost = DocValuesTermsQuery.ordsMatchCost(context.reader(), query.field, fcsi, acceptDocs, TwoPhaseIterator.BITS_GET_COST);
           final DocIdSetIterator approximation = DocIdSetIterator.all(context.reader().maxDoc());
           final TwoPhaseIterator twoPhaseIterator = new TwoPhaseIterator(approximation) {
             @Override
@@ -165,6 +166,11 @@ public final class DocValuesRewriteMethod extends MultiTermQuery.RewriteMethod {
               }
               return false;
             }
+
+            @Override
+            public float matchCost() {
+              return matchCost;
+            }
           };
           final DocIdSetIterator disi = TwoPhaseIterator.asDocIdSetIterator(twoPhaseIterator);
           return new Scorer(this) {
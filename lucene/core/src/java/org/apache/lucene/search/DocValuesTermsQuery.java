@@ -25,8 +25,10 @@ import java.util.Objects;
 
 import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Terms;
 import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
@@ -159,6 +161,7 @@ public class DocValuesTermsQuery extends Query {
           }
         }
 
+        final float matchCost = ordsMatchCost(context.reader(), field, values, acceptDocs, TwoPhaseIterator.BITS_GET_COST);
         final DocIdSetIterator approximation = DocIdSetIterator.all(context.reader().maxDoc());
         final TwoPhaseIterator twoPhaseIterator = new TwoPhaseIterator(approximation) {
           @Override
@@ -175,6 +178,11 @@ public class DocValuesTermsQuery extends Query {
             }
             return false;
           }
+
+          @Override
+          public float matchCost() {
+            return matchCost;
+          }
         };
         final DocIdSetIterator disi = TwoPhaseIterator.asDocIdSetIterator(twoPhaseIterator);
         return new Scorer(this) {
@@ -220,4 +228,38 @@ public class DocValuesTermsQuery extends Query {
     };
   }
 
+  /** Returns the expected cost of verifying a document by iterating over its
+   *  ordinals in {@code values} and running an operation that costs
+   *  {@code ordCost} on each of them, after checking {@code acceptDocs} if it
+   *  is not null. */
+  static float ordsMatchCost(LeafReader reader, String field, SortedSetDocValues values,
+      Bits acceptDocs, float ordCost) throws IOException {
+    final float ordsPerDoc = expectedOrdsPerDoc(reader, field, values);
+    float matchCost = TwoPhaseIterator.DOC_VALUES_LOOKUP_COST; // setDocument
+    matchCost += ordsPerDoc * (TwoPhaseIterator.DOC_VALUES_LOOKUP_COST + ordCost);
+    if (acceptDocs != null) {
+      matchCost += TwoPhaseIterator.BITS_GET_COST;
+    }
+    return matchCost;
+  }
+
+  /** Returns the expected number of ordinals of a document that has a value
+   *  for {@code field}. */
+  private static float expectedOrdsPerDoc(LeafReader reader, String field, SortedSetDocValues values) throws IOException {
+    if (DocValues.unwrapSingleton(values) != null) {
+      return 1;
+    }
+    // if the field is indexed too, postings know how many terms documents have on average
+    final Terms terms = reader.terms(field);
+    if (terms != null) {
+      final long sumDocFreq = terms.getSumDocFreq();
+      final int docCount = terms.getDocCount();
+      if (sumDocFreq > 0 && docCount > 0) {
+        return (float) sumDocFreq / docCount;
+      }
+    }
+    // multi-valued documents have at least two values, but never more than the number of unique values
+    return Math.max(1, Math.min(2, values.getValueCount()));
+  }
+
 }
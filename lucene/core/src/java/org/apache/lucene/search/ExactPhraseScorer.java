@@ -44,12 +44,15 @@ final class ExactPhraseScorer extends Scorer {
 
   private final Similarity.SimScorer docScorer;
   private final boolean needsScores;
+  private final float matchCost;
 
   ExactPhraseScorer(Weight weight, PhraseQuery.PostingsAndFreq[] postings,
-                    Similarity.SimScorer docScorer, boolean needsScores) throws IOException {
+                    Similarity.SimScorer docScorer, boolean needsScores,
+                    float matchCost) throws IOException {
     super(weight);
     this.docScorer = docScorer;
     this.needsScores = needsScores;
+    this.matchCost = matchCost;
 
     List<DocIdSetIterator> iterators = new ArrayList<>();
     List<PostingsAndPosition> postingsAndPositions = new ArrayList<>();
@@ -68,6 +71,11 @@ final class ExactPhraseScorer extends Scorer {
       public boolean matches() throws IOException {
         return phraseFreq() > 0;
       }
+
+      @Override
+      public float matchCost() {
+        return matchCost;
+      }
     };
   }
 
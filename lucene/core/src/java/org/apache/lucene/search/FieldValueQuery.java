@@ -85,6 +85,12 @@ public final class FieldValueQuery extends Query {
             return true;
           }
 
+          @Override
+          public float matchCost() {
+            // one lookup in docsWithField, plus one in acceptDocs if not null
+            return acceptDocs == null ? BITS_GET_COST : 2 * BITS_GET_COST;
+          }
+
         };
         final DocIdSetIterator disi = TwoPhaseIterator.asDocIdSetIterator(twoPhaseIterator);
 
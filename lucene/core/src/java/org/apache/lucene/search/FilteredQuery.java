@@ -222,6 +222,11 @@ public class FilteredQuery extends Query {
             // check the approximation matches first, then check bits last.
             return inner.matches() && filterBits.get(scorer.docID());
           }
+
+          @Override
+          public float matchCost() {
+            return inner.matchCost() + BITS_GET_COST;
+          }
         };
       } else {
         // scorer doesnt have an approximation, just use it, to force bits applied last.
@@ -230,6 +235,11 @@ public class FilteredQuery extends Query {
           public boolean matches() throws IOException {
             return filterBits.get(scorer.docID());
           }
+
+          @Override
+          public float matchCost() {
+            return BITS_GET_COST;
+          }
         };
       }
     }
@@ -0,0 +1,137 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.util.BytesRef;
+
+/**
+ * Helper for {@link TopFieldCollector}s that share the bottom of their
+ * queues: it publishes the bottom of one collector if it sorts before the
+ * current global bottom, and checks whether hits sort before the global
+ * bottom. A hit that does not cannot make it to the merged top hits since
+ * another collector already has enough better hits.
+ * <p>Hits are compared by sort values first and then by doc ID, which matches
+ * how {@link TopDocs#merge(Sort, int, TopFieldDocs[])} breaks ties as long as
+ * collectors are given ordered slices of the index.
+ */
+final class GlobalBottomChecker {
+
+  private final AtomicReference<FieldDoc> globalBottom;
+  // comparators whose top value is the global bottom
+  private final FieldComparator<?>[] comparators;
+  private final int[] reverseMul;
+
+  private LeafReaderContext context;
+  private LeafFieldComparator[] leafComparators;
+  // the global bottom that the comparators have been configured with
+  private FieldDoc bottom;
+
+  GlobalBottomChecker(SortField[] fields, AtomicReference<FieldDoc> globalBottom) throws IOException {
+    this.globalBottom = globalBottom;
+    comparators = new FieldComparator<?>[fields.length];
+    reverseMul = new int[fields.length];
+    for (int i = 0; i < fields.length; ++i) {
+      comparators[i] = fields[i].getComparator(1, i);
+      reverseMul[i] = fields[i].getReverse() ? -1 : 1;
+    }
+  }
+
+  void setNextReader(LeafReaderContext context) {
+    this.context = context;
+    // lazily created on the first check
+    leafComparators = null;
+  }
+
+  /** Return true if the given doc sorts before the global bottom. */
+  boolean isCompetitive(int doc) throws IOException {
+    final FieldDoc globalBottom = this.globalBottom.get();
+    if (globalBottom == null) {
+      return true;
+    }
+    if (globalBottom != bottom) {
+      for (int i = 0; i < comparators.length; ++i) {
+        @SuppressWarnings("unchecked")
+        final FieldComparator<Object> comparator = (FieldComparator<Object>) comparators[i];
+        comparator.setTopValue(globalBottom.fields[i]);
+      }
+      bottom = globalBottom;
+      // some comparators resolve the top value per segment
+      leafComparators = null;
+    }
+    if (leafComparators == null) {
+      leafComparators = new LeafFieldComparator[comparators.length];
+      for (int i = 0; i < comparators.length; ++i) {
+        leafComparators[i] = comparators[i].getLeafComparator(context);
+      }
+    }
+    for (int i = 0; i < leafComparators.length; ++i) {
+      final int cmp = reverseMul[i] * leafComparators[i].compareTop(doc);
+      if (cmp != 0) {
+        return cmp > 0;
+      }
+    }
+    return context.docBase + doc < globalBottom.doc;
+  }
+
+  /** Make the given local bottom the global bottom if it sorts before the
+   *  current global bottom. */
+  void publish(FieldDoc localBottom) {
+    FieldDoc copy = null;
+    for (;;) {
+      final FieldDoc current = globalBottom.get();
+      if (current != null && sortsBefore(localBottom, current) == false) {
+        return;
+      }
+      if (copy == null) {
+        copy = copyOf(localBottom);
+      }
+      if (globalBottom.compareAndSet(current, copy)) {
+        return;
+      }
+    }
+  }
+
+  /** Comparators may reuse {@link BytesRef}s across slots, so values need
+   *  to be copied before being read by other threads. */
+  private static FieldDoc copyOf(FieldDoc fieldDoc) {
+    final Object[] fields = fieldDoc.fields.clone();
+    for (int i = 0; i < fields.length; ++i) {
+      if (fields[i] instanceof BytesRef) {
+        fields[i] = BytesRef.deepCopyOf((BytesRef) fields[i]);
+      }
+    }
+    return new FieldDoc(fieldDoc.doc, fieldDoc.score, fields);
+  }
+
+  private boolean sortsBefore(FieldDoc a, FieldDoc b) {
+    for (int i = 0; i < comparators.length; ++i) {
+      @SuppressWarnings("unchecked")
+      final FieldComparator<Object> comparator = (FieldComparator<Object>) comparators[i];
+      final int cmp = reverseMul[i] * comparator.compareValues(a.fields[i], b.fields[i]);
+      if (cmp != 0) {
+        return cmp < 0;
+      }
+    }
+    return a.doc < b.doc;
+  }
+
+}
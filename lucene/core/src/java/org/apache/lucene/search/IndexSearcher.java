@@ -227,6 +227,7 @@ public class IndexSearcher {
    * Expert: Creates an array of leaf slices each holding a subset of the given leaves.
    * Each {@link LeafSlice} is executed in a single thread. By default there
    * will be one {@link LeafSlice} per leaf ({@link org.apache.lucene.index.LeafReaderContext}).
+   * @see #slices(List, int, int)
    */
   protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
     LeafSlice[] slices = new LeafSlice[leaves.size()];
@@ -236,6 +237,62 @@ public class IndexSearcher {
     return slices;
   }
 
+  /**
+   * Expert: Creates size-balanced leaf slices. Consecutive small leaves are
+   * grouped together until a slice holds more than {@code maxDocsPerSlice}
+   * documents or {@code maxSegmentsPerSlice} leaves, while leaves that have
+   * more than {@code maxDocsPerSlice} documents are split into several slices
+   * that each cover a range of doc IDs of that leaf.
+   * <p>Slices are returned in doc ID order so that merging their results
+   * breaks ties the same way as a sequential search would. This method is
+   * meant to be used from {@link #slices(List)} overrides, ideally with a
+   * work-stealing executor such as a {@link java.util.concurrent.ForkJoinPool}
+   * and more slices than threads, so that idle threads can pick up the
+   * remaining slices of a large segment.
+   * @lucene.experimental
+   */
+  public static LeafSlice[] slices(List<LeafReaderContext> leaves, int maxDocsPerSlice, int maxSegmentsPerSlice) {
+    if (maxDocsPerSlice < 1) {
+      throw new IllegalArgumentException("maxDocsPerSlice must be >= 1, got " + maxDocsPerSlice);
+    }
+    if (maxSegmentsPerSlice < 1) {
+      throw new IllegalArgumentException("maxSegmentsPerSlice must be >= 1, got " + maxSegmentsPerSlice);
+    }
+    final List<LeafSlice> slices = new ArrayList<>();
+    final List<LeafReaderContext> group = new ArrayList<>();
+    long groupDocs = 0;
+    for (LeafReaderContext ctx : leaves) {
+      final int maxDoc = ctx.reader().maxDoc();
+      if (maxDoc > maxDocsPerSlice) {
+        if (group.isEmpty() == false) {
+          slices.add(new LeafSlice(group.toArray(new LeafReaderContext[group.size()])));
+          group.clear();
+          groupDocs = 0;
+        }
+        // split into ranges of equal size rather than filling all ranges but the last one
+        final int numRanges = (int) ((maxDoc + (long) maxDocsPerSlice - 1) / maxDocsPerSlice);
+        for (int i = 0; i < numRanges; ++i) {
+          final int minDoc = (int) ((long) maxDoc * i / numRanges);
+          final int endDoc = (int) ((long) maxDoc * (i + 1) / numRanges);
+          slices.add(new LeafSlice(ctx, minDoc, endDoc));
+        }
+        continue;
+      }
+      if (group.isEmpty() == false
+          && (groupDocs + maxDoc > maxDocsPerSlice || group.size() >= maxSegmentsPerSlice)) {
+        slices.add(new LeafSlice(group.toArray(new LeafReaderContext[group.size()])));
+        group.clear();
+        groupDocs = 0;
+      }
+      group.add(ctx);
+      groupDocs += maxDoc;
+    }
+    if (group.isEmpty() == false) {
+      slices.add(new LeafSlice(group.toArray(new LeafReaderContext[group.size()])));
+    }
+    return slices.toArray(new LeafSlice[slices.size()]);
+  }
+
   
   /** Return the {@link IndexReader} this searches. */
   public IndexReader getIndexReader() {
@@ -448,25 +505,10 @@ public class IndexSearcher {
     }
     final int cappedNumHits = Math.min(numHits, limit);
 
-    final CollectorManager<TopFieldCollector, TopFieldDocs> manager = new CollectorManager<TopFieldCollector, TopFieldDocs>() {
-
-      @Override
-      public TopFieldCollector newCollector() throws IOException {
-        final boolean fillFields = true;
-        return TopFieldCollector.create(sort, cappedNumHits, after, fillFields, doDocScores, doMaxScore);
-      }
-
-      @Override
-      public TopFieldDocs reduce(Collection<TopFieldCollector> collectors) throws IOException {
-        final TopFieldDocs[] topDocs = new TopFieldDocs[collectors.size()];
-        int i = 0;
-        for (TopFieldCollector collector : collectors) {
-          topDocs[i++] = collector.topDocs();
-        }
-        return TopDocs.merge(sort, cappedNumHits, topDocs);
-      }
-
-    };
+    // sharing the bottom of the queues only helps if there are several slices
+    final boolean supportsConcurrency = executor != null && leafSlices.length > 1;
+    final CollectorManager<TopFieldCollector, TopFieldDocs> manager =
+        new TopFieldCollectorManager(sort, cappedNumHits, after, doDocScores, doMaxScore, true, supportsConcurrency);
 
     return search(query, manager);
   }
@@ -497,12 +539,18 @@ public class IndexSearcher {
       final Weight weight = createNormalizedWeight(query, needsScores);
       final List<Future<C>> topDocsFutures = new ArrayList<>(leafSlices.length);
       for (int i = 0; i < leafSlices.length; ++i) {
-        final LeafReaderContext[] leaves = leafSlices[i].leaves;
+        final LeafSlice slice = leafSlices[i];
         final C collector = collectors.get(i);
         topDocsFutures.add(executor.submit(new Callable<C>() {
           @Override
           public C call() throws Exception {
-            search(Arrays.asList(leaves), weight, collector);
+            if (slice.minDocs == null) {
+              search(Arrays.asList(slice.leaves), weight, collector);
+            } else {
+              for (int j = 0; j < slice.leaves.length; ++j) {
+                search(slice.leaves[j], slice.minDocs[j], slice.maxDocs[j], weight, collector);
+              }
+            }
             return collector;
           }
         }));
@@ -569,6 +617,44 @@ public class IndexSearcher {
     }
   }
 
+  /**
+   * Lower-level search API.
+   * <p>
+   * Same as {@link #search(List, Weight, Collector)} but only collects documents
+   * of {@code ctx} that are between {@code minDoc} included and {@code maxDoc}
+   * excluded. This is used to search a single leaf from several threads.
+   *
+   * @param ctx
+   *          the leaf to execute the search on
+   * @param minDoc
+   *          first doc ID of the range, inclusive
+   * @param maxDoc
+   *          last doc ID of the range, exclusive
+   * @param weight
+   *          to match documents
+   * @param collector
+   *          to receive hits
+   * @lucene.experimental
+   */
+  protected void search(LeafReaderContext ctx, int minDoc, int maxDoc, Weight weight, Collector collector)
+      throws IOException {
+    final LeafCollector leafCollector;
+    try {
+      leafCollector = collector.getLeafCollector(ctx);
+    } catch (CollectionTerminatedException e) {
+      // there is no doc of interest in this reader context
+      return;
+    }
+    BulkScorer scorer = weight.bulkScorer(ctx, ctx.reader().getLiveDocs());
+    if (scorer != null) {
+      try {
+        scorer.score(leafCollector, minDoc, maxDoc);
+      } catch (CollectionTerminatedException e) {
+        // collection was terminated prematurely
+      }
+    }
+  }
+
   /** Expert: called to re-write queries into primitive queries.
    * @throws BooleanQuery.TooManyClauses If a query would exceed 
    *         {@link BooleanQuery#getMaxClauseCount()} clauses.
@@ -664,9 +750,25 @@ public class IndexSearcher {
    */
   public static class LeafSlice {
     final LeafReaderContext[] leaves;
+    // doc ID ranges to search in each leaf, or null to search leaves entirely
+    final int[] minDocs, maxDocs;
     
     public LeafSlice(LeafReaderContext... leaves) {
       this.leaves = leaves;
+      this.minDocs = null;
+      this.maxDocs = null;
+    }
+
+    /** Create a slice that only covers doc IDs of {@code leaf} that are
+     *  between {@code minDoc} included and {@code maxDoc} excluded. */
+    public LeafSlice(LeafReaderContext leaf, int minDoc, int maxDoc) {
+      if (minDoc < 0 || minDoc > maxDoc || maxDoc > leaf.reader().maxDoc()) {
+        throw new IllegalArgumentException("Invalid doc ID range: [" + minDoc + "-" + maxDoc
+            + "), maxDoc=" + leaf.reader().maxDoc());
+      }
+      this.leaves = new LeafReaderContext[] { leaf };
+      this.minDocs = new int[] { minDoc };
+      this.maxDocs = new int[] { maxDoc };
     }
   }
 
@@ -34,7 +34,8 @@ import org.apache.lucene.index.LeafReader.CoreClosedListener;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.util.Accountable;
 import org.apache.lucene.util.Accountables;
-import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BitDocIdSet;
+import org.apache.lucene.util.DirectBitSet;
 import org.apache.lucene.util.RamUsageEstimator;
 import org.apache.lucene.util.RoaringDocIdSet;
 
@@ -99,6 +100,7 @@ public class LRUQueryCache implements QueryCache, Accountable {
 
   private final int maxSize;
   private final long maxRamBytesUsed;
+  private final boolean offHeap;
   // maps queries that are contained in the cache to a singleton so that this
   // cache does not store several copies of the same query
   private final Map<Query, Query> uniqueQueries;
@@ -121,8 +123,21 @@ public class LRUQueryCache implements QueryCache, Accountable {
    * with at most <code>maxRamBytesUsed</code> bytes of memory.
    */
   public LRUQueryCache(int maxSize, long maxRamBytesUsed) {
+    this(maxSize, maxRamBytesUsed, false);
+  }
+
+  /**
+   * Expert: create a new instance that will cache at most <code>maxSize</code>
+   * queries with at most <code>maxRamBytesUsed</code> bytes of memory. If
+   * <code>offHeap</code> is true then dense sets of documents are stored in
+   * {@link DirectBitSet}s, outside of the Java heap. Note that off-heap memory
+   * still counts towards <code>maxRamBytesUsed</code>.
+   * @see #cacheImpl(DocIdSetIterator, LeafReader)
+   */
+  public LRUQueryCache(int maxSize, long maxRamBytesUsed, boolean offHeap) {
     this.maxSize = maxSize;
     this.maxRamBytesUsed = maxRamBytesUsed;
+    this.offHeap = offHeap;
     uniqueQueries = new LinkedHashMap<>(16, 0.75f, true);
     mostRecentlyUsedQueries = uniqueQueries.keySet();
     cache = new IdentityHashMap<>();
@@ -377,7 +392,7 @@ public class LRUQueryCache implements QueryCache, Accountable {
       weight = ((CachingWrapperWeight) weight).in;
     }
 
-    return new CachingWrapperWeight(weight, policy);
+    return new LRUCachingWrapperWeight(weight, policy);
   }
 
   @Override
@@ -405,10 +420,20 @@ public class LRUQueryCache implements QueryCache, Accountable {
   }
 
   /**
-   * Default cache implementation: uses {@link RoaringDocIdSet}.
+   * Default cache implementation: uses {@link RoaringDocIdSet}, or a
+   * {@link DirectBitSet} for dense sets if this cache has been configured to
+   * store entries off-heap.
    */
   protected DocIdSet cacheImpl(DocIdSetIterator iterator, LeafReader reader) throws IOException {
-    return new RoaringDocIdSet.Builder(reader.maxDoc()).add(iterator).build();
+    final int maxDoc = reader.maxDoc();
+    // sparse sets are cheaper to store on-heap with a roaring set than
+    // off-heap with a bit set
+    if (offHeap && iterator.cost() >= maxDoc >>> 4) {
+      final DirectBitSet bits = new DirectBitSet(maxDoc);
+      bits.or(iterator);
+      return new BitDocIdSet(bits, bits.cardinality());
+    }
+    return new RoaringDocIdSet.Builder(maxDoc).add(iterator).build();
   }
 
   /**
@@ -535,99 +560,25 @@ public class LRUQueryCache implements QueryCache, Accountable {
 
   }
 
-  private class CachingWrapperWeight extends ConstantScoreWeight {
+  private class LRUCachingWrapperWeight extends CachingWrapperWeight {
 
-    private final Weight in;
-    private final QueryCachingPolicy policy;
-
-    CachingWrapperWeight(Weight in, QueryCachingPolicy policy) {
-      super(in.getQuery());
-      this.in = in;
-      this.policy = policy;
+    LRUCachingWrapperWeight(Weight in, QueryCachingPolicy policy) {
+      super(in, policy);
     }
 
     @Override
-    Scorer scorer(LeafReaderContext context, Bits acceptDocs, float score) throws IOException {
-      if (context.ord == 0) {
-        policy.onUse(getQuery());
-      }
-      DocIdSet docIdSet = get(in.getQuery(), context);
-      if (docIdSet == null) {
-        if (policy.shouldCache(in.getQuery(), context)) {
-          final Scorer scorer = in.scorer(context, null);
-          if (scorer == null) {
-            docIdSet = DocIdSet.EMPTY;
-          } else {
-            docIdSet = cacheImpl(scorer, context.reader());
-          }
-          putIfAbsent(in.getQuery(), context, docIdSet);
-        } else {
-          return in.scorer(context, acceptDocs);
-        }
-      }
-
-      assert docIdSet != null;
-      if (docIdSet == DocIdSet.EMPTY) {
-        return null;
-      }
-      final DocIdSetIterator approximation = docIdSet.iterator();
-      if (approximation == null) {
-        return null;
-      }
-
-      final DocIdSetIterator disi;
-      final TwoPhaseIterator twoPhaseView;
-      if (acceptDocs == null) {
-        twoPhaseView = null;
-        disi = approximation;
-      } else {
-        twoPhaseView = new TwoPhaseIterator(approximation) {
-          @Override
-          public boolean matches() throws IOException {
-            final int doc = approximation.docID();
-            return acceptDocs.get(doc);
-          }
-        };
-        disi = TwoPhaseIterator.asDocIdSetIterator(twoPhaseView);
-      }
-      return new Scorer(this) {
-
-        @Override
-        public TwoPhaseIterator asTwoPhaseIterator() {
-          return twoPhaseView;
-        }
-
-        @Override
-        public float score() throws IOException {
-          return 0f;
-        }
-
-        @Override
-        public int freq() throws IOException {
-          return 1;
-        }
-
-        @Override
-        public int docID() {
-          return disi.docID();
-        }
-
-        @Override
-        public int nextDoc() throws IOException {
-          return disi.nextDoc();
-        }
-
-        @Override
-        public int advance(int target) throws IOException {
-          return disi.advance(target);
-        }
+    DocIdSet get(Query query, LeafReaderContext context) {
+      return LRUQueryCache.this.get(query, context);
+    }
 
-        @Override
-        public long cost() {
-          return disi.cost();
-        }
+    @Override
+    void putIfAbsent(Query query, LeafReaderContext context, DocIdSet set) {
+      LRUQueryCache.this.putIfAbsent(query, context, set);
+    }
 
-      };
+    @Override
+    DocIdSet cacheImpl(DocIdSetIterator iterator, LeafReader reader) throws IOException {
+      return LRUQueryCache.this.cacheImpl(iterator, reader);
     }
 
   }
@@ -0,0 +1,207 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A {@link Scorer} for pure disjunctions that implements the MaxScore
+ * algorithm: once a {@link #setMinCompetitiveScore(float) minimum competitive
+ * score} is known, sub scorers are split into essential and non-essential
+ * clauses, non-essential clauses being the ones whose sum of
+ * {@link Scorer#maxScore() maximum scores} is less than the minimum
+ * competitive score. Only essential clauses are used to find candidate
+ * matches, and non-essential clauses are only advanced when the candidate
+ * could still be competitive. Documents that only match non-essential clauses
+ * are skipped.
+ * <p>Until a minimum competitive score is set, this scorer returns the same
+ * documents and scores as {@link BooleanScorer}.
+ */
+final class MaxScoreScorer extends Scorer {
+
+  // relative error that we add to upper bounds in order to account for
+  // floating-point rounding errors when summing up scores
+  private static final double UPPER_BOUND_ERROR = 1e-6;
+
+  /** Sub scorers, sorted by ascending max score. */
+  private final Scorer[] scorers;
+  /** maxScoreSums[i] is the sum of max scores of scorers[0..i). */
+  private final double[] maxScoreSums;
+  private final float[] coordFactors;
+  private final double maxCoordFactor;
+  private final long cost;
+
+  private float minCompetitiveScore = Float.NEGATIVE_INFINITY;
+  /** Index of the first essential scorer. */
+  private int firstEssential = 0;
+
+  private int doc = -1;
+  private int freq;
+  private float score;
+
+  MaxScoreScorer(Weight weight, List<Scorer> scorers, float[] coordFactors) {
+    super(weight);
+    if (scorers.size() + 1 != coordFactors.length) {
+      throw new IllegalArgumentException();
+    }
+    this.scorers = scorers.toArray(new Scorer[scorers.size()]);
+    final float[] maxScores = new float[this.scorers.length];
+    for (int i = 0; i < maxScores.length; ++i) {
+      maxScores[i] = this.scorers[i].maxScore();
+      if (maxScores[i] < 0 || Float.isNaN(maxScores[i])) {
+        throw new IllegalArgumentException("Invalid max score: " + maxScores[i]);
+      }
+    }
+    Arrays.sort(this.scorers, new Comparator<Scorer>() {
+      @Override
+      public int compare(Scorer o1, Scorer o2) {
+        return Float.compare(o1.maxScore(), o2.maxScore());
+      }
+    });
+    maxScoreSums = new double[this.scorers.length + 1];
+    long cost = 0;
+    for (int i = 0; i < this.scorers.length; ++i) {
+      maxScoreSums[i + 1] = maxScoreSums[i] + this.scorers[i].maxScore();
+      cost += this.scorers[i].cost();
+    }
+    this.cost = cost;
+    this.coordFactors = coordFactors;
+    float maxCoordFactor = 0;
+    for (float coordFactor : coordFactors) {
+      maxCoordFactor = Math.max(maxCoordFactor, coordFactor);
+    }
+    this.maxCoordFactor = maxCoordFactor;
+  }
+
+  /** Return whether a document whose sum of scores is at most {@code sum}
+   *  could be competitive. */
+  private boolean isCompetitive(double sum) {
+    return sum * maxCoordFactor * (1 + UPPER_BOUND_ERROR) >= minCompetitiveScore;
+  }
+
+  @Override
+  public float maxScore() {
+    return (float) (maxScoreSums[scorers.length] * maxCoordFactor * (1 + UPPER_BOUND_ERROR));
+  }
+
+  @Override
+  public void setMinCompetitiveScore(float minScore) {
+    if (minScore <= minCompetitiveScore) {
+      return;
+    }
+    minCompetitiveScore = minScore;
+    while (firstEssential < scorers.length && isCompetitive(maxScoreSums[firstEssential + 1]) == false) {
+      firstEssential++;
+    }
+  }
+
+  @Override
+  public int docID() {
+    return doc;
+  }
+
+  @Override
+  public int nextDoc() throws IOException {
+    return advance(doc + 1);
+  }
+
+  @Override
+  public int advance(int target) throws IOException {
+    for (;;) {
+      // find the next candidate among essential clauses
+      int candidate = NO_MORE_DOCS;
+      for (int i = firstEssential; i < scorers.length; ++i) {
+        final Scorer scorer = scorers[i];
+        int scorerDoc = scorer.docID();
+        if (scorerDoc < target) {
+          scorerDoc = scorer.advance(target);
+        }
+        candidate = Math.min(candidate, scorerDoc);
+      }
+      if (candidate == NO_MORE_DOCS) {
+        return doc = NO_MORE_DOCS;
+      }
+
+      double sum = 0;
+      int freq = 0;
+      for (int i = firstEssential; i < scorers.length; ++i) {
+        final Scorer scorer = scorers[i];
+        if (scorer.docID() == candidate) {
+          sum += scorer.score();
+          freq++;
+        }
+      }
+
+      // then add non-essential clauses, starting with the ones that have the
+      // highest max score, as long as the document might be competitive
+      boolean competitive = true;
+      for (int i = firstEssential - 1; i >= 0; --i) {
+        if (isCompetitive(sum + maxScoreSums[i + 1]) == false) {
+          competitive = false;
+          break;
+        }
+        final Scorer scorer = scorers[i];
+        int scorerDoc = scorer.docID();
+        if (scorerDoc < candidate) {
+          scorerDoc = scorer.advance(candidate);
+        }
+        if (scorerDoc == candidate) {
+          sum += scorer.score();
+          freq++;
+        }
+      }
+
+      if (competitive) {
+        this.freq = freq;
+        this.score = (float) sum * coordFactors[freq];
+        return doc = candidate;
+      }
+      target = candidate + 1;
+    }
+  }
+
+  @Override
+  public float score() throws IOException {
+    return score;
+  }
+
+  @Override
+  public int freq() throws IOException {
+    return freq;
+  }
+
+  @Override
+  public long cost() {
+    return cost;
+  }
+
+  @Override
+  public Collection<ChildScorer> getChildren() {
+    final List<ChildScorer> children = new ArrayList<>();
+    for (Scorer scorer : scorers) {
+      children.add(new ChildScorer(scorer, "SHOULD"));
+    }
+    return children;
+  }
+
+}
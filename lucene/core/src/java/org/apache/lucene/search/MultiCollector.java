@@ -19,6 +19,8 @@ package org.apache.lucene.search;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 
 import org.apache.lucene.index.LeafReaderContext;
 
@@ -131,8 +133,18 @@ public class MultiCollector implements Collector {
 
     @Override
     public void setScorer(Scorer scorer) throws IOException {
+      // sub collectors must not make the scorer skip hits that other sub
+      // collectors need, so they only see filter scorers, which ignore
+      // Scorer#setMinCompetitiveScore
       if (cacheScores) {
         scorer = new ScoreCachingWrappingScorer(scorer);
+      } else {
+        scorer = new FilterScorer(scorer) {
+          @Override
+          public Collection<ChildScorer> getChildren() {
+            return Collections.singleton(new ChildScorer(in, "SHARED"));
+          }
+        };
       }
       for (LeafCollector c : collectors) {
         c.setScorer(scorer);
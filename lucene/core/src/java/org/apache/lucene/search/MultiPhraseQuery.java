@@ -197,6 +197,7 @@ public class MultiPhraseQuery extends Query {
 
       // Reuse single TermsEnum below:
       final TermsEnum termsEnum = fieldTerms.iterator();
+      float totalMatchCost = 0;
 
       for (int pos=0; pos<postingsFreqs.length; pos++) {
         Term[] terms = termArrays.get(pos);
@@ -219,6 +220,7 @@ public class MultiPhraseQuery extends Query {
             }
             termsEnum.seekExact(term.bytes(), termState);
             docFreq += termsEnum.docFreq();
+            totalMatchCost += PhraseQuery.termPositionsCost(termsEnum);
           }
 
           if (docFreq == 0) {
@@ -236,6 +238,7 @@ public class MultiPhraseQuery extends Query {
           postingsEnum = termsEnum.postings(liveDocs, null, PostingsEnum.POSITIONS);
 
           docFreq = termsEnum.docFreq();
+          totalMatchCost += PhraseQuery.termPositionsCost(termsEnum);
         }
 
         postingsFreqs[pos] = new PhraseQuery.PostingsAndFreq(postingsEnum, docFreq, positions.get(pos).intValue(), terms);
@@ -247,9 +250,9 @@ public class MultiPhraseQuery extends Query {
       }
 
       if (slop == 0) {
-        return new ExactPhraseScorer(this, postingsFreqs, similarity.simScorer(stats, context), needsScores);
+        return new ExactPhraseScorer(this, postingsFreqs, similarity.simScorer(stats, context), needsScores, totalMatchCost);
       } else {
-        return new SloppyPhraseScorer(this, postingsFreqs, slop, similarity.simScorer(stats, context), needsScores);
+        return new SloppyPhraseScorer(this, postingsFreqs, slop, similarity.simScorer(stats, context), needsScores, totalMatchCost);
       }
     }
 
@@ -172,6 +172,25 @@ public class PhraseQuery extends Query {
     }
   }
 
+  /** A guess of the average number of simple operations for the initial seek
+   *  and buffer refill per document for the positions of a term. */
+  private static final int TERM_POSNS_SEEK_OPS_PER_DOC = 128;
+
+  /** Number of simple operations to read the next position of a term when no
+   *  seek or buffer refill is needed. */
+  private static final int TERM_OPS_PER_POS = 7;
+
+  /** Returns an expected cost in simple operations of processing the
+   *  occurrences of the current term of {@code termsEnum} in a document that
+   *  contains this term. */
+  static float termPositionsCost(TermsEnum termsEnum) throws IOException {
+    final int docFreq = termsEnum.docFreq();
+    assert docFreq > 0;
+    final long totalTermFreq = termsEnum.totalTermFreq(); // -1 when not available
+    final float expOccurrencesInMatchingDoc = (totalTermFreq < docFreq) ? 1 : (totalTermFreq / (float) docFreq);
+    return TERM_POSNS_SEEK_OPS_PER_DOC + expOccurrencesInMatchingDoc * TERM_OPS_PER_POS;
+  }
+
   static class PostingsAndFreq implements Comparable<PostingsAndFreq> {
     final PostingsEnum postings;
     final int docFreq;
@@ -303,6 +322,7 @@ public class PhraseQuery extends Query {
 
       // Reuse single TermsEnum below:
       final TermsEnum te = fieldTerms.iterator();
+      float totalMatchCost = 0;
       
       for (int i = 0; i < terms.size(); i++) {
         final Term t = terms.get(i);
@@ -314,6 +334,7 @@ public class PhraseQuery extends Query {
         te.seekExact(t.bytes(), state);
         PostingsEnum postingsEnum = te.postings(liveDocs, null, PostingsEnum.POSITIONS);
         postingsFreqs[i] = new PostingsAndFreq(postingsEnum, te.docFreq(), positions.get(i), t);
+        totalMatchCost += termPositionsCost(te);
       }
 
       // sort by increasing docFreq order
@@ -322,9 +343,9 @@ public class PhraseQuery extends Query {
       }
 
       if (slop == 0) {  // optimize exact case
-        return new ExactPhraseScorer(this, postingsFreqs, similarity.simScorer(stats, context), needsScores);
+        return new ExactPhraseScorer(this, postingsFreqs, similarity.simScorer(stats, context), needsScores, totalMatchCost);
       } else {
-        return new SloppyPhraseScorer(this, postingsFreqs, slop, similarity.simScorer(stats, context), needsScores);
+        return new SloppyPhraseScorer(this, postingsFreqs, slop, similarity.simScorer(stats, context), needsScores, totalMatchCost);
       }
     }
     
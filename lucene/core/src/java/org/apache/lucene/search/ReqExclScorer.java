@@ -149,6 +149,17 @@ class ReqExclScorer extends Scorer {
         return ReqExclScorer.matches(doc, exclDoc, reqTwoPhaseIterator, exclTwoPhaseIterator);
       }
 
+      @Override
+      public float matchCost() {
+        // advancing the excluded approximation is typically as expensive as a
+        // few comparisons, plus the verification of the excluded clause
+        float matchCost = reqTwoPhaseIterator.matchCost() + 10;
+        if (exclTwoPhaseIterator != null) {
+          matchCost += exclTwoPhaseIterator.matchCost();
+        }
+        return matchCost;
+      }
+
     };
   }
 }
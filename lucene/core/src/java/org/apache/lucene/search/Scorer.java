@@ -62,6 +62,29 @@ public abstract class Scorer extends DocIdSetIterator {
   /** Returns the freq of this Scorer on the current document */
   public abstract int freq() throws IOException;
 
+  /**
+   * Return an upper bound of the scores that this scorer may produce, or
+   * {@link Float#POSITIVE_INFINITY} if no such bound is known, which is
+   * the default.
+   * @see #setMinCompetitiveScore(float)
+   * @lucene.experimental
+   */
+  public float maxScore() {
+    return Float.POSITIVE_INFINITY;
+  }
+
+  /**
+   * Optional method: Tell this scorer that documents whose score is less than
+   * {@code minScore} are not competitive so that it may skip over them.
+   * This may only be called by {@link LeafCollector}s that do not need to see
+   * all matches, for instance because they do not count hits, and values
+   * must be non-decreasing. The default implementation does nothing.
+   * @see #maxScore()
+   * @lucene.experimental
+   */
+  public void setMinCompetitiveScore(float minScore) {
+  }
+
   /** returns parent Weight
    * @lucene.experimental
    */
@@ -52,12 +52,15 @@ final class SloppyPhraseScorer extends Scorer {
   
   private int numMatches;
   final boolean needsScores;
+  private final float matchCost;
   
   SloppyPhraseScorer(Weight weight, PhraseQuery.PostingsAndFreq[] postings,
-      int slop, Similarity.SimScorer docScorer, boolean needsScores) {
+      int slop, Similarity.SimScorer docScorer, boolean needsScores,
+      float matchCost) {
     super(weight);
     this.docScorer = docScorer;
     this.needsScores = needsScores;
+    this.matchCost = matchCost;
     this.slop = slop;
     this.numPostings = postings==null ? 0 : postings.length;
     pq = new PhraseQueue(postings.length);
@@ -596,6 +599,11 @@ final class SloppyPhraseScorer extends Scorer {
         sloppyFreq = phraseFreq(); // check for phrase
         return sloppyFreq != 0F;
       }
+
+      @Override
+      public float matchCost() {
+        return matchCost;
+      }
     };
   }
 }
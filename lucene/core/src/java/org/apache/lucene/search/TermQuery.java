@@ -20,6 +20,8 @@ package org.apache.lucene.search;
 import java.io.IOException;
 import java.util.Set;
 
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexReaderContext;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
@@ -85,9 +87,23 @@ public class TermQuery extends Query {
       }
       PostingsEnum docs = termsEnum.postings(acceptDocs, null, needsScores ? PostingsEnum.FREQS : PostingsEnum.NONE);
       assert docs != null;
-      return new TermScorer(this, docs, similarity.simScorer(stats, context));
+      return new TermScorer(this, docs, similarity.simScorer(stats, context), maxFreq(context.reader(), termsEnum));
     }
     
+    /** Return an upper bound of the frequency of the term in a document of the given segment. */
+    private float maxFreq(LeafReader reader, TermsEnum termsEnum) throws IOException {
+      final long totalTermFreq = termsEnum.totalTermFreq();
+      if (totalTermFreq != -1) {
+        return totalTermFreq;
+      }
+      final FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(term.field());
+      if (fieldInfo != null && fieldInfo.getIndexOptions() == IndexOptions.DOCS) {
+        // frequencies are not indexed
+        return 1;
+      }
+      return Float.POSITIVE_INFINITY;
+    }
+
     /**
      * Returns a {@link TermsEnum} positioned at this weights Term or null if
      * the term does not exist in the given context
@@ -18,6 +18,7 @@ package org.apache.lucene.search;
  */
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.FieldValueHitQueue.Entry;
@@ -136,7 +137,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
     @Override
     public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
-      docBase = context.docBase;
+      setNextReader(context);
 
       final LeafFieldComparator[] comparators = queue.getComparators(context);
       final int[] reverseMul = queue.getReverseMul();
@@ -152,6 +153,11 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
                 // since docs are visited in doc Id order, if compare is 0, it means
                 // this document is larger than anything else in the queue, and
                 // therefore not competitive.
+                maybeTerminateLeaf();
+                return;
+              }
+              if (isGloballyCompetitive(doc) == false) {
+                maybeTerminateLeaf();
                 return;
               }
 
@@ -183,6 +189,11 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
                 // since docs are visited in doc Id order, if compare is 0, it means
                 // this document is larger than anything else in the queue, and
                 // therefore not competitive.
+                maybeTerminateLeaf();
+                return;
+              }
+              if (isGloballyCompetitive(doc) == false) {
+                maybeTerminateLeaf();
                 return;
               }
 
@@ -223,7 +234,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
     @Override
     public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
-      docBase = context.docBase;
+      setNextReader(context);
 
       final LeafFieldComparator[] comparators = queue.getComparators(context);
       final int[] reverseMul = queue.getReverseMul();
@@ -239,6 +250,11 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
                 // since docs are visited in doc Id order, if compare is 0, it means
                 // this document is largest than anything else in the queue, and
                 // therefore not competitive.
+                maybeTerminateLeaf();
+                return;
+              }
+              if (isGloballyCompetitive(doc) == false) {
+                maybeTerminateLeaf();
                 return;
               }
 
@@ -276,6 +292,11 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
                 // since docs are visited in doc Id order, if compare is 0, it means
                 // this document is largest than anything else in the queue, and
                 // therefore not competitive.
+                maybeTerminateLeaf();
+                return;
+              }
+              if (isGloballyCompetitive(doc) == false) {
+                maybeTerminateLeaf();
                 return;
               }
 
@@ -323,7 +344,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
     @Override
     public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
-      docBase = context.docBase;
+      setNextReader(context);
 
       final LeafFieldComparator[] comparators = queue.getComparators(context);
       final int[] reverseMul = queue.getReverseMul();
@@ -343,6 +364,11 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
                 // since docs are visited in doc Id order, if compare is 0, it means
                 // this document is largest than anything else in the queue, and
                 // therefore not competitive.
+                maybeTerminateLeaf();
+                return;
+              }
+              if (isGloballyCompetitive(doc) == false) {
+                maybeTerminateLeaf();
                 return;
               }
 
@@ -378,6 +404,11 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
                 // since docs are visited in doc Id order, if compare is 0, it means
                 // this document is largest than anything else in the queue, and
                 // therefore not competitive.
+                maybeTerminateLeaf();
+                return;
+              }
+              if (isGloballyCompetitive(doc) == false) {
+                maybeTerminateLeaf();
                 return;
               }
 
@@ -436,7 +467,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
 
     @Override
     public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
-      docBase = context.docBase;
+      setNextReader(context);
       final int afterDoc = after.doc - docBase;
       return new MultiComparatorLeafCollector(queue.getComparators(context), queue.getReverseMul()) {
 
@@ -460,6 +491,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
             final int cmp = compareBottom(doc);
             if (cmp <= 0) {
               // not competitive since documents are visited in doc id order
+              maybeTerminateLeaf();
               return;
             }
           }
@@ -471,6 +503,11 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
           }
 
           if (queueFull) {
+            if (isGloballyCompetitive(doc) == false) {
+              maybeTerminateLeaf();
+              return;
+            }
+
             // This hit is competitive - replace bottom element in queue & adjustTop
             copy(bottom.slot, doc);
 
@@ -497,6 +534,7 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
             bottom = pq.add(new Entry(slot, docBase + doc, score));
             queueFull = collectedHits == numHits;
             if (queueFull) {
+              publishBottom();
               setBottom(bottom.slot);
             }
           }
@@ -521,6 +559,12 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
   boolean queueFull;
   int docBase;
   final boolean needsScores;
+  // non-null when the bottom of the queue is shared with other collectors
+  GlobalBottomChecker globalBottom;
+  // non-null when collection may be terminated on leaves that are sorted by this sort
+  Sort earlyTerminationSort;
+  boolean earlyTerminateLeaf;
+  boolean earlyTerminated;
 
   // Declaring the constructor private prevents extending this class by anyone
   // else. Note that the class cannot be final since it's extended by the
@@ -616,6 +660,37 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
   public static TopFieldCollector create(Sort sort, int numHits, FieldDoc after,
       boolean fillFields, boolean trackDocScores, boolean trackMaxScore)
       throws IOException {
+    return create(sort, numHits, after, fillFields, trackDocScores, trackMaxScore, true);
+  }
+
+  /**
+   * Same as {@link #create(Sort, int, FieldDoc, boolean, boolean, boolean)}
+   * but allows to not track the total number of hits. When
+   * {@code trackTotalHits} and {@code trackMaxScore} are both false, the
+   * returned collector stops collecting a segment as soon as it finds a
+   * non-competitive hit if the {@link org.apache.lucene.index.LeafReader#getIndexSort() index sort}
+   * of the segment starts with the fields of {@code sort}, since all
+   * remaining hits of the segment are then non-competitive as well. In that
+   * case, {@link TopDocs#totalHits} is only a lower bound of the number of
+   * matches and {@link #isEarlyTerminated()} tells whether some hits were
+   * skipped.
+   *
+   * @see org.apache.lucene.index.IndexWriterConfig#setIndexSort(Sort)
+   * @lucene.experimental
+   */
+  public static TopFieldCollector create(Sort sort, int numHits, FieldDoc after,
+      boolean fillFields, boolean trackDocScores, boolean trackMaxScore,
+      boolean trackTotalHits) throws IOException {
+    final TopFieldCollector collector = newCollector(sort, numHits, after, fillFields, trackDocScores, trackMaxScore);
+    if (trackTotalHits == false && trackMaxScore == false) {
+      collector.earlyTerminationSort = sort;
+    }
+    return collector;
+  }
+
+  private static TopFieldCollector newCollector(Sort sort, int numHits, FieldDoc after,
+      boolean fillFields, boolean trackDocScores, boolean trackMaxScore)
+      throws IOException {
 
     if (sort.fields.length == 0) {
       throw new IllegalArgumentException("Sort must contain at least one field");
@@ -648,21 +723,103 @@ public abstract class TopFieldCollector extends TopDocsCollector<Entry> {
     }
   }
 
+  /**
+   * Same as {@link #create(Sort, int, FieldDoc, boolean, boolean, boolean, boolean)}
+   * but the returned collector shares the bottom of its queue with all
+   * collectors that have been created with the same {@code globalBottom}, so
+   * that they can skip hits that are not competitive globally. Sharing is
+   * disabled if {@code globalBottom} is {@code null}.
+   */
+  static TopFieldCollector create(Sort sort, int numHits, FieldDoc after,
+      boolean fillFields, boolean trackDocScores, boolean trackMaxScore,
+      boolean trackTotalHits, AtomicReference<FieldDoc> globalBottom) throws IOException {
+    final TopFieldCollector collector = create(sort, numHits, after, fillFields, trackDocScores, trackMaxScore, trackTotalHits);
+    if (globalBottom != null && sort.needsScores() == false) {
+      // comparing against a global bottom requires to recompute the sort
+      // values of the current hit, which we can't do for scores
+      collector.globalBottom = new GlobalBottomChecker(sort.getSort(), globalBottom);
+    }
+    return collector;
+  }
+
+  final void setNextReader(LeafReaderContext context) throws IOException {
+    docBase = context.docBase;
+    if (globalBottom != null) {
+      globalBottom.setNextReader(context);
+    }
+    earlyTerminateLeaf = earlyTerminationSort != null
+        && canEarlyTerminate(earlyTerminationSort, context.reader().getIndexSort());
+  }
+
+  /** Return whether documents that are sorted by {@code indexSort} are also
+   *  sorted by {@code sort}. */
+  static boolean canEarlyTerminate(Sort sort, Sort indexSort) {
+    if (indexSort == null) {
+      return false;
+    }
+    final SortField[] fields = sort.getSort();
+    final SortField[] indexFields = indexSort.getSort();
+    if (fields.length > indexFields.length) {
+      return false;
+    }
+    for (int i = 0; i < fields.length; ++i) {
+      if (fields[i].equals(indexFields[i]) == false) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Called on non-competitive hits: if the current segment is sorted by the
+   *  sort of this collector, then none of the remaining hits of the segment
+   *  can be competitive either. */
+  final void maybeTerminateLeaf() {
+    if (earlyTerminateLeaf) {
+      earlyTerminated = true;
+      throw new CollectionTerminatedException();
+    }
+  }
+
+  /** Return whether collection of some segments was terminated early because
+   *  their remaining hits could not be competitive. This can only happen to
+   *  collectors that do not track the total number of hits.
+   *  @see #create(Sort, int, FieldDoc, boolean, boolean, boolean, boolean) */
+  public boolean isEarlyTerminated() {
+    return earlyTerminated;
+  }
+
+  /** Return whether the given hit, which is competitive for this collector,
+   *  sorts before the bottom of all the collectors that share their bottom. */
+  final boolean isGloballyCompetitive(int doc) throws IOException {
+    return globalBottom == null || globalBottom.isCompetitive(doc);
+  }
+
+  final void publishBottom() {
+    if (globalBottom != null) {
+      globalBottom.publish(((FieldValueHitQueue<Entry>) pq).fillFields(bottom));
+    }
+  }
+
   final void add(int slot, int doc, float score) {
     bottom = pq.add(new Entry(slot, docBase + doc, score));
     queueFull = totalHits == numHits;
+    if (queueFull) {
+      publishBottom();
+    }
   }
 
   final void updateBottom(int doc) {
     // bottom.score is already set to Float.NaN in add().
     bottom.doc = docBase + doc;
     bottom = pq.updateTop();
+    publishBottom();
   }
 
   final void updateBottom(int doc, float score) {
     bottom.doc = docBase + doc;
     bottom.score = score;
     bottom = pq.updateTop();
+    publishBottom();
   }
 
   /*
@@ -0,0 +1,137 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A {@link CollectorManager} that sorts hits by field across slices of the
+ * index. Collectors share the bottom of their priority queues so that once a
+ * collector has collected {@code numHits} hits, other collectors can skip hits
+ * that would not make it to the merged top hits anyway. Sharing the bottom is
+ * disabled for sorts that need scores, and when the manager is not expected to
+ * create more than one collector.
+ *
+ * @see IndexSearcher#search(Query, CollectorManager)
+ * @lucene.experimental
+ */
+public class TopFieldCollectorManager implements CollectorManager<TopFieldCollector, TopFieldDocs> {
+
+  private final Sort sort;
+  private final int numHits;
+  private final FieldDoc after;
+  private final boolean trackDocScores;
+  private final boolean trackMaxScore;
+  private final boolean trackTotalHits;
+  private final AtomicReference<FieldDoc> globalBottom;
+
+  /**
+   * Create a new instance that tracks the total number of hits.
+   *
+   * @param sort the sort criteria
+   * @param numHits the number of hits to return
+   * @param after only hits that sort after this {@link FieldDoc} are
+   *          collected, or {@code null} to collect the top hits
+   * @param trackDocScores whether to compute scores of the top hits
+   * @param trackMaxScore whether to compute the maximum score
+   * @see TopFieldCollector#create(Sort, int, FieldDoc, boolean, boolean, boolean)
+   */
+  public TopFieldCollectorManager(Sort sort, int numHits, FieldDoc after,
+      boolean trackDocScores, boolean trackMaxScore) {
+    this(sort, numHits, after, trackDocScores, trackMaxScore, true);
+  }
+
+  /**
+   * Create a new instance whose collectors share the bottom of their queues.
+   *
+   * @param sort the sort criteria
+   * @param numHits the number of hits to return
+   * @param after only hits that sort after this {@link FieldDoc} are
+   *          collected, or {@code null} to collect the top hits
+   * @param trackDocScores whether to compute scores of the top hits
+   * @param trackMaxScore whether to compute the maximum score
+   * @param trackTotalHits whether to count all hits, if false then segments
+   *          that are sorted by {@code sort} may be terminated early
+   * @see TopFieldCollector#create(Sort, int, FieldDoc, boolean, boolean, boolean, boolean)
+   */
+  public TopFieldCollectorManager(Sort sort, int numHits, FieldDoc after,
+      boolean trackDocScores, boolean trackMaxScore, boolean trackTotalHits) {
+    this(sort, numHits, after, trackDocScores, trackMaxScore, trackTotalHits, true);
+  }
+
+  /**
+   * Create a new instance.
+   *
+   * @param sort the sort criteria
+   * @param numHits the number of hits to return
+   * @param after only hits that sort after this {@link FieldDoc} are
+   *          collected, or {@code null} to collect the top hits
+   * @param trackDocScores whether to compute scores of the top hits
+   * @param trackMaxScore whether to compute the maximum score
+   * @param trackTotalHits whether to count all hits, if false then segments
+   *          that are sorted by {@code sort} may be terminated early
+   * @param supportsConcurrency whether collectors should share the bottom of
+   *          their queues, this only helps if several collectors are created
+   *          and otherwise only adds overhead
+   * @see TopFieldCollector#create(Sort, int, FieldDoc, boolean, boolean, boolean, boolean)
+   */
+  public TopFieldCollectorManager(Sort sort, int numHits, FieldDoc after,
+      boolean trackDocScores, boolean trackMaxScore, boolean trackTotalHits,
+      boolean supportsConcurrency) {
+    if (sort.fields.length == 0) {
+      throw new IllegalArgumentException("Sort must contain at least one field");
+    }
+    if (numHits <= 0) {
+      throw new IllegalArgumentException("numHits must be > 0; please use TotalHitCountCollector if you just need the total hit count");
+    }
+    if (after != null) {
+      if (after.fields == null) {
+        throw new IllegalArgumentException("after.fields wasn't set; you must pass fillFields=true for the previous search");
+      }
+      if (after.fields.length != sort.getSort().length) {
+        throw new IllegalArgumentException("after.fields has " + after.fields.length + " values but sort has " + sort.getSort().length);
+      }
+    }
+    this.sort = sort;
+    this.numHits = numHits;
+    this.after = after;
+    this.trackDocScores = trackDocScores;
+    this.trackMaxScore = trackMaxScore;
+    this.trackTotalHits = trackTotalHits;
+    this.globalBottom = supportsConcurrency ? new AtomicReference<FieldDoc>() : null;
+  }
+
+  @Override
+  public TopFieldCollector newCollector() throws IOException {
+    final boolean fillFields = true;
+    return TopFieldCollector.create(sort, numHits, after, fillFields, trackDocScores, trackMaxScore, trackTotalHits, globalBottom);
+  }
+
+  @Override
+  public TopFieldDocs reduce(Collection<TopFieldCollector> collectors) throws IOException {
+    final TopFieldDocs[] topDocs = new TopFieldDocs[collectors.size()];
+    int i = 0;
+    for (TopFieldCollector collector : collectors) {
+      topDocs[i++] = collector.topDocs();
+    }
+    return TopDocs.merge(sort, numHits, topDocs);
+  }
+
+}
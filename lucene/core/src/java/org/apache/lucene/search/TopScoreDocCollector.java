@@ -36,7 +36,7 @@ import org.apache.lucene.index.LeafReaderContext;
  */
 public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
 
-  abstract static class ScorerLeafCollector implements LeafCollector {
+  abstract static class ScorerLeafCollector implements BulkLeafCollector {
 
     Scorer scorer;
 
@@ -45,12 +45,30 @@ public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
       this.scorer = scorer;
     }
 
+    @Override
+    public final void collect(int doc) throws IOException {
+      collect(doc, scorer.score());
+    }
+
+    @Override
+    public final void collect(int[] docs, float[] scores, int count) throws IOException {
+      for (int i = 0; i < count; ++i) {
+        collect(docs[i], scores[i]);
+      }
+    }
+
+    /** Collect a document given its score. */
+    abstract void collect(int doc, float score) throws IOException;
+
   }
 
   private static class SimpleTopScoreDocCollector extends TopScoreDocCollector {
 
-    SimpleTopScoreDocCollector(int numHits) {
+    private final boolean trackTotalHits;
+
+    SimpleTopScoreDocCollector(int numHits, boolean trackTotalHits) {
       super(numHits);
+      this.trackTotalHits = trackTotalHits;
     }
 
     @Override
@@ -60,9 +78,16 @@ public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
       return new ScorerLeafCollector() {
 
         @Override
-        public void collect(int doc) throws IOException {
-          float score = scorer.score();
+        public void setScorer(Scorer scorer) throws IOException {
+          super.setScorer(scorer);
+          if (trackTotalHits == false && pqTop.score != Float.NEGATIVE_INFINITY) {
+            // the queue is full
+            scorer.setMinCompetitiveScore(pqTop.score);
+          }
+        }
 
+        @Override
+        void collect(int doc, float score) throws IOException {
           // This collector cannot handle these scores:
           assert score != Float.NEGATIVE_INFINITY;
           assert !Float.isNaN(score);
@@ -77,6 +102,10 @@ public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
           pqTop.doc = doc + docBase;
           pqTop.score = score;
           pqTop = pq.updateTop();
+          if (trackTotalHits == false && pqTop.score != Float.NEGATIVE_INFINITY) {
+            // the queue is full
+            scorer.setMinCompetitiveScore(pqTop.score);
+          }
         }
 
       };
@@ -111,9 +140,7 @@ public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
       final int afterDoc = after.doc - context.docBase;
       return new ScorerLeafCollector() {
         @Override
-        public void collect(int doc) throws IOException {
-          float score = scorer.score();
-
+        void collect(int doc, float score) throws IOException {
           // This collector cannot handle these scores:
           assert score != Float.NEGATIVE_INFINITY;
           assert !Float.isNaN(score);
@@ -165,13 +192,35 @@ public abstract class TopScoreDocCollector extends TopDocsCollector<ScoreDoc> {
    * objects.
    */
   public static TopScoreDocCollector create(int numHits, ScoreDoc after) {
+    return create(numHits, after, true);
+  }
+
+  /**
+   * Creates a new {@link TopScoreDocCollector} given the number of hits to
+   * collect, the bottom of the previous page, and whether the total number
+   * of hits should be computed.
+   *
+   * <p>When {@code trackTotalHits} is {@code false} and {@code after} is
+   * {@code null}, this collector tells scorers about the
+   * {@link Scorer#setMinCompetitiveScore(float) minimum score} that a hit
+   * needs in order to be competitive, so that they can skip over documents
+   * that cannot make the top hits. {@link TopDocs#totalHits} is then only a
+   * lower bound of the number of matches.
+   *
+   * <p><b>NOTE</b>: The instances returned by this method
+   * pre-allocate a full array of length
+   * <code>numHits</code>, and fill the array with sentinel
+   * objects.
+   * @lucene.experimental
+   */
+  public static TopScoreDocCollector create(int numHits, ScoreDoc after, boolean trackTotalHits) {
 
     if (numHits <= 0) {
       throw new IllegalArgumentException("numHits must be > 0; please use TotalHitCountCollector if you just need the total hit count");
     }
 
     if (after == null) {
-      return new SimpleTopScoreDocCollector(numHits);
+      return new SimpleTopScoreDocCollector(numHits, trackTotalHits);
     } else {
       return new PagingTopScoreDocCollector(numHits, after);
     }
@@ -17,11 +17,19 @@ package org.apache.lucene.search;
  * limitations under the License.
  */
 
+import java.io.IOException;
+
+import org.apache.lucene.util.VirtualMethod;
+
 /**
  * Just counts the total number of hits.
  */
 
-public class TotalHitCountCollector extends SimpleCollector {
+public class TotalHitCountCollector extends SimpleCollector implements BulkLeafCollector {
+
+  private static final VirtualMethod<TotalHitCountCollector> COLLECT_METHOD =
+      new VirtualMethod<>(TotalHitCountCollector.class, "collect", int.class);
+
   private int totalHits;
 
   /** Returns how many hits matched the search. */
@@ -34,6 +42,26 @@ public class TotalHitCountCollector extends SimpleCollector {
     totalHits++;
   }
 
+  @Override
+  public void collect(int[] docs, float[] scores, int count) throws IOException {
+    if (canCountInBatches()) {
+      totalHits += count;
+    } else {
+      for (int i = 0; i < count; ++i) {
+        collect(docs[i]);
+      }
+    }
+  }
+
+  /**
+   * Return whether a batch of hits may be counted at once, without calling
+   * {@link #collect(int)} on each of them. The default implementation returns
+   * {@code true} unless {@link #collect(int)} is overridden.
+   */
+  protected boolean canCountInBatches() {
+    return COLLECT_METHOD.isOverriddenAsOf(getClass()) == false;
+  }
+
   @Override
   public boolean needsScores() {
     return false;
@@ -30,6 +30,14 @@ import java.util.Objects;
  */
 public abstract class TwoPhaseIterator {
 
+  /** Expected number of simple operations of a {@link org.apache.lucene.util.Bits#get}
+   *  call on a bit set: shift, array lookup, mask and comparison. */
+  static final float BITS_GET_COST = 5;
+
+  /** Expected number of simple operations to read a single value from doc
+   *  values, which usually requires to decode packed integers. */
+  static final float DOC_VALUES_LOOKUP_COST = 10;
+
   protected final DocIdSetIterator approximation;
 
   /** Takes the approximation to be returned by {@link #approximation}. Not null. */
@@ -89,4 +97,12 @@ public abstract class TwoPhaseIterator {
    *  {@link DocIdSetIterator#NO_MORE_DOCS} -- and at most once. */
   public abstract boolean matches() throws IOException;
 
+  /** An estimate of the expected cost to determine that a single document
+   *  {@link #matches()}. This can be called before iterating the documents of
+   *  {@link #approximation()}. Returns an expected cost in number of simple
+   *  operations like addition, multiplication, comparing two numbers and
+   *  indexing an array. The returned value must be positive. Conjunctions use
+   *  this estimate in order to verify cheap iterators first. */
+  public abstract float matchCost();
+
 }
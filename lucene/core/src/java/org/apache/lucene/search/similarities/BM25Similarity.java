@@ -236,6 +236,30 @@ public class BM25Similarity extends Similarity {
       float norm = norms == null ? k1 : cache[(byte)norms.get(doc) & 0xFF];
       return weightValue * freq / (freq + norm);
     }
+
+    @Override
+    public float maxScore(float maxFreq) {
+      if (weightValue <= 0) {
+        // negative boosts
+        return 0f;
+      }
+      // if there are no norms, we act as if b=0
+      float minNorm = k1;
+      if (norms != null) {
+        minNorm = Float.POSITIVE_INFINITY;
+        for (float norm : cache) {
+          minNorm = Math.min(minNorm, norm);
+        }
+      }
+      if (minNorm <= 0) {
+        // eg. b > 1
+        return Float.POSITIVE_INFINITY;
+      }
+      if (Float.isInfinite(maxFreq)) {
+        return weightValue;
+      }
+      return weightValue * maxFreq / (maxFreq + minNorm);
+    }
     
     @Override
     public Explanation explain(int doc, Explanation freq) {
@@ -197,6 +197,18 @@ public abstract class Similarity {
      */
     public abstract float score(int doc, float freq);
 
+    /**
+     * Return an upper bound of the scores that {@link #score(int, float)} may
+     * return for a frequency that is less than or equal to {@code maxFreq},
+     * or {@link Float#POSITIVE_INFINITY} if no such bound is known. This is
+     * used to skip documents that cannot be competitive. The default
+     * implementation returns {@link Float#POSITIVE_INFINITY}.
+     * @lucene.experimental
+     */
+    public float maxScore(float maxFreq) {
+      return Float.POSITIVE_INFINITY;
+    }
+
     /** Computes the amount of a sloppy phrase match, based on an edit distance. */
     public abstract float computeSlopFactor(int distance);
     
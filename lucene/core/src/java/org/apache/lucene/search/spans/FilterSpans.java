@@ -97,6 +97,11 @@ public abstract class FilterSpans extends Spans {
         public boolean matches() throws IOException {
           return inner.matches() && twoPhaseCurrentDocMatches();
         }
+
+        @Override
+        public float matchCost() {
+          return inner.matchCost() + POSITIONS_COST;
+        }
       };
     } else {
       // wrapped instance has no approximation, but 
@@ -106,6 +111,11 @@ public abstract class FilterSpans extends Spans {
         public boolean matches() throws IOException {
           return twoPhaseCurrentDocMatches();
         }
+
+        @Override
+        public float matchCost() {
+          return POSITIONS_COST;
+        }
       };
     }
   }
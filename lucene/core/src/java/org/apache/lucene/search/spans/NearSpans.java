@@ -87,6 +87,11 @@ abstract class NearSpans extends Spans {
       public boolean matches() throws IOException {
         return twoPhaseCurrentDocMatches();
       }
+
+      @Override
+      public float matchCost() {
+        return subSpans.length * POSITIONS_COST;
+      }
     };
     return res;
   }
@@ -31,6 +31,11 @@ import org.apache.lucene.search.TwoPhaseIterator;
 public abstract class Spans extends DocIdSetIterator {
   public static final int NO_MORE_POSITIONS = Integer.MAX_VALUE;
 
+  /** A guess of the number of simple operations that are needed to iterate
+   *  over the positions of a {@link Spans} on a document, used as a
+   *  {@link TwoPhaseIterator#matchCost() match cost}. */
+  static final float POSITIONS_COST = 128;
+
   /**
    * Returns the next start position for the current doc.
    * There is always at least one start/end position per doc.
@@ -184,6 +184,23 @@ public abstract class BufferedIndexInput extends IndexInput implements RandomAcc
     }
   }
   
+  @Override
+  public final void readLongs(long[] dst, int offset, int length) throws IOException {
+    while (length > 0) {
+      final int available = Math.min(length, (bufferLength - bufferPosition) >>> 3);
+      if (available == 0) {
+        // the next long spans two buffers, this refills the buffer
+        dst[offset++] = readLong();
+        length--;
+      } else {
+        decodeLongs(buffer, bufferPosition, dst, offset, available);
+        bufferPosition += available << 3;
+        offset += available;
+        length -= available;
+      }
+    }
+  }
+
   @Override
   public final long readLong() throws IOException {
     if (8 <= (bufferLength-bufferPosition)) {
@@ -47,6 +47,8 @@ abstract class ByteBufferIndexInput extends IndexInput implements RandomAccessIn
   protected ByteBuffer curBuf; // redundant for speed: buffers[curBufIndex]
 
   protected boolean isClone = false;
+  // minimum number of longs for readLongs to read through a LongBuffer view
+  private static final int LONG_VIEW_THRESHOLD = 32;
   protected final WeakIdentityMap<ByteBufferIndexInput,Boolean> clones;
   
   public static ByteBufferIndexInput newInstance(String resourceDescription, ByteBuffer[] buffers, long length, int chunkSizePower, BufferCleaner cleaner, boolean trackClones) {
@@ -145,6 +147,31 @@ abstract class ByteBufferIndexInput extends IndexInput implements RandomAccessIn
       throw new AlreadyClosedException("Already closed: " + this);
     }
   }
+
+  @Override
+  public final void readLongs(long[] dst, int offset, int length) throws IOException {
+    try {
+      final int byteCount = length << 3;
+      if (curBuf.remaining() >= byteCount) {
+        if (length < LONG_VIEW_THRESHOLD) {
+          // creating a view would cost more than it saves on a few longs
+          final ByteBuffer curBuf = this.curBuf;
+          for (int i = 0; i < length; ++i) {
+            dst[offset + i] = curBuf.getLong();
+          }
+        } else {
+          // bulk-copy from a long view of the current buffer
+          curBuf.asLongBuffer().get(dst, offset, length);
+          curBuf.position(curBuf.position() + byteCount);
+        }
+      } else {
+        // the longs span several buffers
+        super.readLongs(dst, offset, length);
+      }
+    } catch (NullPointerException npe) {
+      throw new AlreadyClosedException("Already closed: " + this);
+    }
+  }
   
   @Override
   public long getFilePointer() {
@@ -157,6 +157,33 @@ public abstract class DataInput implements Cloneable {
     return (((long)readInt()) << 32) | (readInt() & 0xFFFFFFFFL);
   }
 
+  /** Reads <code>length</code> longs into <code>dst</code>, starting at
+   * <code>offset</code>. This is equivalent to calling {@link #readLong()}
+   * <code>length</code> times, but implementations may override it in order
+   * to decode all longs at once.
+   * @see DataOutput#writeLong(long)
+   */
+  public void readLongs(long[] dst, int offset, int length) throws IOException {
+    for (int i = 0; i < length; ++i) {
+      dst[offset + i] = readLong();
+    }
+  }
+
+  /** Decode <code>length</code> longs that have been written with
+   * {@link DataOutput#writeLong(long)} from <code>src</code>, starting at
+   * <code>srcOffset</code>, into <code>dst</code>, starting at
+   * <code>dstOffset</code>. This is a helper for implementations of
+   * {@link #readLongs} on top of byte arrays. */
+  static void decodeLongs(byte[] src, int srcOffset, long[] dst, int dstOffset, int length) {
+    for (int i = 0; i < length; ++i, srcOffset += 8) {
+      final int i1 = ((src[srcOffset] & 0xFF) << 24) | ((src[srcOffset+1] & 0xFF) << 16) |
+          ((src[srcOffset+2] & 0xFF) << 8) | (src[srcOffset+3] & 0xFF);
+      final int i2 = ((src[srcOffset+4] & 0xFF) << 24) | ((src[srcOffset+5] & 0xFF) << 16) |
+          ((src[srcOffset+6] & 0xFF) << 8) | (src[srcOffset+7] & 0xFF);
+      dst[dstOffset + i] = (((long) i1) << 32) | (i2 & 0xFFFFFFFFL);
+    }
+  }
+
   /** Reads a long stored in variable-length format.  Reads between one and
    * nine bytes.  Smaller values take fewer bytes.  Negative numbers are not
    * supported.
@@ -28,7 +28,11 @@ import java.nio.channels.ClosedChannelException; // javadoc @link
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.apache.lucene.util.Constants;
 import org.apache.lucene.util.IOUtils;
@@ -116,6 +120,8 @@ public abstract class FSDirectory extends BaseDirectory {
 
   protected final Path directory; // The underlying filesystem directory
 
+  private volatile ExecutorService syncExecutor; // null means sequential syncs
+
   /** Create a new FSDirectory for the named location (ctor for subclasses).
    * The directory is created at the named location if it does not yet exist.
    * @param path the path of the directory
@@ -215,13 +221,60 @@ public abstract class FSDirectory extends BaseDirectory {
     Files.deleteIfExists(directory.resolve(name)); // delete existing, if any
   }
 
+  /**
+   * Set the {@link ExecutorService} to use in order to issue the fsyncs of a
+   * call to {@link #sync(Collection)} concurrently, which helps on storage
+   * that can serve several flushes in parallel such as SSDs or network block
+   * devices. The number of threads of the executor bounds the number of
+   * concurrent fsyncs. If {@code null}, which is the default, files are synced
+   * sequentially by the calling thread.
+   * <p><b>NOTE:</b> this executor is not shut down when this directory is
+   * closed.
+   */
+  public void setSyncExecutor(ExecutorService syncExecutor) {
+    this.syncExecutor = syncExecutor;
+  }
+
+  /**
+   * Returns the {@link ExecutorService} that is used to fsync files
+   * concurrently, or {@code null} if files are synced sequentially.
+   * @see #setSyncExecutor
+   */
+  public ExecutorService getSyncExecutor() {
+    return syncExecutor;
+  }
+
   @Override
   public void sync(Collection<String> names) throws IOException {
     ensureOpen();
 
-    for (String name : names) {
-      fsync(name);
+    final ExecutorService executor = syncExecutor;
+    if (executor == null || names.size() <= 1) {
+      for (String name : names) {
+        fsync(name);
+      }
+      return;
     }
+
+    final List<Future<Void>> futures = new ArrayList<>(names.size());
+    for (final String name : names) {
+      final FutureTask<Void> task = new FutureTask<>(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          fsync(name);
+          return null;
+        }
+      });
+      try {
+        executor.execute(task);
+      } catch (RejectedExecutionException e) {
+        task.run();
+      }
+      futures.add(task);
+    }
+
+    // wait for all fsyncs before returning, even on exception
+    IOUtils.waitForAll(futures);
   }
   
   @Override
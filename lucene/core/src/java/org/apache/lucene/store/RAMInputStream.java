@@ -90,6 +90,23 @@ public class RAMInputStream extends IndexInput implements Cloneable {
     }
   }
 
+  @Override
+  public void readLongs(long[] dst, int offset, int length) throws IOException {
+    while (length > 0) {
+      final int available = Math.min(length, (bufferLength - bufferPosition) >>> 3);
+      if (available == 0) {
+        // the next long spans two buffers, this switches to the next buffer
+        dst[offset++] = readLong();
+        length--;
+      } else {
+        decodeLongs(currentBuffer, bufferPosition, dst, offset, available);
+        bufferPosition += available << 3;
+        offset += available;
+        length -= available;
+      }
+    }
+  }
+
   private final void switchCurrentBuffer(boolean enforceEOF) throws IOException {
     bufferStart = (long) BUFFER_SIZE * (long) currentBufferIndex;
     if (bufferStart > length || currentBufferIndex >= file.numBuffers()) {
@@ -0,0 +1,240 @@
+package org.apache.lucene.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.lucene.search.DocIdSetIterator;
+
+/**
+ * A {@link BitSet} of fixed length whose bits are stored outside of the Java
+ * heap, in a direct or memory-mapped {@link ByteBuffer}. This is useful for
+ * long-lived sets, such as cache entries, which would otherwise increase the
+ * size of the old generation and the duration of garbage collections.
+ * <p>
+ * The off-heap memory is released when the buffer gets garbage-collected.
+ * Direct buffers are limited by the {@code -XX:MaxDirectMemorySize} JVM
+ * option.
+ * <p>
+ * NOTE: {@link #ramBytesUsed()} includes the off-heap memory so that
+ * consumers that bound their memory usage also bound off-heap memory, use
+ * {@link #getChildResources()} in order to get the breakdown between heap
+ * and off-heap memory.
+ *
+ * @lucene.internal
+ */
+public final class DirectBitSet extends BitSet {
+
+  private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(DirectBitSet.class)
+      + 2 * RamUsageEstimator.NUM_BYTES_OBJECT_HEADER; // ByteBuffer and LongBuffer views
+
+  /** Return the number of bytes that a {@link ByteBuffer} needs in order to
+   *  store <code>numBits</code> bits. */
+  public static int bits2bytes(int numBits) {
+    return FixedBitSet.bits2words(numBits) << 3;
+  }
+
+  private final ByteBuffer buffer;
+  private final LongBuffer bits;
+  private final int numBits;
+  private final int numWords;
+
+  /** Create a new {@link DirectBitSet} that can store <code>numBits</code>
+   *  bits, all initially cleared, on a newly allocated direct buffer. */
+  public DirectBitSet(int numBits) {
+    this(ByteBuffer.allocateDirect(bits2bytes(numBits)), numBits);
+  }
+
+  /** Create a new {@link DirectBitSet} on top of the given buffer, which can
+   *  for instance be a file mapped with
+   *  {@link java.nio.channels.FileChannel#map}. Bits are read and written
+   *  from the current position of the buffer, which must have at least
+   *  {@link #bits2bytes(int) bits2bytes(numBits)} bytes remaining. Existing
+   *  content is preserved, but it is illegal to have bits set beyond
+   *  <code>numBits</code>. */
+  public DirectBitSet(ByteBuffer buffer, int numBits) {
+    if (numBits < 0) {
+      throw new IllegalArgumentException("numBits must be >= 0, got " + numBits);
+    }
+    final int numBytes = bits2bytes(numBits);
+    if (buffer.remaining() < numBytes) {
+      throw new IllegalArgumentException("Buffer is too small to store " + numBits + " bits: " + buffer.remaining() + " < " + numBytes);
+    }
+    ByteBuffer slice = buffer.slice();
+    slice.limit(numBytes);
+    this.buffer = slice;
+    // the byte order does not matter since we never exchange words with on-heap bit sets
+    this.bits = slice.order(ByteOrder.nativeOrder()).asLongBuffer();
+    this.numBits = numBits;
+    this.numWords = numBytes >>> 3;
+  }
+
+  /** Return the number of bytes of off-heap memory that are used by this set. */
+  public long offHeapBytesUsed() {
+    return buffer.isDirect() ? buffer.limit() : 0;
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    return BASE_RAM_BYTES_USED + buffer.limit();
+  }
+
+  @Override
+  public Collection<Accountable> getChildResources() {
+    final long offHeap = offHeapBytesUsed();
+    if (offHeap == 0) {
+      return Collections.emptyList();
+    }
+    final List<Accountable> resources = new ArrayList<>();
+    resources.add(Accountables.namedAccountable("off-heap bits", offHeap));
+    return Collections.unmodifiableList(resources);
+  }
+
+  @Override
+  public int length() {
+    return numBits;
+  }
+
+  @Override
+  public boolean get(int index) {
+    assert index >= 0 && index < numBits: "index=" + index + ", numBits=" + numBits;
+    return (bits.get(index >> 6) & (1L << index)) != 0;
+  }
+
+  @Override
+  public void set(int index) {
+    assert index >= 0 && index < numBits: "index=" + index + ", numBits=" + numBits;
+    final int wordNum = index >> 6;
+    bits.put(wordNum, bits.get(wordNum) | (1L << index));
+  }
+
+  @Override
+  public void clear(int index) {
+    assert index >= 0 && index < numBits: "index=" + index + ", numBits=" + numBits;
+    final int wordNum = index >> 6;
+    bits.put(wordNum, bits.get(wordNum) & ~(1L << index));
+  }
+
+  @Override
+  public void clear(int startIndex, int endIndex) {
+    assert startIndex >= 0 && startIndex < numBits : "startIndex=" + startIndex + ", numBits=" + numBits;
+    assert endIndex >= 0 && endIndex <= numBits : "endIndex=" + endIndex + ", numBits=" + numBits;
+    if (endIndex <= startIndex) {
+      return;
+    }
+
+    final int startWord = startIndex >> 6;
+    final int endWord = (endIndex-1) >> 6;
+
+    // invert masks since we are clearing
+    final long startmask = ~(-1L << startIndex);
+    final long endmask = ~(-1L >>> -endIndex);
+
+    if (startWord == endWord) {
+      bits.put(startWord, bits.get(startWord) & (startmask | endmask));
+      return;
+    }
+
+    bits.put(startWord, bits.get(startWord) & startmask);
+    for (int i = startWord + 1; i < endWord; ++i) {
+      bits.put(i, 0L);
+    }
+    bits.put(endWord, bits.get(endWord) & endmask);
+  }
+
+  @Override
+  public int cardinality() {
+    int cardinality = 0;
+    for (int i = 0; i < numWords; ++i) {
+      cardinality += Long.bitCount(bits.get(i));
+    }
+    return cardinality;
+  }
+
+  @Override
+  public int nextSetBit(int index) {
+    assert index >= 0 && index < numBits : "index=" + index + ", numBits=" + numBits;
+    int i = index >> 6;
+    long word = bits.get(i) >> index;  // skip all the bits to the right of index
+
+    if (word != 0) {
+      return index + Long.numberOfTrailingZeros(word);
+    }
+
+    while (++i < numWords) {
+      word = bits.get(i);
+      if (word != 0) {
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+      }
+    }
+
+    return DocIdSetIterator.NO_MORE_DOCS;
+  }
+
+  @Override
+  public int prevSetBit(int index) {
+    assert index >= 0 && index < numBits: "index=" + index + " numBits=" + numBits;
+    int i = index >> 6;
+    final int subIndex = index & 0x3f;  // index within the word
+    long word = (bits.get(i) << (63-subIndex));  // skip all the bits to the left of index
+
+    if (word != 0) {
+      return (i << 6) + subIndex - Long.numberOfLeadingZeros(word);
+    }
+
+    while (--i >= 0) {
+      word = bits.get(i);
+      if (word != 0) {
+        return (i << 6) + 63 - Long.numberOfLeadingZeros(word);
+      }
+    }
+
+    return -1;
+  }
+
+  @Override
+  public void or(DocIdSetIterator iter) throws IOException {
+    assertUnpositioned(iter);
+    // accumulate bits of the current word on the heap and only write whole words
+    int currentWord = -1;
+    long word = 0;
+    for (int doc = iter.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = iter.nextDoc()) {
+      assert doc < numBits : "doc=" + doc + ", numBits=" + numBits;
+      final int wordNum = doc >> 6;
+      if (wordNum != currentWord) {
+        if (currentWord != -1) {
+          bits.put(currentWord, word);
+        }
+        currentWord = wordNum;
+        word = bits.get(wordNum);
+      }
+      word |= 1L << doc;
+    }
+    if (currentWord != -1) {
+      bits.put(currentWord, word);
+    }
+  }
+
+}
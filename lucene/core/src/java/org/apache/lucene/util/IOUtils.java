@@ -35,10 +35,15 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
@@ -370,6 +375,51 @@ public final class IOUtils {
     }
   }
 
+  /**
+   * Waits for all the given futures to complete, even if some of them fail,
+   * and returns their results in iteration order. Once all futures are done,
+   * the cause of the first failure is rethrown like {@link #reThrow}. Being
+   * interrupted does not stop the wait: the interrupt status is restored
+   * before returning, and a {@link ThreadInterruptedException} is thrown if
+   * no future failed.
+   * @lucene.internal
+   */
+  public static <T> List<T> waitForAll(Collection<? extends Future<? extends T>> futures) throws IOException {
+    final List<T> results = new ArrayList<>(futures.size());
+    Throwable firstExc = null;
+    boolean interrupted = false;
+    for (Future<? extends T> future : futures) {
+      T result = null;
+      while (true) {
+        try {
+          result = future.get();
+          break;
+        } catch (InterruptedException ie) {
+          interrupted = true;
+        } catch (ExecutionException ee) {
+          if (firstExc == null) {
+            firstExc = ee.getCause();
+          }
+          break;
+        } catch (CancellationException ce) {
+          if (firstExc == null) {
+            firstExc = ce;
+          }
+          break;
+        }
+      }
+      results.add(result);
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+      if (firstExc == null) {
+        throw new ThreadInterruptedException(new InterruptedException());
+      }
+    }
+    reThrow(firstExc);
+    return results;
+  }
+
   /**
    * Ensure that any writes to the given file is written to the storage device that contains it.
    * @param fileToSync the file to fsync
@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.lucene.util;
+
+import java.util.Arrays;
+
+import org.apache.lucene.search.DocIdSetIterator;
+
+/**
+ * BitSet of fixed length (numBits), accessed with an int index, whose bits are
+ * stored in fixed-size pages that are shared copy-on-write between clones.
+ * {@link #clone()} only copies references to the pages, and a page is only
+ * copied the first time it is modified after it has been shared. This makes
+ * it suitable for live docs, which are cloned every time a near-real-time
+ * reader is opened over a segment that has new deletions: the cost of a
+ * reopen is proportional to the number of pages that have been modified
+ * rather than to the size of the segment.
+ * <p>
+ * <b>NOTE:</b> this class is not thread-safe, clones must be created under
+ * the same lock that protects modifications.
+ *
+ * @lucene.internal
+ */
+public final class PagedFixedBitSet implements MutableBits, Accountable, Cloneable {
+
+  private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(PagedFixedBitSet.class);
+
+  // 8KB pages
+  private static final int PAGE_SHIFT = 16;
+  private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+  private static final int WORDS_PER_PAGE = 1 << (PAGE_SHIFT - 6);
+
+  // pages that are full or empty are shared by all instances and never modified
+  private static final long[] FULL_PAGE = new long[WORDS_PER_PAGE];
+  private static final long[] EMPTY_PAGE = new long[WORDS_PER_PAGE];
+  static {
+    Arrays.fill(FULL_PAGE, -1L);
+  }
+
+  private final long[][] pages;
+  // the pages that this instance may modify in place
+  private final FixedBitSet ownedPages;
+  private final int numBits;
+
+  /**
+   * Creates a new bit set of the given size, with all bits cleared.
+   */
+  public PagedFixedBitSet(int numBits) {
+    this.numBits = numBits;
+    final int numWords = FixedBitSet.bits2words(numBits);
+    final int numPages = numPages(numBits);
+    pages = new long[numPages][];
+    ownedPages = new FixedBitSet(numPages);
+    for (int i = 0; i < numPages; ++i) {
+      if (i == numPages - 1) {
+        // the last page is allocated with its exact size
+        pages[i] = new long[numWords - i * WORDS_PER_PAGE];
+        ownedPages.set(i);
+      } else {
+        pages[i] = EMPTY_PAGE;
+      }
+    }
+  }
+
+  /**
+   * Creates a new bit set that holds a copy of the given {@link FixedBitSet}.
+   */
+  public PagedFixedBitSet(FixedBitSet bits) {
+    this(bits.length());
+    final long[] words = bits.getBits();
+    for (int i = 0; i < pages.length; ++i) {
+      final int from = i * WORDS_PER_PAGE;
+      final int to = Math.min(from + WORDS_PER_PAGE, FixedBitSet.bits2words(numBits));
+      if (ownedPages.get(i)) {
+        System.arraycopy(words, from, pages[i], 0, to - from);
+      } else if (isAll(words, from, to, -1L)) {
+        pages[i] = FULL_PAGE;
+      } else if (isAll(words, from, to, 0L) == false) {
+        pages[i] = Arrays.copyOfRange(words, from, to);
+        ownedPages.set(i);
+      }
+    }
+  }
+
+  private PagedFixedBitSet(long[][] pages, int numBits) {
+    this.pages = pages;
+    this.ownedPages = new FixedBitSet(pages.length);
+    this.numBits = numBits;
+  }
+
+  private static int numPages(int numBits) {
+    return (numBits + PAGE_MASK) >>> PAGE_SHIFT;
+  }
+
+  private static boolean isAll(long[] words, int from, int to, long word) {
+    for (int i = from; i < to; ++i) {
+      if (words[i] != word) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns a page that may be modified in place, copying it if it is shared. */
+  private long[] writablePage(int pageIndex) {
+    if (ownedPages.get(pageIndex) == false) {
+      pages[pageIndex] = pages[pageIndex].clone();
+      ownedPages.set(pageIndex);
+    }
+    return pages[pageIndex];
+  }
+
+  @Override
+  public int length() {
+    return numBits;
+  }
+
+  /** Returns the number of 64 bits words that hold the bits of this set. */
+  public int numWords() {
+    return FixedBitSet.bits2words(numBits);
+  }
+
+  /** Returns the 64 bits word at the given index. */
+  public long getWord(int wordIndex) {
+    return pages[wordIndex / WORDS_PER_PAGE][wordIndex % WORDS_PER_PAGE];
+  }
+
+  /** Returns the number of pages that are not shared with any other instance. */
+  public int numOwnedPages() {
+    return ownedPages.cardinality();
+  }
+
+  @Override
+  public boolean get(int index) {
+    assert index >= 0 && index < numBits: "index=" + index + ", numBits=" + numBits;
+    final long[] page = pages[index >>> PAGE_SHIFT];
+    final int i = (index & PAGE_MASK) >> 6; // div 64
+    final long bitmask = 1L << index;
+    return (page[i] & bitmask) != 0;
+  }
+
+  /** Sets the bit at the given index. */
+  public void set(int index) {
+    assert index >= 0 && index < numBits: "index=" + index + ", numBits=" + numBits;
+    final long[] page = writablePage(index >>> PAGE_SHIFT);
+    final int i = (index & PAGE_MASK) >> 6;
+    final long bitmask = 1L << index;
+    page[i] |= bitmask;
+  }
+
+  @Override
+  public void clear(int index) {
+    assert index >= 0 && index < numBits: "index=" + index + ", numBits=" + numBits;
+    final long[] page = writablePage(index >>> PAGE_SHIFT);
+    final int i = (index & PAGE_MASK) >> 6;
+    final long bitmask = 1L << index;
+    page[i] &= ~bitmask;
+  }
+
+  /**
+   * Sets a range of bits. Pages that are entirely covered by the range are
+   * replaced with a shared full page, so that setting all bits of a new set
+   * does not allocate memory.
+   *
+   * @param startIndex lower index
+   * @param endIndex one-past the last bit to set
+   */
+  public void set(int startIndex, int endIndex) {
+    assert startIndex >= 0 && startIndex <= numBits : "startIndex=" + startIndex + ", numBits=" + numBits;
+    assert endIndex >= 0 && endIndex <= numBits : "endIndex=" + endIndex + ", numBits=" + numBits;
+    int index = startIndex;
+    while (index < endIndex) {
+      final int pageIndex = index >>> PAGE_SHIFT;
+      final int pageStart = pageIndex << PAGE_SHIFT;
+      final int pageEnd = Math.min(pageStart + (1 << PAGE_SHIFT), endIndex);
+      final long[] page = pages[pageIndex];
+      if (index == pageStart && pageEnd - pageStart == 1 << PAGE_SHIFT) {
+        if (page != FULL_PAGE) {
+          pages[pageIndex] = FULL_PAGE;
+          ownedPages.clear(pageIndex);
+        }
+      } else if (page != FULL_PAGE) {
+        final long[] writable = writablePage(pageIndex);
+        for (int i = index; i < pageEnd; ++i) {
+          writable[(i & PAGE_MASK) >> 6] |= 1L << i;
+        }
+      }
+      index = pageEnd;
+    }
+  }
+
+  /** Returns the index of the first set bit starting at the index specified,
+   *  or {@link DocIdSetIterator#NO_MORE_DOCS} if there are no more set bits.
+   *  Pages that have no set bits are skipped without visiting their words. */
+  public int nextSetBit(int index) {
+    assert index >= 0 && index < numBits : "index=" + index + ", numBits=" + numBits;
+    int pageIndex = index >>> PAGE_SHIFT;
+    long[] page = pages[pageIndex];
+    int i = (index & PAGE_MASK) >> 6;
+    final long word = page[i] >> index;  // skip all the bits to the right of index
+    if (word != 0) {
+      return index + Long.numberOfTrailingZeros(word);
+    }
+
+    while (true) {
+      while (++i < page.length) {
+        if (page[i] != 0) {
+          return (pageIndex << PAGE_SHIFT) + (i << 6) + Long.numberOfTrailingZeros(page[i]);
+        }
+      }
+      do {
+        if (++pageIndex == pages.length) {
+          return DocIdSetIterator.NO_MORE_DOCS;
+        }
+      } while (pages[pageIndex] == EMPTY_PAGE);
+      page = pages[pageIndex];
+      i = -1;
+    }
+  }
+
+  /** Returns number of set bits. NOTE: this visits every page. */
+  public int cardinality() {
+    long cardinality = 0;
+    for (long[] page : pages) {
+      if (page == FULL_PAGE) {
+        cardinality += 1 << PAGE_SHIFT;
+      } else if (page != EMPTY_PAGE) {
+        cardinality += BitUtil.pop_array(page, 0, page.length);
+      }
+    }
+    return (int) cardinality;
+  }
+
+  /**
+   * Returns a copy of this set which shares all pages with this set. Pages
+   * are copied the first time they are modified, either on this set or on the
+   * returned copy.
+   */
+  @Override
+  public PagedFixedBitSet clone() {
+    // the pages are now shared
+    ownedPages.clear(0, pages.length);
+    return new PagedFixedBitSet(pages.clone(), numBits);
+  }
+
+  @Override
+  public long ramBytesUsed() {
+    long ramBytesUsed = BASE_RAM_BYTES_USED + RamUsageEstimator.shallowSizeOf(pages) + ownedPages.ramBytesUsed();
+    for (long[] page : pages) {
+      if (page != FULL_PAGE && page != EMPTY_PAGE) {
+        ramBytesUsed += RamUsageEstimator.sizeOf(page);
+      }
+    }
+    return ramBytesUsed;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "(numBits=" + numBits + ",pages=" + pages.length + ",ownedPages=" + numOwnedPages() + ")";
+  }
+}
@@ -34,6 +34,7 @@ import org.apache.lucene.codecs.CodecUtil;
 import org.apache.lucene.store.ByteArrayDataOutput;
 import org.apache.lucene.store.DataInput;
 import org.apache.lucene.store.DataOutput;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.InputStreamDataInput;
 import org.apache.lucene.store.OutputStreamDataOutput;
 import org.apache.lucene.store.RAMOutputStream;
@@ -157,8 +158,12 @@ public final class FST<T> implements Accountable {
   // produces this output
   T emptyOutput;
 
+  // null if the FST bytes are off-heap
   final BytesStore bytes;
 
+  // slice of the file that holds the FST bytes if they are not loaded onto the heap
+  private final IndexInput offHeapBytes;
+
   private long startNode = -1;
 
   public final Outputs<T> outputs;
@@ -302,6 +307,7 @@ public final class FST<T> implements Accountable {
     // pad: ensure no node gets address 0 which is reserved to mean
     // the stop state w/ no arcs
     bytes.writeByte((byte) 0);
+    offHeapBytes = null;
     NO_OUTPUT = outputs.getNoOutput();
     if (willPackFST) {
       nodeAddress = new GrowableWriter(15, 8, acceptableOverheadRatio);
@@ -326,6 +332,20 @@ public final class FST<T> implements Accountable {
   /** Load a previously saved FST; maxBlockBits allows you to
    *  control the size of the byte[] pages used to hold the FST bytes. */
   public FST(DataInput in, Outputs<T> outputs, int maxBlockBits) throws IOException {
+    this(in, outputs, maxBlockBits, false);
+  }
+
+  /** Load a previously saved FST. If <code>offHeap</code> is true, the FST
+   *  bytes are not loaded onto the heap: they are read from a slice of the
+   *  given input instead, which must stay open as long as this FST is used.
+   *  Lookups then rely on the OS cache, which works best with
+   *  {@link org.apache.lucene.store.MMapDirectory}. Packed FSTs can only be
+   *  loaded onto the heap. */
+  public FST(IndexInput in, Outputs<T> outputs, boolean offHeap) throws IOException {
+    this(in, outputs, DEFAULT_MAX_BLOCK_BITS, offHeap);
+  }
+
+  private FST(DataInput in, Outputs<T> outputs, int maxBlockBits, boolean offHeap) throws IOException {
     this.outputs = outputs;
 
     if (maxBlockBits < 1 || maxBlockBits > 30) {
@@ -336,6 +356,9 @@ public final class FST<T> implements Accountable {
     // back-compat promise for FSTs (they are experimental):
     version = CodecUtil.checkHeader(in, FILE_FORMAT_NAME, VERSION_PACKED, VERSION_VINT_TARGET);
     packed = in.readByte() == 1;
+    if (offHeap && packed) {
+      throw new IllegalArgumentException("packed FSTs cannot be read off-heap");
+    }
     if (in.readByte() == 1) {
       // accepts empty string
       // 1 KB blocks:
@@ -385,7 +408,15 @@ public final class FST<T> implements Accountable {
     arcWithOutputCount = in.readVLong();
 
     long numBytes = in.readVLong();
-    bytes = new BytesStore(in, numBytes, 1<<maxBlockBits);
+    if (offHeap) {
+      final IndexInput indexIn = (IndexInput) in;
+      offHeapBytes = indexIn.slice("fst", indexIn.getFilePointer(), numBytes);
+      indexIn.seek(indexIn.getFilePointer() + numBytes);
+      bytes = null;
+    } else {
+      offHeapBytes = null;
+      bytes = new BytesStore(in, numBytes, 1<<maxBlockBits);
+    }
     
     NO_OUTPUT = outputs.getNoOutput();
 
@@ -434,7 +465,9 @@ public final class FST<T> implements Accountable {
   @Override
   public long ramBytesUsed() {
     long size = BASE_RAM_BYTES_USED;
-    size += bytes.ramBytesUsed();
+    if (bytes != null) {
+      size += bytes.ramBytesUsed();
+    }
     if (packed) {
       size += nodeRefToAddress.ramBytesUsed();
     } else if (nodeAddress != null) {
@@ -446,6 +479,13 @@ public final class FST<T> implements Accountable {
     return size;
   }
 
+  /** Returns the number of FST bytes that are read from the index file
+   *  rather than held on the heap, or 0 if the FST is on the heap. These
+   *  bytes are not included in {@link #ramBytesUsed()}. */
+  public long offHeapBytes() {
+    return offHeapBytes == null ? 0 : offHeapBytes.length();
+  }
+
   @Override
   public Collection<Accountable> getChildResources() {
     List<Accountable> resources = new ArrayList<>();
@@ -596,9 +636,16 @@ public final class FST<T> implements Accountable {
     out.writeVLong(nodeCount);
     out.writeVLong(arcCount);
     out.writeVLong(arcWithOutputCount);
-    long numBytes = bytes.getPosition();
-    out.writeVLong(numBytes);
-    bytes.writeTo(out);
+    if (offHeapBytes != null) {
+      final IndexInput in = offHeapBytes.clone();
+      in.seek(0);
+      out.writeVLong(in.length());
+      out.copyBytes(in, in.length());
+    } else {
+      long numBytes = bytes.getPosition();
+      out.writeVLong(numBytes);
+      bytes.writeTo(out);
+    }
   }
   
   /**
@@ -1363,7 +1410,14 @@ public final class FST<T> implements Accountable {
    *  position 0. */
   public BytesReader getBytesReader() {
     BytesReader in;
-    if (packed) {
+    if (offHeapBytes != null) {
+      try {
+        // a private slice, since random-access reads are not thread-safe
+        in = new ReverseRandomAccessReader(offHeapBytes.clone().randomAccessSlice(0, offHeapBytes.length()));
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    } else if (packed) {
       in = bytes.getForwardReader();
     } else {
       in = bytes.getReverseReader();
@@ -1498,6 +1552,7 @@ public final class FST<T> implements Accountable {
     packed = true;
     this.inputType = inputType;
     bytes = new BytesStore(bytesPageBits);
+    offHeapBytes = null;
     this.outputs = outputs;
     NO_OUTPUT = outputs.getNoOutput();
     
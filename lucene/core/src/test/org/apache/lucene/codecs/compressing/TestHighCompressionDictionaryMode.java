@@ -0,0 +1,82 @@
+package org.apache.lucene.codecs.compressing;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.TestUtil;
+
+public class TestHighCompressionDictionaryMode extends AbstractTestCompressionMode {
+
+  @Override
+  public void setUp() throws Exception {
+    super.setUp();
+    mode = CompressionMode.HIGH_COMPRESSION_DICTIONARY;
+  }
+
+  public void testDictionary() throws IOException {
+    final byte[] dictionary = randomArray(mode.getDictionaryLength(), 255);
+    // data that shares a lot with the dictionary
+    final byte[] decompressed = new byte[random().nextInt(8 * 1024)];
+    for (int i = 0; i < decompressed.length; ) {
+      final int off = random().nextInt(dictionary.length);
+      final int len = Math.min(random().nextInt(dictionary.length - off) + 1, decompressed.length - i);
+      System.arraycopy(dictionary, off, decompressed, i, len);
+      i += len;
+    }
+
+    final Compressor compressor = mode.newCompressor();
+    compressor.setDictionary(dictionary, 0, dictionary.length);
+    final byte[] compressed = compress(compressor, decompressed, 0, decompressed.length);
+    if (decompressed.length >= 1024) {
+      assertTrue(compressed.length < compress(decompressed, 0, decompressed.length).length);
+    }
+
+    final Decompressor decompressor = mode.newDecompressor();
+    decompressor.setDictionary(dictionary, 0, dictionary.length);
+    assertArrayEquals(decompressed, decompress(decompressor, compressed, decompressed.length));
+    // clones use the same dictionary
+    assertArrayEquals(decompressed, decompress(decompressor.clone(), compressed, decompressed.length));
+
+    if (decompressed.length > 0) {
+      final int offset = random().nextInt(decompressed.length);
+      final int length = random().nextInt(decompressed.length - offset);
+      final BytesRef bytes = new BytesRef();
+      decompressor.decompress(new ByteArrayDataInput(compressed), decompressed.length, offset, length, bytes);
+      assertEquals(new BytesRef(decompressed, offset, length), bytes);
+    }
+  }
+
+  public void testSampleDictionary() {
+    final byte[] sample = randomArray(TestUtil.nextInt(random(), 0, 1 << 17), 255);
+    final int maxLength = mode.getDictionaryLength();
+    final byte[] dictionary = CompressingStoredFieldsWriter.sampleDictionary(sample, sample.length, maxLength);
+    assertTrue(dictionary.length <= maxLength);
+    assertTrue(dictionary.length <= sample.length / CompressingStoredFieldsWriter.DICTIONARY_SAMPLE_RATIO);
+    // the dictionary is made of evenly spaced slices of the sample
+    final int numSlices = CompressingStoredFieldsWriter.DICTIONARY_NUM_SLICES;
+    final int sliceLength = dictionary.length / numSlices;
+    assertEquals(dictionary.length, sliceLength * numSlices);
+    final int stride = sample.length / numSlices;
+    for (int i = 0; i < numSlices; ++i) {
+      assertEquals(new BytesRef(sample, i * stride, sliceLength), new BytesRef(dictionary, i * sliceLength, sliceLength));
+    }
+  }
+}
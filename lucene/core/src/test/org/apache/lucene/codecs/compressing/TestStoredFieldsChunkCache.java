@@ -0,0 +1,226 @@
+package org.apache.lucene.codecs.compressing;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.StoredFieldsFormat;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.StoredDocument;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Accountables;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestStoredFieldsChunkCache extends LuceneTestCase {
+
+  private static IndexWriter newWriter(Directory dir, StoredFieldsChunkCache cache) throws Exception {
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(newCodec(cache));
+    iwc.setMaxBufferedDocs(TestUtil.nextInt(random(), 50, 200));
+    return new IndexWriter(dir, iwc);
+  }
+
+  private static Codec newCodec(StoredFieldsChunkCache cache) {
+    // few documents per chunk so that segments have many chunks, and chunks
+    // large enough so that our small documents never get sliced
+    final StoredFieldsFormat storedFieldsFormat = new CompressingStoredFieldsFormat("FastCompressingStoredFields", "",
+        CompressionMode.FAST, 1 << 14, TestUtil.nextInt(random(), 2, 10), 1024, cache);
+    return new FastCompressingCodec() {
+      @Override
+      public StoredFieldsFormat storedFieldsFormat() {
+        return storedFieldsFormat;
+      }
+    };
+  }
+
+  private static void addDocuments(IndexWriter w, int from, int to) throws Exception {
+    for (int i = from; i < to; ++i) {
+      Document doc = new Document();
+      doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+      if (random().nextInt(20) != 0) {
+        doc.add(new StoredField("body", body(i)));
+      }
+      w.addDocument(doc);
+    }
+  }
+
+  private static String body(int i) {
+    return "document " + i + " " + TestUtil.randomSimpleString(random(), 0, 20);
+  }
+
+  private static void assertDocuments(DirectoryReader reader) throws Exception {
+    for (int i = 0; i < reader.maxDoc(); ++i) {
+      StoredDocument doc = reader.document(i);
+      String body = doc.get("body");
+      assertTrue(body == null || body.startsWith("document " + doc.get("id") + " "));
+    }
+  }
+
+  public void testHitsSurviveReopen() throws Exception {
+    StoredFieldsChunkCache cache = new StoredFieldsChunkCache(64 * 1024 * 1024);
+    Directory dir = newDirectory();
+    IndexWriter w = newWriter(dir, cache);
+    addDocuments(w, 0, atLeast(500));
+    w.commit();
+
+    DirectoryReader reader = DirectoryReader.open(w, true);
+    assertDocuments(reader);
+    final long misses = cache.getMissCount();
+    assertTrue(misses > 0);
+    assertTrue(cache.ramBytesUsed() > 0);
+    assertEquals(cache.getCacheCount(), cache.getCacheSize() + cache.getEvictionCount());
+
+    // fetching the same documents again is served from the cache
+    final long hits = cache.getHitCount();
+    assertDocuments(reader);
+    assertEquals(misses, cache.getMissCount());
+    assertTrue(cache.getHitCount() > hits);
+
+    // new segments miss, old segments still hit
+    addDocuments(w, reader.maxDoc(), reader.maxDoc() + atLeast(100));
+    DirectoryReader newReader = DirectoryReader.openIfChanged(reader, w, true);
+    assertNotNull(newReader);
+    reader.close();
+    assertEquals(misses, cache.getMissCount());
+    assertDocuments(newReader);
+    assertTrue(cache.getMissCount() > misses);
+
+    for (LeafReaderContext ctx : newReader.leaves()) {
+      final String resources = Accountables.toString((SegmentReader) ctx.reader());
+      assertTrue(resources, resources.contains("stored fields chunk cache [hits="));
+    }
+
+    // closing segments evicts their chunks
+    w.close();
+    newReader.close();
+    assertEquals(0, cache.ramBytesUsed());
+    assertEquals(0, cache.getCacheSize());
+    dir.close();
+  }
+
+  public void testSegmentsOfExistingCommit() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter w = newWriter(dir, null);
+    addDocuments(w, 0, atLeast(500));
+    w.close();
+
+    // segments that are loaded from the commit have the codec that is
+    // registered under this name, but still use the cache of the writer
+    StoredFieldsChunkCache cache = new StoredFieldsChunkCache(64 * 1024 * 1024);
+    w = newWriter(dir, cache);
+    DirectoryReader reader = DirectoryReader.open(w, true);
+    for (LeafReaderContext ctx : reader.leaves()) {
+      assertNotSame(w.getConfig().getCodec(), ((SegmentReader) ctx.reader()).getSegmentInfo().info.getCodec());
+    }
+    assertDocuments(reader);
+    final long misses = cache.getMissCount();
+    assertTrue(misses > 0);
+    final long hits = cache.getHitCount();
+    assertDocuments(reader);
+    assertEquals(misses, cache.getMissCount());
+    assertTrue(cache.getHitCount() > hits);
+
+    reader.close();
+    w.close();
+    assertEquals(0, cache.ramBytesUsed());
+    dir.close();
+  }
+
+  public void testDirectoryReader() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter w = newWriter(dir, null);
+    addDocuments(w, 0, atLeast(500));
+    w.commit();
+
+    StoredFieldsChunkCache cache = new StoredFieldsChunkCache(64 * 1024 * 1024);
+    DirectoryReader reader = DirectoryReader.open(dir, newCodec(cache));
+    assertDocuments(reader);
+    final long misses = cache.getMissCount();
+    assertTrue(misses > 0);
+
+    // segments that the reader adds when reopened use the cache too
+    addDocuments(w, reader.maxDoc(), reader.maxDoc() + atLeast(100));
+    w.close();
+    DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+    assertNotNull(newReader);
+    reader.close();
+    assertDocuments(newReader);
+    assertTrue(cache.getMissCount() > misses);
+    for (LeafReaderContext ctx : newReader.leaves()) {
+      final String resources = Accountables.toString((SegmentReader) ctx.reader());
+      assertTrue(resources, resources.contains("stored fields chunk cache [hits="));
+    }
+
+    newReader.close();
+    assertEquals(0, cache.ramBytesUsed());
+    dir.close();
+  }
+
+  public void testMaxRamBytesUsed() throws Exception {
+    final long maxRamBytesUsed = TestUtil.nextInt(random(), 1024, 64 * 1024);
+    StoredFieldsChunkCache cache = new StoredFieldsChunkCache(maxRamBytesUsed);
+    Directory dir = newDirectory();
+    IndexWriter w = newWriter(dir, cache);
+    addDocuments(w, 0, atLeast(2000));
+    DirectoryReader reader = DirectoryReader.open(w, true);
+    w.close();
+    final int iters = atLeast(1000);
+    for (int i = 0; i < iters; ++i) {
+      final StoredDocument doc = reader.document(random().nextInt(reader.maxDoc()));
+      assertNotNull(doc.get("id"));
+      assertTrue(cache.ramBytesUsed() <= maxRamBytesUsed);
+    }
+    assertTrue(cache.getTotalCount() > 0);
+    reader.close();
+    assertEquals(0, cache.ramBytesUsed());
+    dir.close();
+  }
+
+  public void testDisabled() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter w = newWriter(dir, null);
+    addDocuments(w, 0, atLeast(100));
+    DirectoryReader reader = DirectoryReader.open(w, true);
+    w.close();
+    assertDocuments(reader);
+    for (LeafReaderContext ctx : reader.leaves()) {
+      final String resources = Accountables.toString((SegmentReader) ctx.reader());
+      assertFalse(resources, resources.contains("stored fields chunk cache"));
+    }
+    reader.close();
+    dir.close();
+  }
+
+  public void testInvalidMaxRamBytesUsed() {
+    try {
+      new StoredFieldsChunkCache(0);
+      fail("didn't hit exception");
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+}
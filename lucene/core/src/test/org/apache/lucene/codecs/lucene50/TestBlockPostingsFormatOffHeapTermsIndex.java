@@ -0,0 +1,122 @@
+package org.apache.lucene.codecs.lucene50;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.blocktree.BlockTreeTermsReader;
+import org.apache.lucene.codecs.blocktree.BlockTreeTermsWriter;
+import org.apache.lucene.codecs.blocktree.FieldReader;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.BasePostingsFormatTestCase;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.TestUtil;
+
+/**
+ * Tests BlockPostingsFormat with the terms index read off-heap
+ */
+public class TestBlockPostingsFormatOffHeapTermsIndex extends BasePostingsFormatTestCase {
+  private final Codec codec = TestUtil.alwaysPostingsFormat(new Lucene50PostingsFormat(
+      BlockTreeTermsWriter.DEFAULT_MIN_BLOCK_SIZE, BlockTreeTermsWriter.DEFAULT_MAX_BLOCK_SIZE, true));
+
+  @Override
+  protected Codec getCodec() {
+    return codec;
+  }
+
+  /** Only the selected field reads its terms index off-heap. */
+  public void testPerField() throws Exception {
+    final PostingsFormat offHeap = new Lucene50PostingsFormat(BlockTreeTermsWriter.DEFAULT_MIN_BLOCK_SIZE, BlockTreeTermsWriter.DEFAULT_MAX_BLOCK_SIZE, true);
+    final PostingsFormat onHeap = new Lucene50PostingsFormat();
+    Directory d = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(new Lucene50Codec() {
+      @Override
+      public PostingsFormat getPostingsFormatForField(String field) {
+        return "id".equals(field) ? offHeap : onHeap;
+      }
+    });
+    IndexWriter w = new IndexWriter(d, iwc);
+    final int numDocs = atLeast(1000);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("id", Integer.toString(i), Field.Store.NO));
+      doc.add(newStringField("body", Integer.toString(i % 100), Field.Store.NO));
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+    w.close();
+
+    DirectoryReader r = DirectoryReader.open(d);
+    LeafReader leaf = r.leaves().get(0).reader();
+    assertEquals("true", leaf.getFieldInfos().fieldInfo("id").getAttribute(BlockTreeTermsReader.OFF_HEAP_TERMS_INDEX_KEY));
+    assertEquals("false", leaf.getFieldInfos().fieldInfo("body").getAttribute(BlockTreeTermsReader.OFF_HEAP_TERMS_INDEX_KEY));
+    FieldReader id = (FieldReader) leaf.fields().terms("id");
+    FieldReader body = (FieldReader) leaf.fields().terms("body");
+    assertTrue(id.getChildResources().iterator().next().toString().contains("off-heap"));
+    assertFalse(body.getChildResources().iterator().next().toString().contains("off-heap"));
+
+    TermsEnum termsEnum = id.iterator();
+    for (int i = 0; i < numDocs; i++) {
+      assertTrue(termsEnum.seekExact(new BytesRef(Integer.toString(i))));
+    }
+    assertFalse(termsEnum.seekExact(new BytesRef("foo")));
+    r.close();
+    d.close();
+  }
+
+  /** A merge records the choice of the writer that merges, not the one of its source segments. */
+  public void testMergeResetsChoice() throws Exception {
+    Directory d = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(codec);
+    IndexWriter w = new IndexWriter(d, iwc);
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("id", Integer.toString(i), Field.Store.NO));
+      w.addDocument(doc);
+      if (random().nextInt(20) == 0) {
+        w.commit();
+      }
+    }
+    w.close();
+
+    iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(TestUtil.alwaysPostingsFormat(new Lucene50PostingsFormat()));
+    w = new IndexWriter(d, iwc);
+    w.forceMerge(1);
+    w.close();
+
+    DirectoryReader r = DirectoryReader.open(d);
+    LeafReader leaf = r.leaves().get(0).reader();
+    assertEquals("false", leaf.getFieldInfos().fieldInfo("id").getAttribute(BlockTreeTermsReader.OFF_HEAP_TERMS_INDEX_KEY));
+    FieldReader id = (FieldReader) leaf.fields().terms("id");
+    assertFalse(id.getChildResources().iterator().next().toString().contains("off-heap"));
+    r.close();
+    d.close();
+  }
+}
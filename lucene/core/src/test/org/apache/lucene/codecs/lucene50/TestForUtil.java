@@ -19,6 +19,7 @@ package org.apache.lucene.codecs.lucene50;
 
 import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.BLOCK_SIZE;
 import static org.apache.lucene.codecs.lucene50.ForUtil.MAX_DATA_SIZE;
+import static org.apache.lucene.codecs.lucene50.ForUtil.MAX_ENCODED_LONGS;
 import static org.apache.lucene.codecs.lucene50.ForUtil.MAX_ENCODED_SIZE;
 
 import java.io.IOException;
@@ -82,9 +83,19 @@ public class TestForUtil extends LuceneTestCase {
           continue;
         }
         final int[] restored = new int[MAX_DATA_SIZE];
-        forUtil.readBlock(in, new byte[MAX_ENCODED_SIZE], restored);
-        assertArrayEquals(Arrays.copyOfRange(values, i * BLOCK_SIZE, (i + 1) * BLOCK_SIZE),
-            Arrays.copyOf(restored, BLOCK_SIZE));
+        final int[] expected = Arrays.copyOfRange(values, i * BLOCK_SIZE, (i + 1) * BLOCK_SIZE);
+        if (random().nextBoolean()) {
+          forUtil.readBlock(in, new long[MAX_ENCODED_LONGS], restored);
+        } else {
+          final int base = random().nextInt();
+          forUtil.readDeltaBlock(in, new long[MAX_ENCODED_LONGS], restored, base);
+          int sum = base;
+          for (int j = 0; j < BLOCK_SIZE; ++j) {
+            sum += expected[j];
+            expected[j] = sum;
+          }
+        }
+        assertArrayEquals(expected, Arrays.copyOf(restored, BLOCK_SIZE));
       }
       assertEquals(endPointer, in.getFilePointer());
       in.close();
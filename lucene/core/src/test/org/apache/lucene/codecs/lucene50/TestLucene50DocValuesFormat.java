@@ -28,6 +28,8 @@ import org.apache.lucene.codecs.PostingsFormat;
 import org.apache.lucene.codecs.asserting.AssertingCodec;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.BaseCompressingDocValuesFormatTestCase;
@@ -35,14 +37,17 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.SerialMergeScheduler;
+import org.apache.lucene.index.SortedDocValues;
 import org.apache.lucene.index.SortedSetDocValues;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.index.Terms;
 import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.index.TermsEnum.SeekStatus;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.TestUtil;
 
@@ -116,6 +121,59 @@ public class TestLucene50DocValuesFormat extends BaseCompressingDocValuesFormatT
     }
   }
   
+  @Slow
+  public void testSparseNumericAndSorted() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig conf = newIndexWriterConfig(new MockAnalyzer(random()));
+    conf.setCodec(getCodec());
+    conf.setMergePolicy(newLogMergePolicy());
+    RandomIndexWriter writer = new RandomIndexWriter(random(), dir, conf);
+    final int numDocs = TestUtil.nextInt(random(), 100000, 140000);
+    // a dense range of documents so that a block of the sparse doc set is written as a bitmap
+    final int denseStart = random().nextInt(60000);
+    final int denseEnd = denseStart + 4600;
+    final Long values[] = new Long[numDocs];
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(new NumericDocValuesField("id", i));
+      if ((i >= denseStart && i < denseEnd) || random().nextInt(200) == 0) {
+        values[i] = random().nextBoolean() ? random().nextLong() : random().nextInt(100);
+        doc.add(new NumericDocValuesField("numeric", values[i]));
+        doc.add(new SortedDocValuesField("sorted", new BytesRef(Long.toString(values[i]))));
+      }
+      writer.addDocument(doc);
+    }
+    writer.forceMerge(1);
+    DirectoryReader ir = writer.getReader();
+    writer.close();
+    for (LeafReaderContext context : ir.leaves()) {
+      LeafReader reader = context.reader();
+      int maxDoc = reader.maxDoc();
+      NumericDocValues ids = reader.getNumericDocValues("id");
+      NumericDocValues numeric = reader.getNumericDocValues("numeric");
+      SortedDocValues sorted = reader.getSortedDocValues("sorted");
+      Bits docsWithField = reader.getDocsWithField("numeric");
+      // in order, backwards and random lookups
+      for (int iter = 0; iter < 3; iter++) {
+        for (int i = 0; i < maxDoc; i++) {
+          final int docID = iter == 0 ? i : iter == 1 ? maxDoc - 1 - i : random().nextInt(maxDoc);
+          Long expected = values[(int) ids.get(docID)];
+          if (expected == null) {
+            assertFalse(docsWithField.get(docID));
+            assertEquals(0, numeric.get(docID));
+            assertEquals(-1, sorted.getOrd(docID));
+          } else {
+            assertTrue(docsWithField.get(docID));
+            assertEquals(expected.longValue(), numeric.get(docID));
+            assertEquals(new BytesRef(Long.toString(expected)), sorted.get(docID));
+          }
+        }
+      }
+    }
+    ir.close();
+    dir.close();
+  }
+
   // TODO: try to refactor this and some termsenum tests into the base class.
   // to do this we need to fix the test class to get a DVF not a Codec so we can setup
   // the postings format correctly.
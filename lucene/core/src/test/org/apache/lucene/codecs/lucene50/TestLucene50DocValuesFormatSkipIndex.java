@@ -0,0 +1,120 @@
+package org.apache.lucene.codecs.lucene50;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.BaseCompressingDocValuesFormatTestCase;
+import org.apache.lucene.index.BlockMinMaxNumericDocValues;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.TestUtil;
+
+/**
+ * Tests Lucene50DocValuesFormat with a skip index
+ */
+public class TestLucene50DocValuesFormatSkipIndex extends BaseCompressingDocValuesFormatTestCase {
+  private Codec codec;
+
+  @Override
+  protected Codec getCodec() {
+    if (codec == null) {
+      codec = TestUtil.alwaysDocValuesFormat(new Lucene50DocValuesFormat(1 << TestUtil.nextInt(random(), 4, 10)));
+    }
+    return codec;
+  }
+
+  public void testIllegalSkipBlockSize() {
+    try {
+      new Lucene50DocValuesFormat(Lucene50DocValuesFormat.MIN_SKIP_BLOCK_SIZE / 2);
+      fail();
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+    try {
+      new Lucene50DocValuesFormat(100);
+      fail();
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+  }
+
+  public void testBlockMinMax() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig();
+    iwc.setCodec(getCodec());
+    IndexWriter iw = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(5000);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      if (random().nextInt(10) != 0) {
+        final long value = random().nextBoolean() ? random().nextLong() : random().nextInt(100);
+        doc.add(new NumericDocValuesField("numeric", value));
+        doc.add(new SortedNumericDocValuesField("sorted_numeric", value));
+      }
+      iw.addDocument(doc);
+    }
+    if (random().nextBoolean()) {
+      iw.forceMerge(1);
+    }
+    DirectoryReader ir = DirectoryReader.open(iw, true);
+    iw.close();
+    for (LeafReaderContext context : ir.leaves()) {
+      LeafReader reader = context.reader();
+      if (reader.getNumericDocValues("numeric") == null) {
+        continue; // no document of this segment has a value
+      }
+      BlockMinMaxNumericDocValues numeric = (BlockMinMaxNumericDocValues) reader.getNumericDocValues("numeric");
+      BlockMinMaxNumericDocValues sortedNumeric = (BlockMinMaxNumericDocValues)
+          DocValues.unwrapSingleton(reader.getSortedNumericDocValues("sorted_numeric"));
+      Bits docsWithField = reader.getDocsWithField("numeric");
+      for (BlockMinMaxNumericDocValues values : new BlockMinMaxNumericDocValues[] { numeric, sortedNumeric }) {
+        final int blockShift = values.getBlockShift();
+        final int blockSize = 1 << blockShift;
+        final int numBlocks = (reader.maxDoc() + blockSize - 1) >>> blockShift;
+        for (int block = 0; block < numBlocks; block++) {
+          long minValue = Long.MAX_VALUE;
+          long maxValue = Long.MIN_VALUE;
+          int docCount = 0;
+          for (int doc = block << blockShift; doc < Math.min(reader.maxDoc(), (block + 1) << blockShift); doc++) {
+            if (docsWithField.get(doc)) {
+              minValue = Math.min(minValue, values.get(doc));
+              maxValue = Math.max(maxValue, values.get(doc));
+              docCount++;
+            }
+          }
+          assertEquals(docCount, values.getDocCount(block));
+          if (docCount > 0) {
+            assertEquals(minValue, values.getMinValue(block));
+            assertEquals(maxValue, values.getMaxValue(block));
+          }
+        }
+      }
+    }
+    ir.close();
+    dir.close();
+  }
+}
@@ -0,0 +1,83 @@
+package org.apache.lucene.codecs.lucene50;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat.Mode;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.BaseStoredFieldsFormatTestCase;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StorableField;
+import org.apache.lucene.index.StoredDocument;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.TestUtil;
+
+public class TestLucene50StoredFieldsFormatDictionary extends BaseStoredFieldsFormatTestCase {
+  @Override
+  protected Codec getCodec() {
+    return new Lucene50Codec(Mode.BEST_COMPRESSION_DICTIONARY);
+  }
+
+  /** Segments whose first documents are too small to sample a dictionary from. */
+  public void testTinySegments() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig();
+    iwc.setCodec(getCodec());
+    iwc.setMaxBufferedDocs(TestUtil.nextInt(random(), 2, 10));
+    IndexWriter iw = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(100);
+    final String[] bodies = new String[numDocs];
+    int numEmptyDocs = 0;
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      if (random().nextInt(10) != 0) {
+        bodies[i] = TestUtil.randomSimpleString(random(), 0, 200);
+        doc.add(new StoredField("id", i));
+        doc.add(new StoredField("body", bodies[i]));
+      } else {
+        numEmptyDocs++;
+      }
+      iw.addDocument(doc);
+    }
+    DirectoryReader ir = DirectoryReader.open(iw, true);
+    iw.forceMerge(1);
+    DirectoryReader merged = DirectoryReader.openIfChanged(ir);
+    assertNotNull(merged);
+    for (DirectoryReader reader : new DirectoryReader[] { ir, merged }) {
+      assertEquals(numDocs, reader.maxDoc());
+      int emptyDocs = 0;
+      for (int i = 0; i < numDocs; i++) {
+        StoredDocument doc = reader.document(i);
+        StorableField id = doc.getField("id");
+        if (id == null) {
+          emptyDocs++;
+        } else {
+          assertEquals(bodies[id.numericValue().intValue()], doc.get("body"));
+        }
+      }
+      assertEquals(numEmptyDocs, emptyDocs);
+    }
+    ir.close();
+    merged.close();
+    iw.close();
+    dir.close();
+  }
+}
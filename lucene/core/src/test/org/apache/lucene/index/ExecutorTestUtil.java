@@ -0,0 +1,81 @@
+package org.apache.lucene.index;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.NamedThreadFactory;
+import org.apache.lucene.util.TestUtil;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Helpers for tests of the executors that {@link IndexWriterConfig} accepts. */
+final class ExecutorTestUtil {
+
+  private ExecutorTestUtil() {}
+
+  /** Applies operations to a writer, only using the given {@link Random}
+   *  for random choices so that they can be replayed on another writer. */
+  interface Indexer {
+    void index(IndexWriter writer, Random random) throws IOException;
+  }
+
+  /** Returns a fixed thread pool with 1 to 4 threads. Tests must release it
+   *  with {@link #shutdown} in a finally block. */
+  static ExecutorService newExecutor(String name) {
+    return Executors.newFixedThreadPool(TestUtil.nextInt(LuceneTestCase.random(), 1, 4), new NamedThreadFactory(name));
+  }
+
+  /** Shuts down the executor and waits for its threads to terminate. */
+  static void shutdown(ExecutorService executor) throws InterruptedException {
+    executor.shutdown();
+    assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+  }
+
+  /** Replays the same operations on a writer that uses <code>expectedConfig</code>
+   *  and on one that uses <code>actualConfig</code>, then checks that both
+   *  writers produced the same segments and the same content. */
+  static void assertSameIndex(LuceneTestCase test, IndexWriterConfig expectedConfig, IndexWriterConfig actualConfig,
+                              Indexer indexer) throws IOException {
+    final long seed = LuceneTestCase.random().nextLong();
+    final Directory dir1 = LuceneTestCase.newDirectory();
+    final Directory dir2 = LuceneTestCase.newDirectory();
+    final IndexWriter w1 = new IndexWriter(dir1, expectedConfig);
+    final IndexWriter w2 = new IndexWriter(dir2, actualConfig);
+    indexer.index(w1, new Random(seed));
+    indexer.index(w2, new Random(seed));
+
+    final DirectoryReader r1 = DirectoryReader.open(w1, true);
+    final DirectoryReader r2 = DirectoryReader.open(w2, true);
+    assertEquals(r1.leaves().size(), r2.leaves().size());
+    for (int i = 0; i < r1.leaves().size(); ++i) {
+      assertEquals(r1.leaves().get(i).reader().maxDoc(), r2.leaves().get(i).reader().maxDoc());
+    }
+    test.assertReaderEquals("with executor", r1, r2);
+
+    IOUtils.close(r1, r2, w1, w2, dir1, dir2);
+  }
+}
@@ -0,0 +1,287 @@
+package org.apache.lucene.index;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.MergePolicy.OneMerge;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.ThreadInterruptedException;
+
+public class TestAdaptiveMergeScheduler extends LuceneTestCase {
+
+  public void testComputeThreadCount() {
+    assertEquals(1, AdaptiveMergeScheduler.computeThreadCount(0, 10, 1, 4));
+    assertEquals(2, AdaptiveMergeScheduler.computeThreadCount(10, 10, 1, 4));
+    assertEquals(3, AdaptiveMergeScheduler.computeThreadCount(20, 10, 1, 4));
+    assertEquals(4, AdaptiveMergeScheduler.computeThreadCount(1000, 10, 1, 4));
+    assertEquals(2, AdaptiveMergeScheduler.computeThreadCount(0, 10, 2, 4));
+  }
+
+  public void testInvalidSettings() {
+    AdaptiveMergeScheduler ams = new AdaptiveMergeScheduler();
+    try {
+      ams.setFastLane(-1, 2);
+      fail("should have hit IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+    try {
+      ams.setFastLane(10, -1);
+      fail("should have hit IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+    try {
+      ams.setThreadCountBounds(0, 2);
+      fail("should have hit IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+    try {
+      ams.setThreadCountBounds(3, 2);
+      fail("should have hit IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+    try {
+      ams.setPressureSignal(null, -1);
+      fail("should have hit IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+  }
+
+  private static Document newDocument(int id) {
+    Document doc = new Document();
+    doc.add(new TextField("body", "document number " + id, Field.Store.YES));
+    return doc;
+  }
+
+  /** A merge policy that only merges the segments it is told to. */
+  private static class ScriptedMergePolicy extends MergePolicy {
+
+    final List<List<SegmentCommitInfo>> toMerge = Collections.synchronizedList(new ArrayList<List<SegmentCommitInfo>>());
+
+    @Override
+    public MergeSpecification findMerges(MergeTrigger mergeTrigger, SegmentInfos segmentInfos, IndexWriter writer) {
+      if (toMerge.isEmpty()) {
+        return null;
+      }
+      MergeSpecification spec = new MergeSpecification();
+      spec.add(new OneMerge(toMerge.remove(0)));
+      return spec;
+    }
+
+    @Override
+    public MergeSpecification findForcedMerges(SegmentInfos segmentInfos, int maxSegmentCount,
+        Map<SegmentCommitInfo,Boolean> segmentsToMerge, IndexWriter writer) {
+      return null;
+    }
+
+    @Override
+    public MergeSpecification findForcedDeletesMerges(SegmentInfos segmentInfos, IndexWriter writer) {
+      return null;
+    }
+  }
+
+  // Make sure that a small merge can run while the only slot for large
+  // merges is taken, without stalling the thread that registers it
+  public void testFastLane() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+    iwc.setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    for (int i = 0; i < 2; ++i) {
+      for (int j = 0; j < 2000; ++j) {
+        w.addDocument(newDocument(j));
+      }
+      w.commit();
+    }
+    for (int i = 0; i < 2; ++i) {
+      w.addDocument(newDocument(i));
+      w.commit();
+    }
+    w.close();
+
+    SegmentInfos infos = SegmentInfos.readLatestCommit(dir);
+    assertEquals(4, infos.size());
+    long bytes = 0;
+    for (SegmentCommitInfo info : infos) {
+      if (info.info.maxDoc() == 1) {
+        bytes += info.sizeInBytes();
+      }
+    }
+    final long smallMergeBytes = bytes;
+
+    final CountDownLatch largeMergeStarted = new CountDownLatch(1);
+    final CountDownLatch smallMergeDone = new CountDownLatch(1);
+    final AtomicBoolean failed = new AtomicBoolean();
+    AdaptiveMergeScheduler ams = new AdaptiveMergeScheduler() {
+      @Override
+      protected void doMerge(IndexWriter writer, OneMerge merge) throws IOException {
+        if (merge.estimatedMergeBytes > smallMergeBytes) {
+          largeMergeStarted.countDown();
+          try {
+            // block until the small merge is done
+            if (smallMergeDone.await(30, TimeUnit.SECONDS) == false) {
+              failed.set(true);
+            }
+          } catch (InterruptedException ie) {
+            throw new ThreadInterruptedException(ie);
+          }
+          super.doMerge(writer, merge);
+        } else {
+          super.doMerge(writer, merge);
+          smallMergeDone.countDown();
+        }
+      }
+    };
+    ams.setMaxMergesAndThreads(1, 1);
+    ams.setFastLane((smallMergeBytes + 1) / 1024. / 1024., 1);
+
+    ScriptedMergePolicy mp = new ScriptedMergePolicy();
+    iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setMergePolicy(mp);
+    iwc.setMergeScheduler(ams);
+    w = new IndexWriter(dir, iwc);
+    final List<SegmentCommitInfo> segments = w.segmentInfos.asList();
+    final List<SegmentCommitInfo> largeMerge = new ArrayList<>();
+    final List<SegmentCommitInfo> smallMerge = new ArrayList<>();
+    for (SegmentCommitInfo info : segments) {
+      (info.info.maxDoc() > 1 ? largeMerge : smallMerge).add(info);
+    }
+    mp.toMerge.add(largeMerge);
+    w.maybeMerge();
+    assertTrue(largeMergeStarted.await(30, TimeUnit.SECONDS));
+    // this would stall with ConcurrentMergeScheduler since maxMergeCount is 1
+    mp.toMerge.add(smallMerge);
+    w.maybeMerge();
+    assertTrue(smallMergeDone.await(30, TimeUnit.SECONDS));
+    w.waitForMerges();
+    assertFalse(failed.get());
+    assertEquals(2, w.segmentInfos.size());
+    assertEquals(4002, w.maxDoc());
+    w.close();
+    dir.close();
+  }
+
+  // Make sure that large merges get throttled under pressure
+  public void testPressure() throws Exception {
+    final AtomicBoolean pressure = new AtomicBoolean(true);
+    final List<Double> rates = Collections.synchronizedList(new ArrayList<Double>());
+    AdaptiveMergeScheduler ams = new AdaptiveMergeScheduler() {
+      @Override
+      protected void doMerge(IndexWriter writer, OneMerge merge) throws IOException {
+        synchronized (this) {
+          // wait for the merge to be fully started
+          rates.add(merge.rateLimiter.getMBPerSec());
+        }
+        super.doMerge(writer, merge);
+      }
+    };
+    ams.setFastLane(0, 0);
+    ams.setPressureSignal(new AdaptiveMergeScheduler.PressureSignal() {
+      @Override
+      public boolean isUnderPressure() {
+        return pressure.get();
+      }
+    }, 1000);
+
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setMergeScheduler(ams);
+    iwc.setMaxBufferedDocs(2);
+    LogDocMergePolicy mp = new LogDocMergePolicy();
+    mp.setMergeFactor(2);
+    iwc.setMergePolicy(mp);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(50);
+    for (int i = 0; i < numDocs; ++i) {
+      w.addDocument(newDocument(i));
+    }
+    w.waitForMerges();
+    assertFalse(rates.isEmpty());
+    for (double rate : rates) {
+      assertEquals(1000, rate, 0d);
+    }
+
+    pressure.set(false);
+    ams.pressureChanged();
+    rates.clear();
+    for (int i = 0; i < numDocs; ++i) {
+      w.addDocument(newDocument(i));
+    }
+    w.waitForMerges();
+    assertFalse(rates.isEmpty());
+    for (double rate : rates) {
+      assertTrue(rate > 1000);
+    }
+    w.close();
+    dir.close();
+  }
+
+  public void testIndexing() throws Exception {
+    final AtomicBoolean pressure = new AtomicBoolean();
+    AdaptiveMergeScheduler ams = new AdaptiveMergeScheduler();
+    ams.setFastLane(random().nextInt(3) / 1024., random().nextInt(3));
+    ams.setThreadCountBounds(1, 1 + random().nextInt(3));
+    ams.setPressureSignal(new AdaptiveMergeScheduler.PressureSignal() {
+      @Override
+      public boolean isUnderPressure() {
+        return pressure.get();
+      }
+    }, random().nextInt(100));
+
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setMergeScheduler(ams);
+    iwc.setMaxBufferedDocs(2 + random().nextInt(5));
+    IndexWriter w = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(500);
+    for (int i = 0; i < numDocs; ++i) {
+      w.addDocument(newDocument(i));
+      if (random().nextInt(50) == 0) {
+        pressure.set(random().nextBoolean());
+        ams.pressureChanged();
+      }
+    }
+    pressure.set(false);
+    ams.pressureChanged();
+    w.forceMerge(1);
+    DirectoryReader reader = DirectoryReader.open(w, true);
+    assertEquals(1, reader.leaves().size());
+    assertEquals(numDocs, reader.numDocs());
+    reader.close();
+    w.close();
+    dir.close();
+  }
+}
@@ -26,6 +26,7 @@ import java.util.ArrayList;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.LineFileDocs;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.LockObtainFailedException;
 import org.apache.lucene.analysis.Analyzer;
@@ -168,6 +169,73 @@ public class TestCheckIndex extends LuceneTestCase {
     analyzer.close();
   }
   
+  public void testThreadCount() throws IOException {
+    LineFileDocs lf = new LineFileDocs(random());
+    Directory dir = newDirectory();
+    Analyzer analyzer = new MockAnalyzer(random());
+    IndexWriterConfig iwc = newIndexWriterConfig(analyzer);
+    iwc.setMaxBufferedDocs(TestUtil.nextInt(random(), 5, 20));
+    iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+    IndexWriter iw = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; i++) {
+      iw.addDocument(lf.nextDoc());
+      if (random().nextInt(20) == 0) {
+        iw.deleteDocuments(new Term("docid", Integer.toString(random().nextInt(i + 1))));
+      }
+    }
+    iw.close();
+    lf.close();
+
+    final boolean crossCheckTermVectors = random().nextBoolean();
+    final String[] reports = new String[2];
+    final CheckIndex.Status[] statuses = new CheckIndex.Status[2];
+    for (int i = 0; i < 2; i++) {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
+      CheckIndex checker = new CheckIndex(dir);
+      checker.setCrossCheckTermVectors(crossCheckTermVectors);
+      checker.setInfoStream(new PrintStream(bos, false, IOUtils.UTF_8));
+      checker.setThreadCount(i == 0 ? 1 : TestUtil.nextInt(random(), 2, 8));
+      statuses[i] = checker.checkIndex();
+      checker.close();
+      // timings differ between runs
+      reports[i] = bos.toString(IOUtils.UTF_8).replaceAll("took [0-9.]+ sec", "").replaceAll("Took [0-9.]+ sec total", "");
+    }
+
+    assertTrue(statuses[0].clean);
+    assertTrue(statuses[1].clean);
+    assertEquals(statuses[0].segmentInfos.size(), statuses[1].segmentInfos.size());
+    for (int i = 0; i < statuses[0].segmentInfos.size(); i++) {
+      CheckIndex.Status.SegmentInfoStatus expected = statuses[0].segmentInfos.get(i);
+      CheckIndex.Status.SegmentInfoStatus actual = statuses[1].segmentInfos.get(i);
+      assertEquals(expected.name, actual.name);
+      assertEquals(expected.termIndexStatus.termCount, actual.termIndexStatus.termCount);
+      assertEquals(expected.storedFieldStatus.totFields, actual.storedFieldStatus.totFields);
+      assertEquals(expected.docValuesStatus.totalValueFields, actual.docValuesStatus.totalValueFields);
+    }
+    // the report is printed in the same order
+    assertEquals(reports[0], reports[1]);
+
+    dir.close();
+    analyzer.close();
+  }
+
+  public void testInvalidThreadCount() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null));
+    iw.addDocument(new Document());
+    iw.close();
+    CheckIndex checker = new CheckIndex(dir);
+    try {
+      checker.setThreadCount(0);
+      fail("should have hit IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+    checker.close();
+    dir.close();
+  }
+
   public void testObtainsLock() throws IOException {
     Directory dir = newDirectory();
     IndexWriter iw = new IndexWriter(dir, newIndexWriterConfig(null));
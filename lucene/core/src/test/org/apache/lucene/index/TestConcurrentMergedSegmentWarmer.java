@@ -0,0 +1,174 @@
+package org.apache.lucene.index;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.ConcurrentMergedSegmentWarmer.PreloadDocValuesStage;
+import org.apache.lucene.index.ConcurrentMergedSegmentWarmer.PreloadFilesStage;
+import org.apache.lucene.index.ConcurrentMergedSegmentWarmer.ReplayQueriesStage;
+import org.apache.lucene.index.ConcurrentMergedSegmentWarmer.Stage;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.InfoStream;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.NamedThreadFactory;
+
+public class TestConcurrentMergedSegmentWarmer extends LuceneTestCase {
+
+  /** Counts the segments it is invoked on. */
+  private static class CountingStage extends Stage {
+    final AtomicInteger warmedSegments = new AtomicInteger();
+    final AtomicInteger warmedDocs = new AtomicInteger();
+
+    @Override
+    public void warm(LeafReader reader, long deadlineNS) throws IOException {
+      warmedSegments.incrementAndGet();
+      warmedDocs.addAndGet(reader.maxDoc());
+    }
+  }
+
+  private static void indexAndMerge(IndexWriterConfig iwc, Directory dir, int numDocs) throws IOException {
+    iwc.setReaderPooling(true);
+    iwc.setMaxBufferedDocs(10);
+    LogDocMergePolicy mp = new LogDocMergePolicy();
+    // only merge on forceMerge
+    mp.setMergeFactor(1000);
+    iwc.setMergePolicy(mp);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+      doc.add(new NumericDocValuesField("number", i));
+      doc.add(new SortedSetDocValuesField("tags", new BytesRef(Integer.toString(i % 7))));
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+    w.close();
+  }
+
+  public void testStages() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("TestConcurrentMergedSegmentWarmer"));
+    try {
+      ReplayQueriesStage replayQueries = new ReplayQueriesStage(2, 10);
+      Query query1 = new TermQuery(new Term("id", "1"));
+      Query query2 = new TermQuery(new Term("id", "2"));
+      Query query3 = new MatchAllDocsQuery();
+      replayQueries.record(query1);
+      replayQueries.record(query2);
+      replayQueries.record(query3);
+      // the oldest query was evicted
+      assertEquals(Arrays.asList(query2, query3), replayQueries.getRecordedQueries());
+
+      CountingStage counter = new CountingStage();
+      ConcurrentMergedSegmentWarmer warmer = new ConcurrentMergedSegmentWarmer(executor, TimeUnit.MINUTES.toMillis(10), InfoStream.NO_OUTPUT,
+          replayQueries,
+          new PreloadDocValuesStage(Arrays.asList("number", "tags")),
+          new PreloadFilesStage(Arrays.asList("tip", "dvd", "fdt")),
+          counter);
+
+      Directory dir = newDirectory();
+      IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+      iwc.setMergedSegmentWarmer(warmer);
+      final int numDocs = atLeast(50);
+      indexAndMerge(iwc, dir, numDocs);
+      warmer.close();
+
+      assertEquals(0, warmer.getPendingWarms());
+      assertEquals(1, counter.warmedSegments.get());
+      assertEquals(numDocs, counter.warmedDocs.get());
+
+      DirectoryReader reader = DirectoryReader.open(dir);
+      assertEquals(numDocs, reader.numDocs());
+      reader.close();
+      dir.close();
+    } finally {
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+  }
+
+  public void testTimeBudget() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("TestConcurrentMergedSegmentWarmer"));
+    try {
+      CountingStage counter = new CountingStage();
+      // with no budget, no stage may start
+      ConcurrentMergedSegmentWarmer warmer = new ConcurrentMergedSegmentWarmer(executor, 0, InfoStream.NO_OUTPUT, counter);
+      Directory dir = newDirectory();
+      IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+      iwc.setMergedSegmentWarmer(warmer);
+      indexAndMerge(iwc, dir, atLeast(50));
+      warmer.close();
+      assertEquals(0, counter.warmedSegments.get());
+      dir.close();
+    } finally {
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+  }
+
+  public void testClosed() throws Exception {
+    final ExecutorService executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("TestConcurrentMergedSegmentWarmer"));
+    try {
+      CountingStage counter = new CountingStage();
+      ConcurrentMergedSegmentWarmer warmer = new ConcurrentMergedSegmentWarmer(executor, TimeUnit.MINUTES.toMillis(10), InfoStream.NO_OUTPUT, counter);
+      warmer.close();
+      Directory dir = newDirectory();
+      IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+      iwc.setMergedSegmentWarmer(warmer);
+      indexAndMerge(iwc, dir, atLeast(50));
+      assertEquals(0, counter.warmedSegments.get());
+      dir.close();
+    } finally {
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+    }
+  }
+
+  public void testIllegalArguments() {
+    try {
+      new ReplayQueriesStage(0, 10);
+      fail("should have hit IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+    final ExecutorService executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("TestConcurrentMergedSegmentWarmer"));
+    try {
+      new ConcurrentMergedSegmentWarmer(executor, -1, InfoStream.NO_OUTPUT);
+      fail("should have hit IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // ok
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -19,6 +19,7 @@ package org.apache.lucene.index;
 
 import java.io.IOException;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
@@ -183,6 +184,37 @@ public class TestCrash extends LuceneTestCase {
     dir.close();
   }
 
+  public void testCrashAfterCommitWithSyncExecutor() throws Exception {
+    final ExecutorService executor = ExecutorTestUtil.newExecutor("sync");
+    try {
+      MockDirectoryWrapper dir = newMockDirectory(random(), NoLockFactory.INSTANCE);
+      IndexWriter writer = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random()))
+          .setMaxBufferedDocs(10).setMergePolicy(NoMergePolicy.INSTANCE).setSyncExecutor(executor));
+
+      Document doc = new Document();
+      doc.add(newTextField("content", "aaa", Field.Store.NO));
+      for (int i = 0; i < 157; i++) {
+        writer.addDocument(doc);
+        if (random().nextInt(50) == 0) {
+          writer.commit();
+        }
+      }
+      writer.commit();
+      // files that were synced in the background, or by the commit, must survive the crash
+      dir.crash();
+
+      IndexReader reader = DirectoryReader.open(dir);
+      assertEquals(157, reader.numDocs());
+      reader.close();
+
+      // releases the write lock and waits for in-flight background syncs
+      writer.rollback();
+      dir.close();
+    } finally {
+      ExecutorTestUtil.shutdown(executor);
+    }
+  }
+
   public void testCrashAfterCloseNoWait() throws IOException {
     Random random = random();
     MockDirectoryWrapper dir = newMockDirectory(random, NoLockFactory.INSTANCE);
@@ -0,0 +1,117 @@
+package org.apache.lucene.index;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.ByteBlockPool;
+import org.apache.lucene.util.Counter;
+import org.apache.lucene.util.IntBlockPool;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestDocumentsWriterBlockRecycler extends LuceneTestCase {
+
+  public void testRecycledBlocksAreZeroed() {
+    DocumentsWriterBlockRecycler recycler = new DocumentsWriterBlockRecycler(16 * 1024 * 1024);
+    Counter bytesUsed = Counter.newCounter();
+    ByteBlockPool.Allocator byteAllocator = recycler.newByteBlockAllocator(bytesUsed);
+    IntBlockPool.Allocator intAllocator = recycler.newIntBlockAllocator(bytesUsed);
+
+    byte[][] byteBlocks = new byte[1][];
+    byteBlocks[0] = byteAllocator.getByteBlock();
+    Arrays.fill(byteBlocks[0], (byte) 42);
+    int[][] intBlocks = new int[1][];
+    intBlocks[0] = intAllocator.getIntBlock();
+    Arrays.fill(intBlocks[0], 42);
+    assertEquals(ByteBlockPool.BYTE_BLOCK_SIZE + IntBlockPool.INT_BLOCK_SIZE * 4, bytesUsed.get());
+    assertEquals(0, recycler.ramBytesUsed());
+
+    byteAllocator.recycleByteBlocks(byteBlocks, 0, 1);
+    intAllocator.recycleIntBlocks(intBlocks, 0, 1);
+    assertEquals(0, bytesUsed.get());
+    assertEquals(2, recycler.numBufferedBlocks());
+    assertEquals(ByteBlockPool.BYTE_BLOCK_SIZE + IntBlockPool.INT_BLOCK_SIZE * 4, recycler.ramBytesUsed());
+
+    // another DWPT reuses the blocks
+    Counter otherBytesUsed = Counter.newCounter();
+    byte[] byteBlock = recycler.newByteBlockAllocator(otherBytesUsed).getByteBlock();
+    int[] intBlock = recycler.newIntBlockAllocator(otherBytesUsed).getIntBlock();
+    assertEquals(0, recycler.numBufferedBlocks());
+    assertEquals(ByteBlockPool.BYTE_BLOCK_SIZE + IntBlockPool.INT_BLOCK_SIZE * 4, otherBytesUsed.get());
+    for (byte b : byteBlock) {
+      assertEquals(0, b);
+    }
+    for (int i : intBlock) {
+      assertEquals(0, i);
+    }
+  }
+
+  public void testMaxBufferedBytes() {
+    final int numByteBlocks = TestUtil.nextInt(random(), 1, 20);
+    // 3/4 of the buffer goes to byte blocks
+    DocumentsWriterBlockRecycler recycler = new DocumentsWriterBlockRecycler(4L * numByteBlocks * ByteBlockPool.BYTE_BLOCK_SIZE);
+    Counter bytesUsed = Counter.newCounter();
+    ByteBlockPool.Allocator allocator = recycler.newByteBlockAllocator(bytesUsed);
+    byte[][] blocks = new byte[numByteBlocks * 4][];
+    for (int i = 0; i < blocks.length; i++) {
+      blocks[i] = allocator.getByteBlock();
+    }
+    allocator.recycleByteBlocks(blocks, 0, blocks.length);
+    assertEquals(0, bytesUsed.get());
+    assertEquals(3 * numByteBlocks, recycler.numBufferedBlocks());
+    recycler.clear();
+    assertEquals(0, recycler.numBufferedBlocks());
+    assertEquals(0, recycler.ramBytesUsed());
+  }
+
+  public void testIndexingWithRecycledBlocks() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setMaxBufferedDocs(TestUtil.nextInt(random(), 2, 50));
+    iwc.setRAMBufferSizeMB(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+    iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(500);
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+      doc.add(new TextField("body", TestUtil.randomSimpleString(random(), 100), Field.Store.NO));
+      w.addDocument(doc);
+    }
+    w.commit();
+    // flushed segments gave their blocks back
+    assertTrue(w.getFlushStats().recycledBytes > 0);
+    assertTrue(w.getFlushStats().toString().contains("recycledBytes="));
+    w.close();
+
+    DirectoryReader reader = DirectoryReader.open(dir);
+    assertEquals(numDocs, reader.numDocs());
+    for (int i = 0; i < numDocs; i += 1 + random().nextInt(10)) {
+      assertEquals(1, reader.docFreq(new Term("id", Integer.toString(i))));
+    }
+    reader.close();
+    dir.close();
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.lucene.index;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -53,6 +54,57 @@ public class TestDocumentsWriterStallControl extends LuceneTestCase {
     assertFalse(ctrl.anyStalledThreads());
     join(waitThreads);
   }
+
+  public void testStallStats() throws InterruptedException {
+    DocumentsWriterStallControl ctrl = new DocumentsWriterStallControl(newIndexWriterConfig());
+    ctrl.updateStalled(false);
+    Thread[] waitThreads = waitThreads(atLeast(1), ctrl);
+    start(waitThreads);
+    join(waitThreads);
+    // not stalled: nothing to record
+    assertEquals(0, ctrl.getNumStalls());
+    assertEquals(0, ctrl.getTotalStallNS());
+    assertTrue(ctrl.getStallNSPerThread().isEmpty());
+
+    ctrl.updateStalled(true);
+    final CountDownLatch stalled = new CountDownLatch(atLeast(1));
+    final CountDownLatch exit = new CountDownLatch(1);
+    waitThreads = new Thread[(int) stalled.getCount()];
+    for (int i = 0; i < waitThreads.length; i++) {
+      waitThreads[i] = new Thread() {
+        @Override
+        public void run() {
+          ctrl.waitIfStalled();
+          stalled.countDown();
+          try {
+            exit.await();
+          } catch (InterruptedException e) {
+            throw new ThreadInterruptedException(e);
+          }
+        }
+      };
+    }
+    start(waitThreads);
+    awaitState(Thread.State.TIMED_WAITING, waitThreads);
+    ctrl.updateStalled(false);
+    stalled.await();
+    assertEquals(waitThreads.length, ctrl.getNumStalls());
+    Map<Thread, Long> stallNSPerThread = ctrl.getStallNSPerThread();
+    assertEquals(waitThreads.length, stallNSPerThread.size());
+    long totalStallNS = 0;
+    for (Thread t : waitThreads) {
+      assertTrue(stallNSPerThread.containsKey(t));
+      totalStallNS += stallNSPerThread.get(t);
+    }
+    assertEquals(totalStallNS, ctrl.getTotalStallNS());
+
+    // threads that terminated are not reported anymore, but still count in the totals
+    exit.countDown();
+    join(waitThreads);
+    assertTrue(ctrl.getStallNSPerThread().isEmpty());
+    assertEquals(waitThreads.length, ctrl.getNumStalls());
+    assertEquals(totalStallNS, ctrl.getTotalStallNS());
+  }
   
   public void testRandom() throws InterruptedException {
     final DocumentsWriterStallControl ctrl = new DocumentsWriterStallControl(newIndexWriterConfig());
@@ -0,0 +1,215 @@
+package org.apache.lucene.index;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestIndexSorting extends LuceneTestCase {
+
+  private static final Sort SORT = new Sort(new SortField("foo", SortField.Type.LONG));
+
+  private static Document newDocument(int id, long value) {
+    Document doc = new Document();
+    doc.add(new StringField("id", Integer.toString(id), Store.YES));
+    doc.add(new StringField("parity", Integer.toString(id & 1), Store.NO));
+    doc.add(new NumericDocValuesField("foo", value));
+    doc.add(new StoredField("foo", value));
+    return doc;
+  }
+
+  /** Check that segments that record the index sort are sorted and that
+   *  doc values are consistent with stored fields. Return the number of
+   *  sorted segments. */
+  private static int checkSorted(IndexReader reader, Set<Integer> deleted) throws IOException {
+    int numSorted = 0;
+    for (LeafReaderContext context : reader.leaves()) {
+      final LeafReader leaf = context.reader();
+      final NumericDocValues values = leaf.getNumericDocValues("foo");
+      final Bits liveDocs = leaf.getLiveDocs();
+      final boolean sorted = leaf.getIndexSort() != null;
+      if (sorted) {
+        assertEquals(SORT, leaf.getIndexSort());
+        numSorted++;
+      }
+      long previous = Long.MIN_VALUE;
+      for (int doc = 0; doc < leaf.maxDoc(); ++doc) {
+        final StoredDocument stored = leaf.document(doc);
+        final long value = values.get(doc);
+        assertEquals(stored.getField("foo").numericValue().longValue(), value);
+        final int id = Integer.parseInt(stored.get("id"));
+        final boolean live = liveDocs == null || liveDocs.get(doc);
+        assertEquals(deleted.contains(id) == false, live);
+        if (sorted) {
+          assertTrue(value >= previous);
+        }
+        previous = value;
+      }
+    }
+    return numSorted;
+  }
+
+  public void testSortOnFlush() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setIndexSort(SORT);
+    iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+    iwc.setMaxBufferedDocs(TestUtil.nextInt(random(), 10, 50));
+    IndexWriter w = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(200);
+    Set<Integer> deleted = new HashSet<>();
+    for (int i = 0; i < numDocs; ++i) {
+      w.addDocument(newDocument(i, random().nextInt(100)));
+      if (i > 0 && random().nextInt(10) == 0) {
+        final int toDelete = random().nextInt(i);
+        w.deleteDocuments(new Term("id", Integer.toString(toDelete)));
+        deleted.add(toDelete);
+      }
+    }
+    w.commit();
+    DirectoryReader reader = DirectoryReader.open(dir);
+    // only term deletes: all segments must be sorted
+    assertEquals(reader.leaves().size(), checkSorted(reader, deleted));
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
+  public void testSortOnMerge() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setIndexSort(SORT);
+    iwc.setMaxBufferedDocs(TestUtil.nextInt(random(), 10, 50));
+    IndexWriter w = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(200);
+    Set<Integer> deleted = new HashSet<>();
+    for (int i = 0; i < numDocs; ++i) {
+      w.addDocument(newDocument(i, random().nextInt(100)));
+      if (random().nextInt(50) == 0) {
+        // query deletes prevent sorting on flush, these segments are sorted on merge
+        w.deleteDocuments(new TermQuery(new Term("parity", "1")));
+        for (int j = 1; j <= i; j += 2) {
+          deleted.add(j);
+        }
+      }
+    }
+    w.commit();
+    DirectoryReader reader = DirectoryReader.open(dir);
+    checkSorted(reader, deleted);
+    reader.close();
+
+    w.forceMerge(1);
+    reader = DirectoryReader.open(w, true);
+    assertEquals(1, reader.leaves().size());
+    assertEquals(1, checkSorted(reader, new HashSet<Integer>()));
+    assertEquals(numDocs - deleted.size(), reader.numDocs());
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
+  public void testAddIndexes() throws Exception {
+    Directory unsortedDir = newDirectory();
+    IndexWriter w = new IndexWriter(unsortedDir, new IndexWriterConfig(new MockAnalyzer(random())));
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; ++i) {
+      w.addDocument(newDocument(i, random().nextInt(100)));
+    }
+    w.forceMerge(1);
+    w.close();
+
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setIndexSort(SORT);
+    w = new IndexWriter(dir, iwc);
+    DirectoryReader unsorted = DirectoryReader.open(unsortedDir);
+    CodecReader[] readers = new CodecReader[unsorted.leaves().size()];
+    for (int i = 0; i < readers.length; ++i) {
+      readers[i] = (CodecReader) unsorted.leaves().get(i).reader();
+    }
+    w.addIndexes(readers);
+    unsorted.close();
+    DirectoryReader reader = DirectoryReader.open(w, true);
+    assertEquals(1, checkSorted(reader, new HashSet<Integer>()));
+    reader.close();
+    w.close();
+
+    // segments that have been sorted differently can't be added
+    Directory otherDir = newDirectory();
+    iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setIndexSort(new Sort(new SortField("foo", SortField.Type.LONG, true)));
+    w = new IndexWriter(otherDir, iwc);
+    try {
+      w.addIndexes(dir);
+      fail("should have hit IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+    w.close();
+
+    otherDir.close();
+    dir.close();
+    unsortedDir.close();
+  }
+
+  public void testIllegalChangeSort() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setIndexSort(SORT);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    w.addDocument(newDocument(0, 42));
+    w.close();
+
+    iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setIndexSort(new Sort(new SortField("bar", SortField.Type.LONG)));
+    try {
+      new IndexWriter(dir, iwc);
+      fail("should have hit IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+    dir.close();
+  }
+
+  public void testInvalidSortType() throws Exception {
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    try {
+      iwc.setIndexSort(new Sort(SortField.FIELD_SCORE));
+      fail("should have hit IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+    iwc.setIndexSort(null);
+    assertNull(iwc.getIndexSort());
+  }
+}
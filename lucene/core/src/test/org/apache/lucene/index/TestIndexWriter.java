@@ -31,6 +31,8 @@ import java.util.List;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.CannedTokenStream;
@@ -64,6 +66,7 @@ import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.BaseDirectoryWrapper;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FilterDirectory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.store.LockObtainFailedException;
@@ -2693,5 +2696,99 @@ public class TestIndexWriter extends LuceneTestCase {
     r.close();
     d.close();
   }
+
+  public void testTryAddDocument() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter w = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    Document doc = new Document();
+    doc.add(newStringField("id", "0", Field.Store.NO));
+    assertTrue(w.tryAddDocument(doc));
+
+    w.getStallControl().updateStalled(true);
+    assertTrue(w.getFlushStats().stalled);
+    assertFalse(w.tryAddDocument(doc));
+    assertEquals(1, w.numDocs());
+    assertEquals(0, w.getFlushStats().numStalls);
+
+    w.getStallControl().updateStalled(false);
+    assertTrue(w.tryAddDocument(doc));
+    assertEquals(2, w.numDocs());
+    w.close();
+    dir.close();
+  }
+
+  public void testFlushStats() throws Exception {
+    final AtomicBoolean blockFlush = new AtomicBoolean(false);
+    final CountDownLatch flushStarted = new CountDownLatch(1);
+    final CountDownLatch releaseFlush = new CountDownLatch(1);
+    Directory dir = new FilterDirectory(newDirectory()) {
+      @Override
+      public IndexOutput createOutput(String name, IOContext context) throws IOException {
+        if (blockFlush.compareAndSet(true, false)) {
+          flushStarted.countDown();
+          try {
+            releaseFlush.await();
+          } catch (InterruptedException ie) {
+            throw new ThreadInterruptedException(ie);
+          }
+        }
+        return super.createOutput(name, context);
+      }
+    };
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setMaxBufferedDocs(2);
+    iwc.setRAMBufferSizeMB(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+    iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+    final IndexWriter w = new IndexWriter(dir, iwc);
+    final Document doc = new Document();
+    doc.add(newTextField("body", "some text", Field.Store.NO));
+    w.addDocument(doc);
+
+    IndexWriter.FlushStats stats = w.getFlushStats();
+    assertTrue(stats.activeBytes > 0);
+    assertEquals(0, stats.flushingBytes);
+    assertEquals(0, stats.numPendingFlushes);
+    assertEquals(0, stats.numFlushing);
+    assertEquals(0, stats.oldestPendingFlushAgeNanos);
+    assertFalse(stats.stalled);
+    try {
+      stats.stallNanosPerThread.put(Thread.currentThread().getId(), 1L);
+      fail("stats must not be modifiable");
+    } catch (UnsupportedOperationException expected) {
+      // ok
+    }
+
+    // the second document triggers a flush, which blocks on the directory
+    blockFlush.set(true);
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    Thread t = new Thread() {
+      @Override
+      public void run() {
+        try {
+          w.addDocument(doc);
+        } catch (Throwable th) {
+          failure.set(th);
+        }
+      }
+    };
+    t.start();
+    flushStarted.await();
+    Thread.sleep(1);
+    stats = w.getFlushStats();
+    assertTrue(stats.flushingBytes > 0);
+    assertEquals(0, stats.numPendingFlushes);
+    assertEquals(1, stats.numFlushing);
+    assertTrue(stats.oldestPendingFlushAgeNanos > 0);
+
+    releaseFlush.countDown();
+    t.join();
+    assertNull(failure.get());
+    stats = w.getFlushStats();
+    assertEquals(0, stats.flushingBytes);
+    assertEquals(0, stats.numFlushing);
+    assertEquals(0, stats.oldestPendingFlushAgeNanos);
+    w.close();
+    dir.close();
+  }
 }
 
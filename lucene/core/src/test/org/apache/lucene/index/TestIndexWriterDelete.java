@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -219,6 +220,50 @@ public class TestIndexWriterDelete extends LuceneTestCase {
     dir.close();
   }
 
+  // test that resolving deletes and updates concurrently gives the same result
+  public void testApplyDeletesWithExecutor() throws Exception {
+    final ExecutorService executor = ExecutorTestUtil.newExecutor("apply deletes");
+    try {
+      final int maxBufferedDocs = TestUtil.nextInt(random(), 10, 100);
+      ExecutorTestUtil.assertSameIndex(this,
+          new IndexWriterConfig(new MockAnalyzer(random()))
+            .setMaxBufferedDocs(maxBufferedDocs)
+            .setMergePolicy(NoMergePolicy.INSTANCE),
+          new IndexWriterConfig(new MockAnalyzer(random()))
+            .setMaxBufferedDocs(maxBufferedDocs)
+            .setMergePolicy(NoMergePolicy.INSTANCE)
+            .setApplyDeletesExecutor(executor),
+          new ExecutorTestUtil.Indexer() {
+            @Override
+            public void index(IndexWriter w, Random random) throws IOException {
+              final int numDocs = atLeast(random, 1000);
+              for (int i = 0; i < numDocs; ++i) {
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.NO));
+                doc.add(new StringField("mod", Integer.toString(i % 17), Field.Store.NO));
+                doc.add(new NumericDocValuesField("value", i));
+                w.addDocument(doc);
+                switch (random.nextInt(20)) {
+                  case 0:
+                    w.deleteDocuments(new Term("id", Integer.toString(random.nextInt(i + 1))));
+                    break;
+                  case 1:
+                    w.deleteDocuments(new TermQuery(new Term("mod", Integer.toString(random.nextInt(17)))));
+                    break;
+                  case 2:
+                    w.updateNumericDocValue(new Term("mod", Integer.toString(random.nextInt(17))), "value", random.nextInt(1000));
+                    break;
+                  default:
+                    break;
+                }
+              }
+            }
+          });
+    } finally {
+      ExecutorTestUtil.shutdown(executor);
+    }
+  }
+
   // test that batched delete terms are flushed together
   public void testBatchDeletes() throws IOException {
     Directory dir = newDirectory();
@@ -17,18 +17,24 @@ package org.apache.lucene.index;
 
 import java.io.IOException;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexWriterConfig.OpenMode;
 import org.apache.lucene.store.AlreadyClosedException;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.MockDirectoryWrapper;
+import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
 
 
 public class TestIndexWriterMerging extends LuceneTestCase
@@ -459,4 +465,47 @@ public class TestIndexWriterMerging extends LuceneTestCase
 
     directory.close();
   }
+
+  // test that merging the parts of a segment concurrently gives the same result
+  public void testIntraMergeExecutor() throws Exception {
+    final ExecutorService executor = ExecutorTestUtil.newExecutor("intra merge");
+    try {
+      final int maxBufferedDocs = TestUtil.nextInt(random(), 10, 100);
+      // serial merges so that both indices end up with the same doc ID order
+      ExecutorTestUtil.assertSameIndex(this,
+          new IndexWriterConfig(new MockAnalyzer(random()))
+            .setMaxBufferedDocs(maxBufferedDocs)
+            .setMergeScheduler(new SerialMergeScheduler())
+            .setMergePolicy(new LogDocMergePolicy()),
+          new IndexWriterConfig(new MockAnalyzer(random()))
+            .setMaxBufferedDocs(maxBufferedDocs)
+            .setMergeScheduler(new SerialMergeScheduler())
+            .setMergePolicy(new LogDocMergePolicy())
+            .setIntraMergeExecutor(executor),
+          new ExecutorTestUtil.Indexer() {
+            @Override
+            public void index(IndexWriter w, Random random) throws IOException {
+              final FieldType vectorsType = new FieldType(TextField.TYPE_STORED);
+              vectorsType.setStoreTermVectors(true);
+              vectorsType.setStoreTermVectorPositions(true);
+              final int numDocs = atLeast(random, 1000);
+              for (int i = 0; i < numDocs; ++i) {
+                Document doc = new Document();
+                doc.add(new StringField("id", Integer.toString(i), Field.Store.YES));
+                doc.add(new Field("body", "value " + (i % 13) + " and " + (i % 7), vectorsType));
+                doc.add(new NumericDocValuesField("num", i % 11));
+                doc.add(new SortedDocValuesField("sorted", new BytesRef(Integer.toString(i % 5))));
+                w.addDocument(doc);
+                if (random.nextInt(50) == 0) {
+                  w.deleteDocuments(new Term("id", Integer.toString(random.nextInt(i + 1))));
+                }
+              }
+              w.forceMerge(1);
+              assertEquals(1, w.getSegmentCount());
+            }
+          });
+    } finally {
+      ExecutorTestUtil.shutdown(executor);
+    }
+  }
 }
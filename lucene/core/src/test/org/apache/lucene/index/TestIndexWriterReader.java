@@ -1161,4 +1161,42 @@ public class TestIndexWriterReader extends LuceneTestCase {
     w.close();
     dir.close();
   }
+
+  public void testWriteAllDeletes() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter w = new IndexWriter(dir, newIndexWriterConfig(new MockAnalyzer(random())));
+    for (int i = 0; i < 10; i++) {
+      Document doc = new Document();
+      doc.add(newStringField("id", Integer.toString(i), Field.Store.NO));
+      w.addDocument(doc);
+    }
+    DirectoryReader r1 = DirectoryReader.open(w, true, true);
+    w.deleteDocuments(new Term("id", "3"));
+
+    try {
+      DirectoryReader.open(w, false, true);
+      fail("should have hit IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+
+    DirectoryReader r2 = DirectoryReader.openIfChanged(r1);
+    assertNotNull(r2);
+    assertEquals(9, r2.numDocs());
+
+    // the deletes were written, so the segments can be opened from the directory alone
+    SegmentInfos infos = ((StandardDirectoryReader) r2).getSegmentInfos();
+    for (String file : infos.files(false)) {
+      dir.fileLength(file);
+    }
+    DirectoryReader r3 = StandardDirectoryReader.open(dir, infos, null);
+    assertEquals(9, r3.numDocs());
+    assertEquals(r2.maxDoc(), r3.maxDoc());
+
+    r3.close();
+    r2.close();
+    r1.close();
+    w.close();
+    dir.close();
+  }
 }
@@ -114,6 +114,10 @@ public class MultiCollectorTest extends LuceneTestCase {
 
           @Override
           public void setScorer(Scorer scorer) throws IOException {
+            if (expectedScorer != ScoreCachingWrappingScorer.class && scorer instanceof FilterScorer) {
+              // MultiCollector hides Scorer#setMinCompetitiveScore from sub collectors
+              scorer = ((FilterScorer) scorer).in;
+            }
             assertEquals(expectedScorer, scorer.getClass());
           }
 
@@ -18,6 +18,8 @@ package org.apache.lucene.search;
  */
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
@@ -135,4 +137,104 @@ public class TestBooleanScorer extends LuceneTestCase {
     r.close();
     dir.close();
   }
+
+  public void testBulkCollection() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(5000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      switch (random().nextInt(3)) {
+        case 0:
+          doc.add(newTextField("field", "a", Field.Store.NO));
+          break;
+        case 1:
+          doc.add(newTextField("field", "b", Field.Store.NO));
+          break;
+        default:
+          doc.add(newTextField("field", "a b", Field.Store.NO));
+          break;
+      }
+      w.addDocument(doc);
+    }
+    IndexReader r = w.getReader();
+    w.close();
+
+    IndexSearcher s = newSearcher(r);
+    BooleanQuery q = new BooleanQuery();
+    q.add(new TermQuery(new Term("field", "a")), BooleanClause.Occur.SHOULD);
+    q.add(new TermQuery(new Term("field", "b")), BooleanClause.Occur.SHOULD);
+
+    final Map<Integer, Float> expected = new HashMap<>();
+    s.search(q, new SimpleCollector() {
+      private int docBase;
+      private Scorer scorer;
+
+      @Override
+      protected void doSetNextReader(LeafReaderContext context) throws IOException {
+        docBase = context.docBase;
+      }
+
+      @Override
+      public void setScorer(Scorer scorer) throws IOException {
+        this.scorer = scorer;
+      }
+
+      @Override
+      public void collect(int doc) throws IOException {
+        assertNull(expected.put(docBase + doc, scorer.score()));
+      }
+
+      @Override
+      public boolean needsScores() {
+        return true;
+      }
+    });
+    assertEquals(numDocs, expected.size());
+
+    final Map<Integer, Float> actual = new HashMap<>();
+    final int[] bulkCalls = new int[1];
+    class BulkCollector extends SimpleCollector implements BulkLeafCollector {
+      private int docBase;
+      private Scorer scorer;
+
+      @Override
+      protected void doSetNextReader(LeafReaderContext context) throws IOException {
+        docBase = context.docBase;
+      }
+
+      @Override
+      public void setScorer(Scorer scorer) throws IOException {
+        this.scorer = scorer;
+      }
+
+      @Override
+      public void collect(int doc) throws IOException {
+        assertNull(actual.put(docBase + doc, scorer.score()));
+      }
+
+      @Override
+      public void collect(int[] docs, float[] scores, int count) throws IOException {
+        bulkCalls[0]++;
+        for (int i = 0; i < count; ++i) {
+          assertNull(actual.put(docBase + docs[i], scores[i]));
+        }
+      }
+
+      @Override
+      public boolean needsScores() {
+        return true;
+      }
+    }
+    s.search(q, new BulkCollector());
+    assertEquals(expected, actual);
+    assertTrue(bulkCalls[0] > 0);
+
+    TotalHitCountCollector countCollector = new TotalHitCountCollector();
+    s.search(q, countCollector);
+    assertEquals(numDocs, countCollector.getTotalHits());
+
+    r.close();
+    dir.close();
+  }
 }
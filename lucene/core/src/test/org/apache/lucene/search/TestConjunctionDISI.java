@@ -34,6 +34,11 @@ public class TestConjunctionDISI extends LuceneTestCase {
       public boolean matches() throws IOException {
         return confirmed.get(iterator.docID());
       }
+
+      @Override
+      public float matchCost() {
+        return 5; // #operations in FixedBitSet#get()
+      }
     };
   }
 
@@ -201,6 +206,69 @@ public class TestConjunctionDISI extends LuceneTestCase {
     }
   }
 
+  // Test that the match cost of a conjunction is the sum of the match costs of its clauses
+  public void testConjunctionMatchCost() throws IOException {
+    final int maxDoc = TestUtil.nextInt(random(), 100, 10000);
+    final int numApproximations = TestUtil.nextInt(random(), 1, 5);
+    final DocIdSetIterator[] iterators = new DocIdSetIterator[numApproximations + 1];
+    iterators[0] = new BitDocIdSet(randomSet(maxDoc)).iterator();
+    float expectedMatchCost = 0;
+    for (int i = 1; i < iterators.length; ++i) {
+      final FixedBitSet set = randomSet(maxDoc);
+      final TwoPhaseIterator approximation = approximation(new BitDocIdSet(set).iterator(), clearRandomBits(set));
+      expectedMatchCost += approximation.matchCost();
+      iterators[i] = scorer(approximation);
+    }
+    final ConjunctionDISI conjunction = ConjunctionDISI.intersect(Arrays.asList(iterators));
+    assertEquals(expectedMatchCost, conjunction.asTwoPhaseIterator().matchCost(), 0f);
+  }
+
+  // Test that the two-phase iterator that has the lowest match cost is verified
+  // first, until statistics show that another one rejects candidates more cheaply
+  public void testAdaptiveMatchOrdering() throws IOException {
+    final int maxDoc = 8 * ConjunctionDISI.REORDER_INTERVAL;
+    final int[] firstChecked = new int[maxDoc];
+    Arrays.fill(firstChecked, -1);
+    final TwoPhaseIterator[] twoPhaseIterators = new TwoPhaseIterator[2];
+    for (int i = 0; i < twoPhaseIterators.length; ++i) {
+      final int id = i;
+      final DocIdSetIterator approximation = DocIdSetIterator.all(maxDoc);
+      twoPhaseIterators[i] = new TwoPhaseIterator(approximation) {
+
+        @Override
+        public boolean matches() throws IOException {
+          final int doc = approximation.docID();
+          if (firstChecked[doc] == -1) {
+            firstChecked[doc] = id;
+          }
+          // the first iterator rejects most candidates, the second one none of them
+          return id == 1 || doc % 10 == 0;
+        }
+
+        @Override
+        public float matchCost() {
+          return id == 0 ? 20 : 5;
+        }
+      };
+    }
+    final ConjunctionDISI conjunction = ConjunctionDISI.intersect(Arrays.asList(
+        scorer(twoPhaseIterators[0]), scorer(twoPhaseIterators[1])));
+    final DocIdSetIterator disi = TwoPhaseIterator.asDocIdSetIterator(conjunction.asTwoPhaseIterator());
+    for (int expected = 0; expected < maxDoc; expected += 10) {
+      assertEquals(expected, disi.nextDoc());
+    }
+    assertEquals(DocIdSetIterator.NO_MORE_DOCS, disi.nextDoc());
+
+    // the cheaper iterator is verified first...
+    for (int doc = 0; doc < ConjunctionDISI.REORDER_INTERVAL - 1; ++doc) {
+      assertEquals(1, firstChecked[doc]);
+    }
+    // ... until the more costly one has proven to reject candidates more efficiently
+    for (int doc = ConjunctionDISI.REORDER_INTERVAL; doc < maxDoc; ++doc) {
+      assertEquals(0, firstChecked[doc]);
+    }
+  }
+
   // This test makes sure that when nesting scorers with ConjunctionDISI, confirmations are pushed to the root.
   public void testRecursiveConjunctionApproximation() throws IOException {
     final int iters = atLeast(100);
@@ -24,14 +24,23 @@ import java.util.Iterator;
 
 import junit.framework.Assert;
 
+import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.Bits;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.PagedFixedBitSet;
+import org.apache.lucene.util.TestUtil;
 
 public class TestDocIdSet extends LuceneTestCase {
   public void testFilteredDocIdSet() throws Exception {
@@ -184,4 +193,60 @@ public class TestDocIdSet extends LuceneTestCase {
     dir.close();
   }
 
+
+  public void testDocValuesDocIdSetWithLiveDocs() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setCodec(TestUtil.getDefaultCodec());
+    iwc.setMaxBufferedDocs(IndexWriterConfig.DISABLE_AUTO_FLUSH);
+    iwc.setRAMBufferSizeMB(256);
+    iwc.setMergePolicy(NoMergePolicy.INSTANCE);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(1000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(newStringField("id", Integer.toString(i), Field.Store.NO));
+      w.addDocument(doc);
+    }
+    final int numDeletes = random().nextInt(numDocs);
+    for (int i = 0; i < numDeletes; ++i) {
+      w.deleteDocuments(new Term("id", Integer.toString(random().nextInt(numDocs))));
+    }
+    w.deleteDocuments(new Term("id", "0"));
+    DirectoryReader reader = DirectoryReader.open(w, true);
+    w.close();
+    final LeafReader leaf = getOnlySegmentReader(reader);
+    final Bits liveDocs = leaf.getLiveDocs();
+    assertTrue(liveDocs instanceof PagedFixedBitSet);
+
+    final int mod = TestUtil.nextInt(random(), 1, 5);
+    final DocValuesDocIdSet set = new DocValuesDocIdSet(leaf.maxDoc(), liveDocs) {
+      @Override
+      protected boolean matchDoc(int doc) {
+        return doc % mod == 0;
+      }
+    };
+    final DocIdSetIterator it = set.iterator();
+    int doc = -1;
+    while (true) {
+      int expected = doc + 1;
+      while (expected < leaf.maxDoc() && (liveDocs.get(expected) == false || expected % mod != 0)) {
+        expected++;
+      }
+      if (expected == leaf.maxDoc()) {
+        expected = DocIdSetIterator.NO_MORE_DOCS;
+      }
+      if (random().nextBoolean()) {
+        doc = it.nextDoc();
+      } else {
+        doc = it.advance(doc + 1);
+      }
+      assertEquals(expected, doc);
+      if (doc == DocIdSetIterator.NO_MORE_DOCS) {
+        break;
+      }
+    }
+    reader.close();
+    dir.close();
+  }
 }
@@ -19,6 +19,7 @@ package org.apache.lucene.search;
 
 import java.io.IOException;
 
+import org.apache.lucene.codecs.lucene50.Lucene50DocValuesFormat;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
 import org.apache.lucene.document.LongField;
@@ -27,8 +28,12 @@ import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.BlockMinMaxNumericDocValues;
+import org.apache.lucene.index.DocValues;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause.Occur;
@@ -224,6 +229,55 @@ public class TestDocValuesRangeQuery extends LuceneTestCase {
     dir.close();
   }
 
+  public void testSkipIndex() throws IOException {
+    Directory dir = newDirectory();
+    IndexWriterConfig iwc = newIndexWriterConfig();
+    iwc.setCodec(TestUtil.alwaysDocValuesFormat(new Lucene50DocValuesFormat(1 << TestUtil.nextInt(random(), 4, 8))));
+    RandomIndexWriter iw = new RandomIndexWriter(random(), dir, iwc);
+    final int numDocs = atLeast(2000);
+    long timestamp = 0;
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      // mostly increasing values, so that many blocks can be skipped or fully match
+      timestamp += random().nextInt(10);
+      if (random().nextInt(20) != 0) {
+        final long value = random().nextInt(10) == 0 ? TestUtil.nextLong(random(), 0, 10 * numDocs) : timestamp;
+        doc.add(new NumericDocValuesField("dv1", value));
+        doc.add(new SortedNumericDocValuesField("dv2", value));
+        doc.add(new LongField("idx", value, Store.NO));
+      }
+      iw.addDocument(doc);
+    }
+    if (random().nextBoolean()) {
+      iw.deleteDocuments(NumericRangeQuery.newLongRange("idx", 0L, 10L, true, true));
+    }
+    iw.commit();
+    final IndexReader reader = iw.getReader();
+    iw.close();
+    // do not wrap the reader, so that the queries see the skip index
+    final IndexSearcher searcher = new IndexSearcher(reader);
+    for (LeafReaderContext context : reader.leaves()) {
+      NumericDocValues values = context.reader().getNumericDocValues("dv1");
+      if (values != null) {
+        assertTrue(values instanceof BlockMinMaxNumericDocValues);
+        assertTrue(DocValues.unwrapSingleton(context.reader().getSortedNumericDocValues("dv2")) instanceof BlockMinMaxNumericDocValues);
+      }
+    }
+
+    for (int i = 0; i < 100; ++i) {
+      final Long min = random().nextBoolean() ? null : TestUtil.nextLong(random(), 0, 10 * numDocs);
+      final Long max = random().nextBoolean() ? null : TestUtil.nextLong(random(), 0, 10 * numDocs);
+      final boolean minInclusive = random().nextBoolean();
+      final boolean maxInclusive = random().nextBoolean();
+      final Query ref = NumericRangeQuery.newLongRange("idx", min, max, minInclusive, maxInclusive);
+      assertSameMatches(searcher, ref, DocValuesRangeQuery.newLongRange("dv1", min, max, minInclusive, maxInclusive), false);
+      assertSameMatches(searcher, ref, DocValuesRangeQuery.newLongRange("dv2", min, max, minInclusive, maxInclusive), false);
+    }
+
+    reader.close();
+    dir.close();
+  }
+
   private void assertSameMatches(IndexSearcher searcher, Query q1, Query q2, boolean scores) throws IOException {
     final int maxDoc = searcher.getIndexReader().maxDoc();
     final TopDocs td1 = searcher.search(q1, maxDoc, scores ? Sort.RELEVANCE : Sort.INDEXORDER);
@@ -18,7 +18,9 @@ package org.apache.lucene.search;
  */
 
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -26,9 +28,15 @@ import java.util.concurrent.TimeUnit;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericDocValuesField;
 import org.apache.lucene.document.SortedDocValuesField;
 import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.store.Directory;
@@ -156,4 +164,93 @@ public class TestIndexSearcher extends LuceneTestCase {
     dir.close();
   }
 
+  public void testBalancedSlices() throws IOException {
+    Directory dir = newDirectory();
+    // one segment per commit: no flushes by doc count or RAM usage, no merges
+    IndexWriter w = new IndexWriter(dir, newIndexWriterConfig()
+        .setMaxBufferedDocs(1000)
+        .setRAMBufferSizeMB(IndexWriterConfig.DISABLE_AUTO_FLUSH)
+        .setMergePolicy(NoMergePolicy.INSTANCE));
+    final int[] segmentSizes = new int[] { 3, 200, 5, 7, 40 };
+    for (int size : segmentSizes) {
+      for (int i = 0; i < size; ++i) {
+        w.addDocument(new Document());
+      }
+      w.commit();
+    }
+    final IndexReader reader = DirectoryReader.open(w, true);
+    w.close();
+    assertEquals(segmentSizes.length, reader.leaves().size());
+
+    IndexSearcher.LeafSlice[] slices = IndexSearcher.slices(reader.leaves(), 50, 2);
+    int expectedDocBase = 0;
+    for (IndexSearcher.LeafSlice slice : slices) {
+      assertTrue(slice.leaves.length <= 2);
+      int numDocs = 0;
+      for (int i = 0; i < slice.leaves.length; ++i) {
+        final LeafReaderContext ctx = slice.leaves[i];
+        final int minDoc = slice.minDocs == null ? 0 : slice.minDocs[i];
+        final int maxDoc = slice.maxDocs == null ? ctx.reader().maxDoc() : slice.maxDocs[i];
+        // slices must cover the whole index, in order
+        assertEquals(expectedDocBase, ctx.docBase + minDoc);
+        expectedDocBase = ctx.docBase + maxDoc;
+        numDocs += maxDoc - minDoc;
+      }
+      assertTrue(numDocs <= 50);
+    }
+    assertEquals(reader.maxDoc(), expectedDocBase);
+    // 3+200 splits the large segment, then 5+7 are grouped, then 40
+    assertEquals(7, slices.length);
+
+    try {
+      IndexSearcher.slices(reader.leaves(), 0, 2);
+      fail();
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+    reader.close();
+    dir.close();
+  }
+
+  public void testSearchWithSplitLeaves() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(500);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new StringField("foo", random().nextBoolean() ? "bar" : "baz", Store.NO));
+      doc.add(new NumericDocValuesField("sort", random().nextInt(100)));
+      w.addDocument(doc);
+    }
+    if (random().nextBoolean()) {
+      w.forceMerge(1);
+    }
+    final IndexReader reader = w.getReader();
+    w.close();
+
+    final int maxDocsPerSlice = TestUtil.nextInt(random(), 1, 100);
+    final int maxSegmentsPerSlice = TestUtil.nextInt(random(), 1, 5);
+    final ExecutorService service = Executors.newFixedThreadPool(3, new NamedThreadFactory("TestIndexSearcher"));
+    try {
+      final IndexSearcher sequential = new IndexSearcher(reader);
+      final IndexSearcher concurrent = new IndexSearcher(reader, service) {
+        @Override
+        protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+          return slices(leaves, maxDocsPerSlice, maxSegmentsPerSlice);
+        }
+      };
+      final Query[] queries = new Query[] { new MatchAllDocsQuery(), new TermQuery(new Term("foo", "bar")) };
+      final Sort sort = new Sort(new SortField("sort", SortField.Type.INT));
+      for (Query query : queries) {
+        assertEquals(sequential.count(query), concurrent.count(query));
+        CheckHits.checkEqual(query, sequential.search(query, 20).scoreDocs, concurrent.search(query, 20).scoreDocs);
+        CheckHits.checkEqual(query, sequential.search(query, 20, sort).scoreDocs, concurrent.search(query, 20, sort).scoreDocs);
+      }
+    } finally {
+      TestUtil.shutdownExecutorService(service);
+      reader.close();
+      dir.close();
+    }
+  }
+
 }
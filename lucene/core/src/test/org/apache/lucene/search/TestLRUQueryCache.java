@@ -46,7 +46,9 @@ import org.apache.lucene.index.SerialMergeScheduler;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BitDocIdSet;
 import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.DirectBitSet;
 import org.apache.lucene.util.IOUtils;
 import org.apache.lucene.util.LuceneTestCase;
 import org.apache.lucene.util.RamUsageTester;
@@ -223,6 +225,55 @@ public class TestLRUQueryCache extends LuceneTestCase {
     dir.close();
   }
 
+  public void testOffHeap() throws IOException {
+    Directory dir = newDirectory();
+    final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+
+    Document doc = new Document();
+    StringField f = new StringField("color", "", Store.NO);
+    doc.add(f);
+    final int numDocs = atLeast(100);
+    for (int i = 0; i < numDocs; ++i) {
+      f.setStringValue(RandomPicks.randomFrom(random(), Arrays.asList("blue", "red", "green")));
+      w.addDocument(doc);
+    }
+    final DirectoryReader reader = w.getReader();
+    final IndexSearcher searcher = newSearcher(reader);
+    searcher.setQueryCachingPolicy(QueryCachingPolicy.ALWAYS_CACHE);
+
+    final LRUQueryCache queryCache = new LRUQueryCache(Integer.MAX_VALUE, Long.MAX_VALUE, true);
+    int offHeapSets = 0;
+    for (String color : Arrays.asList("blue", "red", "green")) {
+      final Term term = new Term("color", color);
+      final Query query = new TermQuery(term);
+      searcher.setQueryCache(null);
+      final int expected = searcher.count(query);
+      searcher.setQueryCache(queryCache);
+      assertEquals(expected, searcher.count(query));
+      // now from the cache
+      assertEquals(expected, searcher.count(query));
+
+      for (LeafReaderContext context : searcher.getIndexReader().leaves()) {
+        final int docFreq = context.reader().docFreq(term);
+        if (docFreq > 0 && docFreq >= context.reader().maxDoc() >>> 4) {
+          // dense sets are stored off-heap
+          final DocIdSet cached = queryCache.get(query, context);
+          assertTrue(cached instanceof BitDocIdSet);
+          assertTrue(((BitDocIdSet) cached).bits() instanceof DirectBitSet);
+          offHeapSets++;
+        }
+      }
+    }
+    assertEquals(3, queryCache.cachedQueries().size());
+    // every segment has a color that is dense in it
+    assertTrue(offHeapSets >= searcher.getIndexReader().leaves().size());
+    queryCache.assertConsistent();
+
+    reader.close();
+    w.close();
+    dir.close();
+  }
+
   public void testClearFilter() throws IOException {
     Directory dir = newDirectory();
     final RandomIndexWriter w = new RandomIndexWriter(random(), dir);
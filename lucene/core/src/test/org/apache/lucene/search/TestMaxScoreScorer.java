@@ -0,0 +1,183 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.similarities.BM25Similarity;
+import org.apache.lucene.search.similarities.DefaultSimilarity;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
+
+public class TestMaxScoreScorer extends LuceneTestCase {
+
+  private static final String[] TERMS = new String[] { "a", "b", "c", "d", "e", "f", "g", "h" };
+
+  private static String randomText() {
+    final StringBuilder text = new StringBuilder();
+    final int numTerms = TestUtil.nextInt(random(), 1, 20);
+    for (int i = 0; i < numTerms; ++i) {
+      // skew the distribution so that some terms are much more frequent than others
+      final int index = Math.min(random().nextInt(TERMS.length), random().nextInt(TERMS.length));
+      text.append(TERMS[index]).append(' ');
+    }
+    return text.toString();
+  }
+
+  private static BooleanQuery randomDisjunction() {
+    final BooleanQuery query = new BooleanQuery(random().nextBoolean());
+    final int numClauses = TestUtil.nextInt(random(), 2, TERMS.length);
+    for (int i = 0; i < numClauses; ++i) {
+      final TermQuery clause = new TermQuery(new Term("body", TERMS[random().nextInt(TERMS.length)]));
+      if (random().nextBoolean()) {
+        clause.setBoost(random().nextFloat() * 3);
+      }
+      query.add(clause, Occur.SHOULD);
+    }
+    return query;
+  }
+
+  public void testSameTopHits() throws IOException {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(3000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new TextField("body", randomText(), Store.NO));
+      w.addDocument(doc);
+    }
+    final IndexReader reader = w.getReader();
+    w.close();
+
+    final IndexSearcher searcher = newSearcher(reader);
+    // DefaultSimilarity does not know about maximum scores, so it exercises the
+    // case that scorers ignore minimum competitive scores
+    searcher.setSimilarity(random().nextInt(4) == 0 ? new DefaultSimilarity() : new BM25Similarity());
+    final int iters = atLeast(20);
+    for (int iter = 0; iter < iters; ++iter) {
+      final Query query = randomDisjunction();
+      final int numHits = TestUtil.nextInt(random(), 1, 20);
+      final TopScoreDocCollector exact = TopScoreDocCollector.create(numHits);
+      searcher.search(query, exact);
+      final TopScoreDocCollector pruned = TopScoreDocCollector.create(numHits, null, false);
+      searcher.search(query, pruned);
+      final TopDocs expected = exact.topDocs();
+      final TopDocs actual = pruned.topDocs();
+      CheckHits.checkEqual(query, expected.scoreDocs, actual.scoreDocs);
+      assertTrue(actual.totalHits <= expected.totalHits);
+    }
+    reader.close();
+    dir.close();
+  }
+
+  public void testSkipNonCompetitiveDocuments() throws IOException {
+    Directory dir = newDirectory();
+    // the test relies on doc IDs, so the merge must preserve the order of documents
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir, newIndexWriterConfig(new MockAnalyzer(random())).setMergePolicy(newLogMergePolicy()));
+    final int numDocs = atLeast(1000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new TextField("body", i % 100 == 0 ? "rare common" : "common", Store.NO));
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+    final IndexReader reader = w.getReader();
+    w.close();
+
+    final IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setSimilarity(new BM25Similarity());
+    final BooleanQuery query = new BooleanQuery(true);
+    query.add(new TermQuery(new Term("body", "rare")), Occur.SHOULD);
+    query.add(new TermQuery(new Term("body", "common")), Occur.SHOULD);
+    final Weight weight = searcher.createNormalizedWeight(query, true);
+    final LeafReaderContext context = reader.leaves().get(0);
+    final Scorer scorer = ((BooleanWeight) weight).maxScoreScorer(context, null);
+    assertNotNull(scorer);
+    assertTrue(scorer.maxScore() < Float.POSITIVE_INFINITY);
+
+    // no pruning until a min competitive score is set
+    assertEquals(0, scorer.nextDoc());
+    final float bothScore = scorer.score();
+    assertEquals(1, scorer.nextDoc());
+    final float commonScore = scorer.score();
+    assertTrue(bothScore > commonScore);
+
+    // only documents that match both terms can now be competitive
+    scorer.setMinCompetitiveScore(bothScore);
+    assertEquals(100, scorer.nextDoc());
+    assertEquals(bothScore, scorer.score(), 0f);
+    assertEquals(2, scorer.freq());
+    assertEquals(200, scorer.advance(150));
+
+    // nothing can be competitive anymore
+    scorer.setMinCompetitiveScore(scorer.maxScore() * 2);
+    assertEquals(DocIdSetIterator.NO_MORE_DOCS, scorer.nextDoc());
+
+    reader.close();
+    dir.close();
+  }
+
+  public void testMultiCollector() throws IOException {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    // BooleanScorer only starts pruning after its first window of 2048 docs
+    final int numDocs = atLeast(10000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new TextField("body", i % 100 == 0 ? "rare common" : "common", Store.NO));
+      w.addDocument(doc);
+    }
+    w.forceMerge(1);
+    final IndexReader reader = w.getReader();
+    w.close();
+
+    final IndexSearcher searcher = new IndexSearcher(reader);
+    searcher.setSimilarity(new BM25Similarity());
+    searcher.setQueryCache(null);
+    final BooleanQuery query = new BooleanQuery(true);
+    query.add(new TermQuery(new Term("body", "rare")), Occur.SHOULD);
+    query.add(new TermQuery(new Term("body", "common")), Occur.SHOULD);
+
+    // on its own, the collector skips non-competitive hits
+    final TopScoreDocCollector pruned = TopScoreDocCollector.create(1, null, false);
+    searcher.search(query, pruned);
+    assertTrue(pruned.getTotalHits() < numDocs);
+
+    // but not if another collector needs to see all hits
+    final TopScoreDocCollector topDocs = TopScoreDocCollector.create(1, null, false);
+    final TotalHitCountCollector count = new TotalHitCountCollector();
+    searcher.search(query, MultiCollector.wrap(topDocs, count));
+    assertEquals(numDocs, count.getTotalHits());
+    assertEquals(numDocs, topDocs.getTotalHits());
+    assertEquals(pruned.topDocs().scoreDocs[0].doc, topDocs.topDocs().scoreDocs[0].doc);
+
+    reader.close();
+    dir.close();
+  }
+
+}
@@ -17,13 +17,23 @@ package org.apache.lucene.search;
  * limitations under the License.
  */
 
+import org.apache.lucene.analysis.MockAnalyzer;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.BooleanClause.Occur;
 import org.apache.lucene.search.FieldValueHitQueue.Entry;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.TestUtil;
 
 public class TestTopFieldCollector extends LuceneTestCase {
   private IndexSearcher is;
@@ -167,4 +177,64 @@ public class TestTopFieldCollector extends LuceneTestCase {
       assertTrue(Float.isNaN(td.getMaxScore()));
     }
   }  
+
+  public void testEarlyTerminationWithIndexSort() throws Exception {
+    Directory dir = newDirectory();
+    Sort sort = new Sort(new SortField("ndv", SortField.Type.LONG));
+    IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+    iwc.setIndexSort(sort);
+    IndexWriter w = new IndexWriter(dir, iwc);
+    final int numDocs = atLeast(200);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new NumericDocValuesField("ndv", random().nextInt(50)));
+      doc.add(new StringField("s", random().nextBoolean() ? "a" : "b", Store.NO));
+      w.addDocument(doc);
+      if (random().nextInt(50) == 0) {
+        w.commit();
+      }
+    }
+    IndexReader reader = DirectoryReader.open(w, true);
+    w.close();
+    // don't wrap the reader, it would hide the index sort
+    IndexSearcher searcher = new IndexSearcher(reader);
+
+    for (Query query : new Query[] { new MatchAllDocsQuery(), new TermQuery(new Term("s", "a")) }) {
+      for (Sort querySort : new Sort[] { sort, new Sort(new SortField("ndv", SortField.Type.LONG), SortField.FIELD_DOC) }) {
+        final int numHits = TestUtil.nextInt(random(), 1, 20);
+        TopFieldCollector expected = TopFieldCollector.create(querySort, numHits, null, true, false, false, true);
+        searcher.search(query, expected);
+        TopFieldCollector actual = TopFieldCollector.create(querySort, numHits, null, true, false, false, false);
+        searcher.search(query, actual);
+
+        TopDocs expectedTopDocs = expected.topDocs();
+        TopDocs actualTopDocs = actual.topDocs();
+        assertFalse(expected.isEarlyTerminated());
+        assertEquals(expectedTopDocs.scoreDocs.length, actualTopDocs.scoreDocs.length);
+        for (int i = 0; i < expectedTopDocs.scoreDocs.length; ++i) {
+          assertEquals(expectedTopDocs.scoreDocs[i].doc, actualTopDocs.scoreDocs[i].doc);
+        }
+        assertTrue(actualTopDocs.totalHits <= expectedTopDocs.totalHits);
+        if (querySort == sort) {
+          // hits that come after the first numHits hits of a segment are never competitive
+          boolean mustTerminate = false;
+          for (LeafReaderContext context : reader.leaves()) {
+            mustTerminate |= new IndexSearcher(context.reader()).count(query) > numHits;
+          }
+          if (mustTerminate) {
+            assertTrue(actual.isEarlyTerminated());
+          }
+          if (actual.isEarlyTerminated() == false) {
+            assertEquals(expectedTopDocs.totalHits, actualTopDocs.totalHits);
+          }
+        } else {
+          assertFalse(actual.isEarlyTerminated());
+          assertEquals(expectedTopDocs.totalHits, actualTopDocs.totalHits);
+        }
+      }
+    }
+
+    reader.close();
+    dir.close();
+  }
 }
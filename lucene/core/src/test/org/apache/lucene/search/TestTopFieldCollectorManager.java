@@ -0,0 +1,251 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.LuceneTestCase;
+import org.apache.lucene.util.NamedThreadFactory;
+import org.apache.lucene.util.TestUtil;
+
+public class TestTopFieldCollectorManager extends LuceneTestCase {
+
+  public void testSameHitsAsSequentialSearch() throws Exception {
+    Directory dir = newDirectory();
+    RandomIndexWriter w = new RandomIndexWriter(random(), dir);
+    final int numDocs = atLeast(1000);
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new NumericDocValuesField("long", random().nextInt(100)));
+      doc.add(new SortedDocValuesField("string", new BytesRef(TestUtil.randomSimpleString(random(), 2))));
+      doc.add(new StringField("f", random().nextBoolean() ? "a" : "b", Store.NO));
+      w.addDocument(doc);
+      if (rarely()) {
+        w.commit();
+      }
+    }
+    IndexReader reader = w.getReader();
+    w.close();
+
+    ExecutorService service = new ThreadPoolExecutor(4, 4, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new NamedThreadFactory("TestTopFieldCollectorManager"));
+    try {
+      IndexSearcher sequential = new IndexSearcher(reader);
+      IndexSearcher concurrent = new IndexSearcher(reader, service);
+      Sort[] sorts = new Sort[] {
+          new Sort(new SortField("long", SortField.Type.LONG)),
+          new Sort(new SortField("long", SortField.Type.LONG, true)),
+          new Sort(new SortField("string", SortField.Type.STRING)),
+          new Sort(new SortField("string", SortField.Type.STRING, true), new SortField("long", SortField.Type.LONG)),
+          new Sort(new SortField("long", SortField.Type.LONG), SortField.FIELD_SCORE),
+      };
+      Query[] queries = new Query[] {
+          new MatchAllDocsQuery(),
+          new TermQuery(new Term("f", "a"))
+      };
+      for (Sort sort : sorts) {
+        for (Query query : queries) {
+          final int numHits = TestUtil.nextInt(random(), 1, numDocs / 2);
+          final boolean doDocScores = random().nextBoolean();
+          final boolean doMaxScore = random().nextBoolean();
+          TopFieldDocs expected = sequential.search(query, numHits, sort, doDocScores, doMaxScore);
+          TopFieldDocs actual = concurrent.search(query, numHits, sort, doDocScores, doMaxScore);
+          assertSameHits(expected, actual);
+
+          FieldDoc after = (FieldDoc) expected.scoreDocs[expected.scoreDocs.length - 1];
+          expected = sequential.searchAfter(after, query, numHits, sort, doDocScores, doMaxScore);
+          actual = concurrent.searchAfter(after, query, numHits, sort, doDocScores, doMaxScore);
+          assertSameHits(expected, actual);
+        }
+      }
+    } finally {
+      service.shutdown();
+      service.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      reader.close();
+      dir.close();
+    }
+  }
+
+  private static void assertSameHits(TopFieldDocs expected, TopFieldDocs actual) {
+    assertEquals(expected.totalHits, actual.totalHits);
+    assertEquals(expected.scoreDocs.length, actual.scoreDocs.length);
+    for (int i = 0; i < expected.scoreDocs.length; ++i) {
+      assertEquals(expected.scoreDocs[i].doc, actual.scoreDocs[i].doc);
+    }
+  }
+
+  public void testGlobalBottomPrunesHits() throws Exception {
+    Directory dir = newDirectory();
+    IndexWriter w = new IndexWriter(dir, new IndexWriterConfig(new MockAnalyzer(random()))
+        .setMergePolicy(NoMergePolicy.INSTANCE));
+    final int numDocs = atLeast(100);
+    // the first segment has the best values in increasing order, the second
+    // one has worse values in decreasing order, so that each of its hits is
+    // competitive locally but not globally
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new NumericDocValuesField("long", i));
+      w.addDocument(doc);
+    }
+    w.commit();
+    for (int i = 0; i < numDocs; ++i) {
+      Document doc = new Document();
+      doc.add(new NumericDocValuesField("long", 2 * numDocs - i));
+      w.addDocument(doc);
+    }
+    w.commit();
+    w.close();
+    DirectoryReader reader = DirectoryReader.open(dir);
+    assertEquals(2, reader.leaves().size());
+
+    // a single thread runs slices one after the other, in order
+    ExecutorService service = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<Runnable>(),
+        new NamedThreadFactory("TestTopFieldCollectorManager"));
+    try {
+      IndexSearcher searcher = new IndexSearcher(reader, service);
+      final AtomicInteger copies = new AtomicInteger();
+      Sort sort = new Sort(new SortField("long", new CountingComparatorSource(copies)));
+      final int numHits = TestUtil.nextInt(random(), 1, numDocs / 2);
+
+      TopFieldDocs unshared = searcher.search(new MatchAllDocsQuery(),
+          new TopFieldCollectorManager(sort, numHits, null, false, false, true, false));
+      final int unsharedCopies = copies.getAndSet(0);
+      assertEquals(numHits + numDocs, unsharedCopies);
+
+      TopFieldDocs shared = searcher.search(new MatchAllDocsQuery(),
+          new TopFieldCollectorManager(sort, numHits, null, false, false, true, true));
+      final int sharedCopies = copies.get();
+      assertEquals(2 * numHits, sharedCopies);
+      assertTrue(sharedCopies < unsharedCopies);
+      assertSameHits(unshared, shared);
+    } finally {
+      service.shutdown();
+      service.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+      reader.close();
+      dir.close();
+    }
+  }
+
+  /** Sorts by a long field and counts how many hits are copied into the
+   *  queues of collectors. */
+  private static class CountingComparatorSource extends FieldComparatorSource {
+
+    private final AtomicInteger copies;
+
+    CountingComparatorSource(AtomicInteger copies) {
+      this.copies = copies;
+    }
+
+    @Override
+    public FieldComparator<?> newComparator(String fieldname, int numHits, int sortPos, boolean reversed)
+        throws IOException {
+      final FieldComparator.LongComparator in = new FieldComparator.LongComparator(numHits, fieldname, null);
+      return new FieldComparator<Long>() {
+
+        @Override
+        public int compare(int slot1, int slot2) {
+          return in.compare(slot1, slot2);
+        }
+
+        @Override
+        public void setTopValue(Long value) {
+          in.setTopValue(value);
+        }
+
+        @Override
+        public Long value(int slot) {
+          return in.value(slot);
+        }
+
+        @Override
+        public LeafFieldComparator getLeafComparator(LeafReaderContext context) throws IOException {
+          final LeafFieldComparator leaf = in.getLeafComparator(context);
+          return new LeafFieldComparator() {
+
+            @Override
+            public void setBottom(int slot) {
+              leaf.setBottom(slot);
+            }
+
+            @Override
+            public int compareBottom(int doc) throws IOException {
+              return leaf.compareBottom(doc);
+            }
+
+            @Override
+            public int compareTop(int doc) throws IOException {
+              return leaf.compareTop(doc);
+            }
+
+            @Override
+            public void copy(int slot, int doc) throws IOException {
+              copies.incrementAndGet();
+              leaf.copy(slot, doc);
+            }
+
+            @Override
+            public void setScorer(Scorer scorer) {
+              leaf.setScorer(scorer);
+            }
+          };
+        }
+      };
+    }
+  }
+
+  public void testIllegalArguments() {
+    Sort sort = new Sort(new SortField("long", SortField.Type.LONG));
+    try {
+      new TopFieldCollectorManager(sort, 0, null, false, false);
+      fail();
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+    try {
+      new TopFieldCollectorManager(sort, 10, new FieldDoc(0, Float.NaN), false, false);
+      fail();
+    } catch (IllegalArgumentException expected) {
+      // expected
+    }
+  }
+
+}
@@ -17,10 +17,14 @@ package org.apache.lucene.search;
  * limitations under the License.
  */
 
+import java.io.IOException;
+
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.LuceneTestCase;
@@ -46,4 +50,78 @@ public class TestTotalHitCountCollector extends LuceneTestCase {
     reader.close();
     indexStore.close();
   }
+
+  public void testSubclassCollectsEachHit() throws Exception {
+    Directory indexStore = newDirectory();
+    RandomIndexWriter writer = new RandomIndexWriter(random(), indexStore);
+    final int numDocs = atLeast(3000);
+    int expected = 0;
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(new StringField("string", random().nextBoolean() ? "a" : "b", Field.Store.NO));
+      final boolean even = (i & 1) == 0;
+      doc.add(new StringField("even", Boolean.toString(even), Field.Store.YES));
+      if (even) {
+        expected++;
+      }
+      writer.addDocument(doc);
+    }
+    IndexReader reader = writer.getReader();
+    writer.close();
+
+    // a pure disjunction, whose bulk scorer collects hits by batches
+    BooleanQuery query = new BooleanQuery();
+    query.add(new TermQuery(new Term("string", "a")), BooleanClause.Occur.SHOULD);
+    query.add(new TermQuery(new Term("string", "b")), BooleanClause.Occur.SHOULD);
+
+    IndexSearcher searcher = newSearcher(reader);
+    // cached queries are collected one doc at a time
+    searcher.setQueryCache(null);
+    TotalHitCountCollector all = new TotalHitCountCollector();
+    searcher.search(query, all);
+    assertEquals(numDocs, all.getTotalHits());
+
+    // a subclass that only counts some hits must see all of them
+    final IndexReader topReader = searcher.getIndexReader();
+    TotalHitCountCollector evens = new TotalHitCountCollector() {
+      private int docBase;
+
+      @Override
+      protected void doSetNextReader(LeafReaderContext context) throws IOException {
+        docBase = context.docBase;
+      }
+
+      @Override
+      public void collect(int doc) {
+        try {
+          if (Boolean.parseBoolean(topReader.document(docBase + doc).get("even"))) {
+            super.collect(doc);
+          }
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    };
+    searcher.search(query, evens);
+    assertEquals(expected, evens.getTotalHits());
+    reader.close();
+    indexStore.close();
+  }
+
+  public void testCanCountInBatches() {
+    assertTrue(new TotalHitCountCollector().canCountInBatches());
+    // subclasses that do not override collect(int) keep counting in batches
+    assertTrue(new TotalHitCountCollector() {
+      @Override
+      public boolean needsScores() {
+        return true;
+      }
+    }.canCountInBatches());
+    assertFalse(new TotalHitCountCollector() {
+      @Override
+      public void collect(int doc) {
+        super.collect(doc);
+      }
+    }.canCountInBatches());
+  }
 }
@@ -21,9 +21,23 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
-
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.NamedThreadFactory;
 
 public class TestDirectory extends BaseDirectoryTestCase {
 
@@ -171,5 +185,59 @@ public class TestDirectory extends BaseDirectoryTestCase {
       IOUtils.rm(path);
     }
   }
-}
 
+  // Test that commits sync files through the executor of the directory, and
+  // that a failing sync fails the commit
+  public void testSyncExecutor() throws Exception {
+    final Path path = createTempDir("testSyncExecutor");
+    final ExecutorService executor = Executors.newFixedThreadPool(2, new NamedThreadFactory("testSyncExecutor"));
+    final Set<String> syncThreads = Collections.synchronizedSet(new HashSet<String>());
+    final AtomicBoolean failSyncs = new AtomicBoolean();
+    final FSDirectory dir = new SimpleFSDirectory(path) {
+      @Override
+      protected void fsync(String name) throws IOException {
+        syncThreads.add(Thread.currentThread().getName());
+        if (failSyncs.get() && name.startsWith(IndexFileNames.SEGMENTS) == false) {
+          throw new IOException("simulated fsync failure: " + name);
+        }
+        super.fsync(name);
+      }
+    };
+    dir.setSyncExecutor(executor);
+    assertSame(executor, dir.getSyncExecutor());
+    try {
+      final IndexWriterConfig iwc = new IndexWriterConfig(new MockAnalyzer(random()));
+      if (random().nextBoolean()) {
+        // also sync in the background from the writer
+        iwc.setSyncExecutor(executor);
+      }
+      final IndexWriter w = new IndexWriter(dir, iwc);
+      w.addDocument(new Document());
+      w.commit();
+      boolean syncedInExecutor = false;
+      for (String threadName : syncThreads) {
+        syncedInExecutor |= threadName.startsWith("testSyncExecutor");
+      }
+      assertTrue(syncThreads.toString(), syncedInExecutor);
+
+      failSyncs.set(true);
+      w.addDocument(new Document());
+      try {
+        w.commit();
+        fail("commit should fail when a file cannot be synced");
+      } catch (IOException expected) {
+        // expected
+      }
+      w.rollback();
+
+      failSyncs.set(false);
+      try (DirectoryReader reader = DirectoryReader.open(dir)) {
+        assertEquals(1, reader.numDocs());
+      }
+    } finally {
+      dir.close();
+      executor.shutdown();
+      assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+  }
+}
@@ -329,6 +329,42 @@ public class TestMultiMMap extends BaseDirectoryTestCase {
     assertEquals(new BytesRef(bytes, outerSliceStart + sliceStart, sliceLength), new BytesRef(slice));
   }
   
+  public void testReadLongs() throws Exception {
+    for (int i = 3; i < 12; i++) {
+      final int chunkSize = 1<<i;
+      MMapDirectory mmapDir = new MMapDirectory(createTempDir("testReadLongs"), chunkSize);
+      IndexOutput io = mmapDir.createOutput("longs", newIOContext(random()));
+      // a prefix makes longs unaligned with chunks
+      final int prefix = random().nextInt(8);
+      for (int j = 0; j < prefix; j++) {
+        io.writeByte((byte) j);
+      }
+      final long[] longs = new long[TestUtil.nextInt(random(), 1, 4 * chunkSize)];
+      for (int j = 0; j < longs.length; j++) {
+        longs[j] = random().nextLong();
+        io.writeLong(longs[j]);
+      }
+      io.close();
+
+      IndexInput ii = mmapDir.openInput("longs", newIOContext(random()));
+      ii.seek(prefix);
+      final long[] actual = new long[longs.length + 2];
+      int upto = 0;
+      while (upto < longs.length) {
+        // small reads go through getLong, large ones through a LongBuffer view
+        final int len = TestUtil.nextInt(random(), 1, Math.min(100, longs.length - upto));
+        ii.readLongs(actual, 1 + upto, len);
+        upto += len;
+      }
+      assertEquals(prefix + 8L * longs.length, ii.getFilePointer());
+      for (int j = 0; j < longs.length; j++) {
+        assertEquals(longs[j], actual[1 + j]);
+      }
+      ii.close();
+      mmapDir.close();
+    }
+  }
+
   public void testRandomChunkSizes() throws Exception {
     int num = TEST_NIGHTLY ? atLeast(10) : 3;
     for (int i = 0; i < num; i++) {
@@ -0,0 +1,66 @@
+package org.apache.lucene.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.apache.lucene.search.DocIdSetIterator;
+
+public class TestDirectBitSet extends BaseBitSetTestCase<DirectBitSet> {
+
+  @Override
+  public DirectBitSet copyOf(BitSet bs, int length) throws IOException {
+    final DirectBitSet set = new DirectBitSet(length);
+    for (int doc = bs.nextSetBit(0); doc != DocIdSetIterator.NO_MORE_DOCS; doc = doc + 1 >= length ? DocIdSetIterator.NO_MORE_DOCS : bs.nextSetBit(doc + 1)) {
+      set.set(doc);
+    }
+    return set;
+  }
+
+  public void testBufferTooSmall() {
+    try {
+      new DirectBitSet(ByteBuffer.allocateDirect(8), 65);
+      fail("should have hit IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // ok
+    }
+  }
+
+  public void testSharedBuffer() {
+    final int numBits = TestUtil.nextInt(random(), 1, 1000);
+    final int offset = random().nextInt(16);
+    final ByteBuffer buffer = random().nextBoolean()
+        ? ByteBuffer.allocateDirect(offset + DirectBitSet.bits2bytes(numBits) + 8)
+        : ByteBuffer.allocate(offset + DirectBitSet.bits2bytes(numBits) + 8);
+    buffer.position(offset);
+    final DirectBitSet set = new DirectBitSet(buffer, numBits);
+    set.set(numBits - 1);
+    set.set(0);
+    assertEquals(numBits == 1 ? 1 : 2, set.cardinality());
+    // bits are visible through another set on top of the same memory
+    buffer.position(offset);
+    final DirectBitSet other = new DirectBitSet(buffer, numBits);
+    assertTrue(other.get(0));
+    assertTrue(other.get(numBits - 1));
+    assertEquals(buffer.isDirect() ? DirectBitSet.bits2bytes(numBits) : 0, set.offHeapBytesUsed());
+    assertEquals(buffer.isDirect() ? 1 : 0, set.getChildResources().size());
+    assertTrue(set.ramBytesUsed() >= DirectBitSet.bits2bytes(numBits));
+  }
+
+}
@@ -0,0 +1,146 @@
+package org.apache.lucene.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import org.apache.lucene.search.DocIdSetIterator;
+
+public class TestPagedFixedBitSet extends LuceneTestCase {
+
+  private static void assertSameBits(FixedBitSet expected, PagedFixedBitSet actual) {
+    assertEquals(expected.length(), actual.length());
+    assertEquals(expected.cardinality(), actual.cardinality());
+    for (int i = 0; i < expected.length(); ++i) {
+      assertEquals(expected.get(i), actual.get(i));
+    }
+    final long[] words = expected.getBits();
+    assertEquals(FixedBitSet.bits2words(expected.length()), actual.numWords());
+    for (int i = 0; i < actual.numWords(); ++i) {
+      assertEquals(words[i], actual.getWord(i));
+    }
+    for (int iter = 0; iter < 100; ++iter) {
+      final int index = random().nextInt(expected.length());
+      assertEquals(expected.nextSetBit(index), actual.nextSetBit(index));
+    }
+  }
+
+  public void testSetAndClear() {
+    final int numBits = TestUtil.nextInt(random(), 1, 1 << 20);
+    FixedBitSet expected = new FixedBitSet(numBits);
+    PagedFixedBitSet actual = new PagedFixedBitSet(numBits);
+    assertSameBits(expected, actual);
+
+    final int numOps = atLeast(1000);
+    for (int i = 0; i < numOps; ++i) {
+      final int index = random().nextInt(numBits);
+      switch (random().nextInt(3)) {
+        case 0:
+          expected.set(index);
+          actual.set(index);
+          break;
+        case 1:
+          expected.clear(index);
+          actual.clear(index);
+          break;
+        default:
+          final int end = TestUtil.nextInt(random(), index, numBits);
+          expected.set(index, end);
+          actual.set(index, end);
+          break;
+      }
+    }
+    assertSameBits(expected, actual);
+    assertSameBits(expected, new PagedFixedBitSet(expected));
+  }
+
+  public void testAllSet() {
+    final int numBits = TestUtil.nextInt(random(), 1, 1 << 22);
+    FixedBitSet expected = new FixedBitSet(numBits);
+    expected.set(0, numBits);
+    PagedFixedBitSet actual = new PagedFixedBitSet(numBits);
+    actual.set(0, numBits);
+    assertSameBits(expected, actual);
+    // only the last page may be allocated
+    assertTrue(actual.numOwnedPages() <= 1);
+    actual = new PagedFixedBitSet(expected);
+    assertSameBits(expected, actual);
+    assertTrue(actual.numOwnedPages() <= 1);
+  }
+
+  public void testNextSetBit() {
+    final int numBits = TestUtil.nextInt(random(), 1, 1 << 20);
+    FixedBitSet expected = new FixedBitSet(numBits);
+    PagedFixedBitSet actual = new PagedFixedBitSet(numBits);
+    // few bits so that most pages are empty
+    final int numSetBits = random().nextInt(10);
+    for (int i = 0; i < numSetBits; ++i) {
+      final int index = random().nextInt(numBits);
+      expected.set(index);
+      actual.set(index);
+    }
+    for (int index = 0; index < numBits; ) {
+      final int next = expected.nextSetBit(index);
+      assertEquals(next, actual.nextSetBit(index));
+      if (next == DocIdSetIterator.NO_MORE_DOCS) {
+        break;
+      }
+      index = next + 1;
+    }
+  }
+
+  public void testCopyOnWrite() {
+    final int numBits = TestUtil.nextInt(random(), 1 << 18, 1 << 22);
+    FixedBitSet expected = new FixedBitSet(numBits);
+    expected.set(0, numBits);
+    PagedFixedBitSet bits = new PagedFixedBitSet(numBits);
+    bits.set(0, numBits);
+
+    final int numClones = atLeast(10);
+    for (int i = 0; i < numClones; ++i) {
+      final FixedBitSet expectedClone = expected.clone();
+      final PagedFixedBitSet clone = bits.clone();
+      assertEquals(0, bits.numOwnedPages());
+      assertEquals(0, clone.numOwnedPages());
+
+      // modifications of the original must not be visible in the clone
+      final int index = random().nextInt(numBits);
+      expected.clear(index);
+      bits.clear(index);
+      assertEquals(1, bits.numOwnedPages());
+      assertSameBits(expectedClone, clone);
+      assertSameBits(expected, bits);
+
+      // and the other way around
+      final int cloneIndex = random().nextInt(numBits);
+      expectedClone.clear(cloneIndex);
+      clone.clear(cloneIndex);
+      assertSameBits(expectedClone, clone);
+      assertSameBits(expected, bits);
+    }
+  }
+
+  public void testRamBytesUsed() {
+    final int numBits = 1 << 22;
+    PagedFixedBitSet bits = new PagedFixedBitSet(numBits);
+    bits.set(0, numBits);
+    final long allSetBytes = bits.ramBytesUsed();
+    // shared pages are not accounted
+    assertTrue(allSetBytes < RamUsageEstimator.sizeOf(new long[FixedBitSet.bits2words(numBits)]));
+    bits.clear(0);
+    assertTrue(bits.ramBytesUsed() > allSetBytes);
+  }
+}
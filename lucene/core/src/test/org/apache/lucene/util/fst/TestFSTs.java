@@ -1640,4 +1640,65 @@ public class TestFSTs extends LuceneTestCase {
       // expected
     }
   }
+
+  public void testOffHeap() throws Exception {
+    final int numTerms = atLeast(1000);
+    final Set<BytesRef> terms = new TreeSet<>();
+    while (terms.size() < numTerms) {
+      terms.add(new BytesRef(TestUtil.randomUnicodeString(random())));
+    }
+    final PositiveIntOutputs outputs = PositiveIntOutputs.getSingleton();
+    final Builder<Long> builder = new Builder<>(FST.INPUT_TYPE.BYTE1, outputs);
+    final IntsRefBuilder input = new IntsRefBuilder();
+    long output = 0;
+    for (BytesRef term : terms) {
+      builder.add(Util.toIntsRef(term, input), output++);
+    }
+    final FST<Long> fst = builder.finish();
+
+    Directory dir = newDirectory();
+    IndexOutput out = dir.createOutput("fst", IOContext.DEFAULT);
+    // the FST does not need to start at the beginning of the file
+    out.writeVInt(42);
+    fst.save(out);
+    out.writeVInt(43);
+    out.close();
+
+    IndexInput in = dir.openInput("fst", IOContext.DEFAULT);
+    assertEquals(42, in.readVInt());
+    final FST<Long> offHeap = new FST<>(in, outputs, true);
+    // the input is positioned after the FST
+    assertEquals(43, in.readVInt());
+    assertEquals(0, fst.offHeapBytes());
+    assertTrue(offHeap.offHeapBytes() > 0);
+    assertTrue(offHeap.ramBytesUsed() < fst.ramBytesUsed());
+
+    output = 0;
+    for (BytesRef term : terms) {
+      assertEquals(Long.valueOf(output++), Util.get(offHeap, term));
+    }
+    assertNull(Util.get(offHeap, new BytesRef(new byte[] {(byte) 0xff, (byte) 0xff})));
+
+    final BytesRefFSTEnum<Long> expected = new BytesRefFSTEnum<>(fst);
+    final BytesRefFSTEnum<Long> actual = new BytesRefFSTEnum<>(offHeap);
+    InputOutput<Long> next;
+    while ((next = expected.next()) != null) {
+      InputOutput<Long> actualNext = actual.next();
+      assertEquals(next.input, actualNext.input);
+      assertEquals(next.output, actualNext.output);
+    }
+    assertNull(actual.next());
+
+    // an off-heap FST can be saved again
+    out = dir.createOutput("fst2", IOContext.DEFAULT);
+    offHeap.save(out);
+    out.close();
+    IndexInput in2 = dir.openInput("fst2", IOContext.DEFAULT);
+    final FST<Long> copy = new FST<>(in2, outputs);
+    in2.close();
+    assertEquals(Long.valueOf(0), Util.get(copy, terms.iterator().next()));
+
+    in.close();
+    dir.close();
+  }
 }
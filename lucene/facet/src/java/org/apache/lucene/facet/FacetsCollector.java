@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.BulkLeafCollector;
 import org.apache.lucene.search.Collector;
 import org.apache.lucene.search.DocIdSet;
 import org.apache.lucene.search.FieldDoc;
@@ -50,7 +51,7 @@ import org.apache.lucene.util.FixedBitSet;
  *  perform an "ordinary" search but also collect into a
  *  {@link Collector}. */
 // redundant 'implements Collector' to workaround javadocs bugs
-public class FacetsCollector extends SimpleCollector implements Collector {
+public class FacetsCollector extends SimpleCollector implements Collector, BulkLeafCollector {
 
   private LeafReaderContext context;
   private Scorer scorer;
@@ -169,6 +170,22 @@ public class FacetsCollector extends SimpleCollector implements Collector {
     totalHits++;
   }
 
+  @Override
+  public final void collect(int[] docs, float[] scores, int count) throws IOException {
+    for (int i = 0; i < count; ++i) {
+      this.docs.addDoc(docs[i]);
+    }
+    if (keepScores) {
+      if (totalHits + count > this.scores.length) {
+        float[] newScores = new float[ArrayUtil.oversize(totalHits + count, 4)];
+        System.arraycopy(this.scores, 0, newScores, 0, totalHits);
+        this.scores = newScores;
+      }
+      System.arraycopy(scores, 0, this.scores, totalHits, count);
+    }
+    totalHits += count;
+  }
+
   @Override
   public boolean needsScores() {
     return true;
@@ -0,0 +1,108 @@
+package org.apache.lucene.codecs.compressing;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteArrayDataOutput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link LZ4} compression and decompression of text-like data, as found in
+ * stored fields blocks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LZ4Benchmark {
+
+  private static final String[] WORDS = new String[] {
+    "the", "of", "and", "to", "in", "a", "is", "that", "for", "it", "as", "was",
+    "with", "be", "by", "on", "not", "he", "lucene", "index", "search", "query",
+    "document", "field", "term", "segment", "merge", "score", "apache", "java"
+  };
+
+  @Param({"4096", "16384", "61440"})
+  public int length;
+
+  private byte[] uncompressed;
+  private byte[] compressed;
+  private int compressedLength;
+  private byte[] restored;
+  private final LZ4.HashTable ht = new LZ4.HashTable();
+  private final LZ4.HCHashTable htHC = new LZ4.HCHashTable();
+  private final ByteArrayDataOutput out = new ByteArrayDataOutput();
+  private final ByteArrayDataInput in = new ByteArrayDataInput();
+
+  @Setup
+  public void setup() throws IOException {
+    final Random random = new Random(length);
+    final StringBuilder text = new StringBuilder();
+    while (text.length() < length) {
+      text.append(WORDS[random.nextInt(WORDS.length)]);
+      text.append(random.nextInt(10) == 0 ? ". " : " ");
+      if (random.nextInt(20) == 0) {
+        text.append(random.nextInt(100000));
+      }
+    }
+    uncompressed = text.substring(0, length).getBytes(StandardCharsets.UTF_8);
+    compressed = new byte[length * 2 + 16];
+    out.reset(compressed);
+    LZ4.compress(uncompressed, 0, uncompressed.length, out, ht);
+    compressedLength = out.getPosition();
+    restored = new byte[length + 7];
+  }
+
+  @Benchmark
+  public int compress() throws IOException {
+    out.reset(compressed);
+    LZ4.compress(uncompressed, 0, uncompressed.length, out, ht);
+    return out.getPosition();
+  }
+
+  @Benchmark
+  public int compressHC() throws IOException {
+    out.reset(compressed);
+    LZ4.compressHC(uncompressed, 0, uncompressed.length, out, htHC);
+    return out.getPosition();
+  }
+
+  @Benchmark
+  public int decompress() throws IOException {
+    in.reset(compressed, 0, compressedLength);
+    return LZ4.decompress(in, uncompressed.length, restored, 0);
+  }
+
+}
@@ -0,0 +1,137 @@
+package org.apache.lucene.codecs.lucene50;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import static org.apache.lucene.codecs.lucene50.ForUtil.MAX_DATA_SIZE;
+import static org.apache.lucene.codecs.lucene50.ForUtil.MAX_ENCODED_LONGS;
+import static org.apache.lucene.codecs.lucene50.ForUtil.MAX_ENCODED_SIZE;
+import static org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat.BLOCK_SIZE;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.packed.PackedInts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decoding of postings blocks with {@link ForUtil}, from a memory-mapped file.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForUtilBenchmark {
+
+  private static final int NUM_BLOCKS = 256;
+
+  @Param({"1", "2", "4", "7", "8", "12", "16", "20", "24", "31"})
+  public int bitsPerValue;
+
+  private Path path;
+  private Directory dir;
+  private IndexInput in;
+  private ForUtil forUtil;
+  private long startFP;
+  private final long[] encoded = new long[MAX_ENCODED_LONGS];
+  private final int[] decoded = new int[MAX_DATA_SIZE];
+
+  @Setup
+  public void setup() throws IOException {
+    path = Files.createTempDirectory("forutil");
+    dir = new MMapDirectory(path);
+    final Random random = new Random(bitsPerValue);
+    final long maxValue = PackedInts.maxValue(bitsPerValue);
+    try (IndexOutput out = dir.createOutput("blocks", IOContext.DEFAULT)) {
+      final ForUtil writer = new ForUtil(PackedInts.COMPACT, out);
+      final int[] values = new int[MAX_DATA_SIZE];
+      final byte[] encodedBytes = new byte[MAX_ENCODED_SIZE];
+      for (int i = 0; i < NUM_BLOCKS; ++i) {
+        for (int j = 0; j < BLOCK_SIZE; ++j) {
+          values[j] = (int) (random.nextLong() & maxValue);
+        }
+        // make sure that blocks are encoded with the expected number of bits
+        values[0] = (int) maxValue;
+        values[1] = 0;
+        writer.writeBlock(values, encodedBytes, out);
+      }
+    }
+    in = dir.openInput("blocks", IOContext.DEFAULT);
+    forUtil = new ForUtil(in);
+    startFP = in.getFilePointer();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    IOUtils.close(in, dir);
+    IOUtils.rm(path);
+  }
+
+  @Benchmark
+  public int readBlock() throws IOException {
+    in.seek(startFP);
+    int sum = 0;
+    for (int i = 0; i < NUM_BLOCKS; ++i) {
+      forUtil.readBlock(in, encoded, decoded);
+      sum += decoded[BLOCK_SIZE - 1];
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public int readDeltaBlock() throws IOException {
+    in.seek(startFP);
+    int base = 0;
+    for (int i = 0; i < NUM_BLOCKS; ++i) {
+      forUtil.readDeltaBlock(in, encoded, decoded, base);
+      base = decoded[BLOCK_SIZE - 1];
+    }
+    return base;
+  }
+
+  @Benchmark
+  public long skipBlock() throws IOException {
+    in.seek(startFP);
+    for (int i = 0; i < NUM_BLOCKS; ++i) {
+      forUtil.skipBlock(in);
+    }
+    return in.getFilePointer();
+  }
+
+}
@@ -0,0 +1,101 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Intersection of iterators with a {@link ConjunctionDISI}: the least costly
+ * iterator leads and the other ones are advanced to its matches.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConjunctionDISIBenchmark {
+
+  private static final int MAX_DOC = 1 << 22;
+
+  /** Density of the leading iterator. */
+  @Param({"0.001", "0.01", "0.1"})
+  public double leadDensity;
+
+  /** Density of the other iterators. */
+  @Param({"0.01", "0.1", "0.5"})
+  public double otherDensity;
+
+  @Param({"2", "3", "5"})
+  public int numClauses;
+
+  private FixedBitSet[] sets;
+
+  private static FixedBitSet randomSet(Random random, double density) {
+    final FixedBitSet set = new FixedBitSet(MAX_DOC);
+    for (int doc = 0; doc < MAX_DOC; ++doc) {
+      if (random.nextDouble() < density) {
+        set.set(doc);
+      }
+    }
+    return set;
+  }
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(numClauses);
+    sets = new FixedBitSet[numClauses];
+    sets[0] = randomSet(random, leadDensity);
+    for (int i = 1; i < numClauses; ++i) {
+      sets[i] = randomSet(random, otherDensity);
+    }
+  }
+
+  @Benchmark
+  public int intersect() throws IOException {
+    final List<DocIdSetIterator> iterators = new ArrayList<>();
+    for (FixedBitSet set : sets) {
+      iterators.add(new BitSetIterator(set, set.cardinality()));
+    }
+    final ConjunctionDISI conjunction = ConjunctionDISI.intersect(iterators);
+    int count = 0;
+    for (int doc = conjunction.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = conjunction.nextDoc()) {
+      count++;
+    }
+    return count;
+  }
+
+}
@@ -0,0 +1,98 @@
+package org.apache.lucene.search;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.SlowCompositeReaderWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Collection of scored hits by a {@link TopScoreDocCollector}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopScoreDocCollectorBenchmark {
+
+  private static final int NUM_DOCS = 1 << 20;
+
+  @Param({"10", "100", "1000"})
+  public int numHits;
+
+  /** How scores are distributed over doc IDs. */
+  @Param({"random", "increasing"})
+  public String scores;
+
+  @Param({"true", "false"})
+  public boolean trackTotalHits;
+
+  private float[] docScores;
+  private LeafReaderContext context;
+
+  @Setup
+  public void setup() throws IOException {
+    final Random random = new Random(numHits);
+    docScores = new float[NUM_DOCS];
+    for (int i = 0; i < NUM_DOCS; ++i) {
+      switch (scores) {
+        case "random":
+          docScores[i] = random.nextFloat();
+          break;
+        case "increasing":
+          docScores[i] = i;
+          break;
+        default:
+          throw new AssertionError("Unknown score distribution: " + scores);
+      }
+    }
+    context = SlowCompositeReaderWrapper.wrap(new MultiReader()).getContext();
+  }
+
+  @Benchmark
+  public int collect() throws IOException {
+    final TopScoreDocCollector collector = TopScoreDocCollector.create(numHits, null, trackTotalHits);
+    final LeafCollector leafCollector = collector.getLeafCollector(context);
+    final FakeScorer scorer = new FakeScorer();
+    leafCollector.setScorer(scorer);
+    for (int doc = 0; doc < NUM_DOCS; ++doc) {
+      scorer.doc = doc;
+      scorer.score = docScores[doc];
+      leafCollector.collect(doc);
+    }
+    return collector.getTotalHits();
+  }
+
+}
@@ -0,0 +1,109 @@
+package org.apache.lucene.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Iteration over {@link FixedBitSet}, {@link SparseFixedBitSet} and
+ * {@link RoaringDocIdSet} with various densities.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BitSetIterationBenchmark {
+
+  private static final int MAX_DOC = 1 << 22;
+
+  @Param({"FixedBitSet", "SparseFixedBitSet", "RoaringDocIdSet"})
+  public String impl;
+
+  @Param({"0.0001", "0.001", "0.01", "0.1", "0.5"})
+  public double density;
+
+  private DocIdSet set;
+  private int advanceInterval;
+
+  @Setup
+  public void setup() throws IOException {
+    final Random random = new Random(0);
+    final FixedBitSet bits = new FixedBitSet(MAX_DOC);
+    for (int doc = 0; doc < MAX_DOC; ++doc) {
+      if (random.nextDouble() < density) {
+        bits.set(doc);
+      }
+    }
+    switch (impl) {
+      case "FixedBitSet":
+        set = new BitDocIdSet(bits);
+        break;
+      case "SparseFixedBitSet":
+        final SparseFixedBitSet sparse = new SparseFixedBitSet(MAX_DOC);
+        sparse.or(new BitSetIterator(bits, bits.cardinality()));
+        set = new BitDocIdSet(sparse);
+        break;
+      case "RoaringDocIdSet":
+        set = new RoaringDocIdSet.Builder(MAX_DOC).add(new BitSetIterator(bits, bits.cardinality())).build();
+        break;
+      default:
+        throw new AssertionError("Unknown impl: " + impl);
+    }
+    // advance by about 10 matching docs on average
+    advanceInterval = (int) Math.max(1, 10 / density);
+  }
+
+  @Benchmark
+  public int nextDoc() throws IOException {
+    final DocIdSetIterator it = set.iterator();
+    int count = 0;
+    for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
+      count++;
+    }
+    return count;
+  }
+
+  @Benchmark
+  public int advance() throws IOException {
+    final DocIdSetIterator it = set.iterator();
+    int count = 0;
+    for (int doc = it.advance(0); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.advance(doc + advanceInterval)) {
+      count++;
+    }
+    return count;
+  }
+
+}
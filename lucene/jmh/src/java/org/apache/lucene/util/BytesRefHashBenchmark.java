@@ -0,0 +1,81 @@
+package org.apache.lucene.util;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Addition of terms to a {@link BytesRefHash}, as done by the indexing chain
+ * for every token.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BytesRefHashBenchmark {
+
+  private static final int NUM_TERMS = 1 << 16;
+
+  /** Number of unique terms among the added terms. */
+  @Param({"100", "10000", "65536"})
+  public int numUniqueTerms;
+
+  private BytesRef[] terms;
+
+  @Setup
+  public void setup() {
+    final Random random = new Random(numUniqueTerms);
+    final BytesRef[] uniqueTerms = new BytesRef[numUniqueTerms];
+    for (int i = 0; i < numUniqueTerms; ++i) {
+      final byte[] bytes = new byte[2 + random.nextInt(12)];
+      for (int j = 0; j < bytes.length; ++j) {
+        bytes[j] = (byte) ('a' + random.nextInt(26));
+      }
+      uniqueTerms[i] = new BytesRef(bytes);
+    }
+    terms = new BytesRef[NUM_TERMS];
+    for (int i = 0; i < NUM_TERMS; ++i) {
+      terms[i] = uniqueTerms[random.nextInt(numUniqueTerms)];
+    }
+  }
+
+  @Benchmark
+  public int add() {
+    final BytesRefHash hash = new BytesRefHash();
+    for (BytesRef term : terms) {
+      hash.add(term);
+    }
+    return hash.size();
+  }
+
+}
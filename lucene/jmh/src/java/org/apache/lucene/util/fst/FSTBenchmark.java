@@ -0,0 +1,119 @@
+package org.apache.lucene.util.fst;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Exact-match lookups in an {@link FST} that maps terms to longs, like the
+ * terms index of the block tree terms dictionary.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FSTBenchmark {
+
+  private static final int NUM_LOOKUPS = 1024;
+
+  @Param({"10000", "1000000"})
+  public int numTerms;
+
+  private FST<Long> fst;
+  private BytesRef[] existingTerms;
+  private BytesRef[] missingTerms;
+
+  private static BytesRef randomTerm(Random random) {
+    final byte[] bytes = new byte[3 + random.nextInt(10)];
+    for (int i = 0; i < bytes.length; ++i) {
+      bytes[i] = (byte) ('a' + random.nextInt(26));
+    }
+    return new BytesRef(bytes);
+  }
+
+  @Setup
+  public void setup() throws IOException {
+    final Random random = new Random(numTerms);
+    final BytesRef[] terms = new BytesRef[numTerms];
+    for (int i = 0; i < numTerms; ++i) {
+      terms[i] = randomTerm(random);
+    }
+    Arrays.sort(terms);
+
+    final PositiveIntOutputs outputs = PositiveIntOutputs.getSingleton();
+    final Builder<Long> builder = new Builder<>(FST.INPUT_TYPE.BYTE1, outputs);
+    final IntsRefBuilder scratch = new IntsRefBuilder();
+    BytesRef previous = null;
+    for (int i = 0; i < numTerms; ++i) {
+      if (terms[i].equals(previous)) {
+        continue;
+      }
+      builder.add(Util.toIntsRef(terms[i], scratch), (long) i);
+      previous = terms[i];
+    }
+    fst = builder.finish();
+
+    existingTerms = new BytesRef[NUM_LOOKUPS];
+    missingTerms = new BytesRef[NUM_LOOKUPS];
+    for (int i = 0; i < NUM_LOOKUPS; ++i) {
+      existingTerms[i] = terms[random.nextInt(numTerms)];
+      missingTerms[i] = randomTerm(random);
+    }
+  }
+
+  @Benchmark
+  public long lookupExisting() throws IOException {
+    long sum = 0;
+    for (BytesRef term : existingTerms) {
+      sum += Util.get(fst, term);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long lookupMostlyMissing() throws IOException {
+    long sum = 0;
+    for (BytesRef term : missingTerms) {
+      final Long output = Util.get(fst, term);
+      if (output != null) {
+        sum += output;
+      }
+    }
+    return sum;
+  }
+
+}
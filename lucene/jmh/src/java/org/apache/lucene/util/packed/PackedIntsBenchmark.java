@@ -0,0 +1,138 @@
+package org.apache.lucene.util.packed;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.LongValues;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Random and sequential reads from heap {@link PackedInts.Reader}s and from
+ * memory-mapped {@link DirectReader}s.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PackedIntsBenchmark {
+
+  private static final int NUM_VALUES = 1 << 16;
+  private static final int NUM_LOOKUPS = 1024;
+
+  @Param({"1", "4", "8", "12", "16", "20", "24", "32", "40", "48", "64"})
+  public int bitsPerValue;
+
+  /** Acceptable overhead ratio of the heap reader. */
+  @Param({"0", "0.5", "7"})
+  public float acceptableOverheadRatio;
+
+  private PackedInts.Reader reader;
+  private Path path;
+  private Directory dir;
+  private IndexInput in;
+  private LongValues directReader;
+  private int[] indices;
+  private final long[] buffer = new long[NUM_VALUES];
+
+  @Setup
+  public void setup() throws IOException {
+    final Random random = new Random(bitsPerValue);
+    final long maxValue = PackedInts.maxValue(bitsPerValue);
+    final PackedInts.Mutable mutable = PackedInts.getMutable(NUM_VALUES, bitsPerValue, acceptableOverheadRatio);
+    path = Files.createTempDirectory("packedints");
+    dir = new MMapDirectory(path);
+    try (IndexOutput out = dir.createOutput("values", IOContext.DEFAULT)) {
+      final DirectWriter writer = DirectWriter.getInstance(out, NUM_VALUES, DirectWriter.bitsRequired(maxValue));
+      for (int i = 0; i < NUM_VALUES; ++i) {
+        final long value = random.nextLong() & maxValue;
+        mutable.set(i, value);
+        writer.add(value);
+      }
+      writer.finish();
+    }
+    reader = mutable;
+    in = dir.openInput("values", IOContext.DEFAULT);
+    directReader = DirectReader.getInstance(in.randomAccessSlice(0, in.length()), DirectWriter.bitsRequired(maxValue));
+    indices = new int[NUM_LOOKUPS];
+    for (int i = 0; i < NUM_LOOKUPS; ++i) {
+      indices[i] = random.nextInt(NUM_VALUES);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    IOUtils.close(in, dir);
+    IOUtils.rm(path);
+  }
+
+  @Benchmark
+  public long randomGet() {
+    long sum = 0;
+    for (int index : indices) {
+      sum += reader.get(index);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long bulkGet() {
+    long sum = 0;
+    for (int i = 0; i < NUM_VALUES; ) {
+      final int read = reader.get(i, buffer, 0, NUM_VALUES - i);
+      for (int j = 0; j < read; ++j) {
+        sum += buffer[j];
+      }
+      i += read;
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long directRandomGet() {
+    long sum = 0;
+    for (int index : indices) {
+      sum += directReader.get(index);
+    }
+    return sum;
+  }
+
+}
@@ -28,6 +28,10 @@ import java.io.IOException;
 
 abstract class BaseGlobalOrdinalScorer extends Scorer {
 
+  /** Expected number of simple operations of a lookup in doc values, in an
+   *  ordinal map or in a bit set, which all need to decode or mask the value. */
+  static final float LOOKUP_COST = 5;
+
   final LongBitSet foundOrds;
   final SortedDocValues values;
   final Scorer approximationScorer;
@@ -200,6 +200,11 @@ final class GlobalOrdinalsQuery extends Query {
           }
           return false;
         }
+
+        @Override
+        public float matchCost() {
+          return 3 * LOOKUP_COST; // values.getOrd(), segmentOrdToGlobalOrdLookup.get() and foundOrds.get()
+        }
       };
     }
   }
@@ -238,6 +243,11 @@ final class GlobalOrdinalsQuery extends Query {
           }
           return false;
         }
+
+        @Override
+        public float matchCost() {
+          return 2 * LOOKUP_COST; // values.getOrd() and foundOrds.get()
+        }
       };
     }
 
@@ -208,6 +208,10 @@ final class GlobalOrdinalsWithScoreQuery extends Query {
           return false;
         }
 
+        @Override
+        public float matchCost() {
+          return 4 * LOOKUP_COST; // values.getOrd(), segmentOrdToGlobalOrdLookup.get(), foundOrds.get() and collector.score()
+        }
       };
     }
   }
@@ -250,6 +254,11 @@ final class GlobalOrdinalsWithScoreQuery extends Query {
           }
           return false;
         }
+
+        @Override
+        public float matchCost() {
+          return 3 * LOOKUP_COST; // values.getOrd(), foundOrds.get() and collector.score()
+        }
       };
     }
   }
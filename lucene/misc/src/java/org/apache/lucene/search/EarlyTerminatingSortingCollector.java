@@ -50,6 +50,11 @@ import org.apache.lucene.search.TotalHitCountCollector;
  * hit count} will be underestimated since not all matching documents will have
  * been collected.
  * <p>
+ * <b>NOTE</b>: Segments that are sorted with an
+ * {@link org.apache.lucene.index.IndexWriterConfig#setIndexSort(Sort) index sort}
+ * are early terminated by {@link org.apache.lucene.search.TopFieldCollector}
+ * directly when it does not track the total number of hits.
+ * <p>
  * <b>NOTE</b>: This {@code Collector} uses {@link Sort#toString()} to detect
  * whether a segment was sorted with the same {@code Sort}. This has
  * two implications:
@@ -0,0 +1,192 @@
+package org.apache.lucene.replicator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.CorruptIndexException;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StandardDirectoryReader;
+import org.apache.lucene.store.ByteArrayDataOutput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.RAMFile;
+import org.apache.lucene.store.RAMOutputStream;
+
+/**
+ * A {@link Revision} of a near-real-time reader, which allows replicas to
+ * search the same point-in-time view of the index as the primary without
+ * indexing documents themselves or waiting for a commit. Unlike
+ * {@link IndexRevision}, this revision does not include a {@code segments_N}
+ * file but a serialized copy of the reader's in-memory {@link SegmentInfos},
+ * which {@link NRTReplicationHandler} uses to open the replicated segments.
+ * <p>
+ * The reader must have been opened with
+ * {@link DirectoryReader#open(IndexWriter, boolean, boolean)
+ * DirectoryReader.open(writer, true, true)}, or reopened from such a reader,
+ * so that deletions are written to the index files. The revision holds a
+ * reference to the reader, which prevents {@link IndexWriter} from deleting
+ * the files of this revision until it is {@link #release() released}.
+ *
+ * @lucene.experimental
+ */
+public class NRTIndexRevision implements Revision {
+
+  private static final int RADIX = 16;
+  private static final String SOURCE = "index";
+
+  /**
+   * The prefix of the name of the (virtual) file that holds the serialized
+   * {@link SegmentInfos} of a revision, followed by the revision's version.
+   */
+  public static final String SEGMENTS_FILE_PREFIX = IndexFileNames.SEGMENTS + "_nrt_";
+
+  private final IndexWriter writer;
+  private final DirectoryReader reader;
+  private final long readerVersion;
+  private final String version;
+  private final String segmentsFile;
+  private final byte[] segmentsFileBytes;
+  private final Map<String,List<RevisionFile>> sourceFiles;
+
+  /**
+   * Returns a String representation of a revision's version from the given
+   * reader version.
+   */
+  public static String revisionVersion(long readerVersion) {
+    return Long.toString(readerVersion, RADIX);
+  }
+
+  /**
+   * Serializes the given {@link SegmentInfos}, preceded by its generation.
+   */
+  static byte[] toBytes(Directory dir, SegmentInfos infos) throws IOException {
+    RAMOutputStream out = new RAMOutputStream(new RAMFile(), true);
+    infos.write(dir, out);
+    // the generation is written before and outside of the checksummed infos
+    byte[] bytes = new byte[8 + (int) out.getFilePointer()];
+    new ByteArrayDataOutput(bytes).writeLong(infos.getGeneration());
+    out.writeTo(bytes, 8);
+    return bytes;
+  }
+
+  /**
+   * Constructor over the given {@link IndexWriter} and near-real-time
+   * {@link DirectoryReader} that has been opened from it.
+   */
+  public NRTIndexRevision(IndexWriter writer, DirectoryReader reader) throws IOException {
+    if (!(reader instanceof StandardDirectoryReader) || reader.directory() != writer.getDirectory()) {
+      throw new IllegalArgumentException("reader must be a near-real-time reader opened from the given IndexWriter");
+    }
+    final SegmentInfos infos = ((StandardDirectoryReader) reader).getSegmentInfos();
+    final Directory dir = writer.getDirectory();
+    this.writer = writer;
+    this.reader = reader;
+    this.readerVersion = reader.getVersion();
+    this.version = revisionVersion(readerVersion);
+    this.segmentsFile = SEGMENTS_FILE_PREFIX + version;
+    this.segmentsFileBytes = toBytes(dir, infos);
+
+    Collection<String> files = infos.files(false);
+    List<RevisionFile> revisionFiles = new ArrayList<>(files.size() + 1);
+    for (String file : files) {
+      RevisionFile revFile = new RevisionFile(file);
+      // replicas verify files that they already have against the checksum
+      try (IndexInput in = dir.openInput(file, IOContext.READONCE)) {
+        revFile.size = in.length();
+        revFile.checksum = retrieveChecksum(in);
+      }
+      revisionFiles.add(revFile);
+    }
+    RevisionFile revFile = new RevisionFile(segmentsFile);
+    revFile.size = segmentsFileBytes.length;
+    revisionFiles.add(revFile); // segments file must be last
+    this.sourceFiles = Collections.singletonMap(SOURCE, revisionFiles);
+
+    // only incRef once nothing can fail anymore
+    reader.incRef();
+  }
+
+  /** Returns the checksum from the footer of the given file, or -1 if it
+   *  does not have a codec footer. */
+  static long retrieveChecksum(IndexInput in) throws IOException {
+    if (in.length() < CodecUtil.footerLength()) {
+      return -1;
+    }
+    try {
+      return CodecUtil.retrieveChecksum(in);
+    } catch (CorruptIndexException e) {
+      return -1;
+    }
+  }
+
+  @Override
+  public int compareTo(String version) {
+    long otherVersion = Long.parseLong(version, RADIX);
+    return readerVersion < otherVersion ? -1 : (readerVersion > otherVersion ? 1 : 0);
+  }
+
+  @Override
+  public int compareTo(Revision o) {
+    NRTIndexRevision other = (NRTIndexRevision) o;
+    return Long.compare(readerVersion, other.readerVersion);
+  }
+
+  @Override
+  public String getVersion() {
+    return version;
+  }
+
+  @Override
+  public Map<String,List<RevisionFile>> getSourceFiles() {
+    return sourceFiles;
+  }
+
+  @Override
+  public InputStream open(String source, String fileName) throws IOException {
+    assert source.equals(SOURCE) : "invalid source; expected=" + SOURCE + " got=" + source;
+    if (fileName.equals(segmentsFile)) {
+      return new ByteArrayInputStream(segmentsFileBytes);
+    }
+    return new IndexInputInputStream(writer.getDirectory().openInput(fileName, IOContext.READONCE));
+  }
+
+  @Override
+  public void release() throws IOException {
+    reader.decRef();
+    writer.deleteUnusedFiles();
+  }
+
+  @Override
+  public String toString() {
+    return "NRTIndexRevision version=" + version + " files=" + sourceFiles;
+  }
+
+}
@@ -0,0 +1,509 @@
+package org.apache.lucene.replicator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StandardDirectoryReader;
+import org.apache.lucene.replicator.ReplicationClient.ReplicationHandler;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.BufferedChecksumIndexInput;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.InfoStream;
+import org.apache.lucene.util.ThreadInterruptedException;
+
+/**
+ * A {@link ReplicationHandler} for near-real-time replication of an index,
+ * which must be used with {@link NRTIndexRevision}. Implements
+ * {@link #revisionReady} by copying the new segment files to the index
+ * {@link Directory} and then opening a new reader on the replicated
+ * {@link SegmentInfos}, which is exposed through {@link #getSearcherManager()}.
+ * Segments that are shared with the previous revision are not copied again
+ * and their readers are reused, once the length and checksum of their files
+ * have been checked against the revision.
+ * <p>
+ * This handler also implements {@link PreCopyMergedSegmentWarmer.Replica}, so
+ * that the primary can copy large merged segments before they become part of
+ * a revision. Pre-copied files that are not referenced by a revision within
+ * 10 minutes are deleted.
+ * <p>
+ * Nothing is committed on the replica: the index {@link Directory} must only
+ * be written by this handler, and files that are left over from a previous
+ * replication session are deleted when the handler is created. Files are
+ * reference counted and deleted once neither the current revision nor any open
+ * reader uses them.
+ * <p>
+ * This handler notifies the application via a provided {@link Callable} when
+ * a new revision is searchable.
+ *
+ * @lucene.experimental
+ */
+public class NRTReplicationHandler implements ReplicationHandler, PreCopyMergedSegmentWarmer.Replica, Closeable {
+
+  /**
+   * The component used to log messages to the {@link InfoStream#getDefault()
+   * default} {@link InfoStream}.
+   */
+  public static final String INFO_STREAM_COMPONENT = "NRTReplicationHandler";
+
+  private static final long PRE_COPY_EXPIRATION_NS = TimeUnit.MINUTES.toNanos(10);
+
+  private final Directory indexDir;
+  private final Callable<Boolean> callback;
+  private final ReplicaSearcherManager searcherManager;
+
+  // all below are guarded by this
+  private final Map<String,Integer> fileRefCounts = new HashMap<>();
+  // files that are being pre-copied
+  private final Set<String> copyingFiles = new HashSet<>();
+  // pre-copied files that are not part of a revision yet, with the time they were copied at
+  private final Map<String,Long> preCopiedFiles = new HashMap<>();
+  private SegmentInfos currentInfos;
+  private boolean closed;
+
+  private volatile Map<String,List<RevisionFile>> currentRevisionFiles;
+  private volatile String currentVersion;
+  private volatile InfoStream infoStream = InfoStream.getDefault();
+
+  /**
+   * Deletes all index files from the given directory. Called when the handler
+   * is created, as replicated files are only valid for a replication session.
+   */
+  private static void deleteIndexFiles(Directory dir) throws IOException {
+    Matcher matcher = IndexFileNames.CODEC_FILE_PATTERN.matcher("");
+    for (String file : dir.listAll()) {
+      if (matcher.reset(file).matches() || file.startsWith(IndexFileNames.SEGMENTS)) {
+        dir.deleteFile(file);
+      }
+    }
+  }
+
+  /**
+   * Constructor with the given index directory, {@link SearcherFactory} and
+   * callback to notify when the index was updated. The searcher factory and
+   * the callback may be {@code null}.
+   */
+  public NRTReplicationHandler(Directory indexDir, SearcherFactory searcherFactory, Callable<Boolean> callback) throws IOException {
+    this.indexDir = indexDir;
+    this.callback = callback;
+    deleteIndexFiles(indexDir);
+    currentInfos = new SegmentInfos();
+    currentRevisionFiles = null;
+    currentVersion = null;
+    searcherManager = new ReplicaSearcherManager(searcherFactory == null ? new SearcherFactory() : searcherFactory);
+  }
+
+  /**
+   * Returns the {@link ReferenceManager} that provides searchers over the last
+   * revision that was replicated. It is refreshed before the callback is
+   * notified.
+   */
+  public ReferenceManager<IndexSearcher> getSearcherManager() {
+    return searcherManager;
+  }
+
+  @Override
+  public String currentVersion() {
+    return currentVersion;
+  }
+
+  @Override
+  public Map<String,List<RevisionFile>> currentRevisionFiles() {
+    final Map<String,List<RevisionFile>> revisionFiles = currentRevisionFiles;
+    synchronized (this) {
+      if (revisionFiles == null || preCopiedFiles.isEmpty()) {
+        return revisionFiles;
+      }
+      // make sure that pre-copied files are not copied again
+      final Map<String,List<RevisionFile>> files = new HashMap<>();
+      for (Map.Entry<String,List<RevisionFile>> e : revisionFiles.entrySet()) {
+        final List<RevisionFile> sourceFiles = new ArrayList<>(e.getValue());
+        for (String file : preCopiedFiles.keySet()) {
+          sourceFiles.add(new RevisionFile(file));
+        }
+        files.put(e.getKey(), sourceFiles);
+      }
+      return files;
+    }
+  }
+
+  private void ensureOpen() {
+    assert Thread.holdsLock(this);
+    if (closed) {
+      throw new AlreadyClosedException("this handler is closed");
+    }
+  }
+
+  private void incRef(Collection<String> files) {
+    assert Thread.holdsLock(this);
+    for (String file : files) {
+      final Integer refCount = fileRefCounts.get(file);
+      fileRefCounts.put(file, refCount == null ? 1 : refCount + 1);
+    }
+  }
+
+  private void decRef(Collection<String> files) {
+    assert Thread.holdsLock(this);
+    final List<String> toDelete = new ArrayList<>();
+    for (String file : files) {
+      final int refCount = fileRefCounts.get(file);
+      assert refCount > 0;
+      if (refCount == 1) {
+        fileRefCounts.remove(file);
+        toDelete.add(file);
+      } else {
+        fileRefCounts.put(file, refCount - 1);
+      }
+    }
+    // suppress exceptions, it's just a best effort
+    IOUtils.deleteFilesIgnoringExceptions(indexDir, toDelete.toArray(new String[toDelete.size()]));
+  }
+
+  private void awaitPreCopy(Collection<String> files) {
+    assert Thread.holdsLock(this);
+    while (Collections.disjoint(copyingFiles, files) == false) {
+      try {
+        wait();
+      } catch (InterruptedException e) {
+        throw new ThreadInterruptedException(e);
+      }
+    }
+  }
+
+  @Override
+  public void preCopy(Directory source, Collection<String> files) throws IOException {
+    final List<String> toCopy = new ArrayList<>();
+    synchronized (this) {
+      ensureOpen();
+      for (String file : files) {
+        if (fileRefCounts.containsKey(file) == false && copyingFiles.contains(file) == false) {
+          toCopy.add(file);
+        }
+      }
+      copyingFiles.addAll(toCopy);
+    }
+
+    boolean success = false;
+    try {
+      // copy outside of the lock, so that we can install new revisions in the meantime
+      IndexReplicationHandler.copyFiles(source, indexDir, toCopy);
+      success = true;
+    } finally {
+      synchronized (this) {
+        copyingFiles.removeAll(toCopy);
+        if (success && closed == false) {
+          incRef(toCopy);
+          final long now = System.nanoTime();
+          for (String file : toCopy) {
+            preCopiedFiles.put(file, now);
+          }
+        } else {
+          IndexReplicationHandler.cleanupFilesOnFailure(indexDir, toCopy);
+        }
+        notifyAll();
+      }
+    }
+
+    if (infoStream.isEnabled(INFO_STREAM_COMPONENT)) {
+      infoStream.message(INFO_STREAM_COMPONENT, "preCopy(): copied " + toCopy);
+    }
+  }
+
+  @Override
+  public void revisionReady(String version, Map<String,List<RevisionFile>> revisionFiles,
+      Map<String,List<String>> copiedFiles, Map<String,Directory> sourceDirectory) throws IOException {
+    if (revisionFiles.size() > 1) {
+      throw new IllegalArgumentException("this handler handles only a single source; got " + revisionFiles.keySet());
+    }
+
+    Directory clientDir = sourceDirectory.values().iterator().next();
+    List<String> files = copiedFiles.values().iterator().next();
+    String segmentsFile = IndexReplicationHandler.getSegmentsFile(files, false);
+    if (!segmentsFile.startsWith(NRTIndexRevision.SEGMENTS_FILE_PREFIX)) {
+      throw new IllegalStateException("expected an NRTIndexRevision but got segments file " + segmentsFile);
+    }
+
+    final List<String> toCopy = new ArrayList<>();
+    final List<RevisionFile> toReuse = new ArrayList<>();
+    final List<String> reusedFiles = new ArrayList<>();
+    synchronized (this) {
+      ensureOpen();
+      // files that are being pre-copied have been copied by the client too, but
+      // we must not write them concurrently
+      awaitPreCopy(files);
+      for (String file : files) {
+        // the segments file is read from the client directory
+        if (file.equals(segmentsFile) == false && fileRefCounts.containsKey(file) == false) {
+          toCopy.add(file);
+        }
+      }
+      for (RevisionFile file : revisionFiles.values().iterator().next()) {
+        if (fileRefCounts.containsKey(file.fileName)) {
+          toReuse.add(file);
+          reusedFiles.add(file.fileName);
+        }
+      }
+      // hold the files that we reuse and prevent pre-copies of the files that
+      // we copy until the new revision is installed
+      incRef(reusedFiles);
+      copyingFiles.addAll(toCopy);
+    }
+
+    final List<String> mismatchedFiles = new ArrayList<>();
+    SegmentInfos infos = null;
+    boolean installed = false;
+    try {
+      // copy outside of the lock, so that pre-copies and readers are not blocked
+      for (RevisionFile file : toReuse) {
+        if (isSameFile(file) == false) {
+          mismatchedFiles.add(file.fileName);
+        }
+      }
+      if (mismatchedFiles.isEmpty()) {
+        // copy files from the client to index directory, no need to fsync
+        // since nothing is committed
+        IndexReplicationHandler.copyFiles(clientDir, indexDir, toCopy);
+
+        try (IndexInput in = clientDir.openInput(segmentsFile, IOContext.READONCE)) {
+          final long generation = in.readLong();
+          infos = SegmentInfos.readCommit(indexDir,
+              new BufferedChecksumIndexInput(in.slice(segmentsFile, 8, in.length() - 8)), generation);
+        }
+      }
+    } finally {
+      synchronized (this) {
+        copyingFiles.removeAll(toCopy);
+        if (infos != null && closed == false) {
+          // only swap the revision under the lock
+          installRevision(infos);
+          currentRevisionFiles = revisionFiles;
+          currentVersion = version;
+          installed = true;
+        } else {
+          IndexReplicationHandler.cleanupFilesOnFailure(indexDir, toCopy);
+          // drop pre-copied files that do not match, so that the client copies them again
+          final List<String> releasedFiles = new ArrayList<>();
+          for (String file : mismatchedFiles) {
+            if (preCopiedFiles.remove(file) != null) {
+              releasedFiles.add(file);
+            }
+          }
+          decRef(releasedFiles);
+        }
+        decRef(reusedFiles);
+        notifyAll();
+      }
+    }
+
+    if (mismatchedFiles.isEmpty() == false) {
+      throw new IllegalStateException("local files " + mismatchedFiles + " do not match the files of revision " + version);
+    }
+    if (installed == false) {
+      throw new AlreadyClosedException("this handler is closed");
+    }
+
+    if (infoStream.isEnabled(INFO_STREAM_COMPONENT)) {
+      infoStream.message(INFO_STREAM_COMPONENT, "revisionReady(): currentVersion=" + currentVersion
+          + " currentRevisionFiles=" + currentRevisionFiles);
+    }
+
+    searcherManager.maybeRefreshBlocking();
+
+    // successfully updated the index, notify the callback that the index is
+    // ready.
+    if (callback != null) {
+      try {
+        callback.call();
+      } catch (Exception e) {
+        throw new IOException(e);
+      }
+    }
+  }
+
+  /** Returns whether the local copy of the given file has the length and
+   *  checksum of the file of the revision. */
+  private boolean isSameFile(RevisionFile file) throws IOException {
+    try (IndexInput in = indexDir.openInput(file.fileName, IOContext.READONCE)) {
+      if (file.size != -1 && in.length() != file.size) {
+        return false;
+      }
+      return file.checksum == -1 || NRTIndexRevision.retrieveChecksum(in) == file.checksum;
+    }
+  }
+
+  /** Makes the given infos the current revision. */
+  private void installRevision(SegmentInfos infos) throws IOException {
+    assert Thread.holdsLock(this);
+    // hold the files of the new revision before releasing the previous one
+    final Collection<String> infosFiles = infos.files(false);
+    incRef(infosFiles);
+    decRef(currentInfos.files(false));
+    currentInfos = infos;
+
+    // pre-copied files are now held by the revision, or expired
+    final long now = System.nanoTime();
+    final List<String> releasedFiles = new ArrayList<>();
+    for (Iterator<Map.Entry<String,Long>> it = preCopiedFiles.entrySet().iterator(); it.hasNext(); ) {
+      final Map.Entry<String,Long> e = it.next();
+      if (infosFiles.contains(e.getKey()) || now - e.getValue() > PRE_COPY_EXPIRATION_NS) {
+        releasedFiles.add(e.getKey());
+        it.remove();
+      }
+    }
+    decRef(releasedFiles);
+  }
+
+  /** Opens a reader over the current revision. */
+  private DirectoryReader openReader(DirectoryReader previousReader) throws IOException {
+    final SegmentInfos infos;
+    final Collection<String> files;
+    synchronized (this) {
+      ensureOpen();
+      infos = currentInfos;
+      if (previousReader != null && ((StandardDirectoryReader) previousReader).getSegmentInfos() == infos) {
+        return null;
+      }
+      files = infos.files(false);
+      incRef(files);
+    }
+
+    boolean success = false;
+    try {
+      List<LeafReader> previousLeaves = null;
+      if (previousReader != null) {
+        previousLeaves = new ArrayList<>();
+        for (LeafReaderContext context : previousReader.leaves()) {
+          previousLeaves.add(context.reader());
+        }
+      }
+      final DirectoryReader reader = StandardDirectoryReader.open(indexDir, infos, previousLeaves);
+      reader.addReaderClosedListener(new IndexReader.ReaderClosedListener() {
+        @Override
+        public void onClose(IndexReader reader) {
+          synchronized (NRTReplicationHandler.this) {
+            decRef(files);
+          }
+        }
+      });
+      success = true;
+      return reader;
+    } finally {
+      if (!success) {
+        synchronized (this) {
+          decRef(files);
+        }
+      }
+    }
+  }
+
+  /** Provides searchers over the current revision of the handler. */
+  private class ReplicaSearcherManager extends ReferenceManager<IndexSearcher> {
+
+    private final SearcherFactory searcherFactory;
+
+    ReplicaSearcherManager(SearcherFactory searcherFactory) throws IOException {
+      this.searcherFactory = searcherFactory;
+      current = SearcherManager.getSearcher(searcherFactory, openReader(null), null);
+    }
+
+    @Override
+    protected void decRef(IndexSearcher reference) throws IOException {
+      reference.getIndexReader().decRef();
+    }
+
+    @Override
+    protected IndexSearcher refreshIfNeeded(IndexSearcher referenceToRefresh) throws IOException {
+      final IndexReader previousReader = referenceToRefresh.getIndexReader();
+      final DirectoryReader newReader = openReader((DirectoryReader) previousReader);
+      if (newReader == null) {
+        return null;
+      }
+      return SearcherManager.getSearcher(searcherFactory, newReader, previousReader);
+    }
+
+    @Override
+    protected boolean tryIncRef(IndexSearcher reference) {
+      return reference.getIndexReader().tryIncRef();
+    }
+
+    @Override
+    protected int getRefCount(IndexSearcher reference) {
+      return reference.getIndexReader().getRefCount();
+    }
+
+  }
+
+  /**
+   * Closes the {@link #getSearcherManager() searcher manager} and releases the
+   * current revision. Files are deleted once all readers have been closed.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      awaitPreCopy(copyingFiles);
+    }
+    try {
+      searcherManager.close();
+    } finally {
+      synchronized (this) {
+        decRef(currentInfos.files(false));
+        decRef(preCopiedFiles.keySet());
+        preCopiedFiles.clear();
+      }
+    }
+  }
+
+  /** Sets the {@link InfoStream} to use for logging messages. */
+  public void setInfoStream(InfoStream infoStream) {
+    if (infoStream == null) {
+      infoStream = InfoStream.NO_OUTPUT;
+    }
+    this.infoStream = infoStream;
+  }
+
+}
@@ -0,0 +1,151 @@
+package org.apache.lucene.replicator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriter.IndexReaderWarmer;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.InfoStream;
+
+/**
+ * An {@link IndexReaderWarmer} for the primary of a near-real-time
+ * replication, which copies the files of newly merged segments to the
+ * registered {@link Replica replicas} before {@link IndexWriter} starts using
+ * them. As a consequence, replicas don't need to copy large merged segments
+ * when they receive the first {@link NRTIndexRevision} that contains them,
+ * which would otherwise delay the refresh of all replicas by the time it takes
+ * to copy the merged segment.
+ * <p>
+ * Use {@link IndexWriterConfig#setMergedSegmentWarmer} to register this
+ * warmer, and {@link NRTReplicationHandler} on replicas.
+ * <p>
+ * <b>NOTE:</b> replicas are called sequentially in the merge thread and the
+ * merged segment does not become visible until all replicas have copied it.
+ * Failures to pre-copy a segment are logged and ignored: the files will be
+ * copied along with the next revision.
+ *
+ * @lucene.experimental
+ */
+public class PreCopyMergedSegmentWarmer extends IndexReaderWarmer {
+
+  /** A replica that merged segments are copied to. */
+  public static interface Replica {
+
+    /**
+     * Called with the files of a newly merged segment, before the primary
+     * starts using it. The files should be copied from the given
+     * {@link Directory} and kept until the segment is either part of a
+     * revision or is not needed anymore.
+     */
+    public void preCopy(Directory source, Collection<String> files) throws IOException;
+
+  }
+
+  /**
+   * The component used to log messages to the {@link InfoStream#getDefault()
+   * default} {@link InfoStream}.
+   */
+  public static final String INFO_STREAM_COMPONENT = "PreCopyMergedSegmentWarmer";
+
+  private final List<Replica> replicas = new CopyOnWriteArrayList<>();
+  private final long minSegmentBytes;
+  private volatile InfoStream infoStream = InfoStream.getDefault();
+
+  /**
+   * Constructor. Only merged segments whose size is at least
+   * <code>minSegmentSizeMB</code> are pre-copied, smaller segments are copied
+   * along with the first revision that contains them.
+   */
+  public PreCopyMergedSegmentWarmer(double minSegmentSizeMB) {
+    if (minSegmentSizeMB < 0) {
+      throw new IllegalArgumentException("minSegmentSizeMB must be >= 0, got " + minSegmentSizeMB);
+    }
+    this.minSegmentBytes = (long) (minSegmentSizeMB * 1024 * 1024);
+  }
+
+  /** Registers a replica that newly merged segments should be copied to. */
+  public void addReplica(Replica replica) {
+    replicas.add(replica);
+  }
+
+  /** Unregisters a replica. */
+  public void removeReplica(Replica replica) {
+    replicas.remove(replica);
+  }
+
+  @Override
+  public void warm(LeafReader reader) throws IOException {
+    if (replicas.isEmpty()) {
+      return;
+    }
+    final SegmentReader segmentReader = (SegmentReader) reader;
+    final SegmentCommitInfo info = segmentReader.getSegmentInfo();
+    final long sizeInBytes = info.sizeInBytes();
+    if (sizeInBytes < minSegmentBytes) {
+      return;
+    }
+    final Collection<String> files = info.files();
+    for (Replica replica : replicas) {
+      final long startNS = System.nanoTime();
+      try {
+        replica.preCopy(segmentReader.directory(), files);
+      } catch (IOException e) {
+        handlePreCopyException(replica, e);
+        continue;
+      }
+      if (infoStream.isEnabled(INFO_STREAM_COMPONENT)) {
+        infoStream.message(INFO_STREAM_COMPONENT, "warm(): pre-copied segment " + info.info.name + " (" + sizeInBytes
+            + " bytes) to " + replica + " in " + ((System.nanoTime() - startNS) / 1000000) + " msec");
+      }
+    }
+  }
+
+  /**
+   * Called when a replica failed to pre-copy a merged segment. The default
+   * implementation prints the full stacktrace to the {@link InfoStream} set in
+   * {@link #setInfoStream(InfoStream)}, or the {@link InfoStream#getDefault()
+   * default} one.
+   */
+  protected void handlePreCopyException(Replica replica, IOException e) {
+    if (infoStream.isEnabled(INFO_STREAM_COMPONENT)) {
+      final StringWriter sw = new StringWriter();
+      e.printStackTrace(new PrintWriter(sw));
+      infoStream.message(INFO_STREAM_COMPONENT, "failed to pre-copy merged segment to " + replica + ": " + sw.toString());
+    }
+  }
+
+  /** Sets the {@link InfoStream} to use for logging messages. */
+  public void setInfoStream(InfoStream infoStream) {
+    if (infoStream == null) {
+      infoStream = InfoStream.NO_OUTPUT;
+    }
+    this.infoStream = infoStream;
+  }
+
+}
@@ -32,6 +32,12 @@ public class RevisionFile {
   /** The size of the file denoted by {@link #fileName}. */
   public long size = -1;
   
+  /**
+   * The checksum of the file denoted by {@link #fileName}, as recorded in its
+   * codec footer, or -1 if unknown.
+   */
+  public long checksum = -1;
+  
   /** Constructor with the given file name. */
   public RevisionFile(String fileName) {
     if (fileName == null || fileName.isEmpty()) {
@@ -43,17 +49,17 @@ public class RevisionFile {
   @Override
   public boolean equals(Object obj) {
     RevisionFile other = (RevisionFile) obj;
-    return fileName.equals(other.fileName) && size == other.size;
+    return fileName.equals(other.fileName) && size == other.size && checksum == other.checksum;
   }
   
   @Override
   public int hashCode() {
-    return fileName.hashCode() ^ (int) (size ^ (size >>> 32));
+    return fileName.hashCode() ^ (int) (size ^ (size >>> 32)) ^ (int) (checksum ^ (checksum >>> 32));
   }
   
   @Override
   public String toString() {
-    return "fileName=" + fileName + " size=" + size;
+    return "fileName=" + fileName + " size=" + size + " checksum=" + checksum;
   }
   
 }
@@ -70,6 +70,7 @@ public final class SessionToken {
         String fileName = in.readUTF();
         RevisionFile file = new RevisionFile(fileName);
         file.size = in.readLong();
+        file.checksum = in.readLong();
         files.add(file);
       }
       this.sourceFiles.put(source, files);
@@ -96,6 +97,7 @@ public final class SessionToken {
       for (RevisionFile file : files) {
         out.writeUTF(file.fileName);
         out.writeLong(file.size);
+        out.writeLong(file.checksum);
       }
     }
   }
@@ -37,6 +37,13 @@
  * <a href="IndexAndTaxonomyReplicationHandler.html">IndexAndTaxonomyReplicationHandler</a> on the client.
  *
  * <p>
+ * Near-real-time readers can be replicated too, without committing: the application should publish an
+ * <a href="NRTIndexRevision.html">NRTIndexRevision</a> of each reader it opens and set
+ * <a href="NRTReplicationHandler.html">NRTReplicationHandler</a> on the client, which only copies the new segment
+ * files and exposes searchers over the replicated segments. Large merged segments can be copied to replicas before the
+ * primary starts using them with <a href="PreCopyMergedSegmentWarmer.html">PreCopyMergedSegmentWarmer</a>.
+ *
+ * <p>
  * When the replication client detects that there is a newer revision available, it copies the files of the revision and
  * then invokes the handler to complete the operation (e.g. copy the files to the index directory, fsync them, reopen an
  * index reader etc.). By default, only files that do not exist in the handler's
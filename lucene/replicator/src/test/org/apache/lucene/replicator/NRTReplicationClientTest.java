@@ -0,0 +1,293 @@
+package org.apache.lucene.replicator;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.lucene.analysis.MockAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LogDocMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.replicator.ReplicationClient.SourceDirectoryFactory;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MockDirectoryWrapper;
+import org.apache.lucene.util.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NRTReplicationClientTest extends ReplicatorTestCase {
+
+  private Directory publishDir, handlerDir;
+  private IndexWriter publishWriter;
+  private DirectoryReader publishReader;
+  // the last revision that was published, which the replicator does not release on close
+  private Revision publishedRevision;
+  private Replicator replicator;
+  private SourceDirectoryFactory sourceDirFactory;
+  private NRTReplicationHandler handler;
+  private ReplicationClient client;
+  private final Set<String> copiedFiles = new HashSet<>();
+
+  private void publishRevision() throws IOException {
+    DirectoryReader newReader = DirectoryReader.openIfChanged(publishReader);
+    if (newReader != null) {
+      publishReader.close();
+      publishReader = newReader;
+    }
+    final Revision revision = new NRTIndexRevision(publishWriter, publishReader);
+    replicator.publish(revision);
+    if (newReader != null || publishedRevision == null) {
+      publishedRevision = revision;
+    }
+  }
+
+  private void assertReplicaMatchesPrimary() throws IOException {
+    IndexSearcher searcher = handler.getSearcherManager().acquire();
+    try {
+      assertEquals(publishReader.numDocs(), searcher.getIndexReader().numDocs());
+      assertEquals(publishReader.maxDoc(), searcher.getIndexReader().maxDoc());
+      assertEquals(publishReader.leaves().size(), searcher.getIndexReader().leaves().size());
+      IndexSearcher publishSearcher = new IndexSearcher(publishReader);
+      for (int i = 0; i < 10; i++) {
+        TermQuery query = new TermQuery(new Term("id", Integer.toString(i)));
+        assertEquals(publishSearcher.count(query), searcher.count(query));
+      }
+    } finally {
+      handler.getSearcherManager().release(searcher);
+    }
+  }
+
+  private void indexDocs(int numDocs) throws IOException {
+    for (int i = 0; i < numDocs; i++) {
+      Document doc = new Document();
+      doc.add(new StringField("id", Integer.toString(random().nextInt(20)), Field.Store.NO));
+      publishWriter.addDocument(doc);
+    }
+  }
+
+  private void initPrimary(IndexWriterConfig conf) throws IOException {
+    publishWriter = new IndexWriter(publishDir, conf);
+    publishReader = DirectoryReader.open(publishWriter, true, true);
+  }
+
+  @Override
+  @Before
+  public void setUp() throws Exception {
+    super.setUp();
+    publishDir = newDirectory();
+    handlerDir = newDirectory();
+    sourceDirFactory = new PerSessionDirectoryFactory(createTempDir("nrtReplicationClientTest"));
+    replicator = new LocalReplicator();
+    handler = new NRTReplicationHandler(handlerDir, null, null);
+    client = new ReplicationClient(replicator, handler, sourceDirFactory) {
+      @Override
+      protected Map<String,List<RevisionFile>> requiredFiles(Map<String,List<RevisionFile>> newRevisionFiles) {
+        Map<String,List<RevisionFile>> requiredFiles = super.requiredFiles(newRevisionFiles);
+        for (List<RevisionFile> files : requiredFiles.values()) {
+          for (RevisionFile file : files) {
+            if (!file.fileName.startsWith(NRTIndexRevision.SEGMENTS_FILE_PREFIX)) {
+              assertTrue("file copied twice: " + file.fileName, copiedFiles.add(file.fileName));
+            }
+          }
+        }
+        return requiredFiles;
+      }
+    };
+  }
+
+  @After
+  @Override
+  public void tearDown() throws Exception {
+    IOUtils.close(client, handler, replicator);
+    if (publishedRevision != null) {
+      publishedRevision.release();
+    }
+    IOUtils.close(publishReader, publishWriter, publishDir, handlerDir);
+    super.tearDown();
+  }
+
+  @Test
+  public void testNoUpdateThread() throws Exception {
+    initPrimary(newIndexWriterConfig(new MockAnalyzer(random())));
+    assertNull("no version expected at start", handler.currentVersion());
+
+    indexDocs(10);
+    publishRevision();
+    client.updateNow();
+    assertEquals(NRTIndexRevision.revisionVersion(publishReader.getVersion()), handler.currentVersion());
+    assertReplicaMatchesPrimary();
+
+    // deletes must be replicated too
+    publishWriter.deleteDocuments(new Term("id", "3"));
+    indexDocs(5);
+    publishRevision();
+    client.updateNow();
+    assertReplicaMatchesPrimary();
+
+    publishWriter.deleteDocuments(new Term("id", "4"));
+    publishRevision();
+    client.updateNow();
+    assertReplicaMatchesPrimary();
+  }
+
+  @Test
+  public void testReplicationWithMerges() throws Exception {
+    IndexWriterConfig conf = newIndexWriterConfig(new MockAnalyzer(random()));
+    LogDocMergePolicy mp = new LogDocMergePolicy();
+    mp.setMergeFactor(2);
+    conf.setMergePolicy(mp);
+    initPrimary(conf);
+
+    int numRevisions = atLeast(20);
+    for (int i = 0; i < numRevisions; i++) {
+      indexDocs(1 + random().nextInt(10));
+      if (random().nextInt(3) == 0) {
+        publishWriter.deleteDocuments(new Term("id", Integer.toString(random().nextInt(20))));
+      }
+      publishRevision();
+      client.updateNow();
+      assertReplicaMatchesPrimary();
+    }
+  }
+
+  @Test
+  public void testPreCopyMergedSegments() throws Exception {
+    final AtomicInteger preCopies = new AtomicInteger();
+    PreCopyMergedSegmentWarmer warmer = new PreCopyMergedSegmentWarmer(0);
+    warmer.addReplica(new PreCopyMergedSegmentWarmer.Replica() {
+      @Override
+      public void preCopy(Directory source, Collection<String> files) throws IOException {
+        handler.preCopy(source, files);
+        preCopies.incrementAndGet();
+      }
+    });
+    IndexWriterConfig conf = newIndexWriterConfig(new MockAnalyzer(random()));
+    LogDocMergePolicy mp = new LogDocMergePolicy();
+    // only merge on forceMerge
+    mp.setMergeFactor(1000);
+    conf.setMergePolicy(mp);
+    conf.setMergedSegmentWarmer(warmer);
+    initPrimary(conf);
+
+    for (int i = 0; i < 3; i++) {
+      indexDocs(10);
+      publishRevision();
+      client.updateNow();
+      assertReplicaMatchesPrimary();
+    }
+
+    final Set<String> filesBeforeMerge = new HashSet<>(copiedFiles);
+    publishWriter.forceMerge(1);
+    assertEquals(1, preCopies.get());
+    // the merged segment was copied to the replica before being published
+    final List<String> preCopiedFiles = new ArrayList<>();
+    for (String file : handlerDir.listAll()) {
+      if (file.startsWith("_") && !filesBeforeMerge.contains(file)) {
+        preCopiedFiles.add(file);
+      }
+    }
+    assertFalse(preCopiedFiles.isEmpty());
+
+    publishRevision();
+    client.updateNow();
+    assertReplicaMatchesPrimary();
+    // copiedFiles tracks files that the client needed to fetch
+    for (String file : preCopiedFiles) {
+      assertFalse("pre-copied file was copied again: " + file, copiedFiles.contains(file));
+    }
+  }
+
+  @Test
+  public void testMismatchingPreCopiedFiles() throws Exception {
+    initPrimary(new IndexWriterConfig(new MockAnalyzer(random())));
+    indexDocs(10);
+
+    // pre-copy files of another index, which have the names of the primary's files
+    Directory otherDir = newDirectory();
+    IndexWriter otherWriter = new IndexWriter(otherDir, new IndexWriterConfig(new MockAnalyzer(random())));
+    otherWriter.addDocument(new Document());
+    otherWriter.commit();
+    final List<String> otherFiles = new ArrayList<>();
+    for (String file : otherDir.listAll()) {
+      if (file.startsWith("_0")) {
+        otherFiles.add(file);
+      }
+    }
+    handler.preCopy(otherDir, otherFiles);
+    IOUtils.close(otherWriter, otherDir);
+
+    // the replica deletes the mismatching files and copies them again under the same names
+    if (handlerDir instanceof MockDirectoryWrapper) {
+      ((MockDirectoryWrapper) handlerDir).setEnableVirusScanner(false);
+      ((MockDirectoryWrapper) handlerDir).setPreventDoubleWrite(false);
+    }
+
+    publishRevision();
+    try {
+      client.updateNow();
+      fail("should have hit IllegalStateException");
+    } catch (IllegalStateException expected) {
+      // ok
+    }
+    assertNull(handler.currentVersion());
+    for (String file : otherFiles) {
+      if (slowFileExists(publishDir, file)) {
+        assertFalse("mismatching file was not deleted: " + file, slowFileExists(handlerDir, file));
+      }
+    }
+
+    // the client copies the files of the primary again on the next attempt
+    copiedFiles.clear();
+    client.updateNow();
+    assertEquals(NRTIndexRevision.revisionVersion(publishReader.getVersion()), handler.currentVersion());
+    assertReplicaMatchesPrimary();
+  }
+
+  @Test
+  public void testInvalidReader() throws Exception {
+    initPrimary(newIndexWriterConfig(new MockAnalyzer(random())));
+    Directory otherDir = newDirectory();
+    IndexWriter otherWriter = new IndexWriter(otherDir, newIndexWriterConfig(new MockAnalyzer(random())));
+    otherWriter.addDocument(new Document());
+    DirectoryReader reader = DirectoryReader.open(otherWriter, true, true);
+    try {
+      new NRTIndexRevision(publishWriter, reader);
+      fail("should have hit IllegalArgumentException");
+    } catch (IllegalArgumentException expected) {
+      // ok
+    } finally {
+      IOUtils.close(reader, otherWriter, otherDir);
+    }
+  }
+
+}
@@ -28,6 +28,8 @@ import org.apache.lucene.codecs.Codec;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.StoredField;
 import org.apache.lucene.document.TextField;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.MockDirectoryWrapper;
@@ -133,6 +135,47 @@ public abstract class BaseSegmentInfoFormatTestCase extends BaseIndexFileFormatT
     dir.close();
   }
   
+  /** Test index sort */
+  public void testIndexSort() throws Exception {
+    Codec codec = getCodec();
+    SortField[] candidates = new SortField[] {
+        new SortField("string", SortField.Type.STRING),
+        new SortField("string_last", SortField.Type.STRING, true),
+        new SortField("long", SortField.Type.LONG),
+        new SortField("int", SortField.Type.INT, true),
+        new SortField("double", SortField.Type.DOUBLE),
+        new SortField("float", SortField.Type.FLOAT, true)
+    };
+    candidates[1].setMissingValue(SortField.STRING_LAST);
+    candidates[2].setMissingValue(Long.MIN_VALUE);
+    candidates[3].setMissingValue(42);
+    candidates[4].setMissingValue(Double.NEGATIVE_INFINITY);
+    candidates[5].setMissingValue(-0f);
+    for (int i = 0; i < 10; ++i) {
+      Sort sort;
+      if (i == 0) {
+        sort = null;
+      } else {
+        final int numSortFields = TestUtil.nextInt(random(), 1, 3);
+        SortField[] sortFields = new SortField[numSortFields];
+        for (int j = 0; j < numSortFields; ++j) {
+          sortFields[j] = candidates[random().nextInt(candidates.length)];
+        }
+        sort = new Sort(sortFields);
+      }
+
+      Directory dir = newDirectory();
+      byte id[] = StringHelper.randomId();
+      SegmentInfo info = new SegmentInfo(dir, getVersions()[0], "_123", 1, false, codec, 
+                                         Collections.<String,String>emptyMap(), id, new HashMap<String,String>(), sort);
+      info.setFiles(Collections.<String>emptySet());
+      codec.segmentInfoFormat().write(dir, info, IOContext.DEFAULT);
+      SegmentInfo info2 = codec.segmentInfoFormat().read(dir, "_123", id, IOContext.DEFAULT);
+      assertEquals(sort, info2.getIndexSort());
+      dir.close();
+    }
+  }
+
   /** Test unique ID */
   public void testUniqueID() throws Exception {
     Codec codec = getCodec();
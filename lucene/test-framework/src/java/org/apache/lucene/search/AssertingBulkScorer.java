@@ -57,7 +57,7 @@ final class AssertingBulkScorer extends BulkScorer {
   @Override
   public void score(LeafCollector collector) throws IOException {
     assert max == 0;
-    collector = new AssertingLeafCollector(random, collector, 0, PostingsEnum.NO_MORE_DOCS);
+    collector = AssertingLeafCollector.wrap(random, collector, 0, PostingsEnum.NO_MORE_DOCS);
     if (random.nextBoolean()) {
       try {
         final int next = score(collector, 0, PostingsEnum.NO_MORE_DOCS);
@@ -75,7 +75,7 @@ final class AssertingBulkScorer extends BulkScorer {
     assert min >= this.max: "Scoring backward: min=" + min + " while previous max was max=" + this.max;
     assert min <= max : "max must be greater than min, got min=" + min + ", and max=" + max;
     this.max = max;
-    collector = new AssertingLeafCollector(random, collector, min, max);
+    collector = AssertingLeafCollector.wrap(random, collector, min, max);
     final int next = in.score(collector, min, max);
     assert next >= max;
     if (max >= maxDoc || next >= maxDoc) {
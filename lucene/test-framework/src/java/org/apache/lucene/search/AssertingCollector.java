@@ -47,17 +47,30 @@ class AssertingCollector extends FilterCollector {
   public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
     final LeafCollector in = super.getLeafCollector(context);
     final int docBase = context.docBase;
+    if (in instanceof BulkLeafCollector) {
+      return new AssertingLeafCollector.AssertingBulkLeafCollector(random, (BulkLeafCollector) in, 0, DocIdSetIterator.NO_MORE_DOCS) {
+        @Override
+        void checkCollected(int doc) {
+          checkGlobalOrder(docBase + doc);
+          super.checkCollected(doc);
+        }
+      };
+    }
     return new AssertingLeafCollector(random, in, 0, DocIdSetIterator.NO_MORE_DOCS) {
       @Override
-      public void collect(int doc) throws IOException {
-        // check that documents are scored in order globally,
-        // not only per segment
-        assert docBase + doc >= maxDoc : "collection is not in order: current doc="
-            + (docBase + doc) + " while " + maxDoc + " has already been collected";
-        super.collect(doc);
-        maxDoc = docBase + doc;
+      void checkCollected(int doc) {
+        checkGlobalOrder(docBase + doc);
+        super.checkCollected(doc);
       }
     };
   }
 
+  // check that documents are scored in order globally,
+  // not only per segment
+  private void checkGlobalOrder(int doc) {
+    assert doc >= maxDoc : "collection is not in order: current doc="
+        + doc + " while " + maxDoc + " has already been collected";
+    maxDoc = doc;
+  }
+
 }
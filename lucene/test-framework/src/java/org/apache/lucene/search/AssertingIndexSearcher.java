@@ -102,6 +102,11 @@ public class AssertingIndexSearcher extends IndexSearcher {
     super.search(leaves, AssertingWeight.wrap(random, weight), AssertingCollector.wrap(random, collector));
   }
 
+  @Override
+  protected void search(LeafReaderContext ctx, int minDoc, int maxDoc, Weight weight, Collector collector) throws IOException {
+    super.search(ctx, minDoc, maxDoc, AssertingWeight.wrap(random, weight), AssertingCollector.wrap(random, collector));
+  }
+
   @Override
   public String toString() {
     return "AssertingIndexSearcher(" + super.toString() + ")";
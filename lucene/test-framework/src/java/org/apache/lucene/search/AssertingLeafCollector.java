@@ -24,6 +24,15 @@ import java.util.Random;
  *  order is respected. */
 class AssertingLeafCollector extends FilterLeafCollector {
 
+  /** Wrap the given leaf collector, preserving its ability to collect
+   *  documents in bulk. */
+  static AssertingLeafCollector wrap(Random random, LeafCollector collector, int min, int max) {
+    if (collector instanceof BulkLeafCollector) {
+      return new AssertingBulkLeafCollector(random, (BulkLeafCollector) collector, min, max);
+    }
+    return new AssertingLeafCollector(random, collector, min, max);
+  }
+
   private final Random random;
   private final int min;
   private final int max;
@@ -44,15 +53,39 @@ class AssertingLeafCollector extends FilterLeafCollector {
     super.setScorer(AssertingScorer.getAssertingScorer(random, scorer));
   }
 
-  @Override
-  public void collect(int doc) throws IOException {
+  /** Check that {@code doc} may be collected. */
+  void checkCollected(int doc) {
     assert doc > lastCollected : "Out of order : " + lastCollected + " " + doc;
     assert doc >= min : "Out of range: " + doc + " < " + min;
     assert doc < max : "Out of range: " + doc + " >= " + max;
+    lastCollected = doc;
+  }
+
+  @Override
+  public void collect(int doc) throws IOException {
+    checkCollected(doc);
     assert scorer.docID() == doc : "Collected: " + doc + " but scorer: " + scorer.docID();
     in.collect(doc);
-    lastCollected = doc;
   }
 
-}
+  /** Wraps a {@link BulkLeafCollector}. */
+  static class AssertingBulkLeafCollector extends AssertingLeafCollector implements BulkLeafCollector {
+
+    AssertingBulkLeafCollector(Random random, BulkLeafCollector collector, int min, int max) {
+      super(random, collector, min, max);
+    }
 
+    @Override
+    public void collect(int[] docs, float[] scores, int count) throws IOException {
+      assert count > 0 : count;
+      assert count <= docs.length && count <= scores.length;
+      for (int i = 0; i < count; ++i) {
+        checkCollected(docs[i]);
+        assert Float.isNaN(scores[i]) == false : scores[i];
+      }
+      ((BulkLeafCollector) in).collect(docs, scores, count);
+    }
+
+  }
+
+}
@@ -68,6 +68,7 @@ public class AssertingScorer extends Scorer {
 
   IteratorState state = IteratorState.START;
   int doc = -1;
+  float minCompetitiveScore = Float.NEGATIVE_INFINITY;
 
   private AssertingScorer(Random random, Scorer in) {
     super(in.weight);
@@ -151,6 +152,18 @@ public class AssertingScorer extends Scorer {
     return in.cost();
   }
 
+  @Override
+  public float maxScore() {
+    return in.maxScore();
+  }
+
+  @Override
+  public void setMinCompetitiveScore(float minScore) {
+    assert minScore >= minCompetitiveScore : "min competitive score went backwards from " + minCompetitiveScore + " to " + minScore;
+    minCompetitiveScore = minScore;
+    in.setMinCompetitiveScore(minScore);
+  }
+
   @Override
   public String toString() {
     return "AssertingScorer(" + in + ")";
@@ -218,6 +218,38 @@ public abstract class BaseDirectoryTestCase extends LuceneTestCase {
     dir.close();
   }
   
+  public void testReadLongs() throws Exception {
+    Directory dir = getDirectory(createTempDir("testReadLongs"));
+    IndexOutput output = dir.createOutput("longs", newIOContext(random()));
+    // a prefix makes longs unaligned with buffers
+    final int prefix = random().nextInt(8);
+    for (int i = 0; i < prefix; ++i) {
+      output.writeByte((byte) i);
+    }
+    final long[] longs = new long[TestUtil.nextInt(random(), 1, 10000)];
+    for (int i = 0; i < longs.length; ++i) {
+      longs[i] = random().nextLong();
+      output.writeLong(longs[i]);
+    }
+    output.close();
+
+    IndexInput input = dir.openInput("longs", newIOContext(random()));
+    input.seek(prefix);
+    final long[] actual = new long[longs.length + 2];
+    int upto = 0;
+    while (upto < longs.length) {
+      final int len = TestUtil.nextInt(random(), 1, Math.min(200, longs.length - upto));
+      input.readLongs(actual, 1 + upto, len);
+      upto += len;
+    }
+    assertEquals(prefix + 8L * longs.length, input.getFilePointer());
+    for (int i = 0; i < longs.length; ++i) {
+      assertEquals(longs[i], actual[1 + i]);
+    }
+    input.close();
+    dir.close();
+  }
+
   public void testString() throws Exception {
     Directory dir = getDirectory(createTempDir("testString"));
     IndexOutput output = dir.createOutput("string", newIOContext(random()));